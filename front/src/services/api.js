@@ -53,6 +53,21 @@ export default {
             return [];
         }
     },
+
+    // Abonnement au flux des ticks (Server-Sent Events) : onUpdate reçoit la liste des hôpitaux
+    // à chaque tick, sans requête de notre part. Le navigateur se reconnecte tout seul en cas de coupure.
+    // Retourne une fonction pour se désabonner.
+    subscribeHospitals(onUpdate) {
+        const source = new EventSource(`${API_URL}/hospitals/stream`);
+        source.addEventListener('tick', (event) => {
+            const update = JSON.parse(event.data);
+            onUpdate(update.hospitals);
+        });
+        source.onerror = (error) => {
+            console.error('Flux des hôpitaux interrompu, reconnexion...', error);
+        };
+        return () => source.close();
+    },
 };
 
 
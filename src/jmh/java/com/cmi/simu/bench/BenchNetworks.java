@@ -0,0 +1,59 @@
+package com.cmi.simu.bench;
+
+import com.cmi.simu.flow.FlowManager;
+import com.cmi.simu.flow.Hospital;
+import com.cmi.simu.flow.HospitalUnit;
+import com.cmi.simu.flow.PatientModel;
+import com.cmi.simu.flow.PriorityLevel;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Réseaux d'hôpitaux reproductibles pour les benchmarks (graine fixe).
+ * <p>
+ * Chaque hôpital a pour voisins les 2 précédents et les 2 suivants sur un anneau :
+ * le degré reste constant quand le réseau grandit (le graphe complet créé par l'API
+ * serait en O(n²) et mesurerait surtout sa propre construction).
+ */
+final class BenchNetworks {
+
+    static final long SEED = 42L;
+
+    private static final PriorityLevel[] PRIORITIES = PriorityLevel.values();
+
+    private BenchNetworks() {
+    }
+
+    static List<Hospital> build(int hospitals, int capacity, boolean filled, PatientModel model) {
+        List<Hospital> network = new ArrayList<>(hospitals);
+        for (int i = 1; i <= hospitals; i++) {
+            Hospital h = new Hospital(i, "H" + i, new FlowManager(1.0, 0.3, 2.0), model);
+            h.seedRandom(SEED);
+            for (HospitalUnit unit : h.getUnits()) {
+                unit.setMaxCapacity(capacity);
+                if (filled) {
+                    fill(unit);
+                }
+            }
+            network.add(h);
+        }
+        for (int i = 0; i < hospitals; i++) {
+            for (int d = 1; d <= 2 && d < hospitals; d++) {
+                network.get(i).addNeighbor(network.get((i + d) % hospitals));
+                network.get(i).addNeighbor(network.get((i - d + hospitals) % hospitals));
+            }
+        }
+        return network;
+    }
+
+    /**
+     * Remplit l'unité jusqu'à sa capacité, priorités et temps de traitement répartis régulièrement.
+     */
+    static void fill(HospitalUnit unit) {
+        int k = unit.getCurrentLoad();
+        while (unit.addNewPatient(PRIORITIES[k % PRIORITIES.length], 3 + k % 12)) {
+            k++;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.cmi.simu.bench;
+
+import com.cmi.simu.flow.ArrivalScenario;
+import com.cmi.simu.flow.Clock;
+import com.cmi.simu.flow.EngineType;
+import com.cmi.simu.flow.EventEngine;
+import com.cmi.simu.flow.Hospital;
+import com.cmi.simu.flow.PatientModel;
+import com.cmi.simu.flow.RandomStreams;
+import com.cmi.simu.flow.TickEngine;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Une journée simulée (24 h) d'un réseau partant vide, avec le moteur à ticks
+ * ou le moteur à événements discrets ({@link EventEngine}), sur un seul thread.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EngineBenchmark {
+
+    private static final int HOURS = 24;
+
+    @Param({"100", "1000"})
+    public int hospitals;
+
+    @Param({"TICK", "EVENT"})
+    public EngineType engine;
+
+    @Param({"AGGREGATED"})
+    public PatientModel model;
+
+    private List<Hospital> network;
+    private Clock clock;
+
+    // Réseau reconstruit à chaque appel : chaque journée part du même état
+    @Setup(Level.Invocation)
+    public void buildNetwork() {
+        network = BenchNetworks.build(hospitals, 100, false, model);
+        clock = new Clock();
+        for (Hospital h : network) {
+            h.setClock(clock);
+        }
+    }
+
+    @Benchmark
+    public List<Hospital> day() {
+        if (engine == EngineType.EVENT) {
+            new EventEngine(network, RandomStreams.stream(BenchNetworks.SEED, RandomStreams.SCENARIO_STREAM), clock)
+                    .advanceTo(HOURS);
+            return network;
+        }
+        ArrivalScenario scenario = new ArrivalScenario(network,
+                RandomStreams.stream(BenchNetworks.SEED, RandomStreams.SCENARIO_STREAM), clock);
+        for (int t = 0; t < HOURS; t++) {
+            TickEngine.tickSequential(network, scenario);
+            clock.addOneHour();
+        }
+        return network;
+    }
+}
@@ -0,0 +1,93 @@
+package com.cmi.simu.bench;
+
+import com.cmi.simu.flow.ArrivalScenario;
+import com.cmi.simu.flow.Clock;
+import com.cmi.simu.flow.Hospital;
+import com.cmi.simu.flow.HospitalUnit;
+import com.cmi.simu.flow.PatientModel;
+import com.cmi.simu.flow.RandomStreams;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Phases du tick qui portent sur tout le réseau : tirage des arrivées
+ * ({@link ArrivalScenario#updateArrivals()}) et transferts entre hôpitaux
+ * ({@link Hospital#doInterHospitalTransfers()}).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NetworkPhasesBenchmark {
+
+    private static final int CAPACITY = 100;
+
+    @State(Scope.Thread)
+    public static class Arrivals {
+
+        @Param({"2", "100", "1000", "10000"})
+        public int hospitals;
+
+        ArrivalScenario scenario;
+
+        @Setup(Level.Trial)
+        public void buildNetwork() {
+            List<Hospital> network = BenchNetworks.build(hospitals, CAPACITY, true, PatientModel.INDIVIDUAL);
+            Clock clock = new Clock();
+            for (Hospital h : network) {
+                h.setClock(clock);
+            }
+            scenario = new ArrivalScenario(network, RandomStreams.stream(BenchNetworks.SEED, RandomStreams.SCENARIO_STREAM), clock);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Overloaded {
+
+        @Param({"2", "100", "1000", "10000"})
+        public int hospitals;
+
+        List<Hospital> network;
+
+        @Setup(Level.Trial)
+        public void buildNetwork() {
+            network = BenchNetworks.build(hospitals, CAPACITY, true, PatientModel.INDIVIDUAL);
+        }
+
+        /**
+         * Un hôpital sur deux passe en surcapacité (capacité réduite de 20 %), l'autre a de la place.
+         * Hors mesure : refait avant chaque appel, puisque les transferts résorbent le surplus.
+         */
+        @Setup(Level.Invocation)
+        public void overload() {
+            for (int i = 0; i < network.size(); i++) {
+                for (HospitalUnit unit : network.get(i).getUnits()) {
+                    unit.setMaxCapacity(CAPACITY);
+                    BenchNetworks.fill(unit);
+                    if (i % 2 == 0) {
+                        unit.setMaxCapacity(CAPACITY * 4 / 5);
+                    } else {
+                        unit.removePatients(CAPACITY / 5);
+                    }
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public ArrivalScenario updateArrivals(Arrivals state) {
+        state.scenario.updateArrivals();
+        return state.scenario;
+    }
+
+    @Benchmark
+    public List<Hospital> interHospitalTransfers(Overloaded state) {
+        for (Hospital h : state.network) {
+            h.doInterHospitalTransfers();
+        }
+        return state.network;
+    }
+}
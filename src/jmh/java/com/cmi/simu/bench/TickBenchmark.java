@@ -0,0 +1,72 @@
+package com.cmi.simu.bench;
+
+import com.cmi.simu.flow.ArrivalScenario;
+import com.cmi.simu.flow.Clock;
+import com.cmi.simu.flow.Hospital;
+import com.cmi.simu.flow.PatientModel;
+import com.cmi.simu.flow.RandomStreams;
+import com.cmi.simu.flow.TickEngine;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Un tick complet du réseau ({@link TickEngine#tick}) selon la taille du réseau,
+ * son état (vide ou saturé) et le nombre de threads de calcul.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TickBenchmark {
+
+    @Param({"2", "100", "1000", "10000"})
+    public int hospitals;
+
+    // IDLE : unités vides, aucune arrivée ; SATURATED : unités pleines et arrivées du scénario
+    @Param({"IDLE", "SATURATED"})
+    public String load;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    @Param({"INDIVIDUAL", "AGGREGATED"})
+    public PatientModel model;
+
+    private List<Hospital> network;
+    private ArrivalScenario scenario;
+    private TickEngine engine;
+
+    @Setup(Level.Trial)
+    public void startEngine() {
+        engine = new TickEngine(threads);
+    }
+
+    // Réseau reconstruit à chaque itération : chaque mesure part du même état
+    @Setup(Level.Iteration)
+    public void buildNetwork() {
+        boolean saturated = load.equals("SATURATED");
+        network = BenchNetworks.build(hospitals, 100, saturated, model);
+        Clock clock = new Clock();
+        for (Hospital h : network) {
+            h.setClock(clock);
+        }
+        scenario = saturated
+                ? new ArrivalScenario(network, RandomStreams.stream(BenchNetworks.SEED, RandomStreams.SCENARIO_STREAM), clock)
+                : null;
+    }
+
+    @TearDown(Level.Trial)
+    public void stopEngine() {
+        engine.close();
+    }
+
+    @Benchmark
+    public Map<Integer, Map<String, Integer>> tick() {
+        return engine.tick(network, scenario);
+    }
+}
@@ -0,0 +1,60 @@
+package com.cmi.simu.bench;
+
+import com.cmi.simu.flow.FlowSimulator;
+import com.cmi.simu.flow.Hospital;
+import com.cmi.simu.flow.HospitalUnit;
+import com.cmi.simu.flow.PatientModel;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coût d'un pas dans un seul hôpital selon le nombre de patients par unité :
+ * {@link HospitalUnit#treatPatientsOneStep()} et {@link FlowSimulator#simulateOneStep()}.
+ * Les unités sont remises à pleine capacité après chaque pas (inclus dans la mesure, en O(sorties))
+ * pour rester dans le même régime d'une invocation à l'autre.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UnitBenchmark {
+
+    @Param({"10", "1000", "50000"})
+    public int patientsPerUnit;
+
+    @Param({"INDIVIDUAL", "AGGREGATED"})
+    public PatientModel model;
+
+    private Hospital hospital;
+    private HospitalUnit unit;
+
+    @Setup(Level.Iteration)
+    public void buildHospital() {
+        hospital = BenchNetworks.build(1, patientsPerUnit, true, model).get(0);
+        unit = hospital.getUnits().get(0);
+        // Personnel proportionnel à la taille de l'unité, comme dans le réseau par défaut (1/3)
+        for (HospitalUnit u : hospital.getUnits()) {
+            u.setStaffCapacity(Math.max(1, patientsPerUnit / 3));
+        }
+    }
+
+    @Benchmark
+    public int treatPatientsOneStep() {
+        int out = unit.treatPatientsOneStep();
+        BenchNetworks.fill(unit);
+        return out;
+    }
+
+    @Benchmark
+    public Map<String, Integer> simulateOneStep() {
+        Map<String, Integer> out = hospital.getFlowSimulator().simulateOneStep();
+        for (HospitalUnit u : hospital.getUnits()) {
+            BenchNetworks.fill(u);
+        }
+        return out;
+    }
+}
@@ -0,0 +1,99 @@
+package com.cmi.simu.flow;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Variante de {@link FlowSimulator} pour les unités en mode {@link PatientModel#AGGREGATED}.
+ * <p>
+ * Les étapes 1), 2) et 5) sont communes (elles passent par HospitalUnit, qui sait travailler
+ * sur ses effectifs). Seuls les transferts internes changent : au lieu de choisir des patients,
+ * on choisit combien de patients prendre dans chaque case de l'histogramme de la source,
+ * dans le même ordre de préférence (LOW d'abord, puis NORMAL, ensuite URGENT, patients
+ * éligibles uniquement).
+ */
+public class AggregatedFlowSimulator extends FlowSimulator {
+
+    private static final int[] ORDER = PatientHistogram.TRANSFER_ORDER;
+
+    // Plan de transfert préalloué : take[(i * n + j) * ORDER.length + k] = nombre de patients
+    // à prendre dans la case ORDER[k] de i pour les envoyer vers j
+    private final int[] take;
+    private final int[] pairs;
+    private int pairCount;
+    private final int[] available = new int[ORDER.length];
+
+    public AggregatedFlowSimulator(List<HospitalUnit> units, FlowManager flowManager) {
+        super(units, flowManager);
+        int n = units.size();
+        this.take = new int[n * n * ORDER.length];
+        this.pairs = new int[n * n];
+    }
+
+    @Override
+    protected void applyInternalTransfers() {
+        int n = units.size();
+
+        // 3) Calculer les flux potentiels et, pour chaque couple (i → j), le nombre de patients
+        //    à prendre dans chaque case éligible de i (indexé comme TRANSFER_ORDER)
+        pairCount = 0;
+
+        for (int s = 0; s < n; s++) {
+            HospitalUnit i = units.get(s);
+            if (i.isObstacle() || i.getCurrentLoad() == 0) continue;
+
+            int totalPatients = i.getCurrentLoad();
+
+            double totalFluxSum = computeOutflows(s);
+            if (totalFluxSum <= 0) continue;
+
+            // Effectifs éligibles de i, consommés au fur et à mesure (curseur partagé entre voisins)
+            PatientHistogram h = i.getHistogram();
+            for (int k = 0; k < ORDER.length; k++) {
+                available[k] = h.countAt(ORDER[k]);
+            }
+            int cursor = 0;
+
+            int[] nb = neighborIds[s];
+            for (int m = 0; m < nb.length; m++) {
+                if (fluxBuf[m] <= 0) continue;
+                int nbTransfer = (int) Math.floor(fluxBuf[m] / totalFluxSum * totalPatients);
+
+                int pair = s * n + nb[m];
+                int base = pair * ORDER.length;
+                Arrays.fill(take, base, base + ORDER.length, 0);
+                while (nbTransfer > 0 && cursor < ORDER.length) {
+                    int x = Math.min(nbTransfer, available[cursor]);
+                    take[base + cursor] += x;
+                    available[cursor] -= x;
+                    nbTransfer -= x;
+                    if (available[cursor] == 0) cursor++;
+                }
+                pairs[pairCount++] = pair;
+            }
+        }
+
+        // 4) Appliquer les transferts, dans la limite de la place disponible chez la cible.
+        //    Les patients d'une même case étant interchangeables, on peut retirer tout de suite :
+        //    les cases de la source ne peuvent que grossir entre la planification et ici.
+        for (int p = 0; p < pairCount; p++) {
+            int pair = pairs[p];
+            HospitalUnit source = units.get(pair / n);
+            HospitalUnit target = units.get(pair % n);
+            int base = pair * ORDER.length;
+
+            int canAccept = target.getMaxCapacity() - target.getCurrentLoad();
+            PatientHistogram from = source.getHistogram();
+            PatientHistogram to = target.getHistogram();
+            for (int k = 0; k < ORDER.length && canAccept > 0; k++) {
+                int x = Math.min(take[base + k], canAccept);
+                if (x == 0) continue;
+                from.moveTo(to, ORDER[k], x);
+                canAccept -= x;
+                transfers += x;
+            }
+            source.updateLoad();
+            target.updateLoad();
+        }
+    }
+}
@@ -1,15 +1,19 @@
 package com.cmi.simu.flow;
 
 import java.util.List;
-import java.util.Random;
 
 /**
  * Gère la logique d'arrivées extérieures, incluant des événements (catastrophes) aléatoires.
+ * <p>
+ * Les événements sont tirés dans le flux du scénario ; le nombre d'arrivées de chaque unité
+ * est tiré dans le flux de l'unité elle-même.
  */
 public class ArrivalScenario {
 
     private final List<Hospital> allHospitals;
-    private final Random rand;
+    private final SplitMixRandom rand;
+    private final Clock clock;
+    private final EventSink events;   // celui de l'horloge
 
     // État interne
     private boolean inEvent;
@@ -21,8 +25,24 @@ public class ArrivalScenario {
     private final int maxTimeBetweenEvents = 5;  // ex. 5
 
     public ArrivalScenario(List<Hospital> hospitals) {
+        this(hospitals, SplitMixRandom.unseeded());
+    }
+
+    /**
+     * Scénario reproductible : voir {@link RandomStreams#SCENARIO_STREAM}.
+     */
+    public ArrivalScenario(List<Hospital> hospitals, SplitMixRandom rand) {
+        this(hospitals, rand, Clock.getClock());
+    }
+
+    /**
+     * Scénario reproductible, sur l'horloge d'une simulation donnée.
+     */
+    public ArrivalScenario(List<Hospital> hospitals, SplitMixRandom rand, Clock clock) {
         this.allHospitals = hospitals;
-        this.rand = new Random();
+        this.rand = rand;
+        this.clock = clock;
+        this.events = clock.getEvents();
 
         this.inEvent = false;
         // Durée initiale d’un événement inexistant
@@ -31,6 +51,21 @@ public class ArrivalScenario {
         this.countdownToNextEvent = getRandomInRange(minTimeBetweenEvents, maxTimeBetweenEvents);
     }
 
+    /**
+     * Reprise d'un scénario dans l'état où il a été sauvegardé (voir SimulationCheckpoint) :
+     * aucun tirage, le générateur est déjà dans son état sauvegardé.
+     */
+    ArrivalScenario(List<Hospital> hospitals, SplitMixRandom rand, Clock clock,
+                    boolean inEvent, int eventDuration, int countdownToNextEvent) {
+        this.allHospitals = hospitals;
+        this.rand = rand;
+        this.clock = clock;
+        this.events = clock.getEvents();
+        this.inEvent = inEvent;
+        this.eventDuration = eventDuration;
+        this.countdownToNextEvent = countdownToNextEvent;
+    }
+
     /**
      * Méthode principale, appelée à chaque "tick" (chaque fois qu'on veut avancer la simulation).
      */
@@ -40,7 +75,7 @@ public class ArrivalScenario {
             eventDuration--;
             if (eventDuration <= 0) {
                 inEvent = false;
-                System.out.println("** L'evenement s'acheve. Activite normale. **");
+                events.emit(SimulationEvent.EVENT_END);
                 countdownToNextEvent = getRandomInRange(minTimeBetweenEvents, maxTimeBetweenEvents);
             }
         } else {
@@ -49,62 +84,65 @@ public class ArrivalScenario {
             if (countdownToNextEvent <= 0) {
                 inEvent = true;
                 eventDuration = getRandomInRange(1, 3);
-                System.out.println("** Un événement grave démarre pour " + eventDuration + " iteration(s) ! **");
+                events.emit(SimulationEvent.EVENT_START, null, eventDuration);
             }
         }
 
         // Générer les arrivées dans chaque hôpital, en fonction de inEvent
+        boolean night = isNight(clock.getTime());
         for (Hospital hospital : allHospitals) {
             for (HospitalUnit unit : hospital.getUnits()) {
-                int urgentArr = 0, normalArr = 0, lowArr = 0;
-
-                if (inEvent) {
-                    // On augmente le flux, surtout en urgences
-                    if (unit.getName().equalsIgnoreCase("Urgences")) {
-                        System.out.println("Is Event for URGENCES");
-                        urgentArr = getRandomInRange(3, 8);
-                        normalArr = getRandomInRange(4, 10);
-                        lowArr    = getRandomInRange(2, 5);
-                    } else {
-                        urgentArr = getRandomInRange(1, 3);
-                        normalArr = getRandomInRange(1, 5);
-                        lowArr    = getRandomInRange(0, 4);
-                    }
-                } else {
-                    // Activité normale. On gère un mode jour/nuit par Clock
-                    if (isNight()) {
-                        if (unit.getName().equalsIgnoreCase("Urgences")) {
-                            System.out.println("Night - URGENCES");
-                            urgentArr = getRandomInRange(0, 2);
-                            normalArr = getRandomInRange(0, 2);
-                            lowArr    = getRandomInRange(0, 1);
-                        } else {
-                            urgentArr = getRandomInRange(0, 1);
-                            normalArr = getRandomInRange(0, 2);
-                            lowArr    = getRandomInRange(0, 1);
-                        }
-                    } else {
-                        // Jour
-                        if (unit.getName().equalsIgnoreCase("Urgences")) {
-                            System.out.println("Day - URGENCES");
-                            urgentArr = getRandomInRange(0, 2);
-                            normalArr = getRandomInRange(2, 4);
-                            lowArr    = getRandomInRange(1, 3);
-                        } else {
-                            urgentArr = getRandomInRange(0, 1);
-                            normalArr = getRandomInRange(1, 3);
-                            lowArr    = getRandomInRange(0, 2);
-                        }
-                    }
+                boolean urgences = unit.getKind() == UnitKind.URGENCES;
+                if (urgences) {
+                    events.emit(inEvent ? SimulationEvent.EVENT_URGENCES
+                            : night ? SimulationEvent.NIGHT_URGENCES : SimulationEvent.DAY_URGENCES);
                 }
-
-                unit.setExternalArrivalsUrgent(urgentArr);
-                unit.setExternalArrivalsNormal(normalArr);
-                unit.setExternalArrivalsLow(lowArr);
+                int[] r = arrivalRanges(inEvent, night, urgences);
+                unit.setExternalArrivalsUrgent(unit.getRandomInRange(r[0], r[1]));
+                unit.setExternalArrivalsNormal(unit.getRandomInRange(r[2], r[3]));
+                unit.setExternalArrivalsLow(unit.getRandomInRange(r[4], r[5]));
             }
         }
     }
 
+    /**
+     * Bornes des arrivées d'une heure pour une unité :
+     * {urgent min, urgent max, normal min, normal max, low min, low max}, bornes incluses.
+     * Pendant un événement, le flux augmente, surtout aux urgences ; sinon, mode jour/nuit.
+     */
+    static int[] arrivalRanges(boolean inEvent, boolean night, boolean urgences) {
+        if (inEvent) return urgences ? EVENT_URGENCES : EVENT_OTHER;
+        if (night) return urgences ? NIGHT_URGENCES : NIGHT_OTHER;
+        return urgences ? DAY_URGENCES : DAY_OTHER;
+    }
+
+    private static final int[] EVENT_URGENCES = {3, 8, 4, 10, 2, 5};
+    private static final int[] EVENT_OTHER    = {1, 3, 1, 5, 0, 4};
+    private static final int[] NIGHT_URGENCES = {0, 2, 0, 2, 0, 1};
+    private static final int[] NIGHT_OTHER    = {0, 1, 0, 2, 0, 1};
+    private static final int[] DAY_URGENCES   = {0, 2, 2, 4, 1, 3};
+    private static final int[] DAY_OTHER      = {0, 1, 1, 3, 0, 2};
+
+    /**
+     * Vrai si un événement grave est en cours (depuis le dernier appel à updateArrivals).
+     */
+    public boolean isInEvent() {
+        return inEvent;
+    }
+
+    // État interne, pour les checkpoints
+    int getEventDuration() {
+        return eventDuration;
+    }
+
+    int getCountdownToNextEvent() {
+        return countdownToNextEvent;
+    }
+
+    SplitMixRandom getRandom() {
+        return rand;
+    }
+
     private int getRandomInRange(int min, int max) {
         if (min > max) {
             return min;
@@ -112,9 +150,8 @@ public class ArrivalScenario {
         return rand.nextInt(max - min + 1) + min;
     }
 
-    private boolean isNight() {
+    static boolean isNight(int hour) {
         // Suppose qu'on est la nuit entre 22h et 5h
-        int hour = Clock.getTime();
         return hour >= 22 || hour < 6;
     }
 }
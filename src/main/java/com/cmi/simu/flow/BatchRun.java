@@ -0,0 +1,193 @@
+package com.cmi.simu.flow;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Simulation "sans tête" : fait avancer un réseau sur un horizon donné aussi vite que possible,
+ * et écrit le résultat de chaque tick au fil du calcul, une ligne JSON par tick (NDJSON).
+ * <p>
+ * Rien n'est conservé d'un tick à l'autre en dehors du réseau lui-même : la mémoire ne dépend
+ * pas de l'horizon. Le flux contient, dans l'ordre :
+ * <pre>
+ * {"type":"header","seed":42,"hours":8760,"engine":"TICK","units":["A/Urgences",...]}
+ * {"t":0,"hour":0,"event":false,"load":[..],"exits":[..],"deaths":[..],"rejected":[..]}
+ * ...
+ * {"type":"end","hours":8760,"elapsedMs":1234}
+ * </pre>
+ * Les tableaux suivent l'ordre de "units" ; exits, deaths et rejected sont comptés sur le tick.
+ * Même graine, même réseau, même moteur : même flux.
+ */
+public class BatchRun {
+
+    // Le client voit arriver les résultats au moins une fois par journée simulée
+    private static final int FLUSH_EVERY_TICKS = 24;
+
+    private final List<Hospital> network;
+    private final long masterSeed;
+    private final int hours;
+    private final EngineType engine;
+    private final EventSink events;
+
+    /**
+     * Simulation sans journal d'événements (voir {@link EventSink#none()}).
+     *
+     * @param network réseau neuf, réservé à cette simulation (ses unités sont modifiées)
+     */
+    public BatchRun(List<Hospital> network, long masterSeed, int hours, EngineType engine) {
+        this(network, masterSeed, hours, engine, EventSink.none());
+    }
+
+    /**
+     * @param network réseau neuf, réservé à cette simulation (ses unités sont modifiées)
+     * @param events  puits de ses événements, distinct de celui du serveur
+     */
+    public BatchRun(List<Hospital> network, long masterSeed, int hours, EngineType engine, EventSink events) {
+        if (hours <= 0) {
+            throw new IllegalArgumentException("L'horizon doit être positif : " + hours);
+        }
+        this.network = network;
+        this.masterSeed = masterSeed;
+        this.hours = hours;
+        this.engine = engine;
+        this.events = events;
+    }
+
+    /**
+     * Lance la simulation, entièrement sur le thread appelant, et écrit le flux dans "out" (vidé
+     * à chaque journée simulée et à la fin). Une erreur d'écriture (client déconnecté) arrête la simulation.
+     */
+    public void run(Writer out) throws IOException {
+        long start = System.nanoTime();
+        Clock clock = new Clock(events);
+        for (Hospital h : network) {
+            h.seedRandom(masterSeed);
+            h.setClock(clock);
+        }
+        SplitMixRandom scenarioRandom = RandomStreams.stream(masterSeed, RandomStreams.SCENARIO_STREAM);
+        ArrivalScenario scenario = engine == EngineType.TICK ? new ArrivalScenario(network, scenarioRandom, clock) : null;
+        EventEngine eventEngine = engine == EngineType.EVENT ? new EventEngine(network, scenarioRandom, clock) : null;
+
+        HospitalUnit[] units = flatten(network);
+        long[] lastDeaths = new long[units.length];
+        long[] lastRejected = new long[units.length];
+        for (int u = 0; u < units.length; u++) {
+            lastDeaths[u] = units[u].getDeaths();
+            lastRejected[u] = units[u].getRejectedArrivals();
+        }
+
+        StringBuilder line = new StringBuilder(64 + units.length * 16);
+        writeHeader(line);
+        out.append(line);
+
+        for (int t = 0; t < hours; t++) {
+            int hour = clock.getTime();
+            Map<Integer, Map<String, Integer>> exits;
+            boolean inEvent;
+            if (eventEngine != null) {
+                exits = eventEngine.advanceTo(t + 1);
+                inEvent = eventEngine.isInEvent();
+            } else {
+                exits = TickEngine.tickSequential(network, scenario);
+                inEvent = scenario.isInEvent();
+                clock.addOneHour();
+            }
+
+            line.setLength(0);
+            line.append("{\"t\":").append(t)
+                    .append(",\"hour\":").append(hour)
+                    .append(",\"event\":").append(inEvent)
+                    .append(",\"load\":[");
+            for (int u = 0; u < units.length; u++) {
+                if (u > 0) line.append(',');
+                line.append(units[u].getCurrentLoad());
+            }
+            line.append("],\"exits\":[");
+            int u = 0;
+            for (Hospital h : network) {
+                Map<String, Integer> hospitalExits = exits.get(h.getId());
+                for (HospitalUnit unit : h.getUnits()) {
+                    if (u++ > 0) line.append(',');
+                    line.append(hospitalExits == null ? 0 : hospitalExits.getOrDefault(unit.getName(), 0));
+                }
+            }
+            line.append("],\"deaths\":[");
+            for (u = 0; u < units.length; u++) {
+                if (u > 0) line.append(',');
+                line.append(units[u].getDeaths() - lastDeaths[u]);
+                lastDeaths[u] = units[u].getDeaths();
+            }
+            line.append("],\"rejected\":[");
+            for (u = 0; u < units.length; u++) {
+                if (u > 0) line.append(',');
+                line.append(units[u].getRejectedArrivals() - lastRejected[u]);
+                lastRejected[u] = units[u].getRejectedArrivals();
+            }
+            line.append("]}\n");
+            out.append(line);
+
+            if ((t + 1) % FLUSH_EVERY_TICKS == 0) {
+                out.flush();
+            }
+        }
+
+        out.append("{\"type\":\"end\",\"hours\":").append(String.valueOf(hours))
+                .append(",\"elapsedMs\":").append(String.valueOf((System.nanoTime() - start) / 1_000_000))
+                .append("}\n");
+        out.flush();
+    }
+
+    private void writeHeader(StringBuilder line) {
+        line.append("{\"type\":\"header\",\"seed\":").append(masterSeed)
+                .append(",\"hours\":").append(hours)
+                .append(",\"engine\":\"").append(engine).append("\",\"units\":[");
+        boolean first = true;
+        for (Hospital h : network) {
+            for (HospitalUnit unit : h.getUnits()) {
+                if (!first) line.append(',');
+                first = false;
+                appendJsonString(line, h.getName() + "/" + unit.getName());
+            }
+        }
+        line.append("]}\n");
+    }
+
+    private static HospitalUnit[] flatten(List<Hospital> network) {
+        int n = 0;
+        for (Hospital h : network) {
+            n += h.getUnits().size();
+        }
+        HospitalUnit[] units = new HospitalUnit[n];
+        int u = 0;
+        for (Hospital h : network) {
+            for (HospitalUnit unit : h.getUnits()) {
+                units[u++] = unit;
+            }
+        }
+        return units;
+    }
+
+    private static void appendJsonString(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        sb.append('"');
+    }
+}
@@ -2,16 +2,45 @@ package com.cmi.simu.flow;
 
 import lombok.Getter;
 
+/**
+ * Heure simulée (0..23) d'une simulation.
+ * <p>
+ * Chaque simulation a sa propre horloge, partagée par son scénario et ses unités :
+ * plusieurs simulations (ensemble Monte Carlo) peuvent tourner en même temps sans interférer.
+ * {@link #getClock()} est l'horloge par défaut, celle de la simulation du serveur.
+ * <p>
+ * L'horloge porte aussi le puits d'événements de sa simulation : le scénario, le moteur à événements
+ * et les hôpitaux rattachés (voir {@link Hospital#setClock}) écrivent dans celui-ci.
+ */
 public class Clock {
     @Getter
-    private static int time = 0;
+    private volatile int time = 0;
 
     @Getter
     private final static Clock clock = new Clock();
 
-    public static void addOneHour() {
-        time = (time+1) % 24;
-        System.out.println(time);
+    @Getter
+    private final EventSink events;
+
+    public Clock() {
+        this(EventSink.getDefault());
+    }
+
+    public Clock(EventSink events) {
+        this.events = events;
+    }
+
+    public void addOneHour() {
+        time = (time + 1) % 24;
+        events.emit(SimulationEvent.HOUR, null, time);
+    }
+
+    /**
+     * Place l'horloge à une heure donnée sans passer par les heures intermédiaires
+     * (voir {@link EventEngine}, qui saute les heures sans activité).
+     */
+    void setTime(int time) {
+        this.time = Math.floorMod(time, 24);
     }
 
 }
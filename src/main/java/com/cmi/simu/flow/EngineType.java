@@ -0,0 +1,14 @@
+package com.cmi.simu.flow;
+
+/**
+ * Moteur qui fait avancer une simulation hors serveur (voir {@link EnsembleRunner}).
+ */
+public enum EngineType {
+    /** Un pas par heure pour chaque hôpital : voir TickEngine. */
+    TICK,
+    /**
+     * Échéancier d'événements discrets : seules les heures où il se passe quelque chose
+     * sont visitées. Mêmes résultats en distribution : voir EventEngine.
+     */
+    EVENT
+}
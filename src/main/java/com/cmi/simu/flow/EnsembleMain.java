@@ -0,0 +1,41 @@
+package com.cmi.simu.flow;
+
+import java.util.List;
+
+/**
+ * Ensemble Monte Carlo en ligne de commande, sur le réseau de {@link MainFlow}.
+ * <p>
+ * Usage : EnsembleMain [réplications] [ticks] [graine] [threads] [INDIVIDUAL|AGGREGATED] [TICK|EVENT]
+ * <p>
+ * Affiche, pour chaque unité et chaque tick, moyenne, écart-type et bande 5 %–95 %
+ * de la charge, des sorties, des décès et des arrivées refusées.
+ */
+public class EnsembleMain {
+
+    public static void main(String[] args) {
+        int replications = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 48;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : RandomStreams.newMasterSeed();
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+        PatientModel model = args.length > 4 ? PatientModel.valueOf(args[4].toUpperCase()) : PatientModel.INDIVIDUAL;
+        EngineType engine = args.length > 5 ? EngineType.valueOf(args[5].toUpperCase()) : EngineType.TICK;
+
+        EnsembleResult result = new EnsembleRunner(replications, ticks, seed, threads, engine)
+                .run(() -> MainFlow.buildHospitalNetwork(model));
+
+        System.out.println("tick;unit;metric;mean;sd;p05;p50;p95");
+        List<String> units = result.getUnits();
+        for (int t = 0; t < ticks; t++) {
+            for (int u = 0; u < units.size(); u++) {
+                for (EnsembleMetric metric : EnsembleMetric.values()) {
+                    EnsembleResult.Band b = result.band(metric, t, u);
+                    System.out.printf("%d;%s;%s;%.3f;%.3f;%.1f;%.1f;%.1f%n", t, units.get(u), metric,
+                            b.mean(), Math.sqrt(b.variance()), b.p05(), b.p50(), b.p95());
+                }
+            }
+        }
+        System.out.printf("%d réplications x %d ticks en %.2f s (%.1f réplications/s), graine %d%n",
+                result.getReplications(), ticks, result.getElapsedSeconds(),
+                result.getReplicationsPerSecond(), result.getMasterSeed());
+    }
+}
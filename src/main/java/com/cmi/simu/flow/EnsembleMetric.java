@@ -0,0 +1,11 @@
+package com.cmi.simu.flow;
+
+/**
+ * Grandeurs relevées par unité et par tick dans un ensemble Monte Carlo.
+ */
+public enum EnsembleMetric {
+    LOAD,       // patients présents à la fin du tick
+    EXITS,      // sorties du tick (soignés, décédés, absorbés)
+    DEATHS,     // décès tirés pendant le traitement
+    REJECTED    // arrivées extérieures refusées (service et voisins pleins)
+}
@@ -0,0 +1,107 @@
+package com.cmi.simu.flow;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Résultat d'un ensemble Monte Carlo : pour chaque grandeur, tick et unité, la distribution
+ * des valeurs sur les réplications, résumée par moyenne, variance et percentiles.
+ */
+public class EnsembleResult {
+
+    /**
+     * Résumé d'une distribution sur les réplications.
+     */
+    public record Band(double mean, double variance, double p05, double p50, double p95) {
+    }
+
+    private static final EnsembleMetric[] METRICS = EnsembleMetric.values();
+
+    private final List<String> units;   // "hôpital/service", dans l'ordre du réseau
+    private final int ticks;
+    private final int replications;
+    private final long masterSeed;
+    private final double elapsedSeconds;
+    private final Band[] bands;         // [metric][tick][unit], aplati
+
+    EnsembleResult(List<String> units, int ticks, int replications, long masterSeed,
+                   double elapsedSeconds, double[][] samples) {
+        this.units = List.copyOf(units);
+        this.ticks = ticks;
+        this.replications = replications;
+        this.masterSeed = masterSeed;
+        this.elapsedSeconds = elapsedSeconds;
+        this.bands = summarize(samples, METRICS.length * ticks * units.size());
+    }
+
+    public List<String> getUnits() {
+        return units;
+    }
+
+    public int getTicks() {
+        return ticks;
+    }
+
+    public int getReplications() {
+        return replications;
+    }
+
+    public long getMasterSeed() {
+        return masterSeed;
+    }
+
+    public double getElapsedSeconds() {
+        return elapsedSeconds;
+    }
+
+    public double getReplicationsPerSecond() {
+        return elapsedSeconds > 0 ? replications / elapsedSeconds : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Distribution de "metric" pour l'unité d'indice "unit" (voir {@link #getUnits()}) au tick donné.
+     */
+    public Band band(EnsembleMetric metric, int tick, int unit) {
+        return bands[index(metric, tick, unit, ticks, units.size())];
+    }
+
+    /**
+     * Position d'une valeur dans le tableau d'une réplication : [metric][tick][unit].
+     */
+    static int index(EnsembleMetric metric, int tick, int unit, int ticks, int unitCount) {
+        return (metric.ordinal() * ticks + tick) * unitCount + unit;
+    }
+
+    private static Band[] summarize(double[][] samples, int size) {
+        int k = samples.length;
+        Band[] result = new Band[size];
+        double[] column = new double[k];
+        for (int c = 0; c < size; c++) {
+            double sum = 0;
+            for (int r = 0; r < k; r++) {
+                column[r] = samples[r][c];
+                sum += column[r];
+            }
+            double mean = sum / k;
+            double sq = 0;
+            for (int r = 0; r < k; r++) {
+                double d = column[r] - mean;
+                sq += d * d;
+            }
+            // Variance d'échantillon (non biaisée)
+            double variance = k > 1 ? sq / (k - 1) : 0.0;
+            Arrays.sort(column);
+            result[c] = new Band(mean, variance,
+                    percentile(column, 0.05), percentile(column, 0.50), percentile(column, 0.95));
+        }
+        return result;
+    }
+
+    // Percentile par interpolation linéaire sur un tableau trié
+    private static double percentile(double[] sorted, double q) {
+        double pos = q * (sorted.length - 1);
+        int lo = (int) Math.floor(pos);
+        int hi = Math.min(lo + 1, sorted.length - 1);
+        return sorted[lo] + (pos - lo) * (sorted[hi] - sorted[lo]);
+    }
+}
@@ -0,0 +1,139 @@
+package com.cmi.simu.flow;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * Lance K réplications indépendantes d'un même réseau d'hôpitaux, en parallèle, et résume
+ * la distribution des résultats (voir {@link EnsembleResult}).
+ * <p>
+ * Chaque réplication construit son propre réseau, sa propre horloge et son propre scénario,
+ * avec une graine dérivée de la graine maître : les réplications ne partagent aucun état, et
+ * l'ensemble se rejoue à l'identique avec la même graine maître, quel que soit le nombre de threads.
+ * Une réplication tourne sur un seul thread ; le parallélisme est entre réplications.
+ */
+public class EnsembleRunner {
+
+    private final int replications;
+    private final int ticks;
+    private final long masterSeed;
+    private final int parallelism;
+    private final EngineType engine;
+
+    /**
+     * @param parallelism nombre de threads (0 ou moins = nombre de processeurs)
+     */
+    public EnsembleRunner(int replications, int ticks, long masterSeed, int parallelism) {
+        this(replications, ticks, masterSeed, parallelism, EngineType.TICK);
+    }
+
+    /**
+     * @param parallelism nombre de threads (0 ou moins = nombre de processeurs)
+     * @param engine      moteur de chaque réplication
+     */
+    public EnsembleRunner(int replications, int ticks, long masterSeed, int parallelism, EngineType engine) {
+        if (replications <= 0 || ticks <= 0) {
+            throw new IllegalArgumentException("replications et ticks doivent être positifs");
+        }
+        this.replications = replications;
+        this.ticks = ticks;
+        this.masterSeed = masterSeed;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.engine = engine;
+    }
+
+    /**
+     * @param networkFactory construit un réseau neuf à chaque appel (ex. MainFlow::buildHospitalNetwork)
+     */
+    public EnsembleResult run(Supplier<List<Hospital>> networkFactory) {
+        List<String> unitNames = unitNames(networkFactory.get());
+        int unitCount = unitNames.size();
+        int width = EnsembleMetric.values().length * ticks * unitCount;
+        double[][] samples = new double[replications][];
+
+        long start = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.submit(() -> IntStream.range(0, replications).parallel()
+                    .forEach(r -> samples[r] = runReplication(networkFactory, r, unitCount, width))
+            ).join();
+        } finally {
+            pool.shutdown();
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        return new EnsembleResult(unitNames, ticks, replications, masterSeed, elapsed, samples);
+    }
+
+    private double[] runReplication(Supplier<List<Hospital>> networkFactory, int r, int unitCount, int width) {
+        // Graine de la réplication, puis flux par hôpital et scénario comme pour une simulation seule
+        long seed = RandomStreams.stream(masterSeed, r).nextLong();
+        List<Hospital> hospitals = networkFactory.get();
+        Clock clock = new Clock(EventSink.none());   // les réplications n'écrivent pas dans le journal du serveur
+        for (Hospital h : hospitals) {
+            h.seedRandom(seed);
+            h.setClock(clock);
+        }
+        SplitMixRandom scenarioRandom = RandomStreams.stream(seed, RandomStreams.SCENARIO_STREAM);
+        ArrivalScenario scenario = engine == EngineType.TICK ? new ArrivalScenario(hospitals, scenarioRandom, clock) : null;
+        EventEngine eventEngine = engine == EngineType.EVENT ? new EventEngine(hospitals, scenarioRandom, clock) : null;
+
+        if (countUnits(hospitals) != unitCount) {
+            throw new IllegalStateException("Le réseau doit avoir la même forme à chaque construction");
+        }
+
+        double[] out = new double[width];
+        long[] lastDeaths = new long[unitCount];
+        long[] lastRejected = new long[unitCount];
+
+        for (int t = 0; t < ticks; t++) {
+            Map<Integer, Map<String, Integer>> exits;
+            if (eventEngine != null) {
+                exits = eventEngine.advanceTo(t + 1);
+            } else {
+                exits = TickEngine.tickSequential(hospitals, scenario);
+                clock.addOneHour();
+            }
+
+            int u = 0;
+            for (Hospital h : hospitals) {
+                Map<String, Integer> hospitalExits = exits.get(h.getId());
+                for (HospitalUnit unit : h.getUnits()) {
+                    out[EnsembleResult.index(EnsembleMetric.LOAD, t, u, ticks, unitCount)] = unit.getCurrentLoad();
+                    out[EnsembleResult.index(EnsembleMetric.EXITS, t, u, ticks, unitCount)] =
+                            hospitalExits == null ? 0 : hospitalExits.getOrDefault(unit.getName(), 0);
+                    out[EnsembleResult.index(EnsembleMetric.DEATHS, t, u, ticks, unitCount)] =
+                            unit.getDeaths() - lastDeaths[u];
+                    out[EnsembleResult.index(EnsembleMetric.REJECTED, t, u, ticks, unitCount)] =
+                            unit.getRejectedArrivals() - lastRejected[u];
+                    lastDeaths[u] = unit.getDeaths();
+                    lastRejected[u] = unit.getRejectedArrivals();
+                    u++;
+                }
+            }
+        }
+        return out;
+    }
+
+    private static List<String> unitNames(List<Hospital> hospitals) {
+        List<String> names = new ArrayList<>();
+        for (Hospital h : hospitals) {
+            for (HospitalUnit unit : h.getUnits()) {
+                names.add(h.getName() + "/" + unit.getName());
+            }
+        }
+        return names;
+    }
+
+    private static int countUnits(List<Hospital> hospitals) {
+        int n = 0;
+        for (Hospital h : hospitals) {
+            n += h.getUnits().size();
+        }
+        return n;
+    }
+}
@@ -0,0 +1,333 @@
+package com.cmi.simu.flow;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Moteur à événements discrets : alternative au {@link TickEngine} pour les simulations
+ * hors serveur (réplications, lots), où de longues périodes creuses ne doivent presque rien coûter.
+ * <p>
+ * Le modèle reste celui du tick (pas d'une heure, mêmes règles) ; seul change ce qu'on visite.
+ * Un échéancier ({@link EventQueue}) ne contient que les heures où il se passe quelque chose :
+ * <ul>
+ *   <li>début et fin des événements graves du scénario (mêmes tirages que {@link ArrivalScenario}) ;</li>
+ *   <li>passages jour / nuit, qui changent les lois d'arrivée ;</li>
+ *   <li>pour chaque unité, la prochaine heure avec au moins une arrivée : le nombre d'heures
+ *       sans arrivée suit une loi géométrique, tirée d'un coup au lieu d'une heure à la fois ;</li>
+ *   <li>pour chaque hôpital occupé (au moins un patient, ou des arrivées), son pas interne.</li>
+ * </ul>
+ * La fin de traitement, l'éligibilité au transfert et le séjour minimal d'un patient ne sont pas
+ * des dates fixes : ces compteurs n'avancent que lorsque le patient est soigné, ce qui dépend
+ * de la place du patient dans la file et du personnel de chaque heure. Ils restent donc traités
+ * par le pas interne de l'hôpital, qui ne touche que les patients soignés.
+ * <p>
+ * Un hôpital vide sans arrivée n'a rien à simuler : ses unités ne soignent, n'absorbent et
+ * ne transfèrent personne. Le sauter ne change donc pas la loi des résultats, mais les tirages
+ * aléatoires ne sont pas consommés dans le même ordre : les résultats sont identiques
+ * en distribution à ceux du {@link TickEngine}, pas tirage pour tirage.
+ * <p>
+ * La liste des hôpitaux et leurs voisinages sont fixés à la construction. Un moteur n'est pas
+ * thread-safe : une instance par simulation, comme pour {@link EnsembleRunner}.
+ */
+public class EventEngine {
+
+    // Types d'événements, dans l'ordre de traitement au sein d'une même heure
+    static final int SCENARIO = 0;   // début ou fin d'un événement grave
+    static final int DAYLIGHT = 1;   // passage jour / nuit (6 h et 22 h)
+    static final int ARRIVALS = 2;   // heure avec au moins une arrivée pour une unité
+    static final int STEP = 3;       // pas interne d'un hôpital occupé
+
+    private static final long NONE = -1;
+    private static final long MAX_HOUR = Integer.MAX_VALUE;
+
+    // Durées tirées comme dans ArrivalScenario (entre deux événements, puis durée d'un événement)
+    private static final int MIN_TIME_BETWEEN_EVENTS = 2;
+    private static final int MAX_TIME_BETWEEN_EVENTS = 5;
+    private static final int MIN_EVENT_DURATION = 1;
+    private static final int MAX_EVENT_DURATION = 3;
+
+    private final List<Hospital> hospitals;
+    private final Map<Hospital, Integer> hospitalIndex = new IdentityHashMap<>();
+    private final HospitalUnit[] units;   // toutes les unités du réseau, à plat
+    private final int[] unitHospital;     // indice de l'hôpital de chaque unité
+    private final long[] arrivalHour;     // prochaine heure d'arrivée valable de chaque unité (NONE : aucune)
+    private final long[] stepHour;        // heure du dernier pas planifié de chaque hôpital
+    private final int[] stepped;          // hôpitaux dont le pas a été fait pendant l'heure courante
+    private int steppedCount;
+
+    private final SplitMixRandom scenarioRandom;
+    private final Clock clock;
+    private final int startTime;   // heure de l'horloge au démarrage
+    private final EventQueue queue = new EventQueue();
+    private final EventSink events;   // celui de l'horloge
+
+    private boolean inEvent;
+    private long now;          // heures simulées depuis le démarrage
+    private long processed;    // événements traités (hors événements périmés)
+
+    /**
+     * @param scenarioRandom flux du scénario (voir {@link RandomStreams#SCENARIO_STREAM})
+     * @param clock          horloge de la simulation, partagée avec les unités (voir {@link Hospital#setClock})
+     */
+    public EventEngine(List<Hospital> hospitals, SplitMixRandom scenarioRandom, Clock clock) {
+        this.hospitals = List.copyOf(hospitals);
+        this.scenarioRandom = scenarioRandom;
+        this.clock = clock;
+        this.events = clock.getEvents();
+        this.startTime = clock.getTime();
+
+        int unitCount = 0;
+        for (int h = 0; h < this.hospitals.size(); h++) {
+            hospitalIndex.put(this.hospitals.get(h), h);
+            unitCount += this.hospitals.get(h).getUnits().size();
+        }
+        if (unitCount > EventQueue.MAX_TARGET || this.hospitals.size() > EventQueue.MAX_TARGET) {
+            throw new IllegalArgumentException("Réseau trop grand pour l'échéancier : " + unitCount + " unités");
+        }
+        this.units = new HospitalUnit[unitCount];
+        this.unitHospital = new int[unitCount];
+        int u = 0;
+        for (int h = 0; h < this.hospitals.size(); h++) {
+            for (HospitalUnit unit : this.hospitals.get(h).getUnits()) {
+                units[u] = unit;
+                unitHospital[u++] = h;
+            }
+        }
+        this.arrivalHour = new long[unitCount];
+        this.stepHour = new long[this.hospitals.size()];
+        this.stepped = new int[this.hospitals.size()];
+        Arrays.fill(stepHour, NONE);
+
+        // Premier événement grave : même tirage que le constructeur d'ArrivalScenario,
+        // déclenché au tick où le compte à rebours atteint 0
+        queue.add(EventQueue.key(scenarioDraw(MIN_TIME_BETWEEN_EVENTS, MAX_TIME_BETWEEN_EVENTS) - 1, SCENARIO, 0));
+        scheduleDaylight(0);
+        scheduleAllArrivals(0);
+        for (int h = 0; h < this.hospitals.size(); h++) {
+            if (isBusy(this.hospitals.get(h))) {
+                scheduleStep(h, 0);
+            }
+        }
+    }
+
+    /**
+     * Avance la simulation jusqu'à l'heure donnée (exclue), en heures depuis le démarrage :
+     * advanceTo(now + 1) équivaut à un tick.
+     *
+     * @return les sorties de la période, par id d'hôpital puis par nom d'unité
+     * (seuls les hôpitaux qui ont eu un pas apparaissent)
+     */
+    public Map<Integer, Map<String, Integer>> advanceTo(long hour) {
+        if (hour > MAX_HOUR) {
+            throw new IllegalArgumentException("Heure hors limites : " + hour);
+        }
+        Map<Integer, Map<String, Integer>> exits = new HashMap<>();
+        while (!queue.isEmpty() && EventQueue.hour(queue.peek()) < hour) {
+            runHour(EventQueue.hour(queue.peek()), exits);
+        }
+        if (hour > now) {
+            now = hour;
+        }
+        clock.setTime(startTime + (int) (now % 24));
+        return exits;
+    }
+
+    /**
+     * Heures simulées depuis le démarrage.
+     */
+    public long getNow() {
+        return now;
+    }
+
+    /**
+     * Nombre d'événements traités depuis le démarrage (le coût du moteur lui est proportionnel).
+     */
+    public long getProcessedEvents() {
+        return processed;
+    }
+
+    public boolean isInEvent() {
+        return inEvent;
+    }
+
+    /**
+     * Traite tous les événements d'une heure, dans l'ordre des clés (type puis cible),
+     * puis les transferts entre hôpitaux comme la phase de commit du {@link TickEngine}.
+     */
+    private void runHour(long hour, Map<Integer, Map<String, Integer>> exits) {
+        clock.setTime(startTime + (int) (hour % 24));
+        steppedCount = 0;
+
+        while (!queue.isEmpty() && EventQueue.hour(queue.peek()) == hour) {
+            long key = queue.poll();
+            int target = EventQueue.target(key);
+            switch (EventQueue.kind(key)) {
+                case SCENARIO -> onScenario(hour);
+                case DAYLIGHT -> onDaylight(hour);
+                case ARRIVALS -> onArrivals(target, hour);
+                case STEP -> onStep(target, exits);
+                default -> throw new IllegalStateException("Type d'événement inconnu : " + EventQueue.kind(key));
+            }
+        }
+
+        // Transferts inter-hôpitaux, dans l'ordre de la liste (les clés STEP sont triées par indice).
+        // Un hôpital sans pas est vide : il ne peut pas déborder.
+        for (int k = 0; k < steppedCount; k++) {
+            hospitals.get(stepped[k]).doInterHospitalTransfers();
+        }
+        // Les hôpitaux encore occupés (ou qui viennent de recevoir des patients) continuent à l'heure suivante
+        for (int k = 0; k < steppedCount; k++) {
+            Hospital hospital = hospitals.get(stepped[k]);
+            if (isBusy(hospital)) {
+                scheduleStep(stepped[k], hour + 1);
+            }
+            for (Hospital neighbor : hospital.getNeighbors()) {
+                Integer n = hospitalIndex.get(neighbor);
+                if (n != null && isBusy(neighbor)) {
+                    scheduleStep(n, hour + 1);
+                }
+            }
+        }
+        now = hour + 1;
+    }
+
+    private void onScenario(long hour) {
+        processed++;
+        if (!inEvent) {
+            inEvent = true;
+            int duration = scenarioDraw(MIN_EVENT_DURATION, MAX_EVENT_DURATION);
+            events.emit(SimulationEvent.EVENT_START, null, duration);
+            queue.add(EventQueue.key(hour + duration, SCENARIO, 0));
+        } else {
+            inEvent = false;
+            events.emit(SimulationEvent.EVENT_END);
+            queue.add(EventQueue.key(hour + scenarioDraw(MIN_TIME_BETWEEN_EVENTS, MAX_TIME_BETWEEN_EVENTS), SCENARIO, 0));
+        }
+        scheduleAllArrivals(hour);
+    }
+
+    private void onDaylight(long hour) {
+        processed++;
+        // Pendant un événement grave, le jour et la nuit ont les mêmes lois d'arrivée
+        if (!inEvent) {
+            scheduleAllArrivals(hour);
+        }
+        scheduleDaylight(hour);
+    }
+
+    private void onArrivals(int u, long hour) {
+        if (arrivalHour[u] != hour) {
+            return; // Périmé : les lois d'arrivée ont changé depuis sa planification
+        }
+        processed++;
+        HospitalUnit unit = units[u];
+        int[] r = rangesAt(unit, hour);
+
+        // Au moins une arrivée, par construction : on tire les trois nombres jusqu'à en avoir une
+        int urgent, normal, low;
+        do {
+            urgent = unit.getRandomInRange(r[0], r[1]);
+            normal = unit.getRandomInRange(r[2], r[3]);
+            low = unit.getRandomInRange(r[4], r[5]);
+        } while (urgent + normal + low == 0);
+        unit.setExternalArrivalsUrgent(urgent);
+        unit.setExternalArrivalsNormal(normal);
+        unit.setExternalArrivalsLow(low);
+
+        arrivalHour[u] = NONE;
+        scheduleStep(unitHospital[u], hour);
+        scheduleArrival(u, hour + 1);
+    }
+
+    private void onStep(int h, Map<Integer, Map<String, Integer>> exits) {
+        processed++;
+        Hospital hospital = hospitals.get(h);
+        Map<String, Integer> out = hospital.simulateInternalStep();
+        Map<String, Integer> total = exits.computeIfAbsent(hospital.getId(), id -> new HashMap<>());
+        for (Map.Entry<String, Integer> e : out.entrySet()) {
+            total.merge(e.getKey(), e.getValue(), Integer::sum);
+        }
+        stepped[steppedCount++] = h;
+    }
+
+    private void scheduleAllArrivals(long from) {
+        for (int u = 0; u < units.length; u++) {
+            scheduleArrival(u, from);
+        }
+    }
+
+    /**
+     * Planifie la prochaine heure (à partir de "from") où l'unité a au moins une arrivée.
+     * Chaque heure est vide avec probabilité q (produit des probabilités de tirer 0 pour
+     * chaque priorité) ; le nombre d'heures vides avant la prochaine arrivée suit donc une loi
+     * géométrique, tirée par inversion. Les lois ne changent qu'aux événements SCENARIO et DAYLIGHT,
+     * qui replanifient toutes les unités.
+     */
+    private void scheduleArrival(int u, long from) {
+        HospitalUnit unit = units[u];
+        int[] r = rangesAt(unit, from);
+        double q = probabilityOfZero(r[0], r[1]) * probabilityOfZero(r[2], r[3]) * probabilityOfZero(r[4], r[5]);
+
+        long hour;
+        if (q <= 0.0) {
+            hour = from;
+        } else if (q >= 1.0) {
+            hour = NONE; // Aucune arrivée possible sous ces lois
+        } else {
+            double uniform = 1.0 - unit.getRandom().nextDouble(); // dans ]0, 1]
+            double gap = Math.floor(Math.log(uniform) / Math.log(q));
+            hour = gap < MAX_HOUR - from ? from + (long) gap : NONE;
+        }
+        arrivalHour[u] = hour;
+        if (hour != NONE) {
+            queue.add(EventQueue.key(hour, ARRIVALS, u));
+        }
+    }
+
+    private void scheduleStep(int h, long hour) {
+        if (stepHour[h] < hour) {
+            stepHour[h] = hour;
+            queue.add(EventQueue.key(hour, STEP, h));
+        }
+    }
+
+    /**
+     * Prochain passage à 6 h ou à 22 h strictement après l'heure donnée.
+     */
+    private void scheduleDaylight(long from) {
+        long hour = from;
+        do {
+            hour++;
+        } while (!isDaylightChange(hour));
+        queue.add(EventQueue.key(hour, DAYLIGHT, 0));
+    }
+
+    private boolean isDaylightChange(long hour) {
+        int time = (int) ((startTime + hour) % 24);
+        return time == 6 || time == 22;
+    }
+
+    private int[] rangesAt(HospitalUnit unit, long hour) {
+        boolean night = ArrivalScenario.isNight((int) ((startTime + hour) % 24));
+        return ArrivalScenario.arrivalRanges(inEvent, night, unit.getKind() == UnitKind.URGENCES);
+    }
+
+    private static double probabilityOfZero(int min, int max) {
+        if (min > 0 || max < 0) return 0.0;
+        return 1.0 / (max - min + 1);
+    }
+
+    private int scenarioDraw(int min, int max) {
+        return scenarioRandom.nextInt(max - min + 1) + min;
+    }
+
+    private static boolean isBusy(Hospital hospital) {
+        for (HospitalUnit unit : hospital.getUnits()) {
+            if (unit.getCurrentLoad() > 0) return true;
+        }
+        return false;
+    }
+}
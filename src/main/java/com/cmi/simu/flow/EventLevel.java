@@ -0,0 +1,11 @@
+package com.cmi.simu.flow;
+
+/**
+ * Niveau de détail des événements de simulation, du plus discret au plus bavard.
+ */
+public enum EventLevel {
+    OFF,    // rien n'est enregistré
+    INFO,   // événements rares (catastrophe, fin d'événement)
+    DEBUG,  // une ligne par unité et par tick (arrivées acceptées, heure)
+    TRACE   // détail complet (état de chaque unité, mode jour/nuit...)
+}
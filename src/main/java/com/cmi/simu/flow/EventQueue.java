@@ -0,0 +1,79 @@
+package com.cmi.simu.flow;
+
+import java.util.Arrays;
+
+/**
+ * Échéancier d'un {@link EventEngine} : tas binaire (minimum en tête) de clés long,
+ * sans objet par événement.
+ * <p>
+ * Une clé code (heure, type, cible) de sorte que l'ordre des clés soit celui du traitement :
+ * par heure, puis par type ({@link EventEngine} fixe l'ordre des types dans une heure),
+ * puis par indice de la cible (ordre de la liste des hôpitaux, donc déterministe).
+ */
+class EventQueue {
+
+    private static final int KIND_BITS = 3;
+    private static final int TARGET_BITS = 32 - KIND_BITS;
+    static final int MAX_TARGET = (1 << TARGET_BITS) - 1;
+
+    private long[] heap = new long[64];
+    private int size;
+
+    static long key(long hour, int kind, int target) {
+        return hour << 32 | (long) kind << TARGET_BITS | target;
+    }
+
+    static long hour(long key) {
+        return key >>> 32;
+    }
+
+    static int kind(long key) {
+        return (int) (key >>> TARGET_BITS) & ((1 << KIND_BITS) - 1);
+    }
+
+    static int target(long key) {
+        return (int) key & MAX_TARGET;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long peek() {
+        return heap[0];
+    }
+
+    void add(long key) {
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, size * 2);
+        }
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent] <= key) break;
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = key;
+    }
+
+    long poll() {
+        long top = heap[0];
+        long last = heap[--size];
+        int i = 0;
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && heap[child + 1] < heap[child]) child++;
+            if (last <= heap[child]) break;
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = last;
+        return top;
+    }
+}
@@ -0,0 +1,173 @@
+package com.cmi.simu.flow;
+
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Puits d'événements de simulation, asynchrone et filtré par niveau (désactivé par défaut).
+ * <p>
+ * Les threads de simulation ne font qu'écrire le type et des arguments primitifs dans un buffer
+ * circulaire préalloué : aucune mise en forme, aucune allocation, aucun verrou sur la sortie.
+ * Un thread de fond (démarré au premier événement) formate et écrit les messages.
+ * Si le buffer est plein, l'événement est perdu (compté) plutôt que de ralentir le tick.
+ * Au niveau {@link EventLevel#OFF}, {@link #emit} se réduit à une lecture de champ volatile.
+ */
+public class EventSink {
+
+    private static final int DEFAULT_CAPACITY = 1 << 14;
+
+    private static final EventSink DEFAULT = new EventSink(DEFAULT_CAPACITY, System.out);
+    private static final EventSink NONE = new EventSink(16, System.out);
+
+    private volatile EventLevel level = EventLevel.OFF;
+
+    // Buffer circulaire, une "colonne" par champ
+    private final int mask;
+    private final SimulationEvent[] types;
+    private final Object[] subjects;
+    private final int[] args;                // 4 entiers par case
+    private final AtomicLongArray published; // case publiée quand published[i] == séquence + 1
+
+    private final AtomicLong tail = new AtomicLong(); // prochaine séquence à réserver (producteurs)
+    private volatile long head;                       // prochaine séquence à lire (consommateur)
+    private final AtomicLong dropped = new AtomicLong();
+    private long reportedDropped;
+
+    private final PrintStream out;
+    private volatile Thread drainer;
+
+    public EventSink(int capacity, PrintStream out) {
+        int cap = Integer.highestOneBit(Math.max(16, capacity) - 1) << 1;
+        this.mask = cap - 1;
+        this.types = new SimulationEvent[cap];
+        this.subjects = new Object[cap];
+        this.args = new int[cap * 4];
+        this.published = new AtomicLongArray(cap);
+        this.out = out;
+    }
+
+    /**
+     * Puits partagé par défaut (moteur du serveur, MainFlow).
+     */
+    public static EventSink getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Puits toujours coupé, pour les simulations qui ne doivent pas écrire dans le journal du serveur
+     * (simulations hors ligne, ensembles, rejeu du journal des ticks).
+     */
+    public static EventSink none() {
+        return NONE;
+    }
+
+    public EventLevel getLevel() {
+        return level;
+    }
+
+    public void setLevel(EventLevel level) {
+        if (this == NONE && level != EventLevel.OFF) {
+            throw new IllegalStateException("Le puits muet ne peut pas être activé");
+        }
+        this.level = level;
+    }
+
+    public boolean isEnabled(SimulationEvent type) {
+        // OFF étant le premier niveau, aucun type d'événement ne passe quand le puits est coupé
+        return type.getLevel().ordinal() <= level.ordinal();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public void emit(SimulationEvent type) {
+        emit(type, null, 0, 0, 0, 0);
+    }
+
+    public void emit(SimulationEvent type, Object subject, int a) {
+        emit(type, subject, a, 0, 0, 0);
+    }
+
+    /**
+     * Enregistre un événement s'il passe le niveau courant. Ne bloque jamais.
+     */
+    public void emit(SimulationEvent type, Object subject, int a, int b, int c, int d) {
+        if (!isEnabled(type)) return;
+
+        long seq;
+        do {
+            seq = tail.get();
+            if (seq - head > mask) {
+                dropped.incrementAndGet();
+                return;
+            }
+        } while (!tail.compareAndSet(seq, seq + 1));
+
+        int i = (int) seq & mask;
+        types[i] = type;
+        subjects[i] = subject;
+        int k = i << 2;
+        args[k] = a;
+        args[k + 1] = b;
+        args[k + 2] = c;
+        args[k + 3] = d;
+        published.lazySet(i, seq + 1);
+
+        if (drainer == null) {
+            startDrainer();
+        }
+    }
+
+    /**
+     * Attend que tous les événements déjà enregistrés soient écrits.
+     */
+    public void flush() {
+        long target = tail.get();
+        while (head < target && drainer != null && drainer.isAlive()) {
+            LockSupport.parkNanos(100_000);
+        }
+        out.flush();
+    }
+
+    private synchronized void startDrainer() {
+        if (drainer != null) return;
+        Thread t = new Thread(this::drainLoop, "simu-events");
+        t.setDaemon(true);
+        t.start();
+        drainer = t;
+    }
+
+    private void drainLoop() {
+        while (true) {
+            if (!drainAvailable()) {
+                LockSupport.parkNanos(1_000_000);
+            }
+        }
+    }
+
+    /**
+     * Écrit les événements publiés d'affilée. Retourne false s'il n'y avait rien à écrire.
+     */
+    private boolean drainAvailable() {
+        long h = head;
+        boolean any = false;
+        while (true) {
+            int i = (int) h & mask;
+            if (published.get(i) != h + 1) break;
+            int k = i << 2;
+            out.println(types[i].format(subjects[i], args[k], args[k + 1], args[k + 2], args[k + 3]));
+            subjects[i] = null;
+            head = ++h;
+            any = true;
+        }
+        long d = dropped.get();
+        if (d != reportedDropped) {
+            out.println("[simu-events] " + (d - reportedDropped) + " événement(s) perdu(s), buffer plein");
+            reportedDropped = d;
+        }
+        return any;
+    }
+}
@@ -13,12 +13,47 @@ import java.util.*;
  */
 public class FlowSimulator {
 
-    private final List<HospitalUnit> units;
-    private final FlowManager flowManager;
+    private static final PriorityLevel[] PRIORITIES = PriorityLevel.values();
+    private static final int PRIORITY_COUNT = PRIORITIES.length;
+
+    protected final List<HospitalUnit> units;
+    protected final FlowManager flowManager;
+
+    // Journal des événements (coupé par défaut : aucun formatage pendant le tick),
+    // celui de l'horloge de l'hôpital (voir Hospital#setClock)
+    protected EventSink events = EventSink.getDefault();
+
+    // Mesures cumulées depuis la création : temps passé par phase (ns, indice = TickPhase)
+    // et patients transférés entre unités de l'hôpital
+    private final long[] phaseNanos = new long[TickPhase.values().length];
+    protected long transfers;
+
+    // --- Topologie et plan de transfert, préalloués (indices denses des unités) ---
+    protected final int[][] neighborIds;  // neighborIds[i] = indices des voisins de l'unité i
+    protected final double[] fluxBuf;     // flux de l'unité courante vers chacun de ses voisins
+    private final int[] rangeStart;       // [i * n + j] : début des candidats i → j dans candidates
+    private final int[] rangeEnd;         // [i * n + j] : fin (exclue)
+    private final int[] pairs;            // couples (i * n + j) planifiés pendant le tick courant
+    private int pairCount;
+    private final int[] sourceStart;      // plage des candidats de chaque source dans candidates
+    private final int[] sourceEnd;
+    private final int[] pendingOut;       // patients déjà copiés depuis chaque unité, pas encore retirés
+    private int[] candidates = new int[64];
+    private int[] removalBuf = new int[64];
 
     public FlowSimulator(List<HospitalUnit> units, FlowManager flowManager) {
         this.units = units;
         this.flowManager = flowManager;
+
+        int n = units.size();
+        this.neighborIds = buildTopology();
+        this.fluxBuf = new double[maxDegree(neighborIds)];
+        this.rangeStart = new int[n * n];
+        this.rangeEnd = new int[n * n];
+        this.pairs = new int[n * n];
+        this.sourceStart = new int[n];
+        this.sourceEnd = new int[n];
+        this.pendingOut = new int[n];
     }
 
     /**
@@ -35,12 +70,14 @@ public class FlowSimulator {
     public Map<String, Integer> simulateOneStep() {
 
         Map<String, Integer> sortis = new HashMap<>();
+        long t0 = System.nanoTime();
 
         // 1) Arrivées extérieures + la map
         for (HospitalUnit unit : units) {
-            System.out.println("Accepted arrivals : " + unit.acceptExternalArrivals());
+            events.emit(SimulationEvent.ACCEPTED_ARRIVALS, unit.getName(), unit.acceptExternalArrivals());
             sortis.put(unit.getName(), 0);
         }
+        long t1 = System.nanoTime();
 
         // 2) Mettre à jour le temps de traitement / sortie définitive
         for (HospitalUnit unit : units) {
@@ -61,183 +98,265 @@ public class FlowSimulator {
             int outDueToTreatment = unit.treatPatientsOneStep();
             sortis.merge(unit.getName(), outDueToTreatment, Integer::sum);
         }
+        long t2 = System.nanoTime();
 
-        // 3) Calculer les flux potentiels
-        // On crée une structure pour stocker la liste de patients à transférer : (unit i → listOfPatients → j)
-        Map<String, List<Patient>> transferMap = new HashMap<>();
+        // 3) + 4) Calculer les flux potentiels et transférer les patients
+        applyInternalTransfers();
+        long t3 = System.nanoTime();
 
-        for (HospitalUnit i : units) {
-            if (i.isObstacle() || i.getPatients().isEmpty()) continue;
+        // 5) Absorption dans chaque unité
+        for (HospitalUnit u : units) {
+            sortis.merge(u.getName(), u.applyAbsorption(), Integer::sum);
+        }
+        long t4 = System.nanoTime();
 
-            int totalPatients = i.getPatients().size();
+        phaseNanos[TickPhase.ARRIVALS.ordinal()] += t1 - t0;
+        phaseNanos[TickPhase.TREATMENT.ordinal()] += t2 - t1;
+        phaseNanos[TickPhase.TRANSFERS.ordinal()] += t3 - t2;
+        phaseNanos[TickPhase.ABSORPTION.ordinal()] += t4 - t3;
 
-            // On calcule la somme des flux potentiels vers chaque voisin
-            double totalFluxSum = 0.0;
-            List<HospitalUnit> neighbors = i.getNeighbors();
-            Map<HospitalUnit, Double> neighborFlux = new HashMap<>();
+        return sortis;
+    }
 
-            for (HospitalUnit j : neighbors) {
-                double fluxValue = flowManager.computeFlux(i, j);
-                if (fluxValue > 0) {
-                    neighborFlux.put(j, fluxValue);
-                    totalFluxSum += fluxValue;
-                }
-            }
+    /**
+     * Étapes 3) et 4) : calcule les flux potentiels i→j, sélectionne les patients transférables
+     * puis les transfère (dans la limite de maxCapacity du service cible).
+     * <p>
+     * Le plan de transfert est une matrice source × cible préallouée : pour chaque couple (i, j),
+     * une plage [rangeStart, rangeEnd[ dans le tableau "candidates". Aucune chaîne, aucune map :
+     * le coût ne dépend que du nombre de couples voisins et de patients candidats.
+     */
+    protected void applyInternalTransfers() {
+        int n = units.size();
+
+        // 3) Calculer les flux potentiels et les candidats de chaque couple (i → j)
+        pairCount = 0;
+        int used = 0;
+
+        for (int s = 0; s < n; s++) {
+            HospitalUnit i = units.get(s);
+            sourceStart[s] = used;
+            sourceEnd[s] = used;
+            if (i.isObstacle() || i.getCurrentLoad() == 0) continue;
+
+            int totalPatients = i.getCurrentLoad();
 
+            // On calcule la somme des flux potentiels vers chaque voisin
+            double totalFluxSum = computeOutflows(s);
             if (totalFluxSum <= 0) {
                 // pas de flux sortant
                 continue;
             }
-
-            // On répartit les patients de i vers j proportionnellement au fluxValue
-            // en donnant la priorité d'abord aux patients URGENT, puis NORMAL, ensuite LOW
-            // → On trie la liste i.getPatients() par priorité
-            List<Patient> sortedPatients = new ArrayList<>(i.getPatients());
-            sortedPatients.sort((p1, p2) -> p1.getPriority().compareTo(p2.getPriority()));
-
-            // On construit la distribution
-            for (HospitalUnit j : neighborFlux.keySet()) {
-                double fraction = neighborFlux.get(j) / totalFluxSum;
-                int nbTransfer = (int) Math.floor(fraction * totalPatients);
-
-                // On va chercher dans sortedPatients, en partant par la plus haute priority
-                // (Si on considère URGENT < NORMAL < LOW comme ordre, il faut ajuster le comparateur.)
-                // Pour clarifier, je suppose ici URGENT < NORMAL < LOW → on transfère d'abord LOW.
-                // OU l'inverse, selon la logique souhaitée.
-
-                // Ex : on transfère les patients de plus "basse" priorité en premier ou l'inverse.
-                // Choisissons : on transfère d'abord les LOW, puis NORMAL, ensuite URGENT (l'idée : URGENT reste plus longtemps).
-                // À toi d'ajuster la logique souhaitée.
-
-                // On va simplifier en transférant "nbTransfer" patients depuis la queue de sortedPatients
-                List<Patient> subListToTransfer = new ArrayList<>();
-
-                // On prend nbTransfer patients depuis la fin (lowest priority) ou le début (highest) 
-                // selon la politique. Mettons qu'on transfère d'abord la "faible" priorité.
-                for (int c = 0; c < nbTransfer && !sortedPatients.isEmpty();) {
-                    Patient p = sortedPatients.getLast();
+            ensureCandidates(used + totalPatients);
+
+            // On répartit les patients de i vers j proportionnellement au fluxValue.
+            // On transfère d'abord les LOW, puis NORMAL, ensuite URGENT (l'idée : URGENT reste plus longtemps) :
+            // les candidats sont pris en queue de file, via un curseur (priorité, position)
+            // partagé entre les voisins, sans copie ni tri.
+            int cursorPrio = PRIORITY_COUNT - 1;
+            PatientQueue queue = i.getQueue(PRIORITIES[cursorPrio]);
+            int cursorPos = queue.size() - 1;
+
+            int[] nb = neighborIds[s];
+            for (int m = 0; m < nb.length; m++) {
+                if (fluxBuf[m] <= 0) continue;
+                int nbTransfer = (int) Math.floor(fluxBuf[m] / totalFluxSum * totalPatients);
+
+                int start = used;
+                while (used - start < nbTransfer && cursorPrio >= 0) {
+                    if (cursorPos < 0) {
+                        // File épuisée, on passe à la priorité suivante (plus haute)
+                        if (--cursorPrio < 0) break;
+                        queue = i.getQueue(PRIORITIES[cursorPrio]);
+                        cursorPos = queue.size() - 1;
+                        continue;
+                    }
+                    int idx = cursorPos--;
 
                     // Vérification du temps minimal avant transfert
-                    if (p.getTimeBeforeEligibleTransfer() <= 0) {
-                        // On prend le dernier (faible prio).
-                        sortedPatients.remove(p);
-                        subListToTransfer.add(p);
-                        c++;
-                    } else {
-                        // Le patient n'est pas encore éligible, on le retire du tri pour éviter de le rechoisir
-                        sortedPatients.remove(p);
+                    // (un patient pas encore éligible est simplement sauté, il ne sera pas rechoisi)
+                    if (queue.getTimeBeforeEligibleTransfer(idx) <= 0) {
+                        candidates[used++] = packCandidate(idx, cursorPrio);
                     }
                 }
 
-                // Stockage dans transferMap
-                String key = buildKey(i, j);
-                transferMap.computeIfAbsent(key, k -> new ArrayList<>()).addAll(subListToTransfer);
+                int pair = s * n + nb[m];
+                rangeStart[pair] = start;
+                rangeEnd[pair] = used;
+                pairs[pairCount++] = pair;
             }
+            sourceEnd[s] = used;
         }
 
-        // 4) Appliquer les transferts
-        // On retire les patients de leur unité source et on tente de les ajouter à la destination
-        for (String key : transferMap.keySet()) {
-            List<Patient> listToTransfer = transferMap.get(key);
-            if (listToTransfer.isEmpty()) continue;
-
-            HospitalUnit source = parseSource(key);
-            HospitalUnit target = parseTarget(key);
-
-            // Vérif staff capacity du target
-            // On considère qu'à chaque itération, target ne peut prendre que staffCapacity patients en plus
-            // (ou on peut ignorer staff capacity si on suppose qu'il s'applique seulement au traitement)
-            int canAccept = target.getMaxCapacity() - target.getPatients().size();
-            // On peut affiner en tenant compte du staffCapacity. 
-            // Ex: staffCapacity = nb de patients traités, 
-            // mais on peut limiter la prise de nouveaux patients si staff saturé...
-
-            // Couper la liste à canAccept
-            List<Patient> actuallyTransferred = new ArrayList<>();
-            for (int i = 0; i < listToTransfer.size() && i < canAccept; i++) {
-                actuallyTransferred.add(listToTransfer.get(i));
+        // 4) Appliquer les transferts, couple par couple dans l'ordre du plan (déterministe).
+        // On copie les patients vers la destination ; les retraits des sources sont différés
+        // à la fin de la phase pour que les indices calculés en 3) restent valables.
+        // La place libre d'une cible ne compte pas les patients qu'elle a déjà envoyés ailleurs
+        // (pendingOut) : même résultat que si chaque couple retirait ses patients tout de suite.
+        Arrays.fill(pendingOut, 0);
+        for (int p = 0; p < pairCount; p++) {
+            int pair = pairs[p];
+            int s = pair / n;
+            int t = pair % n;
+            HospitalUnit source = units.get(s);
+            HospitalUnit target = units.get(t);
+
+            // On ne vérifie que maxCapacity du target
+            // (on pourrait limiter la prise de nouveaux patients si le staff est saturé...)
+            int canAccept = target.getMaxCapacity() - (target.getCurrentLoad() - pendingOut[t]);
+
+            for (int k = rangeStart[pair]; k < rangeEnd[pair]; k++) {
+                if (k - rangeStart[pair] < canAccept) {
+                    int c = candidates[k];
+                    target.copyPatientFrom(source, PRIORITIES[candidatePriority(c)], candidateIndex(c));
+                    pendingOut[s]++;
+                    transfers++;
+                } else {
+                    // Refusé : le patient reste dans la source
+                    candidates[k] = -1;
+                }
             }
+        }
 
-            // Retrait du source
-            for (Patient p : actuallyTransferred) {
-                source.removePatient(p);
-            }
-            // Ajout au target
-            for (Patient p : actuallyTransferred) {
-                target.addPatient(p);
+        // Retraits groupés, file par file
+        for (int s = 0; s < n; s++) {
+            int start = sourceStart[s];
+            int end = sourceEnd[s];
+            if (start == end) continue;
+            ensureRemovalBuf(end - start);
+            for (int prio = 0; prio < PRIORITY_COUNT; prio++) {
+                int count = 0;
+                for (int k = start; k < end; k++) {
+                    int c = candidates[k];
+                    if (c >= 0 && candidatePriority(c) == prio) {
+                        removalBuf[count++] = candidateIndex(c);
+                    }
+                }
+                units.get(s).removePatientsAt(PRIORITIES[prio], removalBuf, count);
             }
-            // (Si plus de patients que canAccept, ils restent dans la source,
-            //  ou on les envoie ailleurs → à affiner selon la logique.)
         }
+    }
 
-        // 5) Absorption dans chaque unité
-        for (HospitalUnit u : units) {
-            sortis.merge(u.getName(), u.applyAbsorption(), Integer::sum);
+    /**
+     * Calcule dans fluxBuf le flux de l'unité d'indice s vers chacun de ses voisins
+     * (0 si pas de flux), et retourne leur somme.
+     */
+    protected double computeOutflows(int s) {
+        HospitalUnit i = units.get(s);
+        int[] nb = neighborIds[s];
+        double totalFluxSum = 0.0;
+        for (int m = 0; m < nb.length; m++) {
+            double fluxValue = flowManager.computeFlux(i, units.get(nb[m]));
+            fluxBuf[m] = fluxValue > 0 ? fluxValue : 0.0;
+            totalFluxSum += fluxBuf[m];
         }
+        return totalFluxSum;
+    }
 
-        return sortis;
+    /**
+     * Temps cumulé passé dans une phase de simulateOneStep, en nanosecondes.
+     */
+    public long getPhaseNanos(TickPhase phase) {
+        return phaseNanos[phase.ordinal()];
     }
 
     /**
-     * Lance la simulation sur nbSteps étapes.
+     * Nombre cumulé de patients transférés entre unités de l'hôpital.
      */
-    public Map<String, Integer> runOneStep(ArrivalScenario scenario, List<HospitalUnit> units) {
+    public long getTransfers() {
+        return transfers;
+    }
 
-        // Met à jour externalArrivals dans chaque unité
-        // selon le scénario (ex. t=10 → afflux massif)
-        scenario.updateArrivals();
+    void setEvents(EventSink events) {
+        this.events = events;
+    }
+
+    // Reprise depuis un checkpoint (voir SimulationCheckpoint)
+    void restoreTransfers(long transfers) {
+        this.transfers = transfers;
+    }
 
+    /**
+     * Un pas de simulation avec les arrivées déjà fixées (par le {@link TickEngine}).
+     */
+    public Map<String, Integer> runOneStep(List<HospitalUnit> units) {
         Map<String, Integer> sortis = simulateOneStep();
+        if (!events.isEnabled(SimulationEvent.UNIT_STATE)) {
+            return sortis;
+        }
 
         int totalPatients = 0;
         for (HospitalUnit u : units) {
             int load = u.getCurrentLoad();
             totalPatients += load;
-            System.out.printf("  %s: load=%d (URGENT=%d, NORMAL=%d, LOW=%d)\n",
+            events.emit(SimulationEvent.UNIT_STATE,
                     u.getName(),
                     load,
-                    countPriority(u.getPatients(), PriorityLevel.URGENT),
-                    countPriority(u.getPatients(), PriorityLevel.NORMAL),
-                    countPriority(u.getPatients(), PriorityLevel.LOW)
+                    u.countPriority(PriorityLevel.URGENT),
+                    u.countPriority(PriorityLevel.NORMAL),
+                    u.countPriority(PriorityLevel.LOW)
             );
         }
-        System.out.println(" -> Total Patient = " + totalPatients);
-        System.out.println("--------------------------------");
+        events.emit(SimulationEvent.TOTAL_PATIENTS, null, totalPatients);
 
         return sortis;
     }
 
-    // --- Outils pour transferMap ---
-    private String buildKey(HospitalUnit i, HospitalUnit j) {
-        return i.getName() + "->" + j.getName();
+    /**
+     * Donne à chaque unité son indice dense dans la liste, et précalcule les indices de ses voisins.
+     * Les voisins qui ne font pas partie de cette liste sont ignorés (le flux est interne à l'hôpital).
+     */
+    private int[][] buildTopology() {
+        int n = units.size();
+        for (int k = 0; k < n; k++) {
+            units.get(k).setIndex(k);
+        }
+        int[][] ids = new int[n][];
+        for (int k = 0; k < n; k++) {
+            List<HospitalUnit> neighbors = units.get(k).getNeighbors();
+            int[] tmp = new int[neighbors.size()];
+            int c = 0;
+            for (HospitalUnit j : neighbors) {
+                int idx = j.getIndex();
+                if (idx >= 0 && idx < n && units.get(idx) == j) {
+                    tmp[c++] = idx;
+                }
+            }
+            ids[k] = Arrays.copyOf(tmp, c);
+        }
+        return ids;
     }
 
-    private HospitalUnit parseSource(String key) {
-        String[] parts = key.split("->");
-        return findUnit(parts[0]);
+    private static int maxDegree(int[][] neighborIds) {
+        int max = 0;
+        for (int[] nb : neighborIds) {
+            max = Math.max(max, nb.length);
+        }
+        return max;
     }
 
-    private HospitalUnit parseTarget(String key) {
-        String[] parts = key.split("->");
-        return findUnit(parts[1]);
+    private void ensureCandidates(int size) {
+        if (candidates.length < size) {
+            candidates = Arrays.copyOf(candidates, Math.max(size, candidates.length * 2));
+        }
     }
 
-    private HospitalUnit findUnit(String name) {
-        for (HospitalUnit u : units) {
-            if (u.getName().equals(name)) {
-                return u;
-            }
+    private void ensureRemovalBuf(int size) {
+        if (removalBuf.length < size) {
+            removalBuf = new int[Math.max(size, removalBuf.length * 2)];
         }
-        return null;
     }
 
-    private static int countPriority(List<Patient> plist, PriorityLevel prio) {
-        int c = 0;
-        for (Patient p : plist) {
-            if (p.getPriority() == prio) {
-                c++;
-            }
-        }
-        return c;
+    // --- Codage d'un candidat au transfert : (indice dans la file << 2) | priorité ---
+    private static int packCandidate(int index, int priority) {
+        return (index << 2) | priority;
+    }
+
+    private static int candidateIndex(int candidate) {
+        return candidate >>> 2;
+    }
+
+    private static int candidatePriority(int candidate) {
+        return candidate & 3;
     }
-}
\ No newline at end of file
+}
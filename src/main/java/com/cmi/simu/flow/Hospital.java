@@ -2,6 +2,7 @@ package com.cmi.simu.flow;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import org.jetbrains.annotations.NotNull;
@@ -25,29 +26,54 @@ public class Hospital {
     private int id;               // Identifiant unique (ex. pour requête POST)
     private String name;           // Nom de l'hôpital
 
+    // Position sur la carte (ligne, colonne de la grille du front), pour le choix des voisins
+    @Setter
+    private double row;
+    @Setter
+    private double col;
+
     private final List<HospitalUnit> units;   // Services internes
+    // Services indexés par type (UnitKind) : unitsByKind[kind], null si l'hôpital n'en a pas
+    @Getter(AccessLevel.NONE)
+    private HospitalUnit[] unitsByKind = new HospitalUnit[0];
+    @Getter(AccessLevel.NONE)
+    private volatile int indexedUnits = -1;   // taille de la liste au moment de l'indexation
     @JsonIgnore
     private final List<Hospital> neighbors;   // Autres hôpitaux connectés
 
     // Pour la simulation interne
     private final FlowManager flowManager;
+    @JsonIgnore
     private final FlowSimulator flowSimulator;
 
+    // Patients envoyés vers des hôpitaux voisins depuis la création (cumul)
+    @JsonIgnore
+    private long interHospitalTransfers;
+
     /**
      * Constructeur
      */
     public Hospital(int id, String name, FlowManager flowManager) {
+        this(id, name, flowManager, PatientModel.INDIVIDUAL);
+    }
+
+    /**
+     * Constructeur avec choix de la représentation des patients (individuelle ou agrégée)
+     */
+    public Hospital(int id, String name, FlowManager flowManager, PatientModel patientModel) {
         this.id = id;
         this.name = name;
-        this.units = getHospitalUnits();
+        this.units = getHospitalUnits(patientModel);
         this.neighbors = new ArrayList<>();
         // Le flowManager et flowSimulator seront configurés plus tard
         this.flowManager = flowManager;
-        this.flowSimulator = new FlowSimulator(units, flowManager);
+        this.flowSimulator = patientModel == PatientModel.AGGREGATED
+                ? new AggregatedFlowSimulator(units, flowManager)
+                : new FlowSimulator(units, flowManager);
     }
 
     public Hospital() {
-        this.units = getHospitalUnits();
+        this.units = getHospitalUnits(PatientModel.INDIVIDUAL);
         this.neighbors = new ArrayList<>();
         // Le flowManager et flowSimulator seront configurés plus tard
         this.flowManager = new FlowManager(1.0,0.3,2.0);
@@ -65,48 +91,107 @@ public class Hospital {
     }
 
     /**
-     * Simule un "tick" (un pas de temps) à l'intérieur de l'hôpital,
-     * puis tente d'éventuels transferts de patients vers les hôpitaux voisins.
-     * On peut passer un scénario qui gère les arrivées pour cet hôpital.
+     * Retire un hôpital voisin (suppression, ou remplacement par un hôpital plus proche).
      */
-    public Map<String, Integer> simulateOneTick(ArrivalScenario scenario) {
+    public void removeNeighbor(Hospital other) {
+        this.neighbors.remove(other);
+    }
 
-        Map<String, Integer> sortis = new HashMap<>();
-        // Simulation interne (flux local)
-        if (flowSimulator != null) {
-            sortis = flowSimulator.runOneStep(scenario, this.getUnits());
+    /**
+     * Insère un voisin à sa place dans la liste, triée du plus proche au plus lointain
+     * (les transferts essaient les voisins dans cet ordre).
+     */
+    public void addNeighborByDistance(Hospital other) {
+        if (this.neighbors.contains(other)) return;
+        double d = distanceTo(other);
+        int i = 0;
+        while (i < neighbors.size() && distanceTo(neighbors.get(i)) <= d) {
+            i++;
         }
+        this.neighbors.add(i, other);
+    }
+
+    /**
+     * Remplace tous les voisins, dans l'ordre donné (rejeu du journal, voir {@link TickJournal}).
+     */
+    void replaceNeighbors(List<Hospital> others) {
+        this.neighbors.clear();
+        this.neighbors.addAll(others);
+    }
+
+    public double distanceTo(Hospital other) {
+        return SpatialIndex.distance(other, row, col);
+    }
 
-        // 3) Tentative de débordement / transfert inter-hôpitaux
-        doInterHospitalTransfers();
+    /**
+     * Donne à chaque unité son propre flux aléatoire, dérivé de la graine maître et de l'id
+     * de l'hôpital. À rappeler si l'id change.
+     */
+    public void seedRandom(long masterSeed) {
+        SplitMixRandom hospitalRandom = RandomStreams.stream(masterSeed, id);
+        for (HospitalUnit unit : units) {
+            unit.setRandom(hospitalRandom.split());
+        }
+    }
 
-        return sortis;
+    // Reprise depuis un checkpoint (voir SimulationCheckpoint)
+    void restoreInterHospitalTransfers(long interHospitalTransfers) {
+        this.interHospitalTransfers = interHospitalTransfers;
+    }
+
+    /**
+     * Rattache toutes les unités à l'horloge d'une simulation (par défaut, {@link Clock#getClock()}),
+     * et le simulateur interne à son puits d'événements.
+     */
+    public void setClock(Clock clock) {
+        for (HospitalUnit unit : units) {
+            unit.setClock(clock);
+        }
+        if (flowSimulator != null) {
+            flowSimulator.setEvents(clock.getEvents());
+        }
+    }
+
+    /**
+     * Phase de calcul d'un tick : arrivées, traitement et flux internes.
+     * Ne modifie que les unités de cet hôpital, peut donc tourner en parallèle des autres.
+     * Les arrivées du tick sont tirées avant, une fois pour tout le réseau : voir {@link TickEngine}.
+     */
+    public Map<String, Integer> simulateInternalStep() {
+        if (flowSimulator == null) {
+            return new HashMap<>();
+        }
+        return flowSimulator.runOneStep(this.getUnits());
     }
 
     /**
      * Tentative de transférer des patients vers des hôpitaux voisins
      * si un service est saturé. Ex : le même "serviceName" existe chez le voisin,
      * on envoie le surplus si le voisin a encore de la place.
+     * <p>
+     * Modifie l'état des voisins : à appeler pendant la phase de commit, un hôpital à la fois.
      */
-    private void doInterHospitalTransfers() {
+    public void doInterHospitalTransfers() {
         for (HospitalUnit unit : units) {
             // Regarde si saturé
-            if (unit.getPatients().size() > unit.getMaxCapacity()) {
+            if (unit.getCurrentLoad() > unit.getMaxCapacity()) {
                 // Surplus
-                int surplus = unit.getPatients().size() - unit.getMaxCapacity();
+                int surplus = unit.getCurrentLoad() - unit.getMaxCapacity();
 
                 // Tenter de transférer 'surplus' patients vers un hôpital voisin
                 // dans le même type de service (même name).
                 for (Hospital neighborHospital : neighbors) {
-                    HospitalUnit neighborUnit = neighborHospital.findUnitByName(unit.getName());
+                    HospitalUnit neighborUnit = neighborHospital.findUnit(unit.getKind());
                     if (neighborUnit == null) continue;
 
                     // Combien le voisin peut-il accepter ?
-                    int canAccept = neighborUnit.getMaxCapacity() - neighborUnit.getPatients().size();
+                    int canAccept = neighborUnit.getMaxCapacity() - neighborUnit.getCurrentLoad();
                     if (canAccept > 0) {
                         int toTransfer = Math.min(surplus, canAccept);
                         // Transférer toTransfer patients (de plus basse priorité par ex.)
-                        surplus -= unit.transferSomePatients(neighborUnit, toTransfer);
+                        int transferred = unit.transferSomePatients(neighborUnit, toTransfer);
+                        interHospitalTransfers += transferred;
+                        surplus -= transferred;
                         if (surplus <= 0) {
                             break; // plus de surplus
                         }
@@ -117,24 +202,48 @@ public class Hospital {
     }
 
     /**
-     * Retrouve le service (HospitalUnit) par son nom (ex. "Urgences").
+     * Retrouve le service (HospitalUnit) par son nom (ex. "Urgences"), sans tenir compte de la casse.
      * Retourne null si inexistant.
      */
     public HospitalUnit findUnitByName(String name) {
+        return findUnit(UnitKind.idOf(name));
+    }
+
+    /**
+     * Retrouve le service d'un type donné (id du registre {@link UnitKind}), en temps constant.
+     * Retourne null si inexistant.
+     */
+    public HospitalUnit findUnit(int kind) {
+        HospitalUnit[] byKind = indexedUnits == units.size() ? unitsByKind : indexUnits();
+        return kind >= 0 && kind < byKind.length ? byKind[kind] : null;
+    }
+
+    /**
+     * (Re)construit l'index par type. La liste des unités ne change qu'à la construction
+     * (ou à la désérialisation JSON) : en pratique, une seule fois par hôpital.
+     */
+    private synchronized HospitalUnit[] indexUnits() {
+        int size = 0;
+        for (HospitalUnit u : units) {
+            size = Math.max(size, u.getKind() + 1);
+        }
+        HospitalUnit[] byKind = new HospitalUnit[size];
         for (HospitalUnit u : units) {
-            if (u.getName().equalsIgnoreCase(name)) {
-                return u;
+            if (byKind[u.getKind()] == null) {
+                byKind[u.getKind()] = u;
             }
         }
-        return null;
+        unitsByKind = byKind;
+        indexedUnits = units.size();
+        return byKind;
     }
 
     @NotNull
-    private static List<HospitalUnit> getHospitalUnits() {
-        HospitalUnit urgences  = new HospitalUnit("Urgences",  15, false, 10, 30, 0.0);
-        HospitalUnit chirurgie = new HospitalUnit("Chirurgie", 10, false, 8,  20, 0.1);
-        HospitalUnit medecine  = new HospitalUnit("Medecine",  8,  false, 5,  25, 0.05);
-        HospitalUnit bloc    = new HospitalUnit("Bloque",    1,  false,  2,  1,  0.001); // obstacle
+    private static List<HospitalUnit> getHospitalUnits(PatientModel model) {
+        HospitalUnit urgences  = new HospitalUnit("Urgences",  15, false, 10, 30, 0.0,   model);
+        HospitalUnit chirurgie = new HospitalUnit("Chirurgie", 10, false, 8,  20, 0.1,   model);
+        HospitalUnit medecine  = new HospitalUnit("Medecine",  8,  false, 5,  25, 0.05,  model);
+        HospitalUnit bloc    = new HospitalUnit("Bloque",    1,  false,  2,  1,  0.001, model); // obstacle
 
         // --- 2) Définir les voisinages (graphe) ---
         // Admettons :
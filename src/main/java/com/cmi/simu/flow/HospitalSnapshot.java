@@ -0,0 +1,46 @@
+package com.cmi.simu.flow;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Photo figée d'un hôpital et de ses unités à la fin d'un tick.
+ *
+ * @param version la plus grande version de ses unités (voir {@link UnitSnapshot#version()})
+ */
+public record HospitalSnapshot(int id, String name, List<UnitSnapshot> units, long version) {
+
+    public HospitalSnapshot {
+        units = List.copyOf(units);
+    }
+
+    /**
+     * @param exits sorties par nom d'unité, telles que retournées pour cet hôpital par {@link TickEngine#tick}
+     *              (peut être vide si aucun tick n'a encore tourné)
+     */
+    public static HospitalSnapshot of(Hospital hospital, Map<String, Integer> exits) {
+        return of(hospital, exits, null, 0);
+    }
+
+    /**
+     * Capture l'hôpital pour le snapshot de version "version", en reprenant la version
+     * des unités qui n'ont pas changé depuis "previous".
+     *
+     * @param previous le même hôpital dans le snapshot précédent (null s'il vient d'être créé)
+     */
+    public static HospitalSnapshot of(Hospital hospital, Map<String, Integer> exits,
+                                      HospitalSnapshot previous, long version) {
+        List<HospitalUnit> live = hospital.getUnits();
+        List<UnitSnapshot> units = new ArrayList<>(live.size());
+        long hospitalVersion = previous == null ? version : 0;
+        for (int i = 0; i < live.size(); i++) {
+            HospitalUnit u = live.get(i);
+            UnitSnapshot before = previous != null && i < previous.units().size() ? previous.units().get(i) : null;
+            UnitSnapshot unit = UnitSnapshot.of(u, exits.getOrDefault(u.getName(), 0), before, version);
+            units.add(unit);
+            hospitalVersion = Math.max(hospitalVersion, unit.version());
+        }
+        return new HospitalSnapshot(hospital.getId(), hospital.getName(), units, hospitalVersion);
+    }
+}
@@ -1,5 +1,6 @@
 package com.cmi.simu.flow;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -13,8 +14,16 @@ import java.util.*;
 @Getter
 public class HospitalUnit {
 
+    private static final int PRIORITY_COUNT = PriorityLevel.values().length;
+
     @Getter
     private final String name;            // Nom du service (ex. "Urgences", "Chirurgie", etc.)
+    // Type du service dans le registre UnitKind : c'est lui, et non le nom, qu'on compare
+    @JsonIgnore
+    private final int kind;
+    // Indice dense de l'unité dans son hôpital (0..n-1), attribué par le FlowSimulator
+    @Setter
+    private int index = -1;
     @Getter
     private final double altitude;        // H_i : hauteur de base (influence la hauteur totale)
     private int currentLoad;           // W_i(t) : charge à l'instant t
@@ -30,9 +39,40 @@ public class HospitalUnit {
     private int staffCapacity;
 
     // ----- Gestion des Patients -----
-    // Liste de patients actuellement dans l'unité
-    @Getter
-    private final List<Patient> patients;
+    // Patients actuellement dans l'unité : une file par priorité (indice = ordinal de PriorityLevel),
+    // dans l'ordre d'arrivée. Voir PatientQueue.
+    @JsonIgnore
+    private final PatientQueue[] queues;
+
+    // Représentation des patients : files individuelles (queues) ou effectifs agrégés (histogram).
+    // Une seule des deux est utilisée, selon patientModel.
+    private final PatientModel patientModel;
+    @JsonIgnore
+    private final PatientHistogram histogram;
+
+    // Tampon d'indices réutilisé d'un tick à l'autre pour les retraits groupés
+    @JsonIgnore
+    private int[] scratch = new int[16];
+
+    // Générateur propre à l'unité (remplacé par un flux dérivé de la graine maître, voir Hospital.seedRandom)
+    @JsonIgnore
+    @Setter
+    private SplitMixRandom random = SplitMixRandom.unseeded();
+
+    // Horloge de la simulation à laquelle appartient l'unité (voir Hospital.setClock)
+    @JsonIgnore
+    @Setter
+    private Clock clock = Clock.getClock();
+
+    // Compteurs cumulés depuis la création de l'unité (statistiques, métriques)
+    @JsonIgnore
+    private long acceptedArrivals;
+    @JsonIgnore
+    private long rejectedArrivals;
+    @JsonIgnore
+    private long deaths;
+    @JsonIgnore
+    private long absorptions;
 
     // Pour modéliser l'arrivée d'un certain nb de patients extérieurs
     @Getter
@@ -49,12 +89,19 @@ public class HospitalUnit {
      * Contrôle ou non le statut d'obstacle.
      */
     @Getter
-    @Setter
     private boolean obstacle;             // true si l'unité bloque le flux
     @Getter
-    @Setter
     private int maxCapacity;           // Pour modéliser une capacité théorique du service
 
+    // Lits libres des voisins, pour le débordement (construit au premier besoin, voir SpareCapacityIndex)
+    @JsonIgnore
+    private SpareCapacityIndex overflowIndex;
+    // Index dans lesquels cette unité a une case, prévenus à chaque changement de charge
+    @JsonIgnore
+    private SpareCapacityIndex[] watchers = new SpareCapacityIndex[0];
+    @JsonIgnore
+    private int[] watcherSlots = new int[0];
+
     // ----- GET / SET -----
     /**
      * — GETTER —
@@ -79,14 +126,29 @@ public class HospitalUnit {
      */
     public HospitalUnit(String name, int altitude, boolean isObstacle,
                         int staffCapacity, int maxCapacity, double absorptionRate) {
+        this(name, altitude, isObstacle, staffCapacity, maxCapacity, absorptionRate, PatientModel.INDIVIDUAL);
+    }
+
+    /**
+     * Constructeur avec choix de la représentation des patients
+     */
+    public HospitalUnit(String name, int altitude, boolean isObstacle,
+                        int staffCapacity, int maxCapacity, double absorptionRate,
+                        PatientModel patientModel) {
         this.name = name;
+        this.kind = UnitKind.register(name);
         this.altitude = altitude;
         this.obstacle = isObstacle;
         this.staffCapacity = staffCapacity;
         this.maxCapacity = maxCapacity;
         this.absorptionRate = absorptionRate;
 
-        this.patients = new ArrayList<>();
+        this.patientModel = patientModel;
+        this.queues = new PatientQueue[PRIORITY_COUNT];
+        for (PriorityLevel prio : PriorityLevel.values()) {
+            this.queues[prio.ordinal()] = new PatientQueue(prio);
+        }
+        this.histogram = patientModel == PatientModel.AGGREGATED ? new PatientHistogram() : null;
         this.neighbors = new ArrayList<>();
 
         this.externalArrivalsUrgent = 0;
@@ -117,21 +179,15 @@ public class HospitalUnit {
         int absorbed = 0;
 
         if (absorptionRate <= 0) return 0;
-        int total = patients.size();
+        int total = currentLoad;
         // Nombre de patients qui sortent (ex. guéris)
         int out = (int) Math.round(total * absorptionRate);
         if (out <= 0) return 0;
 
         // On retire d'abord les patients de plus faible priorité (par ex. ils sortent plus vite)
         // Ou au contraire, on retire aléatoirement. Ici, on retire aléatoirement pour simplifier :
-        Random rand = new Random();
-        for (int i = 0; i < out && !patients.isEmpty(); i++) {
-            int idx = rand.nextInt(patients.size());
-            patients.remove(idx);
-            absorbed++;
-        }
-        // MAJ currentLoad
-        currentLoad = patients.size();
+        absorbed = removeRandom(out, random, null);
+        absorptions += absorbed;
 
         return absorbed;
     }
@@ -146,11 +202,8 @@ public class HospitalUnit {
         // On arrondit le nombre à un entier
 
         for (int i = 0; i < number; i++) {
-            // On crée un patient de priorité NORMAL par défaut
-            Patient p = new Patient(PriorityLevel.NORMAL, randomTimeToTreat(PriorityLevel.NORMAL));
-
-            // On essaie de l'ajouter
-            boolean ok = addPatient(p);
+            // On crée un patient de priorité NORMAL par défaut, et on essaie de l'ajouter
+            boolean ok = addNewPatient(PriorityLevel.NORMAL, randomTimeToTreat(PriorityLevel.NORMAL));
             if (!ok) {
                 // Service saturé : on peut imaginer un débordement...
                 break;
@@ -163,14 +216,50 @@ public class HospitalUnit {
      * puis met à jour currentLoad.
      */
     public void removePatients(int number) {
-        if (number <= 0 || patients.isEmpty()) return;
+        if (number <= 0 || currentLoad == 0) return;
+
+        removeRandom(number, random, null);
+    }
+
+    /**
+     * Retire "count" patients tirés uniformément au hasard parmi toutes les files
+     * (échantillonnage séquentiel : un seul passage, indices déjà triés par file).
+     * Si "target" est non null, chaque patient tiré est d'abord proposé à cette unité
+     * et n'est retiré d'ici que s'il y a été accepté.
+     *
+     * @return le nombre de patients effectivement retirés
+     */
+    private int removeRandom(int count, SplitMixRandom rand, HospitalUnit target) {
+        if (histogram != null) {
+            int removed = target == null
+                    ? histogram.removeRandom(count, rand, null, 0)
+                    : histogram.removeRandom(count, rand, target.histogram, target.maxCapacity - target.currentLoad);
+            updateLoad();
+            if (target != null) target.updateLoad();
+            return removed;
+        }
 
-        Random rand = new Random();
-        for (int i = 0; i < number && !patients.isEmpty(); i++) {
-            int idx = rand.nextInt(patients.size());
-            patients.remove(idx);
+        int needed = Math.min(count, currentLoad);
+        int remaining = currentLoad;
+        int removed = 0;
+
+        for (PatientQueue q : queues) {
+            int n = 0;
+            int[] buf = ensureScratch(q.size());
+            for (int i = 0; i < q.size() && needed > 0; i++, remaining--) {
+                // Le patient i est tiré avec probabilité needed / remaining
+                if (rand.nextInt(remaining) < needed) {
+                    needed--;
+                    if (target == null || target.addPatientFrom(this, q.getPriority(), i)) {
+                        buf[n++] = i;
+                    }
+                }
+            }
+            q.removeAll(buf, n);
+            removed += n;
         }
-        currentLoad = patients.size();
+        updateLoad();
+        return removed;
     }
 
     /**
@@ -179,6 +268,11 @@ public class HospitalUnit {
     public void addNeighbor(HospitalUnit neighbor) {
         if (!this.neighbors.contains(neighbor)) {
             this.neighbors.add(neighbor);
+            // Le groupe de débordement a changé : l'index sera reconstruit au prochain besoin
+            if (overflowIndex != null) {
+                overflowIndex.detach();
+                overflowIndex = null;
+            }
         }
     }
 
@@ -187,67 +281,112 @@ public class HospitalUnit {
      * Met à jour currentLoad en conséquence.
      */
     public boolean addPatient(Patient p) {
-        if (patients.size() < maxCapacity) {
-            patients.add(p);
+        if (currentLoad < maxCapacity) {
+            if (histogram != null) {
+                histogram.add(p.getPriority(), p.getTimeToTreat(), p.getTimeSpentInService());
+                currentLoad++;
+                loadChanged();
+                return true;
+            }
+            queues[p.getPriority().ordinal()].addLast(p.getTimeToTreat(), p.getTimeSpentInService(),
+                    p.getTimeBeforeEligibleTransfer(), p.getMinStayInUnit());
             // MAJ currentLoad
-            currentLoad = patients.size();
+            currentLoad++;
+            loadChanged();
             return true;
         } else {
             return false;
         }
     }
 
-    public void removePatient(Patient p) {
-        patients.remove(p);
-        // MAJ currentLoad
-        currentLoad = patients.size();
+    /**
+     * Ajoute un nouveau patient en fin de file (sans créer d'objet Patient),
+     * si la capacité n'est pas dépassée.
+     */
+    public boolean addNewPatient(PriorityLevel priority, int timeToTreat) {
+        if (currentLoad < maxCapacity) {
+            if (histogram != null) {
+                histogram.add(priority, timeToTreat, 0);
+            } else {
+                queues[priority.ordinal()].addNew(timeToTreat);
+            }
+            currentLoad++;
+            loadChanged();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Copie ici le patient d'indice "index" de la file "priority" de l'unité "source",
+     * si la capacité n'est pas dépassée. C'est à l'appelant de le retirer ensuite de la source.
+     */
+    public boolean addPatientFrom(HospitalUnit source, PriorityLevel priority, int index) {
+        if (currentLoad < maxCapacity) {
+            source.queues[priority.ordinal()].copyTo(index, queues[priority.ordinal()]);
+            currentLoad++;
+            loadChanged();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Comme {@link #addPatientFrom}, sans vérifier la capacité : l'appelant l'a déjà fait, en
+     * comptant les patients de cette unité déjà copiés ailleurs mais pas encore retirés
+     * (voir FlowSimulator.applyInternalTransfers).
+     */
+    void copyPatientFrom(HospitalUnit source, PriorityLevel priority, int index) {
+        source.queues[priority.ordinal()].copyTo(index, queues[priority.ordinal()]);
+        currentLoad++;
+        loadChanged();
+    }
+
+    /**
+     * Retire d'un coup plusieurs patients de la file "priority", désignés par leurs indices
+     * (valables avant l'appel). L'ordre des autres patients est conservé.
+     */
+    public void removePatientsAt(PriorityLevel priority, int[] indices, int count) {
+        queues[priority.ordinal()].removeAll(indices, count);
+        updateLoad();
+    }
+
+    /**
+     * File des patients de la priorité donnée (tête = plus ancien). Mode INDIVIDUAL uniquement.
+     */
+    public PatientQueue getQueue(PriorityLevel priority) {
+        return queues[priority.ordinal()];
+    }
+
+    /**
+     * Nombre de patients de la priorité donnée actuellement dans l'unité, en O(1).
+     */
+    public int countPriority(PriorityLevel priority) {
+        if (histogram != null) return histogram.count(priority);
+        return queues[priority.ordinal()].size();
     }
 
     /**
      * On accepte les arrivées extérieures pour chaque priorité,
-     * en créant effectivement les objets Patient correspondants.
+     * en ajoutant les patients correspondants.
      * Retourne le nombre de patients réellement acceptés (facultatif).
      */
     public int acceptExternalArrivals() {
         int acceptedCount = 0;
 
         // 1) Patients URGENT
-        for (int i = 0; i < externalArrivalsUrgent; i++) {
-            Patient p = new Patient(PriorityLevel.URGENT, randomTimeToTreat(PriorityLevel.URGENT));
-            if (addPatient(p)) {
-                acceptedCount++;
-            } else {
-                // Service saturé → on peut imaginer un "débordement" vers un autre service
-                // Service saturé → on tente un débordement vers un voisin
-                if (tryOverflowToNeighbors(p)) {
-                    acceptedCount++;
-                }
-                // Si échec global, on peut imaginer un "patient perdu" ou en file d'attente globale
-                // Pour l’exemple, on ne fait rien de plus
-            }
-        }
+        acceptedCount = getAcceptedCount(acceptedCount, externalArrivalsUrgent, PriorityLevel.URGENT);
 
         // 2) Patients NORMAL
-        acceptedCount = getAcceptedCount(acceptedCount, externalArrivalsNormal);
+        acceptedCount = getAcceptedCount(acceptedCount, externalArrivalsNormal, PriorityLevel.NORMAL);
 
         // 3) Patients LOW
-        for (int i = 0; i < externalArrivalsLow; i++) {
-            Patient p = new Patient(PriorityLevel.LOW, randomTimeToTreat(PriorityLevel.LOW));
-            if (addPatient(p)) {
-                acceptedCount++;
-            } else {
-                if (tryOverflowToNeighbors(p)) {
-                    acceptedCount++;
-                }
-                // Si échec global, on peut imaginer un "patient perdu" ou en file d'attente globale
-                // Pour l’exemple, on ne fait rien de plus
-            }
-        }
+        acceptedCount = getAcceptedCount(acceptedCount, externalArrivalsLow, PriorityLevel.LOW);
 
         // 4) Si on souhaite aussi gérer externalArrivals "global" (sans priorité),
-        //    on peut le faire ici :
+        //    on peut le faire ici (par exemple, un patient NORMAL par défaut) :
         int genericCount = (int) Math.floor(externalArrivals);
-        acceptedCount = getAcceptedCount(acceptedCount, genericCount);
+        acceptedCount = getAcceptedCount(acceptedCount, genericCount, PriorityLevel.NORMAL);
 
         // Remettre à zéro pour la prochaine itération
         this.externalArrivalsUrgent = 0;
@@ -258,18 +397,22 @@ public class HospitalUnit {
         return acceptedCount;
     }
 
-    private int getAcceptedCount(int acceptedCount, int genericCount) {
-        for (int i = 0; i < genericCount; i++) {
-            // Par exemple, on crée un patient NORMAL par défaut
-            Patient p = new Patient(PriorityLevel.NORMAL, randomTimeToTreat(PriorityLevel.NORMAL));
-            if (addPatient(p)) {
+    private int getAcceptedCount(int acceptedCount, int count, PriorityLevel priority) {
+        for (int i = 0; i < count; i++) {
+            int timeToTreat = randomTimeToTreat(priority);
+            if (addNewPatient(priority, timeToTreat)) {
                 acceptedCount++;
+                acceptedArrivals++;
             } else {
-                if (tryOverflowToNeighbors(p)) {
+                // Service saturé → on tente un débordement vers un voisin
+                if (tryOverflowToNeighbors(priority, timeToTreat)) {
                     acceptedCount++;
+                    acceptedArrivals++;
+                } else {
+                    // Si échec global, on peut imaginer un "patient perdu" ou en file d'attente globale
+                    // Pour l’exemple, on se contente de le compter
+                    rejectedArrivals++;
                 }
-                // Si échec global, on peut imaginer un "patient perdu" ou en file d'attente globale
-                // Pour l’exemple, on ne fait rien de plus
             }
         }
         return acceptedCount;
@@ -280,11 +423,10 @@ public class HospitalUnit {
      */
     private int randomTimeToTreat(PriorityLevel priority) {
         // On peut affiner selon la pathologie...
-        Random rand = new Random();
         return switch (priority) {
-            case URGENT -> 3 + rand.nextInt(3);  // entre 3 et 5
-            case NORMAL -> 5 + rand.nextInt(6);  // entre 5 et 10
-            case LOW -> 8 + rand.nextInt(8);  // entre 8 et 15
+            case URGENT -> 3 + random.nextInt(3);  // entre 3 et 5
+            case NORMAL -> 5 + random.nextInt(6);  // entre 5 et 10
+            case LOW -> 8 + random.nextInt(8);  // entre 8 et 15
         };
     }
 
@@ -294,40 +436,23 @@ public class HospitalUnit {
      * en premier, etc. On fait ici un tri simple : on retire aléatoirement.
      */
     public int transferSomePatients(HospitalUnit targetUnit, int count) {
-        // Sélectionne "count" patients à retirer
-        Random rand = new Random();
-        int transferred = 0;
-        for (int i = 0; i < count && !patients.isEmpty(); i++) {
-            int idx = rand.nextInt(patients.size());
-            Patient p = patients.get(idx);
-            // On essaie d'ajouter p chez le voisin
-            if (targetUnit.addPatient(p)) {
-                // Retirer ici
-                patients.remove(idx);
-                transferred++;
-            }
-        }
-        // MAJ
-        currentLoad = patients.size();
-        return transferred;
+        // Sélectionne "count" patients au hasard, on essaie de les ajouter chez le voisin,
+        // et on retire ici ceux qui ont été acceptés
+        return removeRandom(count, random, targetUnit);
     }
 
     /**
-     * Tente d'ajouter le patient P à l'un des voisins si le service actuel est saturé.
+     * Tente d'ajouter un nouveau patient à l'un des voisins si le service actuel est saturé.
      * Retourne true si le patient a pu être placé chez un voisin, false sinon.
      */
-    private boolean tryOverflowToNeighbors(Patient p) {
-        // On pourrait faire un tri des voisins selon la hauteur, la distance, ou d'autres critères
-        for (HospitalUnit neighbor : neighbors) {
-            // Vérification basique : pas un obstacle, pas saturé
-            if (!neighbor.isObstacle()) {
-                if (neighbor.addPatient(p)) {
-                    return true;
-                }
-            }
+    private boolean tryOverflowToNeighbors(PriorityLevel priority, int timeToTreat) {
+        if (overflowIndex == null) {
+            overflowIndex = new SpareCapacityIndex(neighbors);
         }
-        // Si aucun voisin n'a pu accueillir le patient
-        return false;
+        // Voisins tous pleins (ou obstacles) : détecté en O(1), sans les parcourir
+        // Sinon, le voisin qui a le plus de lits libres, en O(log n)
+        HospitalUnit best = overflowIndex.best();
+        return best != null && best.addNewPatient(priority, timeToTreat);
     }
 
     /**
@@ -341,59 +466,137 @@ public class HospitalUnit {
 
         int totalStaffCapacity = staffCapacity + suppStaffForHour();
 
-        if (patients.isEmpty() || totalStaffCapacity <= 0) return 0;
+        if (currentLoad == 0 || totalStaffCapacity <= 0) return 0;
 
-        // 1) Tri par priorité (URGENT d'abord, puis NORMAL, ensuite LOW)
-        //    → On veut soigner en priorité les urgences
-        List<Patient> sorted = new ArrayList<>(patients);
-        sorted.sort(Comparator.comparing(Patient::getPriority));
-        // Rappel : par défaut, "URGENT" < "NORMAL" < "LOW" dans l'ordre alphabétique,
-        //          donc on priorise URGENT d'abord.
+        if (histogram != null) {
+            // Mode agrégé : même logique, case par case
+            int out = histogram.treat(Math.min(totalStaffCapacity, currentLoad), mortalityRate, random);
+            deaths += histogram.getLastDeaths();
+            updateLoad();
+            return out;
+        }
 
-        // 2) On traite (décrémente timeToTreat) jusqu'à staffCapacity patients
-        int treatable = Math.min(totalStaffCapacity, sorted.size());
+        // On traite (décrémente timeToTreat) jusqu'à staffCapacity patients,
+        // en prenant la tête de la file URGENT, puis NORMAL, ensuite LOW : O(staffCapacity),
+        // sans copie ni tri.
+        int budget = Math.min(totalStaffCapacity, currentLoad);
         int effectivelyTreatedOrRemoved = 0;
 
-        for (int i = 0; i < treatable; i++) {
-            Patient p = sorted.get(i);
+        for (int prio = 0; prio < PRIORITY_COUNT && budget > 0; prio++) {
+            PatientQueue q = queues[prio];
+            int treated = Math.min(budget, q.size());
+
+            for (int i = 0; i < treated; i++) {
+                // on traite la mortalité
+                double r = random.nextDouble();
+                if (r <= mortalityRate) {
+                    q.setTimeToTreat(i, -999);
+                    deaths++;
+                } else {
+                    // On décrémente timeToTreat
+                    q.decreaseTimeToTreat(i);
+                    // On incrémente le temps passé
+                    q.incrementTimeInService(i);
+                }
+            }
+            budget -= treated;
+            effectivelyTreatedOrRemoved += treated;
+
+            // Retirer du service ceux qui sont éligibles à la sortie
+            // (timeToTreat <= 0 ET a passé minStayInUnit). Seuls les patients qui viennent
+            // d'être soignés ont pu changer d'état : on ne regarde que la tête de file.
+            int[] buf = ensureScratch(treated);
+            int n = 0;
+            for (int i = 0; i < treated; i++) {
+                if (q.isReadyToLeave(i)) {
+                    buf[n++] = i;
+                }
+            }
+            q.removeAll(buf, n);
+            effectivelyTreatedOrRemoved += n;
+        }
 
-            // on traite la mortalité
-            double r = Math.random();
-            if (r <= mortalityRate) {
-                p.setTimeToTreat(-999);
-            } else {
-                // On décrémente timeToTreat
-                p.decreaseTimeToTreat();
-                // On incrémente le temps passé
-                p.incrementTimeInService();
+        // MAJ currentLoad
+        updateLoad();
+
+        return effectivelyTreatedOrRemoved;
+    }
+
+    /**
+     * Recalcule currentLoad à partir de la taille des files.
+     */
+    void updateLoad() {
+        if (histogram != null) {
+            currentLoad = histogram.size();
+        } else {
+            int load = 0;
+            for (PatientQueue q : queues) {
+                load += q.size();
             }
+            currentLoad = load;
+        }
+        loadChanged();
+    }
+
+    /**
+     * Recharge les compteurs cumulés (reprise depuis un checkpoint, voir SimulationCheckpoint).
+     */
+    void restoreCounters(long acceptedArrivals, long rejectedArrivals, long deaths, long absorptions) {
+        this.acceptedArrivals = acceptedArrivals;
+        this.rejectedArrivals = rejectedArrivals;
+        this.deaths = deaths;
+        this.absorptions = absorptions;
+    }
 
-            effectivelyTreatedOrRemoved++;
+    public void setMaxCapacity(int maxCapacity) {
+        this.maxCapacity = maxCapacity;
+        loadChanged();
+    }
+
+    public void setObstacle(boolean obstacle) {
+        this.obstacle = obstacle;
+        loadChanged();
+    }
+
+    /**
+     * Prévient les index de lits libres où figure cette unité.
+     */
+    private void loadChanged() {
+        for (int i = 0; i < watchers.length; i++) {
+            watchers[i].update(watcherSlots[i]);
         }
+    }
+
+    void watch(SpareCapacityIndex index, int slot) {
+        int n = watchers.length;
+        watchers = Arrays.copyOf(watchers, n + 1);
+        watcherSlots = Arrays.copyOf(watcherSlots, n + 1);
+        watchers[n] = index;
+        watcherSlots[n] = slot;
+    }
 
-        // 3) Retirer du service ceux dont timeToTreat ← 0 (ils sortent du système)
-        //    Il faut le faire depuis la liste 'patients' d'origine
-        // patients.removeIf(p -> p.getTimeToTreat() <= 0);
-
-        // vérifier si éligible à la sortie
-        Iterator<Patient> it = patients.iterator();
-        while (it.hasNext()) {
-            Patient p = it.next();
-            // Condition de sortie : timeToTreat <= 0 ET a passé minStayInUnit
-            if (p.getTimeToTreat() <= 0 && p.getTimeSpentInService() >= p.getMinStayInUnit()) {
-                it.remove();
-                effectivelyTreatedOrRemoved++;
+    void unwatch(SpareCapacityIndex index) {
+        for (int i = 0; i < watchers.length; i++) {
+            if (watchers[i] == index) {
+                int n = watchers.length - 1;
+                watchers[i] = watchers[n];
+                watcherSlots[i] = watcherSlots[n];
+                watchers = Arrays.copyOf(watchers, n);
+                watcherSlots = Arrays.copyOf(watcherSlots, n);
+                return;
             }
         }
+    }
 
-        // 4) MAJ currentLoad
-        currentLoad = patients.size();
-
-        return effectivelyTreatedOrRemoved;
+    private int[] ensureScratch(int size) {
+        if (scratch.length < size) {
+            scratch = new int[Math.max(size, scratch.length * 2)];
+        }
+        return scratch;
     }
 
     private int suppStaffForHour() {
-        int hour = Clock.getTime();
+        int hour = clock.getTime();
 
         if (hour < 6) return getRandomInRange(1, 2);
         else if (hour < 12) return getRandomInRange(1, 3);
@@ -402,13 +605,12 @@ public class HospitalUnit {
     }
 
     /**
-     * Retourne un entier aléatoire compris entre min et max inclus
+     * Retourne un entier aléatoire compris entre min et max inclus (tiré dans le flux de l'unité)
      */
-    private int getRandomInRange(int min, int max) {
-        Random rand = new Random();
+    public int getRandomInRange(int min, int max) {
         if (min > max) {
             return min;
         }
-        return rand.nextInt(max - min + 1) + min;
+        return random.nextInt(max - min + 1) + min;
     }
 }
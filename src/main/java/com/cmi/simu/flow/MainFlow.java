@@ -1,33 +1,63 @@
 package com.cmi.simu.flow;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 public class MainFlow {
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && args[0].equalsIgnoreCase("batch")) {
+            runBatch(args);
+            return;
+        }
 
         int totalSteps = 20;
 
-        List<Hospital> hospitalGraph = buildHospitalNetwork();
-        ArrivalScenario scenario = new ArrivalScenario(hospitalGraph);
+        // Usage : MainFlow [INDIVIDUAL|AGGREGATED] [graine], ou MainFlow batch ... (voir runBatch)
+        PatientModel model = args.length > 0
+                ? PatientModel.valueOf(args[0].toUpperCase())
+                : PatientModel.INDIVIDUAL;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : RandomStreams.newMasterSeed();
+        System.out.println("Graine : " + seed);
+
+        // Démo en console : on affiche tout le détail du moteur
+        EventSink events = EventSink.getDefault();
+        events.setLevel(EventLevel.TRACE);
+
+        List<Hospital> hospitalGraph = buildHospitalNetwork(model);
+        for (Hospital hospital : hospitalGraph) {
+            hospital.seedRandom(seed);
+        }
+        ArrivalScenario scenario = new ArrivalScenario(hospitalGraph, RandomStreams.stream(seed, RandomStreams.SCENARIO_STREAM));
 
-        for (int t = 0; t < totalSteps; t++) {
+        try (TickEngine engine = new TickEngine(0)) {
+            for (int t = 0; t < totalSteps; t++) {
 
-            System.out.println("*************************************************");
-            // Affiche un petit résumé
-            System.out.println("=== Time " + t + " ===");
+                System.out.println("*************************************************");
+                // Affiche un petit résumé
+                System.out.println("=== Time " + t + " ===");
 
-            for (Hospital hospital : hospitalGraph) {
-                System.out.println("Sorties : " + hospital.simulateOneTick(scenario));
-            }
+                Map<Integer, Map<String, Integer>> exits = engine.tick(hospitalGraph, scenario);
+                // Les événements du moteur sont écrits en différé : on les laisse passer avant le résumé
+                events.flush();
+                for (Hospital hospital : hospitalGraph) {
+                    System.out.println("Sorties : " + exits.get(hospital.getId()));
+                }
 
-            // Logging
-            logHospitalState(hospitalGraph);
+                // Logging
+                logHospitalState(hospitalGraph);
 
-            System.out.println("*************************************************");
+                System.out.println("*************************************************");
 
-            Clock.addOneHour();
+                Clock.getClock().addOneHour();
+                events.flush();
+            }
         }
 
         System.out.println("Simulation terminee !");
@@ -38,7 +68,7 @@ public class MainFlow {
             System.out.println("Hospital " + hospital.getName() + " (ID=" + hospital.getId() + ") :");
             int total = 0;
             for (HospitalUnit unit : hospital.getUnits()) {
-                int load = unit.getPatients().size();
+                int load = unit.getCurrentLoad();
                 total += load;
                 System.out.println("  - " + unit.getName() + ": " + load + " patients");
             }
@@ -46,14 +76,33 @@ public class MainFlow {
         }
     }
 
+    /**
+     * Simulation sans affichage, à pleine vitesse, résultats en NDJSON sur la sortie standard
+     * (voir {@link BatchRun}).
+     * Usage : MainFlow batch [heures] [graine] [INDIVIDUAL|AGGREGATED] [TICK|EVENT]
+     */
+    private static void runBatch(String[] args) throws IOException {
+        int hours = args.length > 1 ? Integer.parseInt(args[1]) : 24 * 365;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : RandomStreams.newMasterSeed();
+        PatientModel model = args.length > 3 ? PatientModel.valueOf(args[3].toUpperCase()) : PatientModel.INDIVIDUAL;
+        EngineType engine = args.length > 4 ? EngineType.valueOf(args[4].toUpperCase()) : EngineType.TICK;
+
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16);
+        new BatchRun(buildHospitalNetwork(model), seed, hours, engine).run(out);
+    }
+
     public static List<Hospital> buildHospitalNetwork() {
+        return buildHospitalNetwork(PatientModel.INDIVIDUAL);
+    }
+
+    public static List<Hospital> buildHospitalNetwork(PatientModel model) {
         // FlowManager standard pour tout le monde
         FlowManager fmA = new FlowManager(22.0, 4.4, 3.0);
         FlowManager fmB = new FlowManager(1.0, 0.3, 2.0);
 
         // 1) Crée deux hôpitaux
-        Hospital hospitalA = new Hospital(1, "A", fmA);  // id=1
-        Hospital hospitalB = new Hospital(2, "B", fmB);  // id=2
+        Hospital hospitalA = new Hospital(1, "A", fmA, model);  // id=1
+        Hospital hospitalB = new Hospital(2, "B", fmB, model);  // id=2
 
         // 2) Les relier en voisins
         hospitalA.addNeighbor(hospitalB);
@@ -9,6 +9,11 @@ import lombok.Setter;
  */
 @Getter
 public class Patient {
+
+    // Valeurs initiales d'un nouveau patient (partagées avec PatientQueue)
+    static final int DEFAULT_TIME_BEFORE_ELIGIBLE_TRANSFER = 3;
+    static final int DEFAULT_MIN_STAY_IN_UNIT = 2;
+
     private final PriorityLevel priority;
 
     @Setter
@@ -25,11 +30,19 @@ public class Patient {
     private final int minStayInUnit;
 
     public Patient(PriorityLevel priority, int timeToTreat) {
+        this(priority, timeToTreat, 0, DEFAULT_TIME_BEFORE_ELIGIBLE_TRANSFER, DEFAULT_MIN_STAY_IN_UNIT);
+    }
+
+    /**
+     * Constructeur complet (reconstruction depuis une {@link PatientQueue}).
+     */
+    public Patient(PriorityLevel priority, int timeToTreat, int timeSpentInService,
+                   int timeBeforeEligibleTransfer, int minStayInUnit) {
         this.priority = priority;
         this.timeToTreat = timeToTreat;
-        this.timeSpentInService = 0;
-        this.timeBeforeEligibleTransfer = 3;
-        this.minStayInUnit = 2;
+        this.timeSpentInService = timeSpentInService;
+        this.timeBeforeEligibleTransfer = timeBeforeEligibleTransfer;
+        this.minStayInUnit = minStayInUnit;
     }
 
     public void decreaseTimeToTreat() {
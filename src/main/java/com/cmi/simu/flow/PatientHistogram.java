@@ -0,0 +1,236 @@
+package com.cmi.simu.flow;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+/**
+ * Patients d'une unité représentés uniquement par des effectifs (mode {@link PatientModel#AGGREGATED}).
+ * <p>
+ * Les patients sont anonymes en dehors de leur priorité et de deux compteurs :
+ * <ul>
+ *   <li>le temps de traitement restant (0..MAX_TIME_TO_TREAT ; un décès, codé -999 dans
+ *       le modèle individuel, se comporte exactement comme 0 et est rangé en 0) ;</li>
+ *   <li>le temps passé dans le service, plafonné au seuil utile le plus haut
+ *       (éligibilité au transfert / séjour minimal), car au-delà rien ne change.</li>
+ * </ul>
+ * timeBeforeEligibleTransfer n'est pas stocké : il vaut max(0, seuil - temps passé).
+ * Toutes les opérations (soins, absorption, transferts) travaillent case par case,
+ * en tirant des lois binomiales plutôt qu'un nombre aléatoire par patient.
+ */
+public class PatientHistogram {
+
+    // Temps de traitement initial maximal (voir HospitalUnit.randomTimeToTreat)
+    public static final int MAX_TIME_TO_TREAT = 15;
+
+    static final int ELIGIBLE_BUCKET = Patient.DEFAULT_TIME_BEFORE_ELIGIBLE_TRANSFER;
+    static final int MIN_STAY_BUCKET = Patient.DEFAULT_MIN_STAY_IN_UNIT;
+    static final int TIME_BUCKETS = Math.max(ELIGIBLE_BUCKET, MIN_STAY_BUCKET) + 1;
+
+    private static final int PRIORITY_COUNT = PriorityLevel.values().length;
+    private static final int TTT_SLOTS = MAX_TIME_TO_TREAT + 1;
+    static final int CELLS = PRIORITY_COUNT * TTT_SLOTS * TIME_BUCKETS;
+
+    /**
+     * Ordre de sélection des candidats au transfert : patients éligibles, LOW d'abord, puis NORMAL,
+     * ensuite URGENT, les plus "récents" (temps de traitement restant le plus long) en premier.
+     */
+    static final int[] TRANSFER_ORDER = buildTransferOrder();
+
+    private final int[] counts = new int[CELLS];
+    private final int[] byPriority = new int[PRIORITY_COUNT];
+    private int size;
+    private int lastDeaths;   // décès tirés lors du dernier appel à treat
+
+    public static int cell(int priority, int timeToTreat, int timeBucket) {
+        return (priority * TTT_SLOTS + timeToTreat) * TIME_BUCKETS + timeBucket;
+    }
+
+    public static int cellPriority(int cell) {
+        return cell / (TTT_SLOTS * TIME_BUCKETS);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getLastDeaths() {
+        return lastDeaths;
+    }
+
+    public int count(PriorityLevel priority) {
+        return byPriority[priority.ordinal()];
+    }
+
+    public int countAt(int cell) {
+        return counts[cell];
+    }
+
+    /**
+     * Ajoute un patient (les compteurs hors bornes sont ramenés dans les bornes).
+     */
+    public void add(PriorityLevel priority, int timeToTreat, int timeSpentInService) {
+        addAt(cell(priority.ordinal(), clampTimeToTreat(timeToTreat), clampBucket(timeSpentInService)), 1);
+    }
+
+    /**
+     * Déplace "amount" patients de la case "cell" vers la même case de "target".
+     */
+    public void moveTo(PatientHistogram target, int cell, int amount) {
+        addAt(cell, -amount);
+        target.addAt(cell, amount);
+    }
+
+    public void clear() {
+        Arrays.fill(counts, 0);
+        Arrays.fill(byPriority, 0);
+        size = 0;
+    }
+
+    /**
+     * Écrit les effectifs des CELLS cases (voir SimulationCheckpoint).
+     */
+    void writeTo(ByteBuffer out) {
+        out.asIntBuffer().put(counts);
+        out.position(out.position() + CELLS * Integer.BYTES);
+    }
+
+    /**
+     * Remplace les effectifs par ceux écrits par {@link #writeTo}, et recalcule les totaux.
+     */
+    void readFrom(ByteBuffer in) {
+        in.asIntBuffer().get(counts);
+        in.position(in.position() + CELLS * Integer.BYTES);
+        Arrays.fill(byPriority, 0);
+        size = 0;
+        for (int c = 0; c < CELLS; c++) {
+            byPriority[cellPriority(c)] += counts[c];
+            size += counts[c];
+        }
+    }
+
+    /**
+     * Équivalent agrégé de HospitalUnit.treatPatientsOneStep : soigne jusqu'à "budget" patients,
+     * URGENT d'abord, puis NORMAL, ensuite LOW ; à priorité égale, les patients les plus
+     * anciens (temps passé le plus long, puis temps restant le plus court), ce qui approche
+     * l'ordre d'arrivée du modèle individuel. Puis fait sortir ceux qui ont terminé.
+     *
+     * @return patients soignés + patients sortis, comme le modèle individuel
+     */
+    public int treat(int budget, double mortalityRate, RandomGenerator rand) {
+        int treatedOrRemoved = 0;
+        lastDeaths = 0;
+
+        for (int p = 0; p < PRIORITY_COUNT && budget > 0; p++) {
+            // Les survivants passent en (t-1, s+1), les décès en (0, s) : dans cet ordre de
+            // parcours, ces cases ont déjà été vues, donc personne n'est soigné deux fois.
+            for (int s = TIME_BUCKETS - 1; s >= 0 && budget > 0; s--) {
+                for (int t = 0; t < TTT_SLOTS && budget > 0; t++) {
+                    int c = cell(p, t, s);
+                    int m = Math.min(budget, counts[c]);
+                    if (m == 0) continue;
+                    budget -= m;
+                    treatedOrRemoved += m;
+
+                    int deaths = binomial(m, mortalityRate, rand);
+                    lastDeaths += deaths;
+                    counts[c] -= m;
+                    counts[cell(p, 0, s)] += deaths;
+                    counts[cell(p, Math.max(t - 1, 0), Math.min(s + 1, TIME_BUCKETS - 1))] += m - deaths;
+                }
+            }
+        }
+
+        // Sorties : timeToTreat <= 0 ET a passé minStayInUnit
+        for (int p = 0; p < PRIORITY_COUNT; p++) {
+            for (int s = MIN_STAY_BUCKET; s < TIME_BUCKETS; s++) {
+                int c = cell(p, 0, s);
+                int out = counts[c];
+                if (out == 0) continue;
+                counts[c] = 0;
+                byPriority[p] -= out;
+                size -= out;
+                treatedOrRemoved += out;
+            }
+        }
+        return treatedOrRemoved;
+    }
+
+    /**
+     * Retire "count" patients tirés uniformément au hasard (ventilation case par case par
+     * lois binomiales conditionnelles). Si "target" est non null, les patients y sont déplacés,
+     * dans la limite de "targetRoom".
+     *
+     * @return le nombre de patients effectivement retirés
+     */
+    public int removeRandom(int count, RandomGenerator rand, PatientHistogram target, int targetRoom) {
+        int k = Math.min(count, size);
+        if (target != null) k = Math.min(k, targetRoom);
+        if (k <= 0) return 0;
+
+        int moved = k;
+        int remaining = size;
+        for (int c = 0; c < CELLS && k > 0; c++) {
+            int n = counts[c];
+            if (n == 0) continue;
+            // Au moins ce qu'il faut pour que les cases suivantes suffisent, au plus n
+            int min = Math.max(0, k - (remaining - n));
+            int x = Math.max(min, Math.min(Math.min(n, k), binomial(k, (double) n / remaining, rand)));
+            remaining -= n;
+            k -= x;
+            if (x == 0) continue;
+            if (target != null) {
+                moveTo(target, c, x);
+            } else {
+                addAt(c, -x);
+            }
+        }
+        return moved;
+    }
+
+    private void addAt(int cell, int amount) {
+        counts[cell] += amount;
+        byPriority[cellPriority(cell)] += amount;
+        size += amount;
+    }
+
+    /**
+     * Tirage d'une loi binomiale B(n, p) : exact pour les petits n, approximation normale sinon.
+     */
+    static int binomial(int n, double p, RandomGenerator rand) {
+        if (n <= 0 || p <= 0) return 0;
+        if (p >= 1) return n;
+        if (n < 50) {
+            int x = 0;
+            for (int i = 0; i < n; i++) {
+                if (rand.nextDouble() < p) x++;
+            }
+            return x;
+        }
+        double mean = n * p;
+        double sd = Math.sqrt(mean * (1 - p));
+        long x = Math.round(mean + sd * rand.nextGaussian());
+        return (int) Math.max(0, Math.min(n, x));
+    }
+
+    private static int clampTimeToTreat(int timeToTreat) {
+        return Math.max(0, Math.min(MAX_TIME_TO_TREAT, timeToTreat));
+    }
+
+    private static int clampBucket(int timeSpentInService) {
+        return Math.max(0, Math.min(TIME_BUCKETS - 1, timeSpentInService));
+    }
+
+    private static int[] buildTransferOrder() {
+        int[] order = new int[PRIORITY_COUNT * TTT_SLOTS * (TIME_BUCKETS - ELIGIBLE_BUCKET)];
+        int k = 0;
+        for (int p = PRIORITY_COUNT - 1; p >= 0; p--) {
+            for (int s = ELIGIBLE_BUCKET; s < TIME_BUCKETS; s++) {
+                for (int t = MAX_TIME_TO_TREAT; t >= 0; t--) {
+                    order[k++] = cell(p, t, s);
+                }
+            }
+        }
+        return order;
+    }
+}
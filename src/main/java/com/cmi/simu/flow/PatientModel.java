@@ -0,0 +1,15 @@
+package com.cmi.simu.flow;
+
+/**
+ * Représentation des patients dans les unités, choisie pour toute une simulation.
+ */
+public enum PatientModel {
+    /** Un patient = une ligne dans les files de l'unité (voir PatientQueue). */
+    INDIVIDUAL,
+    /**
+     * Les patients ne sont que des effectifs par (priorité, temps de traitement restant,
+     * temps passé dans le service) : voir PatientHistogram. Un tick coûte O(cases)
+     * au lieu de O(patients), pour simuler des régions entières.
+     */
+    AGGREGATED
+}
@@ -0,0 +1,299 @@
+package com.cmi.simu.flow;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * File d'attente des patients d'une même priorité dans une unité, rangée "en colonnes"
+ * (struct-of-arrays) dans un buffer circulaire.
+ * <p>
+ * Chaque attribut est un tableau primitif, et le patient d'indice logique i (0 = tête,
+ * le plus ancien) est la ligne i de tous les tableaux. L'ordre d'arrivée est conservé :
+ * le traitement prend les patients en tête, les transferts les prennent en queue.
+ * Les retraits groupés décalent le côté le plus court de la file (tête ou queue), donc
+ * retirer des patients parmi les k premiers ou les k derniers coûte O(k).
+ */
+public class PatientQueue {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final PriorityLevel priority;
+
+    private int[] timeToTreat;
+    private int[] timeSpentInService;
+    private int[] timeBeforeEligibleTransfer;
+    private int[] minStayInUnit;
+
+    private int head;   // indice physique de la tête
+    private int size;
+    private int mask;   // capacité - 1 (capacité = puissance de 2)
+
+    public PatientQueue(PriorityLevel priority) {
+        this(priority, INITIAL_CAPACITY);
+    }
+
+    public PatientQueue(PriorityLevel priority, int initialCapacity) {
+        this.priority = priority;
+        int cap = Integer.highestOneBit(Math.max(INITIAL_CAPACITY, initialCapacity) - 1) << 1;
+        this.timeToTreat = new int[cap];
+        this.timeSpentInService = new int[cap];
+        this.timeBeforeEligibleTransfer = new int[cap];
+        this.minStayInUnit = new int[cap];
+        this.mask = cap - 1;
+    }
+
+    public PriorityLevel getPriority() {
+        return priority;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // ----- Ajout / retrait -----
+
+    /**
+     * Ajoute un patient en queue de file et retourne son indice logique.
+     */
+    public int addLast(int timeToTreat, int timeSpentInService,
+                       int timeBeforeEligibleTransfer, int minStayInUnit) {
+        if (size == mask + 1) grow();
+        int p = (head + size) & mask;
+        this.timeToTreat[p] = timeToTreat;
+        this.timeSpentInService[p] = timeSpentInService;
+        this.timeBeforeEligibleTransfer[p] = timeBeforeEligibleTransfer;
+        this.minStayInUnit[p] = minStayInUnit;
+        return size++;
+    }
+
+    /**
+     * Ajoute un nouveau patient avec les valeurs par défaut de {@link Patient}.
+     */
+    public int addNew(int timeToTreat) {
+        return addLast(timeToTreat, 0, Patient.DEFAULT_TIME_BEFORE_ELIGIBLE_TRANSFER, Patient.DEFAULT_MIN_STAY_IN_UNIT);
+    }
+
+    /**
+     * Copie le patient d'indice i en queue de "target" (sans le retirer d'ici).
+     */
+    public int copyTo(int i, PatientQueue target) {
+        int p = phys(i);
+        return target.addLast(timeToTreat[p], timeSpentInService[p],
+                timeBeforeEligibleTransfer[p], minStayInUnit[p]);
+    }
+
+    /**
+     * Retire le patient d'indice i en conservant l'ordre des autres.
+     */
+    public void removeAt(int i) {
+        if (i < size - 1 - i) {
+            // Plus proche de la tête : on décale la tête d'un cran vers la droite
+            for (int k = i; k > 0; k--) {
+                move(k - 1, k);
+            }
+            head = (head + 1) & mask;
+        } else {
+            for (int k = i; k < size - 1; k++) {
+                move(k + 1, k);
+            }
+        }
+        size--;
+    }
+
+    /**
+     * Retire d'un coup les patients dont les indices sont donnés (valables avant l'appel, dans
+     * n'importe quel ordre ; un indice répété ne retire qu'un patient), en conservant l'ordre
+     * des autres. Le tableau est trié et dédoublonné sur place.
+     * Coût : O(k log k) pour le tri des k indices, plus O(min(dernier indice, taille - premier indice))
+     * déplacements.
+     */
+    public void removeAll(int[] indices, int count) {
+        if (count <= 0) return;
+        Arrays.sort(indices, 0, count);
+        int distinct = 1;
+        for (int k = 1; k < count; k++) {
+            if (indices[k] != indices[distinct - 1]) {
+                indices[distinct++] = indices[k];
+            }
+        }
+        count = distinct;
+        int first = indices[0];
+        int last = indices[count - 1];
+
+        if (last + 1 <= size - first) {
+            // Compactage vers la droite de [0, last], puis la tête avance de count
+            int w = last;
+            int k = count - 1;
+            for (int r = last; r >= 0; r--) {
+                if (k >= 0 && indices[k] == r) {
+                    k--;
+                    continue;
+                }
+                move(r, w--);
+            }
+            head = (head + count) & mask;
+        } else {
+            // Compactage vers la gauche de [first, size)
+            int w = first;
+            int k = 0;
+            for (int r = first; r < size; r++) {
+                if (k < count && indices[k] == r) {
+                    k++;
+                    continue;
+                }
+                move(r, w++);
+            }
+        }
+        size -= count;
+    }
+
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    // ----- Accès par colonne (indices logiques, 0 = tête) -----
+
+    public int getTimeToTreat(int i) {
+        return timeToTreat[phys(i)];
+    }
+
+    public void setTimeToTreat(int i, int value) {
+        timeToTreat[phys(i)] = value;
+    }
+
+    public int getTimeSpentInService(int i) {
+        return timeSpentInService[phys(i)];
+    }
+
+    public int getTimeBeforeEligibleTransfer(int i) {
+        return timeBeforeEligibleTransfer[phys(i)];
+    }
+
+    public int getMinStayInUnit(int i) {
+        return minStayInUnit[phys(i)];
+    }
+
+    /**
+     * Équivalent de {@link Patient#decreaseTimeToTreat()}.
+     */
+    public void decreaseTimeToTreat(int i) {
+        int p = phys(i);
+        if (timeToTreat[p] > 0) timeToTreat[p]--;
+    }
+
+    /**
+     * Équivalent de {@link Patient#incrementTimeInService()}.
+     */
+    public void incrementTimeInService(int i) {
+        int p = phys(i);
+        timeSpentInService[p]++;
+        if (timeBeforeEligibleTransfer[p] > 0) {
+            timeBeforeEligibleTransfer[p]--;
+        }
+    }
+
+    /**
+     * Condition de sortie : timeToTreat <= 0 ET a passé minStayInUnit.
+     */
+    public boolean isReadyToLeave(int i) {
+        int p = phys(i);
+        return timeToTreat[p] <= 0 && timeSpentInService[p] >= minStayInUnit[p];
+    }
+
+    /**
+     * Recrée un objet {@link Patient} pour l'indice i (hors chemin critique : debug, export).
+     */
+    public Patient toPatient(int i) {
+        int p = phys(i);
+        return new Patient(priority, timeToTreat[p], timeSpentInService[p],
+                timeBeforeEligibleTransfer[p], minStayInUnit[p]);
+    }
+
+    // ----- Checkpoint (voir SimulationCheckpoint) -----
+
+    /**
+     * Écrit les patients colonne par colonne, de la tête à la queue : 4 × size entiers.
+     */
+    void writeTo(ByteBuffer out) {
+        writeColumn(out, timeToTreat);
+        writeColumn(out, timeSpentInService);
+        writeColumn(out, timeBeforeEligibleTransfer);
+        writeColumn(out, minStayInUnit);
+    }
+
+    /**
+     * Remplace le contenu de la file par "size" patients écrits par {@link #writeTo}
+     * (copie en bloc de chaque colonne, sans objet intermédiaire).
+     */
+    void readFrom(ByteBuffer in, int size) {
+        if (size > mask + 1) {
+            int cap = Integer.highestOneBit(size - 1) << 1;
+            timeToTreat = new int[cap];
+            timeSpentInService = new int[cap];
+            timeBeforeEligibleTransfer = new int[cap];
+            minStayInUnit = new int[cap];
+            mask = cap - 1;
+        }
+        readColumn(in, timeToTreat, size);
+        readColumn(in, timeSpentInService, size);
+        readColumn(in, timeBeforeEligibleTransfer, size);
+        readColumn(in, minStayInUnit, size);
+        head = 0;
+        this.size = size;
+    }
+
+    private void writeColumn(ByteBuffer out, int[] column) {
+        IntBuffer ints = out.asIntBuffer();
+        int firstChunk = Math.min(size, column.length - head);
+        ints.put(column, head, firstChunk);
+        ints.put(column, 0, size - firstChunk);
+        out.position(out.position() + size * Integer.BYTES);
+    }
+
+    private static void readColumn(ByteBuffer in, int[] column, int size) {
+        in.asIntBuffer().get(column, 0, size);
+        in.position(in.position() + size * Integer.BYTES);
+    }
+
+    // ----- Interne -----
+
+    private int phys(int i) {
+        return (head + i) & mask;
+    }
+
+    private void move(int from, int to) {
+        int f = phys(from);
+        int t = phys(to);
+        timeToTreat[t] = timeToTreat[f];
+        timeSpentInService[t] = timeSpentInService[f];
+        timeBeforeEligibleTransfer[t] = timeBeforeEligibleTransfer[f];
+        minStayInUnit[t] = minStayInUnit[f];
+    }
+
+    private void grow() {
+        int cap = (mask + 1) << 1;
+        timeToTreat = unwrap(timeToTreat, cap);
+        timeSpentInService = unwrap(timeSpentInService, cap);
+        timeBeforeEligibleTransfer = unwrap(timeBeforeEligibleTransfer, cap);
+        minStayInUnit = unwrap(minStayInUnit, cap);
+        head = 0;
+        mask = cap - 1;
+    }
+
+    /**
+     * Recopie le contenu du buffer circulaire à partir de l'indice 0 d'un nouveau tableau.
+     */
+    private int[] unwrap(int[] src, int newCapacity) {
+        int[] dst = new int[newCapacity];
+        int firstChunk = Math.min(size, src.length - head);
+        System.arraycopy(src, head, dst, 0, firstChunk);
+        System.arraycopy(src, 0, dst, firstChunk, size - firstChunk);
+        return dst;
+    }
+}
@@ -0,0 +1,43 @@
+package com.cmi.simu.flow;
+
+import java.util.SplittableRandom;
+
+/**
+ * Dérive les générateurs aléatoires d'une simulation à partir d'une graine maître.
+ * <p>
+ * Chaque flux (scénario d'arrivées, hôpital) a son propre {@link SplitMixRandom}, obtenu
+ * à partir de la graine maître et d'un identifiant stable : avec la même graine, une simulation
+ * se rejoue à l'identique, quel que soit le nombre de threads, et ajouter un hôpital ne décale
+ * pas les tirages des autres.
+ */
+public final class RandomStreams {
+
+    // Flux réservé au scénario d'arrivées (les hôpitaux utilisent leur id, à partir de 1)
+    public static final long SCENARIO_STREAM = 0L;
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private RandomStreams() {
+    }
+
+    /**
+     * Générateur du flux "streamId" pour la graine maître donnée.
+     */
+    public static SplitMixRandom stream(long masterSeed, long streamId) {
+        return new SplitMixRandom(mix64(masterSeed + (streamId + 1) * GOLDEN_GAMMA));
+    }
+
+    /**
+     * Nouvelle graine maître, quand aucune n'est imposée (à journaliser pour pouvoir rejouer).
+     */
+    public static long newMasterSeed() {
+        return new SplittableRandom().nextLong();
+    }
+
+    // Mélangeur de SplitMix64
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
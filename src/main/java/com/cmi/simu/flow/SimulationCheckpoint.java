@@ -0,0 +1,444 @@
+package com.cmi.simu.flow;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checkpoint binaire de l'état complet d'une simulation : hôpitaux, paramètres des unités,
+ * patients, état du scénario, état des générateurs aléatoires et heure de l'horloge.
+ * Une simulation reprise depuis un checkpoint refait exactement les mêmes tirages que
+ * si elle ne s'était jamais arrêtée.
+ * <p>
+ * En deux temps, pour ne pas bloquer la simulation :
+ * <ul>
+ *   <li>{@link #capture} copie l'état dans un buffer (à appeler entre deux ticks) ;
+ *       les patients y sont copiés colonne par colonne, en bloc ;</li>
+ *   <li>{@link #write} écrit ce buffer dans un fichier projeté en mémoire, sur n'importe quel
+ *       thread, puis le renomme atomiquement : un checkpoint est complet ou absent.</li>
+ * </ul>
+ * {@link #read} projette le fichier en mémoire et recopie les colonnes de patients directement
+ * dans les files (voir {@link PatientQueue}), sans objet intermédiaire.
+ * <p>
+ * Format (little-endian) : en-tête, scénario, puis pour chaque hôpital ses paramètres, ses
+ * voisins (ids), et pour chaque unité ses paramètres, compteurs, générateur et patients
+ * (files INDIVIDUAL : taille puis 4 colonnes par priorité ; AGGREGATED : les cases de
+ * {@link PatientHistogram}). Taille limitée à 2 Go.
+ */
+public final class SimulationCheckpoint {
+
+    private static final long MAGIC = 0x54504B4355494D53L;   // "SIMUCKPT"
+    private static final int FORMAT = 1;
+    // Taille minimale d'un hôpital sauvegardé (nom vide, sans voisin ni unité)
+    private static final int MIN_HOSPITAL_BYTES = 72;
+
+    private SimulationCheckpoint() {
+    }
+
+    /**
+     * Simulation relue depuis un checkpoint. Les hôpitaux sont neufs, reliés entre eux,
+     * et rattachés à l'horloge passée à {@link #read}, qui n'est remise à l'heure sauvegardée
+     * que par {@link #resetClock}.
+     */
+    public record Restored(PatientModel patientModel, long masterSeed, long tick, int hour, int nextId,
+                           List<Hospital> hospitals, ScenarioState scenarioState) {
+
+        /**
+         * Scénario dans son état sauvegardé, qui fera arriver les patients dans "hospitals"
+         * (la liste que la simulation parcourt, une fois les hôpitaux relus ajoutés).
+         */
+        public ArrivalScenario scenario(List<Hospital> hospitals, Clock clock) {
+            ScenarioState s = scenarioState;
+            return new ArrivalScenario(hospitals, new SplitMixRandom(s.seed(), s.gamma()), clock,
+                    s.inEvent(), s.eventDuration(), s.countdownToNextEvent());
+        }
+
+        /**
+         * Remet l'horloge à l'heure du checkpoint.
+         */
+        public void resetClock(Clock clock) {
+            clock.setTime(hour);
+        }
+    }
+
+    /**
+     * État copié par {@link #capture}, prêt à écrire.
+     *
+     * @param data buffer à écrire tel quel (position 0, limite = taille du checkpoint)
+     */
+    public record Capture(long tick, int hospitals, ByteBuffer data) {
+    }
+
+    record ScenarioState(boolean inEvent, int eventDuration, int countdownToNextEvent, long seed, long gamma) {
+    }
+
+    /**
+     * Copie l'état de la simulation dans un buffer prêt à écrire. À appeler entre deux ticks,
+     * sous le verrou de la simulation ; durée proportionnelle au nombre de patients (copies de tableaux).
+     */
+    public static Capture capture(PatientModel patientModel, long masterSeed, long tick, Clock clock, int nextId,
+                                     ArrivalScenario scenario, List<Hospital> hospitals) {
+        Out out = new Out(estimateSize(patientModel, hospitals));
+        ByteBuffer b = out.ensure(128);
+        b.putLong(MAGIC);
+        b.putInt(FORMAT);
+        b.putInt(patientModel.ordinal());
+        b.putLong(masterSeed);
+        b.putLong(tick);
+        b.putInt(clock.getTime());
+        b.putInt(nextId);
+
+        SplitMixRandom rand = scenario.getRandom();
+        b.put((byte) (scenario.isInEvent() ? 1 : 0));
+        b.putInt(scenario.getEventDuration());
+        b.putInt(scenario.getCountdownToNextEvent());
+        b.putLong(rand.getSeed());
+        b.putLong(rand.getGamma());
+        b.putInt(hospitals.size());
+
+        for (Hospital h : hospitals) {
+            writeHospital(out, h, patientModel);
+        }
+        return new Capture(tick, hospitals.size(), out.finish());
+    }
+
+    /**
+     * Un hôpital seul, au format du checkpoint (voir {@link TickJournal}, qui journalise ainsi
+     * les créations). Le modèle de patients est celui de l'hôpital.
+     */
+    static byte[] encodeHospital(Hospital hospital) {
+        PatientModel model = hospital.getFlowSimulator() instanceof AggregatedFlowSimulator
+                ? PatientModel.AGGREGATED : PatientModel.INDIVIDUAL;
+        Out out = new Out(estimateSize(model, List.of(hospital)));
+        writeHospital(out, hospital, model);
+        ByteBuffer data = out.finish();
+        byte[] bytes = new byte[data.remaining()];
+        data.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Hôpital relu par {@link #decodeHospital}, et les ids de ses voisins (à relier par l'appelant).
+     */
+    record DecodedHospital(Hospital hospital, int[] neighborIds) {
+    }
+
+    /**
+     * Relit un hôpital écrit par {@link #encodeHospital}, rattaché à l'horloge "clock".
+     *
+     * @throws IOException contenu tronqué ou corrompu
+     */
+    static DecodedHospital decodeHospital(ByteBuffer in, PatientModel model, Clock clock) throws IOException {
+        in.order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            DecodedHospital decoded = readHospital(in, model, clock);
+            if (in.hasRemaining()) {
+                throw new IOException("Hôpital corrompu : " + in.remaining() + " octet(s) en trop");
+            }
+            return decoded;
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Hôpital tronqué", e);
+        }
+    }
+
+    private static void writeHospital(Out out, Hospital h, PatientModel patientModel) {
+        out.putString(h.getName());
+        ByteBuffer b = out.ensure(96 + h.getNeighbors().size() * Integer.BYTES);
+        FlowManager fm = h.getFlowManager();
+        b.putInt(h.getId());
+        b.putDouble(h.getRow());
+        b.putDouble(h.getCol());
+        b.putDouble(fm.getFlowCoefficient());
+        b.putDouble(fm.getLateralCoefficient());
+        b.putDouble(fm.getLateralThreshold());
+        b.putLong(h.getInterHospitalTransfers());
+        b.putLong(h.getFlowSimulator().getTransfers());
+        b.putInt(h.getNeighbors().size());
+        for (Hospital n : h.getNeighbors()) {
+            b.putInt(n.getId());
+        }
+        b.putInt(h.getUnits().size());
+        for (HospitalUnit unit : h.getUnits()) {
+            writeUnit(out, unit, patientModel);
+        }
+    }
+
+    /**
+     * Écrit un état copié par {@link #capture} dans "file", via une projection mémoire
+     * du fichier temporaire, renommé ensuite à la place de l'ancien checkpoint.
+     */
+    public static void write(Capture capture, Path file) throws IOException {
+        ByteBuffer data = capture.data().duplicate();
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        // La projection est libérée à la fermeture de l'arène, avant celle du fichier
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+             Arena arena = Arena.ofConfined()) {
+            MemorySegment mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, data.remaining(), arena);
+            MemorySegment.copy(MemorySegment.ofBuffer(data), 0, mapped, 0, data.remaining());
+            mapped.force();
+        }
+        try {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Relit un checkpoint et reconstruit la simulation, sur l'horloge "clock".
+     * Les énumérés, nombres d'éléments et longueurs lus sont vérifiés (contre ce qui reste
+     * du fichier) avant toute allocation : un fichier corrompu donne une IOException, jamais
+     * un tableau géant ou une exception d'exécution.
+     *
+     * @throws IOException fichier illisible, tronqué, corrompu ou d'un autre format
+     */
+    public static Restored read(Path file, Clock clock) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+             Arena arena = Arena.ofConfined()) {
+            MemorySegment mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena);
+            return decode(mapped.asByteBuffer().order(ByteOrder.LITTLE_ENDIAN), clock);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Checkpoint tronqué : " + file, e);
+        }
+    }
+
+    private static Restored decode(ByteBuffer in, Clock clock) throws IOException {
+        if (in.getLong() != MAGIC) {
+            throw new IOException("Ce fichier n'est pas un checkpoint de simulation");
+        }
+        int format = in.getInt();
+        if (format != FORMAT) {
+            throw new IOException("Format de checkpoint non pris en charge : " + format);
+        }
+        int modelOrdinal = in.getInt();
+        if (modelOrdinal < 0 || modelOrdinal >= PatientModel.values().length) {
+            throw corrupt("modèle de patients", modelOrdinal);
+        }
+        PatientModel model = PatientModel.values()[modelOrdinal];
+        long masterSeed = in.getLong();
+        long tick = in.getLong();
+        int hour = in.getInt();
+        if (hour < 0 || hour >= 24) {
+            throw corrupt("heure", hour);
+        }
+        int nextId = in.getInt();
+        ScenarioState scenario = new ScenarioState(in.get() != 0, in.getInt(), in.getInt(), in.getLong(), in.getLong());
+
+        int count = getCount(in, MIN_HOSPITAL_BYTES, "nombre d'hôpitaux");
+        List<Hospital> hospitals = new ArrayList<>(count);
+        Map<Integer, Hospital> byId = new HashMap<>(count * 2);
+        int[][] neighborIds = new int[count][];
+        for (int i = 0; i < count; i++) {
+            DecodedHospital decoded = readHospital(in, model, clock);
+            Hospital h = decoded.hospital();
+            if (byId.containsKey(h.getId())) {
+                throw corrupt("id d'hôpital en double", h.getId());
+            }
+            neighborIds[i] = decoded.neighborIds();
+            hospitals.add(h);
+            byId.put(h.getId(), h);
+        }
+        if (in.hasRemaining()) {
+            throw new IOException("Checkpoint corrompu : " + in.remaining() + " octet(s) en trop après le dernier hôpital");
+        }
+        // Voisins dans l'ordre sauvegardé (du plus proche au plus lointain)
+        for (int i = 0; i < count; i++) {
+            for (int id : neighborIds[i]) {
+                Hospital n = byId.get(id);
+                if (n != null) {
+                    hospitals.get(i).addNeighbor(n);
+                }
+            }
+        }
+        return new Restored(model, masterSeed, tick, hour, nextId, hospitals, scenario);
+    }
+
+    private static DecodedHospital readHospital(ByteBuffer in, PatientModel model, Clock clock) throws IOException {
+        String name = getString(in);
+        int id = in.getInt();
+        double row = in.getDouble();
+        double col = in.getDouble();
+        FlowManager fm = new FlowManager(in.getDouble(), in.getDouble(), in.getDouble());
+        Hospital h = new Hospital(id, name, fm, model);
+        h.setRow(row);
+        h.setCol(col);
+        h.restoreInterHospitalTransfers(in.getLong());
+        h.getFlowSimulator().restoreTransfers(in.getLong());
+        h.setClock(clock);
+        int[] neighbors = new int[getCount(in, Integer.BYTES, "nombre de voisins")];
+        in.asIntBuffer().get(neighbors);
+        in.position(in.position() + neighbors.length * Integer.BYTES);
+
+        int units = getCount(in, 1, "nombre d'unités");
+        for (int u = 0; u < units; u++) {
+            readUnit(in, h, model);
+        }
+        return new DecodedHospital(h, neighbors);
+    }
+
+    private static void writeUnit(Out out, HospitalUnit unit, PatientModel model) {
+        out.putString(unit.getName());
+        ByteBuffer b = out.ensure(112);
+        b.putDouble(unit.getAbsorptionRate());
+        b.putDouble(unit.getMortalityRate());
+        b.putInt(unit.getStaffCapacity());
+        b.putInt(unit.getMaxCapacity());
+        b.put((byte) (unit.isObstacle() ? 1 : 0));
+        b.putInt(unit.getExternalArrivalsUrgent());
+        b.putInt(unit.getExternalArrivalsNormal());
+        b.putInt(unit.getExternalArrivalsLow());
+        b.putDouble(unit.getExternalArrivals());
+        b.putLong(unit.getAcceptedArrivals());
+        b.putLong(unit.getRejectedArrivals());
+        b.putLong(unit.getDeaths());
+        b.putLong(unit.getAbsorptions());
+        b.putLong(unit.getRandom().getSeed());
+        b.putLong(unit.getRandom().getGamma());
+
+        if (model == PatientModel.AGGREGATED) {
+            out.ensure(PatientHistogram.CELLS * Integer.BYTES);
+            unit.getHistogram().writeTo(out.buffer);
+        } else {
+            for (PriorityLevel priority : PriorityLevel.values()) {
+                PatientQueue q = unit.getQueue(priority);
+                out.ensure(Integer.BYTES + q.size() * 4 * Integer.BYTES).putInt(q.size());
+                q.writeTo(out.buffer);
+            }
+        }
+    }
+
+    private static void readUnit(ByteBuffer in, Hospital hospital, PatientModel model) throws IOException {
+        String name = getString(in);
+        // Les types d'unités d'un hôpital sont déjà enregistrés : un nom inconnu ne l'est pas
+        HospitalUnit unit = hospital.findUnit(UnitKind.idOf(name));
+        if (unit == null) {
+            throw new IOException("Unité inconnue dans le checkpoint : " + name);
+        }
+        unit.setAbsorptionRate(in.getDouble());
+        unit.setMortalityRate(in.getDouble());
+        int staffCapacity = in.getInt();
+        int maxCapacity = in.getInt();
+        if (staffCapacity < 0 || maxCapacity < 0) {
+            throw corrupt("capacité de l'unité " + name, Math.min(staffCapacity, maxCapacity));
+        }
+        unit.setStaffCapacity(staffCapacity);
+        unit.setMaxCapacity(maxCapacity);
+        unit.setObstacle(in.get() != 0);
+        unit.setExternalArrivalsUrgent(in.getInt());
+        unit.setExternalArrivalsNormal(in.getInt());
+        unit.setExternalArrivalsLow(in.getInt());
+        unit.setExternalArrivals(in.getDouble());
+        unit.restoreCounters(in.getLong(), in.getLong(), in.getLong(), in.getLong());
+        unit.setRandom(new SplitMixRandom(in.getLong(), in.getLong()));
+
+        if (model == PatientModel.AGGREGATED) {
+            if (in.remaining() < PatientHistogram.CELLS * Integer.BYTES) {
+                throw new BufferUnderflowException();
+            }
+            for (int c = 0; c < PatientHistogram.CELLS; c++) {
+                int cell = in.getInt(in.position() + c * Integer.BYTES);
+                if (cell < 0) {
+                    throw corrupt("case d'histogramme de l'unité " + name, cell);
+                }
+            }
+            unit.getHistogram().readFrom(in);
+        } else {
+            for (PriorityLevel priority : PriorityLevel.values()) {
+                int size = getCount(in, 4 * Integer.BYTES, "taille de file de l'unité " + name);
+                unit.getQueue(priority).readFrom(in, size);
+            }
+        }
+        unit.updateLoad();
+    }
+
+    private static int estimateSize(PatientModel model, List<Hospital> hospitals) {
+        long size = 256;
+        for (Hospital h : hospitals) {
+            size += 128 + h.getName().length() * 3L + h.getNeighbors().size() * 4L;
+            for (HospitalUnit unit : h.getUnits()) {
+                size += 160 + (model == PatientModel.AGGREGATED
+                        ? PatientHistogram.CELLS * 4L
+                        : unit.getCurrentLoad() * 16L);
+            }
+        }
+        return (int) Math.min(size, Integer.MAX_VALUE - 8);
+    }
+
+    private static String getString(ByteBuffer in) throws IOException {
+        byte[] bytes = new byte[getCount(in, 1, "longueur de nom")];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Lit un nombre d'éléments et vérifie qu'ils tiennent dans la suite du buffer.
+     */
+    private static int getCount(ByteBuffer in, int elementBytes, String what) throws IOException {
+        int count = in.getInt();
+        if (count < 0 || (long) count * elementBytes > in.remaining()) {
+            throw corrupt(what, count);
+        }
+        return count;
+    }
+
+    private static IOException corrupt(String what, long value) {
+        return new IOException("Checkpoint corrompu : " + what + " invalide (" + value + ")");
+    }
+
+    /**
+     * Buffer d'écriture qui s'agrandit au besoin (l'estimation de taille suffit normalement).
+     */
+    private static final class Out {
+        private ByteBuffer buffer;
+
+        Out(int capacity) {
+            buffer = ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        ByteBuffer ensure(int bytes) {
+            if (buffer.remaining() < bytes) {
+                long needed = (long) buffer.position() + bytes;
+                long capacity = Math.max(needed, buffer.capacity() * 2L);
+                if (capacity > Integer.MAX_VALUE - 8) {
+                    if (needed > Integer.MAX_VALUE - 8) {
+                        throw new IllegalStateException("Checkpoint trop gros (plus de 2 Go)");
+                    }
+                    capacity = Integer.MAX_VALUE - 8;
+                }
+                ByteBuffer larger = ByteBuffer.allocate((int) capacity).order(ByteOrder.LITTLE_ENDIAN);
+                buffer.flip();
+                larger.put(buffer);
+                buffer = larger;
+            }
+            return buffer;
+        }
+
+        void putString(String s) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            ensure(Integer.BYTES + bytes.length).putInt(bytes.length).put(bytes);
+        }
+
+        ByteBuffer finish() {
+            return buffer.flip();
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.cmi.simu.flow;
+
+/**
+ * Types d'événements émis par le moteur. Le message n'est formaté que par le thread
+ * de l'{@link EventSink}, jamais pendant le tick ; les arguments sont (sujet, a, b, c, d).
+ */
+public enum SimulationEvent {
+    EVENT_START(EventLevel.INFO, "** Un événement grave démarre pour %2$d iteration(s) ! **"),
+    EVENT_END(EventLevel.INFO, "** L'evenement s'acheve. Activite normale. **"),
+    HOUR(EventLevel.DEBUG, "%2$d"),
+    ACCEPTED_ARRIVALS(EventLevel.DEBUG, "Accepted arrivals : %2$d (%1$s)"),
+    EVENT_URGENCES(EventLevel.TRACE, "Is Event for URGENCES"),
+    NIGHT_URGENCES(EventLevel.TRACE, "Night - URGENCES"),
+    DAY_URGENCES(EventLevel.TRACE, "Day - URGENCES"),
+    UNIT_STATE(EventLevel.TRACE, "  %s: load=%d (URGENT=%d, NORMAL=%d, LOW=%d)"),
+    TOTAL_PATIENTS(EventLevel.TRACE, " -> Total Patient = %2$d%n--------------------------------");
+
+    private final EventLevel level;
+    private final String format;
+
+    SimulationEvent(EventLevel level, String format) {
+        this.level = level;
+        this.format = format;
+    }
+
+    public EventLevel getLevel() {
+        return level;
+    }
+
+    String format(Object subject, int a, int b, int c, int d) {
+        return String.format(format, subject, a, b, c, d);
+    }
+}
@@ -0,0 +1,62 @@
+package com.cmi.simu.flow;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * État complet et immuable de la simulation à la fin d'un tick.
+ * <p>
+ * Une instance n'est jamais modifiée après sa création : le thread de simulation en construit
+ * une nouvelle à chaque tick et la publie d'un seul coup (référence atomique). Les lecteurs
+ * peuvent donc la parcourir sans verrou, pendant que le tick suivant est calculé.
+ * <p>
+ * Chaque publication (tick ou modification de la carte) a une version strictement croissante ;
+ * hôpitaux et unités retiennent la version de leur dernier changement, ce qui permet de ne
+ * renvoyer à un client que ce qui a changé depuis la version qu'il connaît.
+ *
+ * @param tick           numéro du tick (0 avant le premier tick)
+ * @param hour           heure simulée ({@link Clock#getTime()}) au moment de la capture
+ * @param version        version de cette publication
+ * @param hospitals      hôpitaux, dans l'ordre de la simulation
+ * @param removed        hôpitaux supprimés récemment : id → version de la suppression
+ * @param removedHorizon les suppressions de version inférieure ou égale ne sont plus toutes
+ *                       dans "removed" (0 : aucune oubliée)
+ * @param byId           les mêmes hôpitaux, indexés par id (voir {@link #hospital(int)})
+ */
+public record SimulationSnapshot(long tick, int hour, long version, List<HospitalSnapshot> hospitals,
+                                 Map<Integer, Long> removed, long removedHorizon,
+                                 Map<Integer, HospitalSnapshot> byId) {
+
+    public static final SimulationSnapshot EMPTY = new SimulationSnapshot(0, 0, List.of());
+
+    public SimulationSnapshot {
+        hospitals = List.copyOf(hospitals);
+        removed = Map.copyOf(removed);
+        byId = Map.copyOf(byId);
+    }
+
+    public SimulationSnapshot(long tick, int hour, long version, List<HospitalSnapshot> hospitals,
+                              Map<Integer, Long> removed, long removedHorizon) {
+        this(tick, hour, version, hospitals, removed, removedHorizon, index(hospitals));
+    }
+
+    public SimulationSnapshot(long tick, int hour, List<HospitalSnapshot> hospitals) {
+        this(tick, hour, 0, hospitals, Map.of(), 0);
+    }
+
+    /**
+     * Hôpital d'id donné dans ce snapshot, ou null.
+     */
+    public HospitalSnapshot hospital(int id) {
+        return byId.get(id);
+    }
+
+    private static Map<Integer, HospitalSnapshot> index(List<HospitalSnapshot> hospitals) {
+        Map<Integer, HospitalSnapshot> byId = new HashMap<>(hospitals.size() * 2);
+        for (HospitalSnapshot h : hospitals) {
+            byId.put(h.id(), h);
+        }
+        return byId;
+    }
+}
@@ -0,0 +1,93 @@
+package com.cmi.simu.flow;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Index des lits libres d'un groupe d'unités (arbre de segments "max").
+ * <p>
+ * Chaque unité du groupe occupe une case ; sa valeur (maxCapacity - currentLoad, ou rien pour
+ * un obstacle) est remise à jour par l'unité elle-même à chaque ajout ou retrait de patient,
+ * en O(log n). On sait alors en O(1) si tout le groupe est plein, et on trouve en O(log n)
+ * l'unité qui a le plus de place (la première du groupe en cas d'égalité).
+ * <p>
+ * Un index ne doit être modifié que par le thread qui fait avancer les unités du groupe
+ * (toutes d'un même hôpital pendant la phase de calcul d'un tick).
+ */
+public class SpareCapacityIndex {
+
+    // Valeur d'une case sans place possible (obstacle, case vide de l'arbre)
+    private static final int NONE = Integer.MIN_VALUE;
+
+    private final HospitalUnit[] units;
+    private final int leaves;   // nombre de feuilles (puissance de 2)
+    private final int[] tree;   // tree[1] = racine, feuilles à partir de "leaves"
+
+    public SpareCapacityIndex(List<HospitalUnit> units) {
+        this.units = units.toArray(new HospitalUnit[0]);
+        this.leaves = Math.max(1, Integer.highestOneBit(Math.max(1, this.units.length) - 1) << 1);
+        this.tree = new int[2 * leaves];
+        Arrays.fill(tree, NONE);
+        for (int slot = 0; slot < this.units.length; slot++) {
+            tree[leaves + slot] = spareOf(this.units[slot]);
+            this.units[slot].watch(this, slot);
+        }
+        for (int node = leaves - 1; node >= 1; node--) {
+            tree[node] = Math.max(tree[2 * node], tree[2 * node + 1]);
+        }
+    }
+
+    /**
+     * Recalcule la place libre de l'unité de la case "slot" et remonte l'arbre.
+     */
+    void update(int slot) {
+        int node = leaves + slot;
+        int value = spareOf(units[slot]);
+        if (tree[node] == value) return;
+        tree[node] = value;
+        for (node >>= 1; node >= 1; node >>= 1) {
+            int max = Math.max(tree[2 * node], tree[2 * node + 1]);
+            if (tree[node] == max) break;
+            tree[node] = max;
+        }
+    }
+
+    /**
+     * Vrai si aucune unité du groupe n'a de lit libre. O(1).
+     */
+    public boolean isFull() {
+        return tree[1] <= 0;
+    }
+
+    /**
+     * Nombre de lits libres dans l'unité la moins chargée du groupe. O(1).
+     */
+    public int maxSpare() {
+        return Math.max(0, tree[1]);
+    }
+
+    /**
+     * L'unité qui a le plus de lits libres, ou null si le groupe est plein. O(log n).
+     */
+    public HospitalUnit best() {
+        if (isFull()) return null;
+        int node = 1;
+        while (node < leaves) {
+            node = tree[2 * node] == tree[node] ? 2 * node : 2 * node + 1;
+        }
+        return units[node - leaves];
+    }
+
+    /**
+     * Détache l'index de ses unités (le groupe a changé et l'index va être remplacé).
+     */
+    void detach() {
+        for (HospitalUnit unit : units) {
+            unit.unwatch(this);
+        }
+    }
+
+    private static int spareOf(HospitalUnit unit) {
+        return unit.isObstacle() ? NONE : unit.getMaxCapacity() - unit.getCurrentLoad();
+    }
+}
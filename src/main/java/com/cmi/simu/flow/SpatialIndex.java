@@ -0,0 +1,122 @@
+package com.cmi.simu.flow;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Index spatial des hôpitaux (grille uniforme sur les coordonnées de la carte).
+ * <p>
+ * Insertion et suppression en O(1) ; la recherche des k plus proches voisins parcourt les cases
+ * par anneaux autour du point, et s'arrête dès qu'aucune case plus lointaine ne peut contenir
+ * de meilleur candidat : O(k) en moyenne pour des hôpitaux répartis sur la carte.
+ * À distance égale, l'id le plus petit passe devant (résultat déterministe).
+ */
+public class SpatialIndex {
+
+    private final double cellSize;
+    private final Map<Long, List<Hospital>> cells = new HashMap<>();
+    private int size;
+
+    // Étendue des cases occupées, pour borner la recherche
+    private int minCx = Integer.MAX_VALUE, maxCx = Integer.MIN_VALUE;
+    private int minCy = Integer.MAX_VALUE, maxCy = Integer.MIN_VALUE;
+
+    public SpatialIndex(double cellSize) {
+        if (cellSize <= 0) {
+            throw new IllegalArgumentException("cellSize doit être positif");
+        }
+        this.cellSize = cellSize;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void insert(Hospital hospital) {
+        int cx = cellOf(hospital.getRow());
+        int cy = cellOf(hospital.getCol());
+        cells.computeIfAbsent(key(cx, cy), k -> new ArrayList<>(2)).add(hospital);
+        size++;
+        minCx = Math.min(minCx, cx);
+        maxCx = Math.max(maxCx, cx);
+        minCy = Math.min(minCy, cy);
+        maxCy = Math.max(maxCy, cy);
+    }
+
+    public boolean remove(Hospital hospital) {
+        long key = key(cellOf(hospital.getRow()), cellOf(hospital.getCol()));
+        List<Hospital> cell = cells.get(key);
+        if (cell == null || !cell.remove(hospital)) {
+            return false;
+        }
+        if (cell.isEmpty()) {
+            cells.remove(key);
+        }
+        size--;
+        // L'étendue n'est pas réduite : elle ne sert que de borne
+        return true;
+    }
+
+    /**
+     * Les k hôpitaux les plus proches du point (row, col), du plus proche au plus lointain,
+     * sans "exclude" et à au plus maxDistance (0 = pas de limite).
+     */
+    public List<Hospital> nearest(double row, double col, int k, double maxDistance, Hospital exclude) {
+        if (k <= 0 || size == 0) {
+            return List.of();
+        }
+        Comparator<Hospital> closerFirst = Comparator
+                .comparingDouble((Hospital h) -> distance(h, row, col))
+                .thenComparingInt(Hospital::getId);
+        // Tas des k meilleurs, le plus lointain en tête
+        PriorityQueue<Hospital> best = new PriorityQueue<>(k + 1, closerFirst.reversed());
+
+        int cx = cellOf(row);
+        int cy = cellOf(col);
+        int maxRing = Math.max(Math.max(cx - minCx, maxCx - cx), Math.max(cy - minCy, maxCy - cy));
+
+        for (int r = 0; r <= maxRing; r++) {
+            // Tout point d'un anneau r est à au moins (r - 1) * cellSize du point de recherche
+            double ringMin = (r - 1) * cellSize;
+            if (maxDistance > 0 && ringMin > maxDistance) break;
+            if (best.size() == k && ringMin > distance(best.peek(), row, col)) break;
+
+            for (int dx = -r; dx <= r; dx++) {
+                // Sur les colonnes intérieures, seules les cases du bord de l'anneau
+                int step = (dx == -r || dx == r) ? 1 : 2 * r;
+                for (int dy = -r; dy <= r; dy += Math.max(step, 1)) {
+                    List<Hospital> cell = cells.get(key(cx + dx, cy + dy));
+                    if (cell == null) continue;
+                    for (Hospital h : cell) {
+                        if (h == exclude) continue;
+                        if (maxDistance > 0 && distance(h, row, col) > maxDistance) continue;
+                        best.add(h);
+                        if (best.size() > k) best.poll();
+                    }
+                }
+            }
+        }
+
+        List<Hospital> result = new ArrayList<>(best);
+        result.sort(closerFirst);
+        return result;
+    }
+
+    public static double distance(Hospital h, double row, double col) {
+        double dr = h.getRow() - row;
+        double dc = h.getCol() - col;
+        return Math.sqrt(dr * dr + dc * dc);
+    }
+
+    private int cellOf(double coordinate) {
+        return (int) Math.floor(coordinate / cellSize);
+    }
+
+    private static long key(int cx, int cy) {
+        return ((long) cx << 32) | (cy & 0xffffffffL);
+    }
+}
@@ -0,0 +1,88 @@
+package com.cmi.simu.flow;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Générateur SplitMix64, tirage pour tirage identique à {@link java.util.SplittableRandom}
+ * (mêmes graines, mêmes suites, mêmes {@link #split()}), mais dont l'état (seed, gamma)
+ * est lisible et restaurable : c'est ce qui permet de reprendre une simulation depuis un
+ * checkpoint (voir {@link SimulationCheckpoint}) en retrouvant exactement les mêmes tirages.
+ * <p>
+ * Seuls nextInt() et nextLong() sont définis ici ; les tirages bornés, nextDouble et
+ * nextGaussian sont ceux de {@link RandomGenerator}, comme pour SplittableRandom.
+ * Non thread-safe (un flux par unité / par scénario).
+ */
+public final class SplitMixRandom implements RandomGenerator {
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private long seed;
+    private final long gamma;   // toujours impair
+
+    public SplitMixRandom(long seed) {
+        this(seed, GOLDEN_GAMMA);
+    }
+
+    /**
+     * Reprend un générateur dans l'état (seed, gamma) lu par {@link #getSeed()} et {@link #getGamma()}.
+     */
+    public SplitMixRandom(long seed, long gamma) {
+        this.seed = seed;
+        this.gamma = gamma;
+    }
+
+    /**
+     * Nouveau générateur à graine imprévisible (quand aucune graine maître n'est imposée).
+     */
+    public static SplitMixRandom unseeded() {
+        return new SplitMixRandom(RandomStreams.newMasterSeed());
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public long getGamma() {
+        return gamma;
+    }
+
+    /**
+     * Nouveau générateur indépendant, dérivé de celui-ci (qui avance de deux tirages).
+     */
+    public SplitMixRandom split() {
+        return new SplitMixRandom(nextLong(), mixGamma(nextSeed()));
+    }
+
+    @Override
+    public int nextInt() {
+        return mix32(nextSeed());
+    }
+
+    @Override
+    public long nextLong() {
+        return mix64(nextSeed());
+    }
+
+    private long nextSeed() {
+        return seed += gamma;
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private static int mix32(long z) {
+        z = (z ^ (z >>> 33)) * 0x62a9d9ed799705f5L;
+        return (int) (((z ^ (z >>> 28)) * 0xcb24d0a5c88c35b3L) >>> 32);
+    }
+
+    private static long mixGamma(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        z = (z ^ (z >>> 33)) | 1L;
+        int n = Long.bitCount(z ^ (z >>> 1));
+        return (n < 24) ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+    }
+}
@@ -0,0 +1,98 @@
+package com.cmi.simu.flow;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Fait avancer un réseau d'hôpitaux d'un tick, en deux phases :
+ * <ol>
+ *   <li>Calcul, en parallèle sur un {@link ForkJoinPool} : arrivées, traitement et flux internes
+ *   de chaque hôpital. Un hôpital ne touche qu'à ses propres unités pendant cette phase.</li>
+ *   <li>Commit, séquentiel et dans l'ordre de la liste : transferts entre hôpitaux voisins,
+ *   les seuls à modifier l'état d'un autre hôpital.</li>
+ * </ol>
+ * Le résultat ne dépend donc pas du nombre de threads : chaque hôpital calcule sur son propre état,
+ * et les effets croisés sont appliqués dans un ordre fixe.
+ */
+public class TickEngine implements AutoCloseable {
+
+    // En dessous, le coût de répartition des tâches dépasse le gain
+    private static final int PARALLEL_THRESHOLD = 4;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * @param parallelism nombre de threads de calcul (0 ou moins = nombre de processeurs)
+     */
+    public TickEngine(int parallelism) {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.pool = new ForkJoinPool(threads);
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Effectue un tick complet sur tous les hôpitaux.
+     *
+     * @return les sorties de chaque hôpital, par id puis par nom de service
+     */
+    public Map<Integer, Map<String, Integer>> tick(List<Hospital> hospitals, ArrivalScenario scenario) {
+        int n = hospitals.size();
+
+        // Les arrivées du tick sont tirées une seule fois, pour tout le réseau
+        if (scenario != null) {
+            scenario.updateArrivals();
+        }
+
+        // 1) Phase de calcul : chaque hôpital écrit seulement dans sa case
+        @SuppressWarnings("unchecked")
+        Map<String, Integer>[] results = new Map[n];
+        if (n < PARALLEL_THRESHOLD || pool.getParallelism() == 1) {
+            for (int k = 0; k < n; k++) {
+                results[k] = hospitals.get(k).simulateInternalStep();
+            }
+        } else {
+            pool.submit(() -> IntStream.range(0, n).parallel()
+                    .forEach(k -> results[k] = hospitals.get(k).simulateInternalStep())
+            ).join();
+        }
+
+        // 2) Phase de commit : transferts inter-hôpitaux, dans l'ordre de la liste
+        for (Hospital h : hospitals) {
+            h.doInterHospitalTransfers();
+        }
+
+        Map<Integer, Map<String, Integer>> exits = new HashMap<>(n * 2);
+        for (int k = 0; k < n; k++) {
+            exits.put(hospitals.get(k).getId(), results[k]);
+        }
+        return exits;
+    }
+
+    /**
+     * Même tick, entièrement sur le thread appelant (une réplication d'un ensemble, par exemple).
+     */
+    public static Map<Integer, Map<String, Integer>> tickSequential(List<Hospital> hospitals, ArrivalScenario scenario) {
+        if (scenario != null) {
+            scenario.updateArrivals();
+        }
+        Map<Integer, Map<String, Integer>> exits = new HashMap<>(hospitals.size() * 2);
+        for (Hospital h : hospitals) {
+            exits.put(h.getId(), h.simulateInternalStep());
+        }
+        for (Hospital h : hospitals) {
+            h.doInterHospitalTransfers();
+        }
+        return exits;
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,924 @@
+package com.cmi.simu.flow;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Journal binaire de la simulation, en ajout seul : l'état de chaque unité à la fin de chaque
+ * tick (charge, capacité, effectifs par priorité, sorties, arrivées, refus, décès, transferts)
+ * et les modifications faites entre deux ticks (capacités, créations, suppressions, reprises).
+ * <p>
+ * Les enregistrements sont encodés par le thread de la simulation dans un tampon, puis écrits
+ * par lots, à la suite, par un thread à part. Seul un index tick → position reste en mémoire.
+ * Une écriture en échec ne bloque pas les suivantes : ce qu'elle contenait est retiré de l'index,
+ * un nouveau checkpoint de base est pris, et l'erreur est signalée par {@link #flush()}.
+ * <p>
+ * Pour retrouver l'état complet (patients compris) d'un tick passé, le journal garde des
+ * checkpoints de base ({@link SimulationCheckpoint}) : tous les N ticks, et après chaque reprise
+ * de checkpoint. On repart du dernier checkpoint antérieur et on rejoue les ticks, en appliquant
+ * les changements journalisés entre deux ticks : capacités, créations (l'hôpital créé, au format
+ * du checkpoint) et suppressions, avec les nouvelles listes de voisins des hôpitaux touchés.
+ * La simulation étant déterministe, le résultat est vérifié contre les charges journalisées.
+ * Seuls les M derniers checkpoints de base sont gardés (fichiers compris) : les ticks plus anciens
+ * restent lisibles, mais ne sont plus rejouables.
+ * <p>
+ * Format : une suite d'enregistrements [type : 1 octet][taille : varint][contenu], entiers en
+ * varint (LEB128, zigzag pour ceux qui peuvent être négatifs). Le premier enregistrement donne
+ * les noms des types d'unité ({@link UnitKind}) ; les ticks n'écrivent que leurs ids.
+ * Après une reprise de checkpoint, les ticks postérieurs de l'ancienne chronologie sont oubliés.
+ */
+public class TickJournal implements AutoCloseable {
+
+    // Types d'enregistrement
+    private static final byte HEADER = 1;
+    private static final byte KIND = 2;
+    private static final byte TICK = 3;
+    private static final byte BASE = 4;
+    private static final byte CAPACITY = 5;
+    private static final byte CREATE = 6;
+    private static final byte DELETE = 7;
+    private static final byte DELETE_ALL = 8;
+    private static final byte RESTORE = 9;
+
+    private static final int FORMAT = 1;
+    private static final String JOURNAL_FILE = "journal.bin";
+    // Taille d'un lot : au-delà, le tampon part à l'écriture (et au moins une fois par journée simulée)
+    private static final int BATCH_BYTES = 256 * 1024;
+    private static final int FLUSH_EVERY_TICKS = 24;
+
+    private final Path dir;
+    private final int baseIntervalTicks;
+    private final int baseRetention;
+    private final FileChannel channel;
+    private final ExecutorService writer =
+            Executors.newSingleThreadExecutor(Thread.ofVirtual().name("journal-writer").factory());
+
+    // Tampon du lot en cours, et tampon d'encodage d'un enregistrement (sous le verrou du journal)
+    private Buffer pending = new Buffer(BATCH_BYTES + 64 * 1024);
+    private final Buffer record = new Buffer(64 * 1024);
+    private CompletableFuture<Void> lastWrite = CompletableFuture.completedFuture(null);
+    private long size;   // taille du journal, lot en cours compris
+    // Première erreur d'écriture pas encore signalée, et plages du fichier perdues (début → fin)
+    private IOException writeError;
+    private final NavigableMap<Long, Long> lost = new TreeMap<>();
+
+    // Index : tick → position de son enregistrement, et ticks des checkpoints de base → position du repère
+    private final NavigableMap<Long, Long> ticks = new TreeMap<>();
+    private final NavigableMap<Long, Long> bases = new TreeMap<>();
+    private final List<String> kinds = new ArrayList<>();
+    private boolean baseNeeded = true;
+    private long lastBase = Long.MIN_VALUE;
+
+    /**
+     * Ouvre (ou crée) le journal du dossier "dir" et reconstruit son index. Un journal illisible
+     * ou écrit avec d'autres types d'unité est mis de côté (renommé) et un nouveau commence ;
+     * les types d'unité qu'il déclare ne sont enregistrés ({@link UnitKind}) que s'il est accepté.
+     * Les checkpoints de base qui ne sont plus dans l'index sont supprimés.
+     *
+     * @param baseIntervalTicks un checkpoint de base au moins tous les N ticks (borne la durée d'un rejeu)
+     * @param baseRetention     nombre de checkpoints de base gardés (borne la place sur le disque)
+     */
+    public TickJournal(Path dir, int baseIntervalTicks, int baseRetention) throws IOException {
+        this.dir = dir;
+        this.baseIntervalTicks = Math.max(1, baseIntervalTicks);
+        this.baseRetention = Math.max(1, baseRetention);
+        Files.createDirectories(dir);
+        Path file = dir.resolve(JOURNAL_FILE);
+        if (Files.exists(file) && !scan(file)) {
+            Files.move(file, dir.resolve("journal-" + System.currentTimeMillis() + ".bin"), StandardCopyOption.REPLACE_EXISTING);
+            // Le nouveau journal part de zéro : en-tête compris
+            ticks.clear();
+            bases.clear();
+            kinds.clear();
+            size = 0;
+            lastBase = Long.MIN_VALUE;
+        }
+        while (bases.size() > this.baseRetention) {
+            Files.deleteIfExists(baseFile(bases.pollFirstEntry().getKey()));
+        }
+        deleteUnindexedBases();
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channel.truncate(size);   // un dernier enregistrement incomplet (arrêt brutal) est retiré
+        if (size == 0) {
+            record.clear();
+            record.putVarInt(FORMAT);
+            record.putVarInt(UnitKind.count());
+            for (int k = 0; k < UnitKind.count(); k++) {
+                record.putString(UnitKind.nameOf(k));
+                kinds.add(UnitKind.nameOf(k));
+            }
+            append(HEADER);
+        }
+    }
+
+    // ----- Écriture (thread de la simulation) -----
+
+    /**
+     * À appeler au début de chaque tick, avant le calcul, avec le nombre de ticks déjà faits :
+     * prend un checkpoint de base si nécessaire (intervalle atteint ou structure modifiée).
+     * Le checkpoint est copié ici et écrit en arrière-plan.
+     */
+    public synchronized void beforeTick(long tick, Supplier<SimulationCheckpoint.Capture> capture) {
+        if (!baseNeeded && tick - lastBase < baseIntervalTicks) return;
+        SimulationCheckpoint.Capture base = capture.get();
+        Path file = baseFile(tick);
+        long marker = size;
+        bases.put(tick, marker);
+        record.clear();
+        record.putVarLong(tick);
+        append(BASE);
+        lastBase = tick;
+        baseNeeded = false;
+        submit(() -> SimulationCheckpoint.write(base, file), () -> lostBase(tick, marker));
+        // Les plus anciens sont supprimés après les écritures déjà demandées
+        while (bases.size() > baseRetention) {
+            deleteBase(bases.pollFirstEntry().getKey());
+        }
+    }
+
+    /**
+     * État de toutes les unités à la fin du tick "tick" (nombre de ticks faits, celui-ci compris).
+     *
+     * @param exits sorties du tick, par hôpital puis par nom d'unité
+     */
+    public synchronized void recordTick(long tick, int hour, boolean inEvent, List<Hospital> hospitals,
+                                        Map<Integer, Map<String, Integer>> exits) {
+        for (Hospital h : hospitals) {
+            for (HospitalUnit unit : h.getUnits()) {
+                declareKind(unit.getKind());
+            }
+        }
+        record.clear();
+        record.putVarLong(tick);
+        record.putVarInt(hour);
+        record.putVarInt(inEvent ? 1 : 0);
+        record.putVarInt(hospitals.size());
+        for (Hospital h : hospitals) {
+            Map<String, Integer> hospitalExits = exits.getOrDefault(h.getId(), Map.of());
+            record.putVarInt(h.getId());
+            record.putVarLong(h.getInterHospitalTransfers());
+            record.putVarLong(h.getFlowSimulator().getTransfers());
+            record.putVarInt(h.getUnits().size());
+            for (HospitalUnit unit : h.getUnits()) {
+                record.putVarInt(unit.getKind());
+                record.putZigZag(unit.getMaxCapacity());
+                record.putVarInt(unit.getCurrentLoad());
+                record.putVarInt(unit.countPriority(PriorityLevel.URGENT));
+                record.putVarInt(unit.countPriority(PriorityLevel.NORMAL));
+                record.putVarInt(unit.countPriority(PriorityLevel.LOW));
+                record.putVarInt(hospitalExits.getOrDefault(unit.getName(), 0));
+                record.putVarLong(unit.getAcceptedArrivals());
+                record.putVarLong(unit.getRejectedArrivals());
+                record.putVarLong(unit.getDeaths());
+                record.putVarLong(unit.getAbsorptions());
+            }
+        }
+        ticks.put(tick, size);
+        append(TICK);
+        if (pending.buffer.position() >= BATCH_BYTES || tick % FLUSH_EVERY_TICKS == 0) {
+            submitPending();
+        }
+    }
+
+    /**
+     * Nouvelle capacité d'une unité, après "tick" ticks.
+     */
+    public synchronized void recordCapacity(long tick, int hospitalId, HospitalUnit unit, int maxCapacity) {
+        declareKind(unit.getKind());
+        record.clear();
+        record.putVarLong(tick);
+        record.putVarInt(hospitalId);
+        record.putVarInt(unit.getKind());
+        record.putZigZag(maxCapacity);
+        append(CAPACITY);
+    }
+
+    /**
+     * Création d'un hôpital après "tick" ticks, ajouté en fin de liste : l'hôpital tel quel
+     * (paramètres, générateurs, voisins), et les hôpitaux dont les voisins ont changé.
+     *
+     * @param relinked hôpitaux existants qui ont adopté le nouveau (voisins journalisés en entier)
+     */
+    public synchronized void recordCreate(long tick, Hospital hospital, List<Hospital> relinked) {
+        record.clear();
+        record.putVarLong(tick);
+        record.putBytes(SimulationCheckpoint.encodeHospital(hospital));
+        putNeighborLists(relinked);
+        append(CREATE);
+    }
+
+    /**
+     * Suppression d'un hôpital après "tick" ticks.
+     *
+     * @param relinked hôpitaux qui l'avaient pour voisin (voisins journalisés en entier)
+     */
+    public synchronized void recordDelete(long tick, int hospitalId, List<Hospital> relinked) {
+        record.clear();
+        record.putVarLong(tick);
+        record.putVarInt(hospitalId);
+        putNeighborLists(relinked);
+        append(DELETE);
+    }
+
+    public synchronized void recordDeleteAll(long tick) {
+        record.clear();
+        record.putVarLong(tick);
+        append(DELETE_ALL);
+    }
+
+    /**
+     * La simulation a été remplacée par un checkpoint de "tick" ticks : la suite de l'ancienne
+     * chronologie est oubliée.
+     */
+    public synchronized void recordRestore(long tick) {
+        record.clear();
+        record.putVarLong(tick);
+        append(RESTORE);
+        for (long base : bases.tailMap(tick, true).keySet()) {
+            deleteBase(base);
+        }
+        forgetAfter(tick);
+        baseNeeded = true;
+    }
+
+    /**
+     * Attend que tout ce qui a été journalisé soit écrit.
+     *
+     * @throws IOException la première écriture en échec depuis le dernier appel (signalée une fois)
+     */
+    public void flush() throws IOException {
+        CompletableFuture<Void> write;
+        synchronized (this) {
+            submitPending();
+            write = lastWrite;
+        }
+        write.join();
+        IOException error;
+        synchronized (this) {
+            error = writeError;
+            writeError = null;
+        }
+        if (error != null) {
+            throw new IOException("Écriture du journal en échec : " + error.getMessage(), error);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            writer.close();
+            channel.close();
+        }
+    }
+
+    // ----- Lecture -----
+
+    /**
+     * Une unité telle que journalisée à la fin d'un tick ; les compteurs sont cumulés depuis sa création.
+     */
+    public record UnitEntry(String name, int maxCapacity, int load, int urgent, int normal, int low, int exits,
+                            long accepted, long rejected, long deaths, long absorptions) {
+    }
+
+    /**
+     * Un hôpital tel que journalisé à la fin d'un tick (transferts cumulés).
+     */
+    public record HospitalEntry(int id, long interHospitalTransfers, long intraTransfers, List<UnitEntry> units) {
+    }
+
+    /**
+     * Contenu journalisé d'un tick, lu directement (sans rejeu).
+     */
+    public record TickEntry(long tick, int hour, boolean inEvent, List<HospitalEntry> hospitals) {
+    }
+
+    /**
+     * État d'un tick passé reconstruit par rejeu.
+     *
+     * @param verified   les charges rejouées sont identiques à celles du journal, à chaque tick rejoué
+     * @param replayed   nombre de ticks rejoués depuis le checkpoint de base
+     * @param hospitals  hôpitaux reconstruits (réseau à part, hors de la simulation)
+     * @param exits      sorties du tick, par hôpital puis par unité
+     */
+    public record Replayed(long tick, int hour, boolean verified, long replayed, List<Hospital> hospitals,
+                           Map<Integer, Map<String, Integer>> exits) {
+    }
+
+    /**
+     * Lit l'enregistrement d'un tick.
+     *
+     * @throws NoSuchElementException si ce tick n'est pas dans le journal
+     */
+    public TickEntry readTick(long tick) throws IOException {
+        flush();
+        Long offset;
+        List<String> names;
+        synchronized (this) {
+            offset = ticks.get(tick);
+            names = List.copyOf(kinds);
+        }
+        if (offset == null) {
+            throw new NoSuchElementException("Tick absent du journal : " + tick);
+        }
+        try (RecordReader reader = new RecordReader(dir.resolve(JOURNAL_FILE), offset)) {
+            reader.next();
+            return decodeTick(reader.payload, names);
+        }
+    }
+
+    /**
+     * Reconstruit l'état complet à la fin du tick "tick" : dernier checkpoint de base antérieur,
+     * puis rejeu des ticks et des changements de capacité. Ne touche pas à la simulation en cours.
+     *
+     * @throws NoSuchElementException si ce tick n'est pas dans le journal, qu'aucun checkpoint
+     *                                de base ne le précède, ou qu'une écriture perdue les sépare
+     */
+    public Replayed replay(long tick) throws IOException {
+        flush();
+        Map.Entry<Long, Long> base;
+        synchronized (this) {
+            Long offset = ticks.get(tick);
+            base = offset == null ? null : bases.lowerEntry(tick);
+            if (base != null && !lost.subMap(base.getValue(), true, offset, false).isEmpty()) {
+                base = null;
+            }
+        }
+        if (base == null) {
+            throw new NoSuchElementException("Tick non rejouable : " + tick);
+        }
+
+        Clock clock = new Clock(EventSink.none());   // un rejeu n'écrit pas dans le journal du serveur
+        SimulationCheckpoint.Restored restored = SimulationCheckpoint.read(baseFile(base.getKey()), clock);
+        restored.resetClock(clock);
+        List<Hospital> hospitals = new ArrayList<>(restored.hospitals());
+        ArrivalScenario scenario = restored.scenario(hospitals, clock);
+
+        try (RecordReader reader = new RecordReader(dir.resolve(JOURNAL_FILE), base.getValue())) {
+            reader.next();   // repère du checkpoint de base
+            return replay(reader, tick, restored.patientModel(), hospitals, scenario, clock);
+        }
+    }
+
+    private static Replayed replay(RecordReader reader, long tick, PatientModel model, List<Hospital> hospitals,
+                                   ArrivalScenario scenario, Clock clock) throws IOException {
+        Map<Integer, Hospital> byId = new HashMap<>();
+        for (Hospital h : hospitals) {
+            byId.put(h.getId(), h);
+        }
+        boolean verified = true;
+        long replayed = 0;
+        while (reader.next()) {
+            ByteBuffer in = reader.payload;
+            switch (reader.type) {
+                case CAPACITY -> {
+                    getVarLong(in);
+                    Hospital h = byId.get(getVarInt(in));
+                    HospitalUnit unit = h == null ? null : h.findUnit(getVarInt(in));
+                    if (unit != null) {
+                        unit.setMaxCapacity(getZigZag(in));
+                    }
+                }
+                case TICK -> {
+                    Map<Integer, Map<String, Integer>> exits = TickEngine.tickSequential(hospitals, scenario);
+                    clock.addOneHour();
+                    replayed++;
+                    TickEntry entry = decodeTick(in, null);
+                    verified &= matches(entry, byId);
+                    if (entry.tick() == tick) {
+                        return new Replayed(tick, clock.getTime(), verified, replayed, hospitals, exits);
+                    }
+                }
+                case CREATE -> {
+                    getVarLong(in);
+                    int length = getVarInt(in);
+                    SimulationCheckpoint.DecodedHospital created =
+                            SimulationCheckpoint.decodeHospital(in.slice(in.position(), length), model, clock);
+                    in.position(in.position() + length);
+                    Hospital h = created.hospital();
+                    hospitals.add(h);
+                    byId.put(h.getId(), h);
+                    h.replaceNeighbors(resolve(created.neighborIds(), byId));
+                    readNeighborLists(in, byId);
+                }
+                case DELETE -> {
+                    getVarLong(in);
+                    Hospital removed = byId.remove(getVarInt(in));
+                    if (removed != null) {
+                        hospitals.remove(removed);
+                    }
+                    readNeighborLists(in, byId);
+                }
+                case DELETE_ALL -> {
+                    hospitals.clear();
+                    byId.clear();
+                }
+                case KIND, BASE -> {
+                    // types déjà connus ; checkpoint de base plus récent dont le fichier a été supprimé
+                }
+                default -> {
+                    // Reprise avant le tick demandé : elle aurait dû être suivie d'un checkpoint
+                    // de base plus récent (journal incohérent)
+                    throw new IOException("Rejeu interrompu : journal incohérent avant le tick " + tick);
+                }
+            }
+        }
+        throw new IOException("Rejeu interrompu : fin du journal avant le tick " + tick);
+    }
+
+    // ----- Interne -----
+
+    private void putNeighborLists(List<Hospital> hospitals) {
+        record.putVarInt(hospitals.size());
+        for (Hospital h : hospitals) {
+            record.putVarInt(h.getId());
+            record.putVarInt(h.getNeighbors().size());
+            for (Hospital n : h.getNeighbors()) {
+                record.putVarInt(n.getId());
+            }
+        }
+    }
+
+    private static void readNeighborLists(ByteBuffer in, Map<Integer, Hospital> byId) {
+        int count = getVarInt(in);
+        for (int i = 0; i < count; i++) {
+            Hospital h = byId.get(getVarInt(in));
+            int[] ids = new int[getCount(in)];
+            for (int k = 0; k < ids.length; k++) {
+                ids[k] = getVarInt(in);
+            }
+            if (h != null) {
+                h.replaceNeighbors(resolve(ids, byId));
+            }
+        }
+    }
+
+    private static List<Hospital> resolve(int[] ids, Map<Integer, Hospital> byId) {
+        List<Hospital> resolved = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            Hospital n = byId.get(id);
+            if (n != null) {
+                resolved.add(n);
+            }
+        }
+        return resolved;
+    }
+
+    private void declareKind(int kind) {
+        while (kinds.size() <= kind) {
+            String name = UnitKind.nameOf(kinds.size());
+            record.clear();
+            record.putVarInt(kinds.size());
+            record.putString(name);
+            kinds.add(name);
+            append(KIND);
+        }
+    }
+
+    /**
+     * Ajoute l'enregistrement en cours (record) au lot.
+     */
+    private void append(byte type) {
+        int before = pending.buffer.position();
+        pending.ensure(1 + 5 + record.buffer.position());
+        pending.buffer.put(type);
+        pending.putVarInt(record.buffer.position());
+        pending.buffer.put(record.buffer.array(), 0, record.buffer.position());
+        size += pending.buffer.position() - before;
+    }
+
+    private void submitPending() {
+        if (pending.buffer.position() == 0) return;
+        long end = size;
+        long start = end - pending.buffer.position();
+        ByteBuffer batch = pending.buffer.flip();
+        pending = new Buffer(BATCH_BYTES + 64 * 1024);
+        // À sa place dans le fichier : un lot perdu laisse un trou, les suivants restent où l'index les attend
+        submit(() -> writeBatch(batch, start), () -> lostRange(start, end));
+    }
+
+    /**
+     * Écrit un lot à la position donnée (thread d'écriture).
+     */
+    void writeBatch(ByteBuffer batch, long position) throws IOException {
+        while (batch.hasRemaining()) {
+            position += channel.write(batch, position);
+        }
+    }
+
+    private interface IoTask {
+        void run() throws IOException;
+    }
+
+    private void submit(IoTask task) {
+        submit(task, () -> {
+        });
+    }
+
+    /**
+     * Ajoute une écriture à la file. Une écriture en échec n'empêche pas les suivantes : l'erreur
+     * est gardée pour {@link #flush()} et "forget" retire de l'index ce qu'elle devait écrire.
+     */
+    private void submit(IoTask task, Runnable forget) {
+        lastWrite = lastWrite.thenRunAsync(() -> {
+            try {
+                task.run();
+            } catch (IOException | RuntimeException e) {
+                failed(e instanceof IOException io ? io : new IOException(e), forget);
+            }
+        }, writer);
+    }
+
+    private synchronized void failed(IOException error, Runnable forget) {
+        if (writeError == null) {
+            writeError = error;
+        }
+        forget.run();
+    }
+
+    /**
+     * Lot perdu : ses ticks et repères de checkpoint de base sortent de l'index, et la suite
+     * repart d'un nouveau checkpoint de base (le rejeu ne traverse pas un trou).
+     */
+    private void lostRange(long start, long end) {
+        lost.put(start, end);
+        ticks.values().removeIf(offset -> offset >= start && offset < end);
+        Iterator<Map.Entry<Long, Long>> it = bases.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Long, Long> base = it.next();
+            if (base.getValue() >= start && base.getValue() < end) {
+                it.remove();
+                deleteBase(base.getKey());
+            }
+        }
+        baseNeeded = true;
+    }
+
+    /**
+     * Checkpoint de base non écrit : il sort de l'index (s'il n'a pas été remplacé entre-temps).
+     */
+    private void lostBase(long tick, long marker) {
+        if (bases.remove(tick, marker)) {
+            deleteBase(tick);
+            baseNeeded = true;
+        }
+    }
+
+    private void forgetAfter(long tick) {
+        ticks.tailMap(tick, false).clear();
+        bases.tailMap(tick, true).clear();
+    }
+
+    private Path baseFile(long tick) {
+        return dir.resolve("base-" + tick + ".ckpt");
+    }
+
+    /**
+     * Supprime le fichier d'un checkpoint de base, sur le thread d'écriture : après les écritures
+     * déjà demandées, avant celles qui suivront (un même tick peut revenir après une reprise).
+     */
+    private void deleteBase(long tick) {
+        Path file = baseFile(tick);
+        submit(() -> Files.deleteIfExists(file));
+    }
+
+    /**
+     * Supprime les checkpoints de base absents de l'index (oubliés, au-delà de la rétention,
+     * d'un journal mis de côté) et les fichiers temporaires d'une écriture interrompue.
+     */
+    private void deleteUnindexedBases() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "base-*.ckpt*")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                int end = name.indexOf(".ckpt");
+                long tick;
+                try {
+                    tick = Long.parseLong(name.substring("base-".length(), end));
+                } catch (NumberFormatException e) {
+                    continue;   // pas un checkpoint du journal
+                }
+                if (name.endsWith(".tmp") || !bases.containsKey(tick)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reconstruit l'index d'un journal existant ; "size" s'arrête au dernier enregistrement complet.
+     *
+     * @return false si le journal n'est pas compatible (format, types d'unité) ou illisible
+     * (pas d'en-tête complet au début, type d'enregistrement inconnu, contenu tronqué)
+     */
+    private boolean scan(Path file) throws IOException {
+        try (RecordReader reader = new RecordReader(file, 0)) {
+            return scan(reader);
+        }
+    }
+
+    private boolean scan(RecordReader reader) throws IOException {
+        // Types d'unité du journal, par id : vérifiés et enregistrés une fois tout le fichier lu
+        List<String> declared = new ArrayList<>();
+        try {
+            while (reader.next()) {
+                ByteBuffer in = reader.payload;
+                // Un seul en-tête, en premier
+                if ((reader.offset == 0) != (reader.type == HEADER)) return false;
+                switch (reader.type) {
+                    case HEADER -> {
+                        if (getVarInt(in) != FORMAT) return false;
+                        int count = getCount(in);
+                        for (int k = 0; k < count; k++) {
+                            if (!declare(declared, getString(in), k)) return false;
+                        }
+                    }
+                    case KIND -> {
+                        int id = getVarInt(in);
+                        if (!declare(declared, getString(in), id)) return false;
+                    }
+                    case TICK -> ticks.put(getVarLong(in), reader.offset);
+                    case BASE -> {
+                        long tick = getVarLong(in);
+                        if (Files.exists(baseFile(tick))) {
+                            bases.put(tick, reader.offset);
+                            lastBase = tick;
+                        }
+                    }
+                    case RESTORE -> forgetAfter(getVarLong(in));
+                    case CAPACITY, CREATE, DELETE, DELETE_ALL -> {
+                        // lus au rejeu seulement
+                    }
+                    default -> {
+                        return false;
+                    }
+                }
+                size = reader.offset + reader.length;
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            return false;   // contenu plus court que ce qu'il annonce
+        }
+        if (size == 0 && reader.in.size() > 0) {
+            return false;   // pas même un en-tête complet
+        }
+        return registerKinds(declared);
+    }
+
+    /**
+     * Les ids de types sont déclarés dans l'ordre, chacun une fois.
+     */
+    private static boolean declare(List<String> declared, String name, int id) {
+        if (id != declared.size()) return false;
+        declared.add(name);
+        return true;
+    }
+
+    /**
+     * Vérifie que chaque type déclaré a le même id dans ce processus (un type inconnu doit
+     * recevoir le sien à l'enregistrement, dans l'ordre), puis enregistre les inconnus.
+     */
+    private boolean registerKinds(List<String> declared) {
+        int next = UnitKind.count();
+        for (int id = 0; id < declared.size(); id++) {
+            int known = UnitKind.idOf(declared.get(id));
+            if (known >= 0 ? known != id : id != next++) return false;
+        }
+        for (int id = 0; id < declared.size(); id++) {
+            if (UnitKind.register(declared.get(id)) != id) return false;
+        }
+        kinds.addAll(declared);
+        return true;
+    }
+
+    private static TickEntry decodeTick(ByteBuffer in, List<String> kindNames) {
+        long tick = getVarLong(in);
+        int hour = getVarInt(in);
+        boolean inEvent = getVarInt(in) != 0;
+        int count = getVarInt(in);
+        List<HospitalEntry> hospitals = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int id = getVarInt(in);
+            long inter = getVarLong(in);
+            long intra = getVarLong(in);
+            int units = getVarInt(in);
+            List<UnitEntry> entries = new ArrayList<>(units);
+            for (int u = 0; u < units; u++) {
+                int kind = getVarInt(in);
+                String name = kindNames == null ? UnitKind.nameOf(kind) : kindNames.get(kind);
+                entries.add(new UnitEntry(name, getZigZag(in), getVarInt(in), getVarInt(in), getVarInt(in),
+                        getVarInt(in), getVarInt(in), getVarLong(in), getVarLong(in), getVarLong(in), getVarLong(in)));
+            }
+            hospitals.add(new HospitalEntry(id, inter, intra, entries));
+        }
+        return new TickEntry(tick, hour, inEvent, hospitals);
+    }
+
+    private static boolean matches(TickEntry entry, Map<Integer, Hospital> byId) {
+        if (entry.hospitals().size() != byId.size()) return false;
+        for (HospitalEntry h : entry.hospitals()) {
+            Hospital live = byId.get(h.id());
+            if (live == null || live.getUnits().size() != h.units().size()) return false;
+            for (int u = 0; u < h.units().size(); u++) {
+                if (live.getUnits().get(u).getCurrentLoad() != h.units().get(u).load()) return false;
+            }
+        }
+        return true;
+    }
+
+    // ----- Varints -----
+
+    private static int getVarInt(ByteBuffer in) {
+        return (int) getVarLong(in);
+    }
+
+    private static long getVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+    }
+
+    private static int getZigZag(ByteBuffer in) {
+        int v = getVarInt(in);
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    private static String getString(ByteBuffer in) {
+        byte[] bytes = new byte[getCount(in)];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Nombre d'éléments (d'au moins un octet chacun) qui suivent dans l'enregistrement.
+     */
+    private static int getCount(ByteBuffer in) {
+        int count = getVarInt(in);
+        if (count < 0 || count > in.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        return count;
+    }
+
+    /**
+     * Tampon d'écriture qui s'agrandit au besoin, avec encodage varint.
+     */
+    private static final class Buffer {
+        private ByteBuffer buffer;
+
+        Buffer(int capacity) {
+            buffer = ByteBuffer.allocate(capacity);
+        }
+
+        void clear() {
+            buffer.clear();
+        }
+
+        void ensure(int bytes) {
+            if (buffer.remaining() < bytes) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+                larger.put(buffer.flip());
+                buffer = larger;
+            }
+        }
+
+        void putVarInt(int value) {
+            putVarLong(value & 0xFFFFFFFFL);
+        }
+
+        void putVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer.put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            buffer.put((byte) value);
+        }
+
+        void putZigZag(int value) {
+            putVarInt((value << 1) ^ (value >> 31));
+        }
+
+        void putString(String s) {
+            putBytes(s.getBytes(StandardCharsets.UTF_8));
+        }
+
+        void putBytes(byte[] bytes) {
+            putVarInt(bytes.length);
+            ensure(bytes.length);
+            buffer.put(bytes);
+        }
+    }
+
+    /**
+     * Lecture séquentielle des enregistrements à partir d'une position du fichier.
+     * Après {@link #next()}, "payload" contient exactement le contenu de l'enregistrement.
+     */
+    private static final class RecordReader implements AutoCloseable {
+        private final FileChannel in;
+        private ByteBuffer window = ByteBuffer.allocate(1 << 20).flip();
+        private long windowStart;   // position dans le fichier du début de window
+        byte type;
+        long offset;                // position de l'enregistrement courant
+        int length;                 // taille totale de l'enregistrement courant (en-tête compris)
+        ByteBuffer payload;
+
+        RecordReader(Path file, long offset) throws IOException {
+            this.in = FileChannel.open(file, StandardOpenOption.READ);
+            this.windowStart = offset;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+        /**
+         * Passe à l'enregistrement suivant ; false à la fin du fichier, sur un enregistrement incomplet
+         * (arrêt brutal) ou sur une taille illisible (au-delà de la fin du fichier).
+         */
+        boolean next() throws IOException {
+            offset = windowStart + window.position();
+            if (!fill(1 + 5)) {
+                if (window.remaining() < 2) return false;
+            }
+            int start = window.position();
+            type = window.get();
+            int n = 0;
+            long len = 0;
+            for (int shift = 0; ; shift += 7) {
+                if (!window.hasRemaining()) {
+                    window.position(start);
+                    return false;
+                }
+                byte b = window.get();
+                n++;
+                len |= (long) (b & 0x7F) << shift;
+                if (b >= 0) break;
+                if (n == 5) {
+                    window.position(start);
+                    return false;
+                }
+            }
+            int header = 1 + n;
+            window.position(start);
+            // Pas de tampon plus grand que ce qui reste du fichier
+            if (header + len > window.remaining() && windowStart + start + header + len > in.size()) {
+                return false;
+            }
+            if (!fill(header + (int) len)) {
+                return false;
+            }
+            start = window.position();
+            payload = window.slice(start + header, (int) len);
+            window.position(start + header + (int) len);
+            length = header + (int) len;
+            return true;
+        }
+
+        /**
+         * Garantit "bytes" octets lisibles dans window (false si le fichier est trop court).
+         */
+        private boolean fill(int bytes) throws IOException {
+            if (window.remaining() >= bytes) return true;
+            windowStart += window.position();
+            if (window.capacity() < bytes) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(bytes, window.capacity() * 2));
+                larger.put(window);
+                window = larger;
+            } else {
+                window.compact();
+            }
+            long pos = windowStart + window.position();
+            while (window.hasRemaining()) {
+                int read = in.read(window, pos);
+                if (read <= 0) break;
+                pos += read;
+            }
+            window.flip();
+            return window.remaining() >= bytes;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.cmi.simu.flow;
+
+/**
+ * Phases d'un pas de {@link FlowSimulator#simulateOneStep()}, pour la mesure des temps.
+ */
+public enum TickPhase {
+    ARRIVALS,    // 1) arrivées extérieures
+    TREATMENT,   // 2) traitement et sorties
+    TRANSFERS,   // 3) + 4) flux internes
+    ABSORPTION   // 5) absorption
+}
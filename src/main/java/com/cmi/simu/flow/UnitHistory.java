@@ -0,0 +1,332 @@
+package com.cmi.simu.flow;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Historique par unité des derniers ticks (charge, effectifs par priorité, sorties, refus),
+ * gardé hors du tas Java dans un anneau de taille fixe.
+ * <p>
+ * Chaque unité suivie a un emplacement ; un emplacement contient une colonne par grandeur,
+ * et chaque colonne est un anneau de "capacityTicks" entiers (position = tick modulo capacité).
+ * Une requête sur une unité et une grandeur lit donc une plage contiguë de mémoire.
+ * La mémoire est réservée par blocs de {@link #BLOCK_UNITS} emplacements, au fur et à mesure
+ * que des unités apparaissent, dans la limite de "maxUnits" ; un emplacement libéré (hôpital
+ * supprimé) est réutilisé. Une seule écriture par tick (thread de la simulation), lectures
+ * concurrentes.
+ */
+public class UnitHistory implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(UnitHistory.class);
+
+    /**
+     * Grandeurs enregistrées, dans l'ordre des colonnes. "exits" et "rejected" sont comptés sur le tick.
+     */
+    public static final List<String> COLUMNS = List.of("load", "urgent", "normal", "low", "exits", "rejected");
+
+    private static final int LOAD = 0;
+    private static final int URGENT = 1;
+    private static final int NORMAL = 2;
+    private static final int LOW = 3;
+    private static final int EXITS = 4;
+    private static final int REJECTED = 5;
+    private static final int COLUMN_COUNT = 6;
+
+    // Emplacements réservés d'un coup (un segment par bloc)
+    private static final int BLOCK_UNITS = 64;
+
+    private final int capacityTicks;
+    private final int maxUnits;
+    private final Arena arena = Arena.ofShared();
+    private final List<MemorySegment> blocks = new ArrayList<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // (hôpital, type d'unité) → emplacement, et par emplacement : premier tick enregistré et
+    // nombre de refus cumulés au tick précédent
+    private final Map<Long, Integer> slots = new HashMap<>();
+    private final ArrayDeque<Integer> freeSlots = new ArrayDeque<>();
+    private long[] firstTick = new long[0];
+    private long[] lastRejected = new long[0];
+    private int usedSlots;
+    private boolean full;
+    // Après close() : les écritures sont ignorées, les lectures ne trouvent plus rien
+    private boolean closed;
+
+    // Dernier tick enregistré (-1 : aucun)
+    private long lastTick = -1;
+
+    /**
+     * @param capacityTicks nombre de ticks gardés par unité (les plus anciens sont écrasés)
+     * @param maxUnits      nombre maximal d'unités suivies (au-delà, les nouvelles unités sont ignorées)
+     */
+    public UnitHistory(int capacityTicks, int maxUnits) {
+        if (capacityTicks <= 0 || maxUnits <= 0) {
+            throw new IllegalArgumentException("Taille d'historique invalide : " + capacityTicks + " ticks, " + maxUnits + " unités");
+        }
+        this.capacityTicks = capacityTicks;
+        this.maxUnits = maxUnits;
+    }
+
+    /**
+     * Résultat d'une requête : "points" intervalles consécutifs couvrant [from, to], chacun
+     * commençant au tick bucketStart[i], avec pour chaque grandeur min, max et moyenne.
+     * Vide (from > to) si l'unité n'a aucun tick enregistré dans l'intervalle demandé.
+     */
+    public record Range(int hospitalId, String unit, long from, long to, long[] bucketStart, List<Series> series) {}
+
+    public record Series(String column, int[] min, int[] max, double[] avg) {}
+
+    // ----- Écriture (thread de la simulation) -----
+
+    /**
+     * Commence à suivre les unités d'un hôpital (ses refus déjà comptés ne sont pas repris).
+     */
+    public void add(Hospital hospital) {
+        lock.writeLock().lock();
+        try {
+            if (closed) return;
+            for (HospitalUnit unit : hospital.getUnits()) {
+                slot(hospital.getId(), unit);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Oublie un hôpital supprimé ; ses emplacements seront réutilisés.
+     */
+    public void remove(int hospitalId) {
+        lock.writeLock().lock();
+        try {
+            if (closed) return;
+            slots.entrySet().removeIf(e -> {
+                if ((int) (e.getKey() >>> 32) != hospitalId) return false;
+                freeSlots.push(e.getValue());
+                return true;
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Efface tout l'historique et repart des hôpitaux donnés (après une reprise de checkpoint,
+     * ou une suppression de tous les hôpitaux) : les ticks déjà enregistrés ne font plus partie
+     * de la chronologie.
+     */
+    public void reset(List<Hospital> hospitals) {
+        lock.writeLock().lock();
+        try {
+            if (closed) return;
+            slots.clear();
+            freeSlots.clear();
+            usedSlots = 0;
+            full = false;
+            lastTick = -1;
+            for (Hospital h : hospitals) {
+                for (HospitalUnit unit : h.getUnits()) {
+                    slot(h.getId(), unit);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Enregistre l'état de toutes les unités à la fin du tick "tick".
+     *
+     * @param exits sorties du tick, par hôpital puis par nom d'unité
+     */
+    public void record(long tick, List<Hospital> hospitals, Map<Integer, Map<String, Integer>> exits) {
+        lock.writeLock().lock();
+        try {
+            if (closed) return;
+            int pos = (int) Math.floorMod(tick, (long) capacityTicks);
+            for (Hospital h : hospitals) {
+                Map<String, Integer> hospitalExits = exits.get(h.getId());
+                for (HospitalUnit unit : h.getUnits()) {
+                    int slot = slot(h.getId(), unit);
+                    if (slot < 0) continue;
+                    if (firstTick[slot] < 0) {
+                        firstTick[slot] = tick;
+                    }
+                    long rejected = unit.getRejectedArrivals();
+                    MemorySegment block = blocks.get(slot / BLOCK_UNITS);
+                    long base = (long) (slot % BLOCK_UNITS) * COLUMN_COUNT * capacityTicks + pos;
+                    set(block, base, LOAD, unit.getCurrentLoad());
+                    set(block, base, URGENT, unit.countPriority(PriorityLevel.URGENT));
+                    set(block, base, NORMAL, unit.countPriority(PriorityLevel.NORMAL));
+                    set(block, base, LOW, unit.countPriority(PriorityLevel.LOW));
+                    set(block, base, EXITS, hospitalExits == null ? 0 : hospitalExits.getOrDefault(unit.getName(), 0));
+                    set(block, base, REJECTED, (int) (rejected - lastRejected[slot]));
+                    lastRejected[slot] = rejected;
+                }
+            }
+            lastTick = tick;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ----- Lecture -----
+
+    /**
+     * Min, max et moyenne de chaque grandeur d'une unité sur [from, to], ramenés à au plus
+     * "points" intervalles. Les bornes sont restreintes aux ticks encore gardés.
+     *
+     * @throws NoSuchElementException si l'unité n'est pas suivie
+     */
+    public Range query(int hospitalId, String unitName, long from, long to, int points) {
+        int kind = UnitKind.idOf(unitName);
+        lock.readLock().lock();
+        try {
+            Integer slot = kind < 0 || closed ? null : slots.get(key(hospitalId, kind));
+            if (slot == null) {
+                throw new NoSuchElementException("Unité sans historique : " + hospitalId + "/" + unitName);
+            }
+            long first = Math.max(firstTick[slot] < 0 ? Long.MAX_VALUE : firstTick[slot], lastTick - capacityTicks + 1);
+            from = Math.max(from, first);
+            to = Math.min(to, lastTick);
+            if (from > to || points <= 0) {
+                return new Range(hospitalId, unitName, from, to, new long[0], emptySeries());
+            }
+            long n = to - from + 1;
+            int buckets = (int) Math.min(points, n);
+            long[] bucketStart = new long[buckets];
+            for (int b = 0; b < buckets; b++) {
+                bucketStart[b] = from + n * b / buckets;
+            }
+            MemorySegment block = blocks.get(slot / BLOCK_UNITS);
+            long slotBase = (long) (slot % BLOCK_UNITS) * COLUMN_COUNT * capacityTicks;
+            List<Series> series = new ArrayList<>(COLUMN_COUNT);
+            for (int c = 0; c < COLUMN_COUNT; c++) {
+                series.add(scan(block, slotBase + (long) c * capacityTicks, from, to, bucketStart, COLUMNS.get(c)));
+            }
+            return new Range(hospitalId, unitName, from, to, bucketStart, series);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Mémoire hors tas réservée, en octets.
+     */
+    public long reservedBytes() {
+        lock.readLock().lock();
+        try {
+            return (long) blocks.size() * blockBytes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            if (closed) return;
+            closed = true;
+            blocks.clear();
+            slots.clear();
+            arena.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ----- Interne -----
+
+    /**
+     * Lecture séquentielle d'une colonne sur [from, to] (l'anneau peut boucler une fois).
+     */
+    private Series scan(MemorySegment block, long columnBase, long from, long to, long[] bucketStart, String name) {
+        int buckets = bucketStart.length;
+        int[] min = new int[buckets];
+        int[] max = new int[buckets];
+        double[] avg = new double[buckets];
+        int pos = (int) Math.floorMod(from, (long) capacityTicks);
+        long t = from;
+        for (int b = 0; b < buckets; b++) {
+            long end = b + 1 < buckets ? bucketStart[b + 1] : to + 1;
+            int lo = Integer.MAX_VALUE;
+            int hi = Integer.MIN_VALUE;
+            long sum = 0;
+            long count = end - t;
+            for (; t < end; t++) {
+                int v = block.getAtIndex(ValueLayout.JAVA_INT, columnBase + pos);
+                if (v < lo) lo = v;
+                if (v > hi) hi = v;
+                sum += v;
+                if (++pos == capacityTicks) pos = 0;
+            }
+            min[b] = lo;
+            max[b] = hi;
+            avg[b] = (double) sum / count;
+        }
+        return new Series(name, min, max, avg);
+    }
+
+    /**
+     * Emplacement de l'unité, attribué à la première rencontre (-1 si la limite est atteinte).
+     */
+    private int slot(int hospitalId, HospitalUnit unit) {
+        long key = key(hospitalId, unit.getKind());
+        Integer slot = slots.get(key);
+        if (slot != null) return slot;
+        if (!freeSlots.isEmpty()) {
+            slot = freeSlots.pop();
+        } else if (usedSlots < maxUnits) {
+            slot = usedSlots++;
+            if (slot / BLOCK_UNITS == blocks.size()) {
+                blocks.add(arena.allocate(blockBytes(), Integer.BYTES));
+                int slotCount = blocks.size() * BLOCK_UNITS;
+                firstTick = Arrays.copyOf(firstTick, slotCount);
+                lastRejected = Arrays.copyOf(lastRejected, slotCount);
+            }
+        } else {
+            if (!full) {
+                log.warn("Historique des unités plein ({} unités) : les nouvelles unités ne sont pas suivies", maxUnits);
+                full = true;
+            }
+            return -1;
+        }
+        slots.put(key, slot);
+        firstTick[slot] = -1;
+        lastRejected[slot] = unit.getRejectedArrivals();
+        return slot;
+    }
+
+    private long blockBytes() {
+        return (long) BLOCK_UNITS * COLUMN_COUNT * capacityTicks * Integer.BYTES;
+    }
+
+    private void set(MemorySegment block, long base, int column, int value) {
+        block.setAtIndex(ValueLayout.JAVA_INT, base + (long) column * capacityTicks, value);
+    }
+
+    private static long key(int hospitalId, int kind) {
+        return ((long) hospitalId << 32) | (kind & 0xFFFFFFFFL);
+    }
+
+    private static List<Series> emptySeries() {
+        List<Series> series = new ArrayList<>(COLUMN_COUNT);
+        for (String column : COLUMNS) {
+            series.add(new Series(column, new int[0], new int[0], new double[0]));
+        }
+        return series;
+    }
+}
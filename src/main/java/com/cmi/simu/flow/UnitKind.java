@@ -0,0 +1,67 @@
+package com.cmi.simu.flow;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Registre des types de service (Urgences, Chirurgie, ...), chacun identifié par un petit entier.
+ * <p>
+ * Le nom n'est comparé qu'une fois, à la création de l'unité (ou à l'entrée d'une requête HTTP) ;
+ * ensuite la simulation ne manipule que l'id, qui sert d'indice de tableau
+ * (voir {@link Hospital#findUnit(int)}). Les noms sont insensibles à la casse.
+ * Les ids sont attribués dans l'ordre d'enregistrement et ne changent jamais.
+ */
+public final class UnitKind {
+
+    private static final ConcurrentMap<String, Integer> IDS = new ConcurrentHashMap<>();
+    private static final CopyOnWriteArrayList<String> NAMES = new CopyOnWriteArrayList<>();
+
+    // Types connus d'avance, dans l'ordre de construction des unités d'un hôpital
+    public static final int URGENCES  = register("Urgences");
+    public static final int CHIRURGIE = register("Chirurgie");
+    public static final int MEDECINE  = register("Medecine");
+    public static final int BLOQUE    = register("Bloque");
+
+    private UnitKind() {
+    }
+
+    /**
+     * Id du type portant ce nom, enregistré au besoin.
+     */
+    public static int register(String name) {
+        return IDS.computeIfAbsent(key(name), k -> {
+            synchronized (NAMES) {
+                NAMES.add(name);
+                return NAMES.size() - 1;
+            }
+        });
+    }
+
+    /**
+     * Id du type portant ce nom, ou -1 s'il n'a jamais été enregistré.
+     */
+    public static int idOf(String name) {
+        if (name == null) return -1;
+        return IDS.getOrDefault(key(name), -1);
+    }
+
+    /**
+     * Nom (tel qu'enregistré la première fois) du type d'id donné.
+     */
+    public static String nameOf(int id) {
+        return NAMES.get(id);
+    }
+
+    /**
+     * Nombre de types enregistrés ; les ids valides vont de 0 à count() - 1.
+     */
+    public static int count() {
+        return NAMES.size();
+    }
+
+    private static String key(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,44 @@
+package com.cmi.simu.flow;
+
+/**
+ * Photo figée d'une unité à la fin d'un tick.
+ *
+ * @param exits   patients sortis de l'unité pendant ce tick (soignés, décédés ou absorbés)
+ * @param version version du snapshot où la charge ou la capacité de l'unité a changé pour
+ *                la dernière fois (voir {@link SimulationSnapshot#version()})
+ */
+public record UnitSnapshot(String name,
+                           int maxCapacity,
+                           int load,
+                           int urgent,
+                           int normal,
+                           int low,
+                           int exits,
+                           long version) {
+
+    /**
+     * Capture l'état courant de l'unité. À appeler depuis le thread de simulation.
+     */
+    public static UnitSnapshot of(HospitalUnit unit, int exits) {
+        return of(unit, exits, null, 0);
+    }
+
+    /**
+     * Capture l'état courant de l'unité pour le snapshot de version "version" : la version
+     * de l'unité est reprise de "previous" si ni sa charge ni sa capacité n'ont changé.
+     *
+     * @param previous la même unité dans le snapshot précédent (null si elle n'y était pas)
+     */
+    public static UnitSnapshot of(HospitalUnit unit, int exits, UnitSnapshot previous, long version) {
+        int maxCapacity = unit.getMaxCapacity();
+        int load = unit.getCurrentLoad();
+        long unitVersion = previous != null && previous.maxCapacity == maxCapacity && previous.load == load
+                ? previous.version
+                : version;
+        return new UnitSnapshot(unit.getName(), maxCapacity, load,
+                unit.countPriority(PriorityLevel.URGENT),
+                unit.countPriority(PriorityLevel.NORMAL),
+                unit.countPriority(PriorityLevel.LOW),
+                exits, unitVersion);
+    }
+}
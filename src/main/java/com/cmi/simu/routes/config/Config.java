@@ -1,4 +1,33 @@
 package com.cmi.simu.routes.config;
 
+import com.cmi.simu.flow.EventSink;
+import com.cmi.simu.flow.TickEngine;
+import com.cmi.simu.flow.UnitHistory;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties({TickProperties.class, SimulationProperties.class})
 public class Config {
+
+    // Puits d'événements du moteur, au niveau configuré ; vidé à l'arrêt du contexte
+    @Bean(destroyMethod = "flush")
+    public EventSink eventSink(SimulationProperties properties) {
+        EventSink sink = EventSink.getDefault();
+        sink.setLevel(properties.getEventLevel());
+        return sink;
+    }
+
+    // Fermé (pool arrêté) automatiquement à l'arrêt du contexte
+    @Bean
+    public TickEngine tickEngine(SimulationProperties properties) {
+        return new TickEngine(properties.getParallelism());
+    }
+
+    // Mémoire hors tas libérée à l'arrêt du contexte
+    @Bean
+    public UnitHistory unitHistory(SimulationProperties properties) {
+        return new UnitHistory(properties.getHistoryTicks(), properties.getHistoryMaxUnits());
+    }
 }
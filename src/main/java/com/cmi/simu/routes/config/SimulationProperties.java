@@ -0,0 +1,79 @@
+package com.cmi.simu.routes.config;
+
+import com.cmi.simu.flow.EngineType;
+import com.cmi.simu.flow.EventLevel;
+import com.cmi.simu.flow.PatientModel;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Paramètres généraux de la simulation (préfixe "simu" dans application.properties).
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "simu")
+public class SimulationProperties {
+
+    // Représentation des patients pour les hôpitaux créés via l'API
+    private PatientModel patientModel = PatientModel.INDIVIDUAL;
+
+    // Threads de calcul pour la phase parallèle d'un tick (0 = nombre de processeurs)
+    private int parallelism = 0;
+
+    // Graine maître des tirages aléatoires (vide = graine aléatoire, lue sur /actuator/info)
+    private Long seed;
+
+    // Voisinage entre hôpitaux : les k plus proches sur la carte, éventuellement dans un rayon
+    // (0 = sans limite). La taille de case de l'index spatial est à l'échelle des distances.
+    private int neighborCount = 4;
+    private double neighborRadius = 0.0;
+    private double neighborCellSize = 5.0;
+
+    // Détail du journal d'événements du moteur : OFF, INFO, DEBUG ou TRACE
+    private EventLevel eventLevel = EventLevel.OFF;
+
+    // Simulations hors ligne (POST /api/batch) : moteur par défaut, horizon maximal en heures,
+    // et nombre maximal de simulations en même temps (chacune occupe un thread à plein temps)
+    private EngineType batchEngine = EngineType.TICK;
+    private int batchMaxHours = 24 * 365 * 10;
+    private int batchMaxConcurrent = 2;
+
+    // Flux des ticks (GET /api/hospitals/stream) : nombre maximal de clients abonnés
+    private int streamMaxSubscribers = 500;
+
+    // Attente longue (GET /api/hospitals/hospitals/next) : durée maximale d'une attente, en secondes
+    private int longPollMaxSeconds = 60;
+
+    // Checkpoints binaires (POST /api/checkpoint) : fichier, intervalle en ticks (0 = seulement
+    // à la demande) et reprise automatique du dernier checkpoint au démarrage
+    private String checkpointFile = "data/simulation.ckpt";
+    private int checkpointIntervalTicks = 0;
+    private boolean checkpointRestoreOnStartup = false;
+
+    // Journal binaire des ticks (GET /api/journal/...) : dossier, intervalle maximal entre deux
+    // checkpoints de base (borne le nombre de ticks à rejouer pour reconstruire un tick passé),
+    // et nombre de checkpoints de base gardés (les plus anciens sont supprimés)
+    private boolean journalEnabled = false;
+    private String journalDir = "data/journal";
+    private int journalBaseIntervalTicks = 168;
+    private int journalBaseRetention = 52;
+
+    // Historique par unité (GET /api/hospitals/{id}/services/{unit}/history) : ticks gardés, et
+    // nombre maximal d'unités suivies. 24 octets hors tas par unité et par tick : 90 jours
+    // pour 8192 unités font environ 425 Mo, réservés par blocs de 64 unités seulement si utilisés
+    // (compte dans -XX:MaxDirectMemorySize, qui vaut -Xmx par défaut).
+    private int historyTicks = 24 * 90;
+    private int historyMaxUnits = 8192;
+    // Nombre maximal de points d'une réponse
+    private int historyMaxPoints = 2000;
+
+    // Sessions isolées (POST /api/sessions) : nombre maximal, éviction après N minutes sans accès,
+    // budget mémoire estimé de toutes les sessions (les moins récemment utilisées partent d'abord),
+    // ticks d'historique par unité, et heures au plus par appel à /advance
+    private int sessionMaxCount = 64;
+    private int sessionIdleMinutes = 30;
+    private int sessionMemoryBudgetMb = 512;
+    private int sessionHistoryTicks = 24 * 7;
+    private int sessionMaxAdvanceHours = 24 * 30;
+}
@@ -0,0 +1,13 @@
+package com.cmi.simu.routes.config;
+
+/**
+ * Cadence à laquelle le moteur de ticks fait avancer la simulation.
+ */
+public enum TickMode {
+    /** Une heure simulée toutes les (3600 / realTimeMultiplier) secondes réelles. */
+    REAL_TIME,
+    /** Un nombre fixe de ticks par seconde (ticksPerSecond). */
+    FIXED_RATE,
+    /** Aussi vite que le CPU le permet, sans attente entre deux ticks. */
+    AS_FAST_AS_POSSIBLE
+}
@@ -0,0 +1,40 @@
+package com.cmi.simu.routes.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Paramètres du moteur de ticks (préfixe "simu.tick" dans application.properties).
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "simu.tick")
+public class TickProperties {
+
+    // Démarrage automatique du thread de simulation au lancement de l'application
+    private boolean enabled = true;
+
+    private TickMode mode = TickMode.FIXED_RATE;
+
+    // Utilisé en mode FIXED_RATE (0.2 = un tick toutes les 5 secondes, comme l'ancien polling du front)
+    private double ticksPerSecond = 0.2;
+
+    // Utilisé en mode REAL_TIME : 60 → une heure simulée par minute réelle
+    private double realTimeMultiplier = 60.0;
+
+    // Nombre max de ticks rejoués d'un coup pour rattraper un retard ;
+    // au-delà, le retard est abandonné et la cadence repart de maintenant.
+    private int maxCatchUpTicks = 10;
+
+    /**
+     * Durée d'un tick en nanosecondes selon le mode courant (0 si aucune attente).
+     */
+    public long periodNanos() {
+        return switch (mode) {
+            case REAL_TIME -> (long) (3_600_000_000_000L / realTimeMultiplier);
+            case FIXED_RATE -> (long) (1_000_000_000L / ticksPerSecond);
+            case AS_FAST_AS_POSSIBLE -> 0L;
+        };
+    }
+}
@@ -0,0 +1,35 @@
+package com.cmi.simu.routes.controller;
+
+import com.cmi.simu.flow.BatchRun;
+import com.cmi.simu.routes.records.BatchRunRequest;
+import com.cmi.simu.routes.service.BatchRunService;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+@RestController
+@RequestMapping("/api/batch")
+@CrossOrigin(origins = "*")
+public class BatchController {
+
+    private final BatchRunService batchRunService;
+
+    public BatchController(BatchRunService batchRunService) {
+        this.batchRunService = batchRunService;
+    }
+
+    // Simulation hors ligne de la carte actuelle : une ligne JSON par tick, envoyée au fil du calcul
+    @PostMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> run(@RequestBody(required = false) BatchRunRequest request) {
+        BatchRun batchRun = batchRunService.prepare(request);
+        StreamingResponseBody body = out -> batchRunService.run(batchRun, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+}
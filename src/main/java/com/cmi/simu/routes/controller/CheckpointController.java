@@ -0,0 +1,34 @@
+package com.cmi.simu.routes.controller;
+
+import com.cmi.simu.routes.records.CheckpointInfo;
+import com.cmi.simu.routes.service.CheckpointService;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.concurrent.CompletableFuture;
+
+@RestController
+@RequestMapping("/api/checkpoint")
+@CrossOrigin(origins = "*")
+public class CheckpointController {
+
+    private final CheckpointService checkpointService;
+
+    public CheckpointController(CheckpointService checkpointService) {
+        this.checkpointService = checkpointService;
+    }
+
+    // Sauvegarde l'état complet de la simulation ; la réponse part une fois le fichier écrit
+    @PostMapping
+    public CompletableFuture<CheckpointInfo> checkpoint() {
+        return checkpointService.checkpoint();
+    }
+
+    // Reprend la simulation depuis le dernier checkpoint ; la réponse part une fois la simulation remplacée
+    @PostMapping("/restore")
+    public CompletableFuture<CheckpointInfo> restore() {
+        return checkpointService.restore();
+    }
+}
@@ -2,72 +2,227 @@ package com.cmi.simu.routes.controller;
 
 
 import com.cmi.simu.flow.ArrivalScenario;
-import com.cmi.simu.flow.Clock;
 import com.cmi.simu.flow.Hospital;
+import com.cmi.simu.flow.SimulationSnapshot;
+import com.cmi.simu.flow.UnitHistory;
+import com.cmi.simu.routes.config.SimulationProperties;
+import com.cmi.simu.routes.records.CapacityBatchResult;
+import com.cmi.simu.routes.records.CapacityChange;
+import com.cmi.simu.routes.records.HospitalChangesDTO;
 import com.cmi.simu.routes.records.HospitalDTO;
 import com.cmi.simu.routes.records.ServiceDTO;
 import com.cmi.simu.routes.service.HospitalService;
+import com.cmi.simu.routes.service.SessionService;
+import com.cmi.simu.routes.service.TickBroadcaster;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @RestController
-@RequestMapping("/api/hospitals") // URL de base
+// URL de base : la simulation du serveur, ou celle d'une session (voir SessionController)
+@RequestMapping({"/api/hospitals", "/api/sessions/{session}/hospitals"})
 @CrossOrigin(origins = "*") // Autorise Vue.js en dev
 
 public class HospitalController {
 
 
-    private static HospitalService hospitalService;
+    private final HospitalService hospitalService;
+    private final TickBroadcaster broadcaster;
+    private final SessionService sessionService;
+    private final SimulationProperties properties;
 
-    public HospitalController(HospitalService hospitalService) {
-        HospitalController.hospitalService = hospitalService;
+    public HospitalController(HospitalService hospitalService, TickBroadcaster broadcaster,
+                              SessionService sessionService, SimulationProperties properties) {
+        this.hospitalService = hospitalService;
+        this.broadcaster = broadcaster;
+        this.sessionService = sessionService;
+        this.properties = properties;
+    }
+
+    // Simulation visée par la requête : celle de la session, ou celle du serveur
+    private HospitalService simulation(String session) {
+        return session == null ? hospitalService : sessionService.get(session).getSimulation();
     }
 
     @GetMapping("/hospitals")
-    public static List<HospitalDTO> getAllHospitals() {
+    public ResponseEntity<List<HospitalDTO>> getAllHospitals(
+            @PathVariable(required = false) String session,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        // La simulation avance toute seule (TickScheduler) : ici on ne fait que lire l'état courant.
+        // ETag = version du snapshot : 304 sans corps si le client l'a déjà
+        HospitalService simulation = simulation(session);
+        SimulationSnapshot snapshot = simulation.getSnapshot();
+        if (etagVersion(ifNoneMatch) == snapshot.version()) {
+            return notModified(snapshot);
+        }
+        return ResponseEntity.ok()
+                .eTag(etag(snapshot))
+                .body(simulation.getHospitalsWithServices(snapshot));
+    }
+
+    // Attente longue : répond dès qu'un snapshot plus récent que "after" (ou que If-None-Match, ou
+    // que l'état courant) est publié, ou 304 au bout de "timeout" secondes. Le thread de la requête
+    // attend : avec spring.threads.virtual.enabled, c'est un thread virtuel, qui ne bloque rien
+    // pendant l'attente (des milliers de clients en attente ne coûtent que leur pile).
+    @GetMapping("/hospitals/next")
+    public ResponseEntity<List<HospitalDTO>> awaitHospitals(
+            @PathVariable(required = false) String session,
+            @RequestParam(required = false) Long after,
+            @RequestParam(defaultValue = "30") int timeout,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        HospitalService simulation = simulation(session);
+        long known = after != null ? after : etagVersion(ifNoneMatch);
+        if (known < 0) {
+            known = simulation.getSnapshot().version();
+        }
+        int seconds = Math.clamp(timeout, 0, properties.getLongPollMaxSeconds());
+        SimulationSnapshot snapshot;
+        try {
+            snapshot = simulation.awaitSnapshotAfter(known).get(seconds, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            return notModified(simulation.getSnapshot());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Attente interrompue");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+        return ResponseEntity.ok()
+                .eTag(etag(snapshot))
+                .body(simulation.getHospitalsWithServices(snapshot));
+    }
+
+    // Seulement ce qui a changé depuis la version "since" (ou celle de If-None-Match) ; 304 si rien
+    @GetMapping("/changes")
+    public ResponseEntity<HospitalChangesDTO> getChanges(
+            @PathVariable(required = false) String session,
+            @RequestParam(required = false) Long since,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        HospitalService simulation = simulation(session);
+        SimulationSnapshot snapshot = simulation.getSnapshot();
+        long known = since != null ? since : etagVersion(ifNoneMatch);
+        if (known == snapshot.version()) {
+            return notModified(snapshot);
+        }
+        return ResponseEntity.ok()
+                .eTag(etag(snapshot))
+                .body(simulation.getChanges(snapshot, known));
+    }
+
+    private static <T> ResponseEntity<T> notModified(SimulationSnapshot snapshot) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag(snapshot)).build();
+    }
+
+    private static String etag(SimulationSnapshot snapshot) {
+        return "\"" + snapshot.version() + "\"";
+    }
 
-        Clock.addOneHour();
-        return hospitalService.getHospitalsWithServices();
+    /**
+     * Version désignée par un en-tête If-None-Match ("12", W/"12" ou une liste : on prend la
+     * plus récente), ou -1 s'il est absent ou illisible.
+     */
+    private static long etagVersion(String ifNoneMatch) {
+        if (ifNoneMatch == null) return -1;
+        long best = -1;
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.startsWith("W/")) tag = tag.substring(2);
+            if (tag.length() >= 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+                tag = tag.substring(1, tag.length() - 1);
+            }
+            try {
+                best = Math.max(best, Long.parseLong(tag));
+            } catch (NumberFormatException e) {
+                // ETag qui ne vient pas de nous : ignoré
+            }
+        }
+        return best;
     }
 
 
+    // Flux Server-Sent Events : l'état de tous les hôpitaux à chaque tick, poussé par le serveur
+    @GetMapping("/stream")
+    public ResponseEntity<ResponseBodyEmitter> streamHospitals(@PathVariable(required = false) String session) {
+        TickBroadcaster broadcaster = session == null ? this.broadcaster : sessionService.get(session).getBroadcaster();
+        return ResponseEntity.ok()
+                .contentType(MediaType.TEXT_EVENT_STREAM)
+                .header(HttpHeaders.CACHE_CONTROL, "no-cache")
+                .body(broadcaster.subscribe());
+    }
+
     // Route pour récupérer les services d'un hôpital spécifique avec capacité
     @GetMapping("/{id}/services")
-    public List<ServiceDTO> getHospitalServices(@PathVariable Long id) {
-        return hospitalService.getHospitalServices(id);
+    public List<ServiceDTO> getHospitalServices(@PathVariable(required = false) String session, @PathVariable Long id) {
+        return simulation(session).getHospitalServices(id);
     }
 
+    // Courbes d'une unité : min, max et moyenne de chaque grandeur sur [from, to] (par défaut tout
+    // l'historique gardé), ramenés à "points" intervalles
+    @GetMapping("/{id}/services/{unit}/history")
+    public UnitHistory.Range getUnitHistory(@PathVariable(required = false) String session,
+                                            @PathVariable Long id,
+                                            @PathVariable String unit,
+                                            @RequestParam(defaultValue = "0") long from,
+                                            @RequestParam(defaultValue = "" + Long.MAX_VALUE) long to,
+                                            @RequestParam(defaultValue = "200") int points) {
+        if (points <= 0 || points > properties.getHistoryMaxPoints()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "points doit être compris entre 1 et " + properties.getHistoryMaxPoints());
+        }
+        return simulation(session).getUnitHistory(id, unit, from, to, points);
+    }
+
+
+    // Les modifications sont appliquées par le thread de la simulation entre deux ticks :
+    // la réponse part une fois la modification faite et publiée
 
     @PostMapping
-    public Hospital createHospital(@RequestBody Hospital hospital) {
-        return hospitalService.createHospital(hospital);
+    public CompletableFuture<Hospital> createHospital(@PathVariable(required = false) String session, @RequestBody Hospital hospital) {
+        return simulation(session).createHospital(hospital);
     }
 
     @DeleteMapping("/{id}/")
-    public String deleteHospital(@PathVariable Long id) {
-        boolean deleted = hospitalService.deleteHospital(id);
-        return deleted ? "Hôpital supprimé" : "Hôpital non trouvé";
+    public CompletableFuture<String> deleteHospital(@PathVariable(required = false) String session, @PathVariable Long id) {
+        return simulation(session).deleteHospital(id)
+                .thenApply(deleted -> deleted ? "Hôpital supprimé" : "Hôpital non trouvé");
     }
 
     @DeleteMapping("/hospitals")
-    public void deleteAllHospitals() {
-        hospitalService.deleteAllHospitals(); // Supprime tous les hôpitaux
+    public CompletableFuture<Void> deleteAllHospitals(@PathVariable(required = false) String session) {
+        return simulation(session).deleteAllHospitals(); // Supprime tous les hôpitaux
             }
 
 
     @PostMapping("/{id}/services")
-    public void addMaxCapacity(@PathVariable Long id,
+    public CompletableFuture<Boolean> addMaxCapacity(@PathVariable(required = false) String session,
+                               @PathVariable Long id,
                                @RequestBody Map<String, Object> UnitUpdateData) {
         // Récupérer les données envoyées
         String unitName = (String) UnitUpdateData.get("serviceName");
         double newMaxCapacity = (Double) UnitUpdateData.get("maxCapacity");
 
-        hospitalService.updateMaxCapacityUnit(id, unitName, newMaxCapacity);
+        return simulation(session).updateMaxCapacityUnit(id, unitName, newMaxCapacity);
+    }
+
+    // Plusieurs capacités en un appel, appliquées ensemble (un seul snapshot publié)
+    @PostMapping("/services")
+    public CompletableFuture<CapacityBatchResult> updateMaxCapacities(@PathVariable(required = false) String session,
+                                                                      @RequestBody List<CapacityChange> changes) {
+        return simulation(session).updateMaxCapacities(changes);
     }
 }
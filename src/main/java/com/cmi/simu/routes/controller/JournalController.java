@@ -0,0 +1,40 @@
+package com.cmi.simu.routes.controller;
+
+import com.cmi.simu.flow.TickJournal;
+import com.cmi.simu.routes.records.JournalStateDTO;
+import com.cmi.simu.routes.service.JournalService;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/journal")
+@CrossOrigin(origins = "*")
+public class JournalController {
+
+    private final JournalService journalService;
+
+    public JournalController(JournalService journalService) {
+        this.journalService = journalService;
+    }
+
+    // Valeurs journalisées de toutes les unités à la fin d'un tick
+    @GetMapping("/{tick}")
+    public TickJournal.TickEntry getTick(@PathVariable long tick) {
+        return journalService.getTick(tick);
+    }
+
+    // Valeurs journalisées des unités d'un hôpital à la fin d'un tick
+    @GetMapping("/{tick}/hospitals/{id}")
+    public TickJournal.HospitalEntry getHospital(@PathVariable long tick, @PathVariable int id) {
+        return journalService.getHospital(tick, id);
+    }
+
+    // État complet (patients compris) à la fin d'un tick, reconstruit par rejeu
+    @GetMapping("/{tick}/state")
+    public JournalStateDTO getState(@PathVariable long tick) {
+        return journalService.replay(tick);
+    }
+}
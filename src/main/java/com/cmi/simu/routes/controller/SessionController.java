@@ -0,0 +1,58 @@
+package com.cmi.simu.routes.controller;
+
+import com.cmi.simu.routes.records.SessionInfo;
+import com.cmi.simu.routes.records.SessionRequest;
+import com.cmi.simu.routes.service.SessionService;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * Sessions isolées. Les routes de /api/hospitals existent aussi pour chaque session,
+ * sous /api/sessions/{session}/hospitals.
+ */
+@RestController
+@RequestMapping("/api/sessions")
+@CrossOrigin(origins = "*")
+public class SessionController {
+
+    private final SessionService sessionService;
+
+    public SessionController(SessionService sessionService) {
+        this.sessionService = sessionService;
+    }
+
+    @PostMapping
+    public SessionInfo create(@RequestBody(required = false) SessionRequest request) {
+        return sessionService.create(request);
+    }
+
+    @GetMapping
+    public List<SessionInfo> list() {
+        return sessionService.list();
+    }
+
+    @GetMapping("/{session}")
+    public SessionInfo get(@PathVariable String session) {
+        return sessionService.get(session).info();
+    }
+
+    @DeleteMapping("/{session}")
+    public String delete(@PathVariable String session) {
+        return sessionService.delete(session) ? "Session supprimée" : "Session non trouvée";
+    }
+
+    // Avance la simulation de la session (elle ne tourne pas toute seule)
+    @PostMapping("/{session}/advance")
+    public SessionInfo advance(@PathVariable String session, @RequestParam(defaultValue = "1") int hours) {
+        return sessionService.advance(session, hours);
+    }
+}
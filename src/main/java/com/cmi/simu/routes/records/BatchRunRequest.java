@@ -0,0 +1,11 @@
+package com.cmi.simu.routes.records;
+
+import com.cmi.simu.flow.EngineType;
+import com.cmi.simu.flow.PatientModel;
+
+/**
+ * Paramètres d'une simulation hors ligne (POST /api/batch). Tous facultatifs :
+ * graine aléatoire, une journée, représentation et moteur par défaut de la configuration.
+ * La simulation part d'une copie vide de la carte actuelle.
+ */
+public record BatchRunRequest(Long seed, Integer hours, PatientModel patientModel, EngineType engine) {}
@@ -0,0 +1,12 @@
+package com.cmi.simu.routes.records;
+
+import java.util.List;
+
+/**
+ * Résultat d'un lot de changements de capacité.
+ *
+ * @param applied  changements appliqués
+ * @param notFound changements ignorés (hôpital ou unité inconnus)
+ */
+public record CapacityBatchResult(int applied, List<CapacityChange> notFound) {
+}
@@ -0,0 +1,7 @@
+package com.cmi.simu.routes.records;
+
+/**
+ * Nouvelle capacité maximale d'une unité (même forme que POST /api/hospitals/{id}/services).
+ */
+public record CapacityChange(long hospitalId, String serviceName, int maxCapacity) {
+}
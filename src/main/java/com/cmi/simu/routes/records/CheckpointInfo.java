@@ -0,0 +1,13 @@
+package com.cmi.simu.routes.records;
+
+/**
+ * Résultat d'une écriture ou d'une reprise de checkpoint.
+ *
+ * @param file      fichier du checkpoint
+ * @param tick      numéro du tick sauvegardé
+ * @param hospitals nombre d'hôpitaux
+ * @param bytes     taille du fichier
+ * @param millis    durée de l'opération (copie de l'état comprise)
+ */
+public record CheckpointInfo(String file, long tick, int hospitals, long bytes, long millis) {
+}
@@ -0,0 +1,14 @@
+package com.cmi.simu.routes.records;
+
+import java.util.List;
+
+/**
+ * Réponse différentielle de l'API : ce qui a changé depuis la version connue du client.
+ *
+ * @param version   version de l'état décrit ; à renvoyer dans "since" (ou If-None-Match) la fois suivante
+ * @param full      true si "hospitals" est l'état complet (le client remplace tout ce qu'il a)
+ * @param hospitals hôpitaux modifiés, avec seulement leurs services modifiés (tous si full)
+ * @param removed   ids des hôpitaux supprimés depuis la version connue (vide si full)
+ */
+public record HospitalChangesDTO(long version, boolean full, List<HospitalDTO> hospitals, List<Integer> removed) {
+}
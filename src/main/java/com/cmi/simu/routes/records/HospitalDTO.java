@@ -1,8 +1,32 @@
 package com.cmi.simu.routes.records;
 
+import com.cmi.simu.flow.HospitalSnapshot;
+
 import java.util.List;
 
 /**
  * Représentation JSON d’un hôpital pour l’API.
  */
-public record HospitalDTO(int id, String name, List<ServiceDTO> services) {}
+public record HospitalDTO(int id, String name, List<ServiceDTO> services) {
+
+    /**
+     * Copie seulement les champs utiles d'un snapshot d'hôpital.
+     */
+    public static HospitalDTO of(HospitalSnapshot h) {
+        List<ServiceDTO> services = h.units().stream()
+                .map(u -> new ServiceDTO(u.name(), u.maxCapacity(), u.load()))
+                .toList();
+        return new HospitalDTO(h.id(), h.name(), services);
+    }
+
+    /**
+     * Comme {@link #of}, mais seulement avec les services modifiés après la version "since".
+     */
+    public static HospitalDTO changedSince(HospitalSnapshot h, long since) {
+        List<ServiceDTO> services = h.units().stream()
+                .filter(u -> u.version() > since)
+                .map(u -> new ServiceDTO(u.name(), u.maxCapacity(), u.load()))
+                .toList();
+        return new HospitalDTO(h.id(), h.name(), services);
+    }
+}
@@ -0,0 +1,12 @@
+package com.cmi.simu.routes.records;
+
+import java.util.List;
+
+/**
+ * État d'un tick passé, reconstruit depuis le journal.
+ *
+ * @param verified      les charges rejouées correspondent au journal à chaque tick rejoué
+ * @param replayedTicks ticks rejoués depuis le dernier checkpoint de base
+ */
+public record JournalStateDTO(long tick, int hour, boolean verified, long replayedTicks, List<HospitalDTO> hospitals) {
+}
@@ -0,0 +1,12 @@
+package com.cmi.simu.routes.records;
+
+/**
+ * État d'une session de simulation.
+ *
+ * @param seed           graine maître de la session
+ * @param estimatedBytes mémoire estimée (comptée dans simu.session-memory-budget-mb)
+ * @param idleSeconds    temps écoulé depuis le dernier accès
+ */
+public record SessionInfo(String id, long seed, long tick, int hour, int hospitals, long estimatedBytes,
+                          long idleSeconds) {
+}
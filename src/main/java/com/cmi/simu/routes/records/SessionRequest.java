@@ -0,0 +1,10 @@
+package com.cmi.simu.routes.records;
+
+/**
+ * Création d'une session.
+ *
+ * @param seed        graine maître (null : graine aléatoire)
+ * @param copyNetwork partir d'une copie de la carte du serveur (sans patients) plutôt que d'une carte vide
+ */
+public record SessionRequest(Long seed, boolean copyNetwork) {
+}
@@ -0,0 +1,8 @@
+package com.cmi.simu.routes.records;
+
+import java.util.List;
+
+/**
+ * État de tous les hôpitaux poussé aux abonnés du flux (GET /api/hospitals/stream) à chaque tick.
+ */
+public record TickUpdate(long tick, int hour, List<HospitalDTO> hospitals) {}
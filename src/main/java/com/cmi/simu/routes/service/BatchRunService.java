@@ -0,0 +1,92 @@
+package com.cmi.simu.routes.service;
+
+import com.cmi.simu.flow.BatchRun;
+import com.cmi.simu.flow.EngineType;
+import com.cmi.simu.flow.EventSink;
+import com.cmi.simu.flow.Hospital;
+import com.cmi.simu.flow.MainFlow;
+import com.cmi.simu.flow.PatientModel;
+import com.cmi.simu.flow.RandomStreams;
+import com.cmi.simu.routes.config.SimulationProperties;
+import com.cmi.simu.routes.records.BatchRunRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Simulations hors ligne : une copie vide de la carte actuelle avance sur un horizon donné,
+ * aussi vite que possible, sans toucher à la simulation du serveur (ni à ses métriques,
+ * ni à son journal d'événements : chaque simulation a son propre puits, coupé).
+ * <p>
+ * Chaque simulation tourne sur le thread de sa requête, hors du pool du tick du serveur, et
+ * simu.batch-max-concurrent au plus en même temps : une longue simulation ne ralentit pas le tick.
+ */
+@Service
+public class BatchRunService {
+
+    private final HospitalService hospitalService;
+    private final SimulationProperties properties;
+    // Places des simulations en cours : prise à la préparation, rendue à la fin du calcul
+    private final Semaphore running;
+
+    public BatchRunService(HospitalService hospitalService, SimulationProperties properties) {
+        this.hospitalService = hospitalService;
+        this.properties = properties;
+        this.running = new Semaphore(Math.max(1, properties.getBatchMaxConcurrent()));
+    }
+
+    /**
+     * Vérifie la demande et prépare la simulation (copie de la carte au moment de l'appel).
+     * Les erreurs sont levées ici, avant que la réponse en flux ne commence : 429 si
+     * simu.batch-max-concurrent simulations sont déjà en cours.
+     * Sans hôpital sur la carte, on part du réseau de démonstration de {@link MainFlow}.
+     */
+    public BatchRun prepare(BatchRunRequest request) {
+        int hours = request != null && request.hours() != null ? request.hours() : 24;
+        if (hours <= 0 || hours > properties.getBatchMaxHours()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "hours doit être compris entre 1 et " + properties.getBatchMaxHours());
+        }
+        long seed = request != null && request.seed() != null ? request.seed() : RandomStreams.newMasterSeed();
+        PatientModel model = request != null && request.patientModel() != null
+                ? request.patientModel() : properties.getPatientModel();
+        EngineType engine = request != null && request.engine() != null
+                ? request.engine() : properties.getBatchEngine();
+
+        if (!running.tryAcquire()) {
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS,
+                    "Trop de simulations hors ligne en cours (" + properties.getBatchMaxConcurrent() + " au plus)");
+        }
+        try {
+            List<Hospital> network = hospitalService.copyNetwork(model);
+            if (network.isEmpty()) {
+                network = MainFlow.buildHospitalNetwork(model);
+            }
+            return new BatchRun(network, seed, hours, engine, EventSink.none());
+        } catch (RuntimeException e) {
+            running.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Lance une simulation préparée et écrit ses résultats en NDJSON dans "out", puis rend sa place.
+     */
+    public void run(BatchRun batchRun, OutputStream out) throws IOException {
+        try {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16);
+            batchRun.run(writer);
+        } finally {
+            running.release();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.cmi.simu.routes.service;
+
+import com.cmi.simu.flow.SimulationCheckpoint;
+import com.cmi.simu.routes.config.SimulationProperties;
+import com.cmi.simu.routes.records.CheckpointInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Checkpoints de la simulation du serveur (voir {@link SimulationCheckpoint}) : à la demande,
+ * tous les N ticks, et reprise au démarrage si configurée.
+ * <p>
+ * L'état est copié entre deux ticks, sous le verrou de {@link HospitalService} ; l'écriture du
+ * fichier se fait ensuite sur un thread à part, un checkpoint à la fois et dans l'ordre.
+ */
+@Service
+public class CheckpointService implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(CheckpointService.class);
+
+    private final HospitalService hospitalService;
+    private final SimulationProperties properties;
+
+    private final ExecutorService writer =
+            Executors.newSingleThreadExecutor(Thread.ofVirtual().name("checkpoint-writer").factory());
+    // Un checkpoint périodique en cours d'écriture : le suivant attend le prochain intervalle
+    private final AtomicBoolean periodicPending = new AtomicBoolean();
+
+    public CheckpointService(HospitalService hospitalService, SimulationProperties properties) {
+        this.hospitalService = hospitalService;
+        this.properties = properties;
+        if (properties.isCheckpointRestoreOnStartup() && Files.exists(file())) {
+            try {
+                CheckpointInfo info = restore().join();
+                log.info("Simulation reprise depuis {} (tick {})", info.file(), info.tick());
+            } catch (CompletionException e) {
+                log.error("Reprise du checkpoint impossible", e.getCause());
+            } catch (RuntimeException e) {
+                log.error("Reprise du checkpoint impossible", e);
+            }
+        }
+    }
+
+    /**
+     * Copie l'état courant et l'écrit en arrière-plan ; le résultat est disponible une fois
+     * le fichier écrit.
+     */
+    public CompletableFuture<CheckpointInfo> checkpoint() {
+        long start = System.nanoTime();
+        SimulationCheckpoint.Capture capture = hospitalService.captureCheckpoint();
+        Path file = file();
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                SimulationCheckpoint.write(capture, file);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return new CheckpointInfo(file.toString(), capture.tick(), capture.hospitals(),
+                    capture.data().remaining(), (System.nanoTime() - start) / 1_000_000);
+        }, writer);
+    }
+
+    /**
+     * Appelé par le {@link TickScheduler} après chaque tick : checkpoint tous les
+     * checkpointIntervalTicks ticks (0 = jamais).
+     */
+    public void afterTick() {
+        int interval = properties.getCheckpointIntervalTicks();
+        if (interval <= 0 || hospitalService.getTickCount() % interval != 0) return;
+        if (!periodicPending.compareAndSet(false, true)) return;
+        checkpoint().whenComplete((info, error) -> {
+            periodicPending.set(false);
+            if (error != null) {
+                log.error("Échec du checkpoint", error instanceof CompletionException ? error.getCause() : error);
+            }
+        });
+    }
+
+    /**
+     * Remplace la simulation du serveur par celle du dernier checkpoint écrit : lu ici, appliqué
+     * entre deux ticks ; le résultat est disponible une fois la simulation remplacée.
+     */
+    public CompletableFuture<CheckpointInfo> restore() {
+        Path file = file();
+        if (!Files.exists(file)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Aucun checkpoint : " + file);
+        }
+        long start = System.nanoTime();
+        try {
+            long size = Files.size(file);
+            return hospitalService.restoreCheckpoint(file).thenApply(restored -> new CheckpointInfo(file.toString(),
+                    restored.tick(), restored.hospitals().size(), size, (System.nanoTime() - start) / 1_000_000));
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY, e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        // Les checkpoints déjà copiés sont écrits avant l'arrêt
+        writer.shutdown();
+        writer.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    private Path file() {
+        return Path.of(properties.getCheckpointFile());
+    }
+}
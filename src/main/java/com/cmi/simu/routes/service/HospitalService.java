@@ -1,48 +1,358 @@
 package com.cmi.simu.routes.service;
 
+import com.cmi.simu.flow.Clock;
+import com.cmi.simu.flow.EventSink;
+import com.cmi.simu.flow.FlowManager;
 import com.cmi.simu.flow.HospitalUnit;
 import com.cmi.simu.flow.Hospital;
 import com.cmi.simu.flow.ArrivalScenario;
+import com.cmi.simu.flow.HospitalSnapshot;
+import com.cmi.simu.flow.PatientModel;
+import com.cmi.simu.flow.RandomStreams;
+import com.cmi.simu.flow.SimulationCheckpoint;
+import com.cmi.simu.flow.SimulationSnapshot;
+import com.cmi.simu.flow.SpatialIndex;
+import com.cmi.simu.flow.TickEngine;
+import com.cmi.simu.flow.UnitHistory;
+import com.cmi.simu.flow.UnitKind;
+import com.cmi.simu.routes.config.SimulationProperties;
+import com.cmi.simu.routes.records.CapacityBatchResult;
+import com.cmi.simu.routes.records.CapacityChange;
+import com.cmi.simu.routes.records.HospitalChangesDTO;
 import com.cmi.simu.routes.records.HospitalDTO;
 import com.cmi.simu.routes.records.ServiceDTO;
 import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.io.IOException;
 import java.lang.reflect.Field;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 
+/**
+ * Une simulation complète : hôpitaux, horloge, scénario, snapshots publiés.
+ * <p>
+ * Les routes ne modifient jamais les hôpitaux elles-mêmes : chaque modification est une commande
+ * mise en file (sans verrou), que le thread de la simulation applique entre deux ticks, avant de
+ * publier un seul snapshot pour toutes les commandes du lot. La réponse part une fois la
+ * commande appliquée et publiée. Sans thread de simulation (session, ticks désactivés),
+ * l'appelant applique lui-même les commandes en attente, sous le verrou.
+ * <p>
+ * Le bean Spring est la simulation du serveur, cadencée par le {@link TickScheduler}, avec
+ * métriques et journal. Chaque session (voir {@link SessionService}) a sa propre instance,
+ * avancée à la demande, sans métriques ni journal ; rien n'est partagé entre elles hormis
+ * le pool de calcul.
+ */
 @Service
 public class HospitalService {
     @Getter
-    private static final List<Hospital> hospitals = new ArrayList<>();
+    private final List<Hospital> hospitals = new ArrayList<>();
     private int nextId = 1;
 
+    // Index id → hôpital, tenu à jour avec la liste (qui garde l'ordre de simulation)
+    private final Map<Integer, Hospital> hospitalsById = new ConcurrentHashMap<>();
+
+    // Horloge de cette simulation (celle par défaut pour la simulation du serveur)
+    @Getter
+    private final Clock clock;
+
     // -- SCENARIO PERSISTANT --
     // On le crée une seule fois,
     // et il s'incrémente (countdown, inEvent) au fur et à mesure des appels.
-    private final ArrivalScenario scenario;
+    // Remplacé seulement par la reprise d'un checkpoint.
+    private ArrivalScenario scenario;
+
+    private final SimulationProperties properties;
+
+    // Calcul parallèle des hôpitaux, puis commit déterministe des transferts entre eux
+    private final TickEngine tickEngine;
+
+    // Métriques Micrometer, mises à jour après chaque tick et chaque changement de la liste
+    // (null pour une session)
+    private final SimulationMetrics metrics;
+
+    // Diffusion de chaque snapshot aux clients abonnés au flux (SSE)
+    private final TickBroadcaster broadcaster;
+
+    // Journal des ticks et des modifications (désactivé par défaut ; null pour une session)
+    private final JournalService journal;
+
+    // Historique récent de chaque unité, hors tas (courbes du front)
+    private final UnitHistory history;
+
+    // Positions des hôpitaux, pour ne relier chacun qu'à ses plus proches voisins
+    private final SpatialIndex spatialIndex;
+
+    // Graine maître : tous les flux aléatoires (scénario, hôpitaux) en dérivent
+    // (celle du checkpoint après une reprise)
+    @Getter
+    private volatile long masterSeed;
+
+    // Nombre de ticks effectués depuis le démarrage
+    @Getter
+    private volatile long tickCount = 0;
+
+    // Verrou de la simulation (tick, commandes, checkpoints). Un ReentrantLock plutôt que
+    // synchronized : un thread virtuel qui l'attend libère son thread porteur.
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // Dernier état publié : les lectures HTTP ne touchent qu'à ça, jamais aux unités vivantes
+    private final AtomicReference<SimulationSnapshot> snapshot = new AtomicReference<>(SimulationSnapshot.EMPTY);
+
+    // Complété par la prochaine publication, puis remplacé : les attentes longues s'y accrochent
+    private final AtomicReference<CompletableFuture<SimulationSnapshot>> nextSnapshot =
+            new AtomicReference<>(new CompletableFuture<>());
 
-    public HospitalService() {
-        scenario = new ArrivalScenario(hospitals);
+    // Version du dernier snapshot publié : +1 à chaque publication (tick ou mutation)
+    private long version = 0;
+
+    // Hôpitaux supprimés (id → version de la suppression), pour les réponses différentielles.
+    // On n'en garde que les MAX_TOMBSTONES derniers ; removedHorizon est la version de la plus
+    // récente suppression oubliée (un client plus ancien que ça reçoit l'état complet).
+    private static final int MAX_TOMBSTONES = 1024;
+    private final LinkedHashMap<Integer, Long> tombstones = new LinkedHashMap<>();
+    private Map<Integer, Long> publishedTombstones = Map.of();
+    private long removedHorizon = 0;
+
+    // Commandes en attente (plusieurs producteurs, un seul consommateur) ; le réveil prévient
+    // le thread de la simulation qu'il y en a (null : pas de thread, l'appelant les applique)
+    private final Queue<Command<?>> commands = new ConcurrentLinkedQueue<>();
+    private volatile Runnable commandWakeup;
+    // Une commande appliquée a modifié la carte : snapshot à publier à la fin du lot
+    private boolean changed;
+
+    /**
+     * Une modification en attente ; son résultat (ou son erreur) est gardé jusqu'à la publication.
+     */
+    private static final class Command<T> {
+        private final Supplier<T> action;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private T value;
+        private RuntimeException error;
+
+        Command(Supplier<T> action) {
+            this.action = action;
+        }
+
+        void apply() {
+            try {
+                value = action.get();
+            } catch (RuntimeException e) {
+                error = e;
+            }
+        }
+
+        void complete() {
+            if (error != null) {
+                result.completeExceptionally(error);
+            } else {
+                result.complete(value);
+            }
+        }
     }
 
-    public static List<Hospital> getAllHospitals() {
-        return hospitals;
+    @Autowired
+    public HospitalService(SimulationProperties properties, TickEngine tickEngine, SimulationMetrics metrics,
+                           TickBroadcaster broadcaster, JournalService journal, UnitHistory history) {
+        this(properties, tickEngine, metrics, broadcaster, journal, history, Clock.getClock(),
+                properties.getSeed() != null ? properties.getSeed() : RandomStreams.newMasterSeed());
     }
 
-    public List<HospitalDTO> getHospitalsWithServices() {
+    /**
+     * Simulation d'une session : horloge propre, ni métriques ni journal.
+     */
+    HospitalService(SimulationProperties properties, TickEngine tickEngine, TickBroadcaster broadcaster,
+                    UnitHistory history, long masterSeed) {
+        this(properties, tickEngine, null, broadcaster, null, history, new Clock(), masterSeed);
+    }
+
+    private HospitalService(SimulationProperties properties, TickEngine tickEngine, SimulationMetrics metrics,
+                            TickBroadcaster broadcaster, JournalService journal, UnitHistory history,
+                            Clock clock, long masterSeed) {
+        this.properties = properties;
+        this.tickEngine = tickEngine;
+        this.metrics = metrics;
+        this.broadcaster = broadcaster;
+        this.journal = journal;
+        this.history = history;
+        this.clock = clock;
+        this.spatialIndex = new SpatialIndex(properties.getNeighborCellSize());
+        this.masterSeed = masterSeed;
+        scenario = new ArrivalScenario(hospitals, RandomStreams.stream(masterSeed, RandomStreams.SCENARIO_STREAM), clock);
+    }
+
+    /**
+     * Avance la simulation d'une heure pour tous les hôpitaux.
+     * Appelé uniquement par le {@link TickScheduler}, jamais par les routes de lecture.
+     */
+    public void tick() {
+        applyCommands();
+        lock.lock();
+        try {
+            if (journal != null) journal.beforeTick(tickCount, this::captureCheckpoint);
+            long start = System.nanoTime();
+            Map<Integer, Map<String, Integer>> exits = tickEngine.tick(hospitals, scenario);
+            clock.addOneHour();
+            tickCount++;
+            if (metrics != null) metrics.afterTick(hospitals, System.nanoTime() - start);
+            if (journal != null) journal.recordTick(tickCount, clock.getTime(), scenario.isInEvent(), hospitals, exits);
+            history.record(tickCount, hospitals, exits);
+            publishSnapshot(exits);
+        } finally {
+            lock.unlock();
+        }
+    }
 
+    /**
+     * Applique les commandes en attente, publie un snapshot si au moins une a été appliquée,
+     * puis complète leurs résultats. Appelé par le thread de la simulation entre deux ticks.
+     *
+     * @return nombre de commandes appliquées
+     */
+    public int applyCommands() {
+        if (commands.isEmpty()) return 0;
+        List<Command<?>> applied = new ArrayList<>();
+        lock.lock();
+        try {
+            Command<?> command;
+            while ((command = commands.poll()) != null) {
+                command.apply();
+                applied.add(command);
+            }
+            if (changed) {
+                changed = false;
+                publishSnapshot(Map.of());
+            }
+        } finally {
+            lock.unlock();
+        }
+        // Résultats rendus après la publication (l'appelant relit déjà son changement), hors du verrou
+        applied.forEach(Command::complete);
+        return applied.size();
+    }
+
+    /**
+     * Thread qui applique les commandes (voir {@link TickScheduler}) : "wakeup" le réveille quand
+     * une commande arrive. null : les commandes sont appliquées par le thread qui les soumet.
+     */
+    public void setCommandWakeup(Runnable wakeup) {
+        this.commandWakeup = wakeup;
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> action) {
+        Command<T> command = new Command<>(action);
+        commands.add(command);
+        Runnable wakeup = commandWakeup;
+        if (wakeup != null) {
+            wakeup.run();
+        } else {
+            applyCommands();
+        }
+        return command.result;
+    }
+
+    /**
+     * Premier snapshot de version supérieure à "version" : tout de suite s'il est déjà publié,
+     * sinon à la prochaine publication (tick ou modification). Sans verrou.
+     */
+    public CompletableFuture<SimulationSnapshot> awaitSnapshotAfter(long version) {
+        // Le futur est lu avant le snapshot : une publication entre les deux le complète
+        CompletableFuture<SimulationSnapshot> next = nextSnapshot.get();
+        SimulationSnapshot current = snapshot.get();
+        return current.version() > version ? CompletableFuture.completedFuture(current) : next;
+    }
+
+    /**
+     * Nombre d'attentes en cours sur la prochaine publication.
+     */
+    public int getSnapshotWaiters() {
+        return nextSnapshot.get().getNumberOfDependents();
+    }
+
+    /**
+     * Dernier snapshot publié (jamais null).
+     */
+    public SimulationSnapshot getSnapshot() {
+        return snapshot.get();
+    }
+
+    /**
+     * Construit un nouveau snapshot à partir de l'état vivant et le publie atomiquement.
+     * Doit être appelé sous le verrou du service (tick ou mutation).
+     */
+    private void publishSnapshot(Map<Integer, Map<String, Integer>> exits) {
+        SimulationSnapshot previous = snapshot.get();
+        version++;
+        List<HospitalSnapshot> hs = new ArrayList<>(hospitals.size());
         for (Hospital h : hospitals) {
-            h.simulateOneTick(scenario);
+            hs.add(HospitalSnapshot.of(h, exits.getOrDefault(h.getId(), Map.of()), previous.hospital(h.getId()), version));
         }
-        return hospitals.stream()
-                .map(this::toHospitalDTO)
+        SimulationSnapshot published = new SimulationSnapshot(tickCount, clock.getTime(), version, hs,
+                publishedTombstones, removedHorizon);
+        snapshot.set(published);
+        nextSnapshot.getAndSet(new CompletableFuture<>()).complete(published);
+        broadcaster.publish(published);
+    }
+
+    /**
+     * Retourne l'état du dernier tick de tous les hôpitaux, sans faire avancer la simulation.
+     * Lecture sans verrou sur le snapshot publié.
+     */
+    public List<HospitalDTO> getHospitalsWithServices() {
+        return getHospitalsWithServices(snapshot.get());
+    }
+
+    /**
+     * Tous les hôpitaux d'un snapshot déjà lu (pour que le corps et l'ETag portent la même version).
+     */
+    public List<HospitalDTO> getHospitalsWithServices(SimulationSnapshot snapshot) {
+        return snapshot.hospitals().stream()
+                .map(HospitalDTO::of)
                 .toList();
     }
 
+    /**
+     * Ce qui a changé dans "snapshot" depuis la version "since" : seulement les unités dont la charge
+     * ou la capacité a changé (regroupées par hôpital) et les ids des hôpitaux supprimés.
+     * La sérialisation ne coûte que ce qui a changé.
+     * <p>
+     * État complet (full = true) si "since" ne permet pas de calculer la différence :
+     * 0 ou négatif, plus récent que le snapshot (serveur redémarré), ou plus ancien que les
+     * suppressions dont on se souvient.
+     */
+    public HospitalChangesDTO getChanges(SimulationSnapshot snapshot, long since) {
+        if (since <= 0 || since > snapshot.version() || since < snapshot.removedHorizon()) {
+            return new HospitalChangesDTO(snapshot.version(), true, getHospitalsWithServices(snapshot), List.of());
+        }
+        List<HospitalDTO> changed = new ArrayList<>();
+        for (HospitalSnapshot h : snapshot.hospitals()) {
+            if (h.version() > since) {
+                changed.add(HospitalDTO.changedSince(h, since));
+            }
+        }
+        List<Integer> removed = new ArrayList<>();
+        snapshot.removed().forEach((id, removedAt) -> {
+            if (removedAt > since) removed.add(id);
+        });
+        return new HospitalChangesDTO(snapshot.version(), false, changed, removed);
+    }
+
     private Map<String, Object> convertObjectToMap(Object obj) {
         Map<String, Object> map = new HashMap<>();
         try {
@@ -59,50 +369,120 @@ public class HospitalService {
 
     // Modification pour retourner les services avec la capacité maximale et occupée
     public List<ServiceDTO> getHospitalServices(Long id) {
-        // Recherche de l'hôpital par ID
-        Hospital hospital = hospitals.stream()
-                .filter(h -> h.getId() == id)
-                .findFirst()
-                .orElse(null);
+        // Recherche de l'hôpital par ID (dans l'index du snapshot, sans verrou)
+        HospitalSnapshot hospital = isValidId(id) ? snapshot.get().hospital(id.intValue()) : null;
 
         // Si l'hôpital existe, transformer les services en Map avec capacité
         if (hospital != null) {
-            return hospital.getUnits().stream()
-                    .map(u -> new ServiceDTO(u.getName(), u.getMaxCapacity(), u.getCurrentLoad()))
-                    .toList();
+            return HospitalDTO.of(hospital).services();
         }
         return null; // Retourner null si l'hôpital n'est pas trouvé
     }
 
-    public Hospital createHospital(Hospital hospital) {
-        hospital.setId(nextId++);
-        for (Hospital h : hospitals) {
-            h.addNeighbor(hospital);
-            hospital.addNeighbor(h);
+    /**
+     * Historique d'une unité entre les ticks "from" et "to", ramené à au plus "points" intervalles.
+     */
+    public UnitHistory.Range getUnitHistory(Long id, String unitName, long from, long to, int points) {
+        if (!isValidId(id)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Hôpital non trouvé : " + id);
+        }
+        try {
+            return history.query(id.intValue(), unitName, from, to, points);
+        } catch (NoSuchElementException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        }
+    }
+
+    public CompletableFuture<Hospital> createHospital(Hospital hospital) {
+        return submit(() -> applyCreateHospital(hospital));
+    }
+
+    public CompletableFuture<Boolean> deleteHospital(Long id) {
+        return submit(() -> applyDeleteHospital(id));
+    }
+
+    public CompletableFuture<Boolean> updateMaxCapacityUnit(long id, String unitName, double newMaxCapacity) {
+        return submit(() -> applyMaxCapacity(id, unitName, (int) newMaxCapacity));
+    }
+
+    /**
+     * Plusieurs changements de capacité en une seule commande (un seul snapshot publié).
+     */
+    public CompletableFuture<CapacityBatchResult> updateMaxCapacities(List<CapacityChange> changes) {
+        List<CapacityChange> copy = List.copyOf(changes);
+        return submit(() -> {
+            int applied = 0;
+            List<CapacityChange> notFound = new ArrayList<>();
+            for (CapacityChange change : copy) {
+                if (applyMaxCapacity(change.hospitalId(), change.serviceName(), change.maxCapacity())) {
+                    applied++;
+                } else {
+                    notFound.add(change);
+                }
+            }
+            return new CapacityBatchResult(applied, notFound);
+        });
+    }
+
+    public CompletableFuture<Void> deleteAllHospitals() {
+        return submit(() -> {
+            applyDeleteAllHospitals();
+            return null;
+        });
+    }
+
+    // ----- Application des commandes (thread de la simulation, sous le verrou) -----
+
+    private Hospital applyCreateHospital(Hospital hospital) {
+        if (properties.getPatientModel() != PatientModel.INDIVIDUAL) {
+            // Le JSON reçu construit des unités individuelles : on reconstruit l'hôpital dans le bon mode
+            Hospital received = hospital;
+            hospital = new Hospital(0, received.getName(), received.getFlowManager(), properties.getPatientModel());
+            hospital.setRow(received.getRow());
+            hospital.setCol(received.getCol());
         }
+        hospital.setId(nextId++);
+        hospital.seedRandom(masterSeed);
+        hospital.setClock(clock);
+        List<Hospital> relinked = linkToNearest(hospital);
+        spatialIndex.insert(hospital);
         hospitals.add(hospital);
+        hospitalsById.put(hospital.getId(), hospital);
+        if (metrics != null) metrics.hospitalsChanged(hospitals);
+        if (journal != null) journal.recordCreate(tickCount, hospital, relinked);
+        history.add(hospital);
+        changed = true;
         return hospital;
     }
 
-    public boolean deleteHospital(Long id) {
-        return hospitals.removeIf(h -> h.getId() == id);
+    private boolean applyDeleteHospital(Long id) {
+        Hospital deleted = isValidId(id) ? hospitalsById.remove(id.intValue()) : null;
+        if (deleted == null) {
+            return false;
+        }
+        if (metrics != null) metrics.retire(deleted);
+        hospitals.remove(deleted);
+        List<Hospital> relinked = unlink(deleted);
+        tombstone(deleted);
+        publishTombstones();
+        if (metrics != null) metrics.hospitalsChanged(hospitals);
+        if (journal != null) journal.recordDelete(tickCount, deleted.getId(), relinked);
+        history.remove(deleted.getId());
+        changed = true;
+        return true;
     }
 
-    public boolean updateMaxCapacityUnit(long id, String unitName, double newMaxCapacity) {
-        Hospital hospital = hospitals.stream()
-                .filter(h -> h.getId() == id)
-                .findFirst()
-                .orElse(null);
+    private boolean applyMaxCapacity(long id, String unitName, int newMaxCapacity) {
+        Hospital hospital = isValidId(id) ? hospitalsById.get((int) id) : null;
         if (hospital != null) {
-            // Recherche du unit par nom dans l'hôpital
-            HospitalUnit hospitalUnit = hospital.getUnits().stream()
-                    .filter(s -> s.getName().equalsIgnoreCase(unitName))
-                    .findFirst()
-                    .orElse(null);
+            // Recherche du unit par type (nom résolu une fois dans le registre UnitKind)
+            HospitalUnit hospitalUnit = hospital.findUnit(UnitKind.idOf(unitName));
 
             if (hospitalUnit != null) {
                 // Mise à jour de la capacité maximale du unit
-                hospitalUnit.setMaxCapacity((int) newMaxCapacity);
+                hospitalUnit.setMaxCapacity(newMaxCapacity);
+                if (journal != null) journal.recordCapacity(tickCount, hospital.getId(), hospitalUnit, newMaxCapacity);
+                changed = true;
                 return true; // La mise à jour a réussi
             }
         }
@@ -110,17 +490,229 @@ public class HospitalService {
     }
 
     /**
-     * Convertit un Hospital en DTO, en copiant seulement les champs utiles.
-     * On exclut 'neighbors' pour éviter la récursion.
+     * Copie de la carte actuelle, sans patients : mêmes ids, noms, positions, capacités
+     * et voisinages. Sert de point de départ aux simulations hors ligne (voir BatchRunService),
+     * qui ne touchent jamais aux hôpitaux vivants.
      */
-    private HospitalDTO toHospitalDTO(Hospital h) {
-        List<ServiceDTO> serviceDTOs = h.getUnits().stream()
-                .map(u -> new ServiceDTO(u.getName(), u.getMaxCapacity(), u.getCurrentLoad()))
-                .toList();
-        return new HospitalDTO(h.getId(), h.getName(), serviceDTOs);
+    public List<Hospital> copyNetwork(PatientModel model) {
+        lock.lock();
+        try {
+            List<Hospital> copies = new ArrayList<>(hospitals.size());
+            Map<Integer, Hospital> copiesById = new HashMap<>(hospitals.size() * 2);
+            for (Hospital h : hospitals) {
+                FlowManager fm = h.getFlowManager();
+                Hospital copy = new Hospital(h.getId(), h.getName(),
+                        new FlowManager(fm.getFlowCoefficient(), fm.getLateralCoefficient(), fm.getLateralThreshold()), model);
+                copy.setRow(h.getRow());
+                copy.setCol(h.getCol());
+                for (HospitalUnit unit : h.getUnits()) {
+                    HospitalUnit target = copy.findUnit(unit.getKind());
+                    if (target != null) {
+                        target.setMaxCapacity(unit.getMaxCapacity());
+                        target.setObstacle(unit.isObstacle());
+                    }
+                }
+                copies.add(copy);
+                copiesById.put(copy.getId(), copy);
+            }
+            for (Hospital h : hospitals) {
+                Hospital copy = copiesById.get(h.getId());
+                for (Hospital neighbor : h.getNeighbors()) {
+                    Hospital n = copiesById.get(neighbor.getId());
+                    if (n != null) {
+                        copy.addNeighbor(n);
+                    }
+                }
+            }
+            return copies;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Installe dans une simulation encore vide un réseau déjà relié (voir {@link #copyNetwork}),
+     * en gardant ses ids ; ses unités passent sur l'horloge et les générateurs de cette simulation.
+     */
+    void adoptNetwork(List<Hospital> network) {
+        lock.lock();
+        try {
+            if (!hospitals.isEmpty()) {
+                throw new IllegalStateException("La simulation a déjà des hôpitaux");
+            }
+            for (Hospital h : network) {
+                h.seedRandom(masterSeed);
+                h.setClock(clock);
+                spatialIndex.insert(h);
+                hospitals.add(h);
+                hospitalsById.put(h.getId(), h);
+                nextId = Math.max(nextId, h.getId() + 1);
+                history.add(h);
+            }
+            publishSnapshot(Map.of());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Relie un nouvel hôpital à ses k plus proches voisins (dans les deux sens) au lieu de tous
+     * les autres. Un hôpital existant qui le trouve plus proche que son voisin le plus lointain
+     * l'adopte et oublie ce dernier : chacun garde au plus k voisins, triés par distance.
+     * Les candidats à cette mise à jour sont ses 2k plus proches voisins (approximation des
+     * "voisins inverses", suffisante pour des hôpitaux répartis sur la carte).
+     *
+     * @return les hôpitaux existants dont les voisins ont changé
+     */
+    private List<Hospital> linkToNearest(Hospital hospital) {
+        int k = properties.getNeighborCount();
+        double radius = properties.getNeighborRadius();
+        List<Hospital> candidates = spatialIndex.nearest(hospital.getRow(), hospital.getCol(), 2 * k, radius, hospital);
+        List<Hospital> relinked = new ArrayList<>();
+
+        for (int i = 0; i < candidates.size(); i++) {
+            Hospital other = candidates.get(i);
+            if (i < k) {
+                hospital.addNeighborByDistance(other);
+            }
+            List<Hospital> theirs = other.getNeighbors();
+            if (theirs.size() < k) {
+                other.addNeighborByDistance(hospital);
+                relinked.add(other);
+            } else if (other.distanceTo(hospital) < other.distanceTo(theirs.get(theirs.size() - 1))) {
+                other.removeNeighbor(theirs.get(theirs.size() - 1));
+                other.addNeighborByDistance(hospital);
+                relinked.add(other);
+            }
+        }
+        return relinked;
+    }
+
+    /**
+     * Retire un hôpital supprimé du graphe : ceux qui l'avaient pour voisin se trouvent
+     * un remplaçant parmi leurs plus proches voisins. Parcours de toute la liste (suppression rare).
+     *
+     * @return les hôpitaux dont les voisins ont changé
+     */
+    private List<Hospital> unlink(Hospital removed) {
+        spatialIndex.remove(removed);
+        int k = properties.getNeighborCount();
+        double radius = properties.getNeighborRadius();
+        List<Hospital> relinked = new ArrayList<>();
+        for (Hospital h : hospitals) {
+            if (!h.getNeighbors().contains(removed)) continue;
+            relinked.add(h);
+            h.removeNeighbor(removed);
+            for (Hospital candidate : spatialIndex.nearest(h.getRow(), h.getCol(), k, radius, h)) {
+                if (h.getNeighbors().size() >= k) break;
+                h.addNeighborByDistance(candidate);
+            }
+        }
+        return relinked;
+    }
+
+    /**
+     * Note la suppression d'un hôpital avec la version du snapshot qui va la publier.
+     * Au-delà de MAX_TOMBSTONES, la plus ancienne est oubliée et recule l'horizon.
+     */
+    private void tombstone(Hospital removed) {
+        tombstones.put(removed.getId(), version + 1);
+        if (tombstones.size() > MAX_TOMBSTONES) {
+            Iterator<Map.Entry<Integer, Long>> oldest = tombstones.entrySet().iterator();
+            removedHorizon = oldest.next().getValue();
+            oldest.remove();
+        }
+    }
+
+    // Copie immuable pour les snapshots, refaite seulement quand une suppression a eu lieu
+    private void publishTombstones() {
+        publishedTombstones = Map.copyOf(tombstones);
+    }
+
+    /**
+     * Copie l'état complet de la simulation (voir {@link SimulationCheckpoint}), entre deux ticks.
+     * L'écriture du fichier se fait ensuite hors du verrou (voir CheckpointService).
+     */
+    public SimulationCheckpoint.Capture captureCheckpoint() {
+        lock.lock();
+        try {
+            return SimulationCheckpoint.capture(properties.getPatientModel(), masterSeed, tickCount, clock,
+                    nextId, scenario, hospitals);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Remplace toute la simulation par celle d'un checkpoint : hôpitaux, patients, scénario,
+     * générateurs, horloge, numéro de tick. Les clients des réponses différentielles
+     * reçoivent ensuite l'état complet.
+     * <p>
+     * Le fichier est lu et décodé par l'appelant, hors du verrou (le tick continue pendant ce
+     * temps) ; seul le remplacement passe par la file des commandes, entre deux ticks.
+     *
+     * @throws IOException fichier illisible ou corrompu (rien n'est remplacé)
+     */
+    public CompletableFuture<SimulationCheckpoint.Restored> restoreCheckpoint(Path file) throws IOException {
+        // Horloge à part le temps du décodage : les hôpitaux passent sur celle du service au remplacement
+        SimulationCheckpoint.Restored restored = SimulationCheckpoint.read(file, new Clock(EventSink.none()));
+        if (restored.patientModel() != properties.getPatientModel()) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Checkpoint en mode " + restored.patientModel()
+                    + ", simulation en mode " + properties.getPatientModel());
+        }
+        return submit(() -> applyRestore(restored));
+    }
+
+    private SimulationCheckpoint.Restored applyRestore(SimulationCheckpoint.Restored restored) {
+        if (metrics != null) hospitals.forEach(metrics::retire);
+        hospitals.forEach(spatialIndex::remove);
+        hospitals.clear();
+        hospitalsById.clear();
+        for (Hospital h : restored.hospitals()) {
+            h.setClock(clock);
+            spatialIndex.insert(h);
+            hospitals.add(h);
+            hospitalsById.put(h.getId(), h);
+        }
+        restored.resetClock(clock);
+        scenario = restored.scenario(hospitals, clock);
+        masterSeed = restored.masterSeed();
+        nextId = restored.nextId();
+        tickCount = restored.tick();
+
+        // Les ids peuvent revenir : on oublie les suppressions, et toute version antérieure
+        // à la prochaine publication recevra l'état complet
+        tombstones.clear();
+        publishTombstones();
+        removedHorizon = version + 1;
+
+        if (metrics != null) {
+            metrics.adopt(hospitals);
+            metrics.hospitalsChanged(hospitals);
+        }
+        if (journal != null) journal.recordRestore(tickCount);
+        history.reset(hospitals);
+        changed = true;
+        return restored;
+    }
+
+    /**
+     * Les ids d'hôpitaux sont des int ; un id hors de cette plage ne désigne aucun hôpital.
+     */
+    private static boolean isValidId(Long id) {
+        return id != null && id == id.intValue();
     }
 
-    public void deleteAllHospitals() {
+    private void applyDeleteAllHospitals() {
+        if (metrics != null) hospitals.forEach(metrics::retire);
+        hospitals.forEach(spatialIndex::remove);
+        hospitals.forEach(this::tombstone);
+        publishTombstones();
         hospitals.clear();
+        hospitalsById.clear();
+        if (metrics != null) metrics.hospitalsChanged(hospitals);
+        if (journal != null) journal.recordDeleteAll(tickCount);
+        history.reset(List.of());
+        changed = true;
     }
 }
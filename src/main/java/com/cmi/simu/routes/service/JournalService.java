@@ -0,0 +1,151 @@
+package com.cmi.simu.routes.service;
+
+import com.cmi.simu.flow.Hospital;
+import com.cmi.simu.flow.HospitalSnapshot;
+import com.cmi.simu.flow.HospitalUnit;
+import com.cmi.simu.flow.SimulationCheckpoint;
+import com.cmi.simu.flow.TickJournal;
+import com.cmi.simu.routes.config.SimulationProperties;
+import com.cmi.simu.routes.records.HospitalDTO;
+import com.cmi.simu.routes.records.JournalStateDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Journal des ticks de la simulation du serveur (voir {@link TickJournal}), si simu.journal-enabled.
+ * {@link HospitalService} le tient à jour ; sans journal, ces appels ne font rien.
+ */
+@Service
+public class JournalService implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(JournalService.class);
+
+    private final TickJournal journal;
+
+    public JournalService(SimulationProperties properties) {
+        TickJournal opened = null;
+        if (properties.isJournalEnabled()) {
+            try {
+                opened = new TickJournal(Path.of(properties.getJournalDir()), properties.getJournalBaseIntervalTicks(),
+                        properties.getJournalBaseRetention());
+            } catch (IOException e) {
+                log.error("Journal des ticks désactivé", e);
+            }
+        }
+        this.journal = opened;
+    }
+
+    public boolean isEnabled() {
+        return journal != null;
+    }
+
+    // ----- Écriture (appelé par HospitalService, sous son verrou) -----
+
+    void beforeTick(long tick, Supplier<SimulationCheckpoint.Capture> capture) {
+        if (journal != null) journal.beforeTick(tick, capture);
+    }
+
+    void recordTick(long tick, int hour, boolean inEvent, List<Hospital> hospitals,
+                    Map<Integer, Map<String, Integer>> exits) {
+        if (journal != null) journal.recordTick(tick, hour, inEvent, hospitals, exits);
+    }
+
+    void recordCapacity(long tick, int hospitalId, HospitalUnit unit, int maxCapacity) {
+        if (journal != null) journal.recordCapacity(tick, hospitalId, unit, maxCapacity);
+    }
+
+    void recordCreate(long tick, Hospital hospital, List<Hospital> relinked) {
+        if (journal != null) journal.recordCreate(tick, hospital, relinked);
+    }
+
+    void recordDelete(long tick, int hospitalId, List<Hospital> relinked) {
+        if (journal != null) journal.recordDelete(tick, hospitalId, relinked);
+    }
+
+    void recordDeleteAll(long tick) {
+        if (journal != null) journal.recordDeleteAll(tick);
+    }
+
+    void recordRestore(long tick) {
+        if (journal != null) journal.recordRestore(tick);
+    }
+
+    // ----- Lecture -----
+
+    /**
+     * Valeurs journalisées à la fin d'un tick (lecture directe, sans rejeu).
+     */
+    public TickJournal.TickEntry getTick(long tick) {
+        try {
+            return requireJournal().readTick(tick);
+        } catch (NoSuchElementException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, e.getMessage(), e);
+        } catch (CompletionException e) {
+            throw writeFailure(e);
+        }
+    }
+
+    /**
+     * Un hôpital tel que journalisé à la fin d'un tick.
+     */
+    public TickJournal.HospitalEntry getHospital(long tick, int hospitalId) {
+        return getTick(tick).hospitals().stream()
+                .filter(h -> h.id() == hospitalId)
+                .findFirst()
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
+                        "Hôpital " + hospitalId + " absent au tick " + tick));
+    }
+
+    /**
+     * État complet à la fin d'un tick passé, reconstruit par rejeu (voir {@link TickJournal#replay}).
+     */
+    public JournalStateDTO replay(long tick) {
+        try {
+            TickJournal.Replayed replayed = requireJournal().replay(tick);
+            List<HospitalDTO> hospitals = replayed.hospitals().stream()
+                    .map(h -> HospitalDTO.of(HospitalSnapshot.of(h, replayed.exits().getOrDefault(h.getId(), Map.of()))))
+                    .toList();
+            return new JournalStateDTO(replayed.tick(), replayed.hour(), replayed.verified(), replayed.replayed(), hospitals);
+        } catch (NoSuchElementException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, e.getMessage(), e);
+        } catch (CompletionException e) {
+            throw writeFailure(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (journal != null) journal.close();
+    }
+
+    /**
+     * Attente d'écriture interrompue par une erreur du thread d'écriture : 503, avec sa cause.
+     */
+    private static ResponseStatusException writeFailure(CompletionException e) {
+        Throwable cause = e.getCause() != null ? e.getCause() : e;
+        return new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                "Écriture du journal en échec : " + cause.getMessage(), cause);
+    }
+
+    private TickJournal requireJournal() {
+        if (journal == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Journal des ticks désactivé (simu.journal-enabled)");
+        }
+        return journal;
+    }
+}
@@ -0,0 +1,241 @@
+package com.cmi.simu.routes.service;
+
+import com.cmi.simu.flow.RandomStreams;
+import com.cmi.simu.flow.TickEngine;
+import com.cmi.simu.flow.UnitHistory;
+import com.cmi.simu.routes.config.SimulationProperties;
+import com.cmi.simu.routes.records.SessionInfo;
+import com.cmi.simu.routes.records.SessionRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Sessions de simulation isolées ("et si...") : chacune a sa propre simulation, avancée à la
+ * demande, à côté de celle du serveur qui continue de tourner.
+ * <p>
+ * Les sessions sont évincées (et leur mémoire libérée) après simu.session-idle-minutes sans
+ * accès, et de la moins récemment utilisée à la plus récente quand leur nombre ou leur mémoire
+ * estimée dépasse les limites configurées. Une session qui dépasse à elle seule le budget mémoire
+ * est refusée (507) : à la création, ou dès qu'elle l'atteint en avançant (elle s'arrête là).
+ */
+@Service
+public class SessionService implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(SessionService.class);
+
+    private static final long SWEEP_SECONDS = 30;
+
+    private final SimulationProperties properties;
+    private final TickEngine tickEngine;
+    private final ObjectMapper objectMapper;
+    private final HospitalService serverSimulation;
+
+    // Verrou des sessions. Un ReentrantLock plutôt que synchronized : les requêtes tournent sur
+    // des threads virtuels, qui libèrent leur thread porteur en l'attendant
+    private final ReentrantLock lock = new ReentrantLock();
+    // Dans l'ordre d'accès : la première est la moins récemment utilisée (sous le verrou)
+    private final LinkedHashMap<String, SimulationSession> sessions = new LinkedHashMap<>(16, 0.75f, true);
+    private final ScheduledExecutorService sweeper =
+            Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name("session-sweeper").factory());
+
+    public SessionService(SimulationProperties properties, TickEngine tickEngine, ObjectMapper objectMapper,
+                          HospitalService serverSimulation) {
+        this.properties = properties;
+        this.tickEngine = tickEngine;
+        this.objectMapper = objectMapper;
+        this.serverSimulation = serverSimulation;
+        sweeper.scheduleWithFixedDelay(this::evictIdle, SWEEP_SECONDS, SWEEP_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public SessionInfo create(SessionRequest request) {
+        long seed = request != null && request.seed() != null ? request.seed() : RandomStreams.newMasterSeed();
+        TickBroadcaster broadcaster = new TickBroadcaster(objectMapper, properties);
+        UnitHistory history = new UnitHistory(properties.getSessionHistoryTicks(), properties.getHistoryMaxUnits());
+        HospitalService simulation = new HospitalService(properties, tickEngine, broadcaster, history, seed);
+        SimulationSession session = new SimulationSession(UUID.randomUUID().toString(), simulation, broadcaster, history);
+        if (request != null && request.copyNetwork()) {
+            simulation.adoptNetwork(serverSimulation.copyNetwork(properties.getPatientModel()));
+        }
+
+        if (session.estimatedBytes() > budgetBytes()) {
+            session.close();
+            throw overBudget(session);
+        }
+
+        lock.lock();
+        try {
+            evictIdle();
+            while (sessions.size() >= Math.max(1, properties.getSessionMaxCount())) {
+                evictEldest();
+            }
+            sessions.put(session.getId(), session);
+        } finally {
+            lock.unlock();
+        }
+        enforceBudget(session);
+        return session.info();
+    }
+
+    /**
+     * Session existante (son accès compte pour l'éviction).
+     */
+    public SimulationSession get(String id) {
+        SimulationSession session;
+        lock.lock();
+        try {
+            session = sessions.get(id);
+        } finally {
+            lock.unlock();
+        }
+        if (session == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Session inconnue ou expirée : " + id);
+        }
+        session.touch();
+        return session;
+    }
+
+    public List<SessionInfo> list() {
+        lock.lock();
+        try {
+            List<SessionInfo> infos = new ArrayList<>(sessions.size());
+            for (SimulationSession session : sessions.values()) {
+                infos.add(session.info());
+            }
+            return infos;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean delete(String id) {
+        SimulationSession session;
+        lock.lock();
+        try {
+            session = sessions.remove(id);
+        } finally {
+            lock.unlock();
+        }
+        if (session == null) return false;
+        session.close();
+        return true;
+    }
+
+    /**
+     * Fait avancer la simulation d'une session de "hours" heures. Si elle atteint à elle seule
+     * le budget mémoire, elle s'arrête à cette heure-là et la demande est refusée (507).
+     */
+    public SessionInfo advance(String id, int hours) {
+        if (hours <= 0 || hours > properties.getSessionMaxAdvanceHours()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "hours doit être compris entre 1 et " + properties.getSessionMaxAdvanceHours());
+        }
+        SimulationSession session = get(id);
+        long budget = budgetBytes();
+        for (int h = 0; h < hours; h++) {
+            if (session.estimatedBytes() > budget) {
+                session.touch();
+                enforceBudget(session);
+                throw overBudget(session);
+            }
+            session.getSimulation().tick();
+        }
+        session.touch();
+        enforceBudget(session);
+        if (session.estimatedBytes() > budget) {
+            throw overBudget(session);
+        }
+        return session.info();
+    }
+
+    @Override
+    public void close() {
+        sweeper.shutdownNow();
+        List<SimulationSession> all;
+        lock.lock();
+        try {
+            all = new ArrayList<>(sessions.values());
+            sessions.clear();
+        } finally {
+            lock.unlock();
+        }
+        all.forEach(SimulationSession::close);
+    }
+
+    private void evictIdle() {
+        lock.lock();
+        try {
+            long idleLimit = TimeUnit.MINUTES.toNanos(properties.getSessionIdleMinutes());
+            long now = System.nanoTime();
+            Iterator<SimulationSession> it = sessions.values().iterator();
+            while (it.hasNext()) {
+                SimulationSession session = it.next();
+                if (session.idleNanos(now) > idleLimit) {
+                    it.remove();
+                    session.close();
+                    log.info("Session {} évincée (inactive)", session.getId());
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Évince les sessions les moins récemment utilisées (sauf "keep") tant que la mémoire estimée
+     * de l'ensemble dépasse le budget. "keep" seule au-delà du budget est laissée à l'appelant,
+     * qui refuse sa croissance.
+     */
+    private void enforceBudget(SimulationSession keep) {
+        lock.lock();
+        try {
+            long budget = budgetBytes();
+            long total = 0;
+            for (SimulationSession session : sessions.values()) {
+                total += session.estimatedBytes();
+            }
+            Iterator<SimulationSession> it = sessions.values().iterator();
+            while (total > budget && it.hasNext()) {
+                SimulationSession session = it.next();
+                if (session == keep) continue;
+                total -= session.estimatedBytes();
+                it.remove();
+                session.close();
+                log.info("Session {} évincée (budget mémoire)", session.getId());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long budgetBytes() {
+        return properties.getSessionMemoryBudgetMb() * 1024L * 1024L;
+    }
+
+    private ResponseStatusException overBudget(SimulationSession session) {
+        return new ResponseStatusException(HttpStatus.INSUFFICIENT_STORAGE,
+                "La session dépasse à elle seule le budget mémoire des sessions (" + session.estimatedBytes() / (1024 * 1024)
+                        + " Mo sur " + properties.getSessionMemoryBudgetMb() + " Mo)");
+    }
+
+    private void evictEldest() {
+        Iterator<SimulationSession> it = sessions.values().iterator();
+        SimulationSession session = it.next();
+        it.remove();
+        session.close();
+        log.info("Session {} évincée (nombre de sessions)", session.getId());
+    }
+}
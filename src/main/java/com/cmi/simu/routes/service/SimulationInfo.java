@@ -0,0 +1,35 @@
+package com.cmi.simu.routes.service;
+
+import com.cmi.simu.flow.SimulationSnapshot;
+import org.springframework.boot.actuate.info.Info;
+import org.springframework.boot.actuate.info.InfoContributor;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Identité de la simulation du serveur dans /actuator/info : la graine maître (à remettre dans
+ * simu.seed pour rejouer la même simulation) et le dernier tick publié. Pour une session, la
+ * graine est dans {@link com.cmi.simu.routes.records.SessionInfo}.
+ */
+@Component
+public class SimulationInfo implements InfoContributor {
+
+    private final HospitalService hospitalService;
+
+    public SimulationInfo(HospitalService hospitalService) {
+        this.hospitalService = hospitalService;
+    }
+
+    @Override
+    public void contribute(Info.Builder builder) {
+        SimulationSnapshot snapshot = hospitalService.getSnapshot();
+        Map<String, Object> simulation = new LinkedHashMap<>();
+        simulation.put("seed", hospitalService.getMasterSeed());
+        simulation.put("tick", snapshot.tick());
+        simulation.put("hour", snapshot.hour());
+        simulation.put("hospitals", snapshot.hospitals().size());
+        builder.withDetail("simulation", simulation);
+    }
+}
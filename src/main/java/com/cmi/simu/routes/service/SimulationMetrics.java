@@ -0,0 +1,163 @@
+package com.cmi.simu.routes.service;
+
+import com.cmi.simu.flow.Hospital;
+import com.cmi.simu.flow.HospitalUnit;
+import com.cmi.simu.flow.TickPhase;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Métriques Micrometer de la simulation (exposées par Actuator : /actuator/metrics, /actuator/prometheus).
+ * <p>
+ * Le moteur ne connaît pas Micrometer : il tient des compteurs primitifs cumulés (unités, hôpitaux,
+ * FlowSimulator). Après chaque tick, sous le verrou de {@link HospitalService}, on en fait la somme
+ * et on publie les totaux ; les compteurs Micrometer ne font que lire ces totaux au moment du scrape.
+ * Les hôpitaux supprimés sont "retirés" : leurs compteurs restent acquis, les totaux ne reculent pas.
+ */
+@Component
+public class SimulationMetrics {
+
+    // Totaux publiés, indexés par Total
+    private enum Total {ACCEPTED, REJECTED, DEATHS, ABSORPTIONS, INTRA_TRANSFERS, INTER_TRANSFERS}
+
+    private static final TickPhase[] PHASES = TickPhase.values();
+    private static final Total[] TOTALS = Total.values();
+
+    private final AtomicLongArray totals = new AtomicLongArray(TOTALS.length);
+    private final long[] retired = new long[TOTALS.length];
+    private final long[] sums = new long[TOTALS.length];
+
+    private final Timer tickTimer;
+    private final Timer[] phaseTimers = new Timer[PHASES.length];
+    private final long[] lastPhaseNanos = new long[PHASES.length];
+    private final long[] retiredPhaseNanos = new long[PHASES.length];
+
+    private final MultiGauge unitLoad;
+    private final MultiGauge unitUtilization;
+
+    public SimulationMetrics(MeterRegistry registry) {
+        this.tickTimer = Timer.builder("simu.tick.duration")
+                .description("Durée d'un tick complet (tous les hôpitaux)")
+                .register(registry);
+        for (TickPhase phase : PHASES) {
+            phaseTimers[phase.ordinal()] = Timer.builder("simu.tick.phase")
+                    .description("Temps passé dans une phase de simulateOneStep, cumulé sur les hôpitaux")
+                    .tag("phase", phase.name().toLowerCase())
+                    .register(registry);
+        }
+
+        counter(registry, "simu.arrivals", "Arrivées extérieures", Total.ACCEPTED, Tags.of("outcome", "accepted"));
+        counter(registry, "simu.arrivals", "Arrivées extérieures", Total.REJECTED, Tags.of("outcome", "rejected"));
+        counter(registry, "simu.deaths", "Décès pendant le traitement", Total.DEATHS, Tags.empty());
+        counter(registry, "simu.absorptions", "Sorties par absorption", Total.ABSORPTIONS, Tags.empty());
+        counter(registry, "simu.transfers", "Patients transférés", Total.INTRA_TRANSFERS, Tags.of("scope", "intra"));
+        counter(registry, "simu.transfers", "Patients transférés", Total.INTER_TRANSFERS, Tags.of("scope", "inter"));
+
+        this.unitLoad = MultiGauge.builder("simu.unit.load")
+                .description("Patients présents dans l'unité")
+                .register(registry);
+        this.unitUtilization = MultiGauge.builder("simu.unit.utilization")
+                .description("Charge de l'unité rapportée à maxCapacity")
+                .register(registry);
+    }
+
+    private void counter(MeterRegistry registry, String name, String description, Total total, Tags tags) {
+        int i = total.ordinal();
+        FunctionCounter.builder(name, totals, t -> t.get(i))
+                .description(description)
+                .tags(tags)
+                .register(registry);
+    }
+
+    /**
+     * Après un tick : durée totale, temps par phase et totaux cumulés.
+     */
+    public void afterTick(List<Hospital> hospitals, long tickNanos) {
+        tickTimer.record(tickNanos, TimeUnit.NANOSECONDS);
+
+        for (TickPhase phase : PHASES) {
+            int p = phase.ordinal();
+            long now = retiredPhaseNanos[p];
+            for (Hospital h : hospitals) {
+                now += h.getFlowSimulator().getPhaseNanos(phase);
+            }
+            phaseTimers[p].record(Math.max(0, now - lastPhaseNanos[p]), TimeUnit.NANOSECONDS);
+            lastPhaseNanos[p] = now;
+        }
+
+        publishTotals(hospitals);
+    }
+
+    /**
+     * Un hôpital va être supprimé : on garde ce qu'il a compté.
+     */
+    public void retire(Hospital hospital) {
+        add(hospital, retired);
+        for (TickPhase phase : PHASES) {
+            retiredPhaseNanos[phase.ordinal()] += hospital.getFlowSimulator().getPhaseNanos(phase);
+        }
+    }
+
+    /**
+     * Des hôpitaux arrivent avec des compteurs déjà cumulés (reprise de checkpoint) : ce qu'ils
+     * ont déjà compté sert de point de départ, seul ce qu'ils compteront ensuite s'ajoute aux totaux.
+     */
+    public void adopt(List<Hospital> hospitals) {
+        long[] counted = new long[TOTALS.length];
+        for (Hospital h : hospitals) {
+            add(h, counted);
+        }
+        for (int i = 0; i < counted.length; i++) {
+            retired[i] -= counted[i];
+        }
+    }
+
+    /**
+     * La liste des hôpitaux a changé : on refait les lignes des jauges par unité.
+     */
+    public void hospitalsChanged(List<Hospital> hospitals) {
+        List<MultiGauge.Row<?>> loads = new ArrayList<>();
+        List<MultiGauge.Row<?>> utilizations = new ArrayList<>();
+        for (Hospital h : hospitals) {
+            for (HospitalUnit unit : h.getUnits()) {
+                Tags tags = Tags.of("hospital", h.getName(), "hospitalId", String.valueOf(h.getId()), "unit", unit.getName());
+                loads.add(MultiGauge.Row.of(tags, unit, HospitalUnit::getCurrentLoad));
+                utilizations.add(MultiGauge.Row.of(tags, unit,
+                        u -> u.getMaxCapacity() > 0 ? (double) u.getCurrentLoad() / u.getMaxCapacity() : 0.0));
+            }
+        }
+        unitLoad.register(loads, true);
+        unitUtilization.register(utilizations, true);
+        publishTotals(hospitals);
+    }
+
+    private void publishTotals(List<Hospital> hospitals) {
+        System.arraycopy(retired, 0, sums, 0, sums.length);
+        for (Hospital h : hospitals) {
+            add(h, sums);
+        }
+        for (int i = 0; i < sums.length; i++) {
+            totals.set(i, sums[i]);
+        }
+    }
+
+    private static void add(Hospital h, long[] into) {
+        for (HospitalUnit unit : h.getUnits()) {
+            into[Total.ACCEPTED.ordinal()] += unit.getAcceptedArrivals();
+            into[Total.REJECTED.ordinal()] += unit.getRejectedArrivals();
+            into[Total.DEATHS.ordinal()] += unit.getDeaths();
+            into[Total.ABSORPTIONS.ordinal()] += unit.getAbsorptions();
+        }
+        into[Total.INTRA_TRANSFERS.ordinal()] += h.getFlowSimulator().getTransfers();
+        into[Total.INTER_TRANSFERS.ordinal()] += h.getInterHospitalTransfers();
+    }
+}
@@ -0,0 +1,74 @@
+package com.cmi.simu.routes.service;
+
+import com.cmi.simu.flow.HospitalSnapshot;
+import com.cmi.simu.flow.SimulationSnapshot;
+import com.cmi.simu.flow.UnitHistory;
+import com.cmi.simu.flow.UnitSnapshot;
+import com.cmi.simu.routes.records.SessionInfo;
+import lombok.Getter;
+
+/**
+ * Une session : une simulation isolée (son horloge, son scénario, ses hôpitaux) et ce qui lui
+ * appartient (flux SSE, historique hors tas), libéré quand la session est évincée.
+ */
+public class SimulationSession implements AutoCloseable {
+
+    // Estimation de la mémoire d'une session : part fixe, par unité (files ou histogramme,
+    // compteurs) et par patient présent. Sert seulement à comparer au budget des sessions.
+    private static final long BASE_BYTES = 64 * 1024;
+    private static final long UNIT_BYTES = 4 * 1024;
+    private static final long PATIENT_BYTES = 48;
+
+    @Getter
+    private final String id;
+    @Getter
+    private final HospitalService simulation;
+    @Getter
+    private final TickBroadcaster broadcaster;
+    private final UnitHistory history;
+
+    // Dernier accès (System.nanoTime), pour l'éviction des sessions inactives
+    private volatile long lastAccess = System.nanoTime();
+
+    SimulationSession(String id, HospitalService simulation, TickBroadcaster broadcaster, UnitHistory history) {
+        this.id = id;
+        this.simulation = simulation;
+        this.broadcaster = broadcaster;
+        this.history = history;
+    }
+
+    void touch() {
+        lastAccess = System.nanoTime();
+    }
+
+    long idleNanos(long now) {
+        return now - lastAccess;
+    }
+
+    /**
+     * Mémoire occupée par la session, estimée d'après son dernier snapshot.
+     */
+    public long estimatedBytes() {
+        long units = 0;
+        long patients = 0;
+        for (HospitalSnapshot h : simulation.getSnapshot().hospitals()) {
+            for (UnitSnapshot unit : h.units()) {
+                units++;
+                patients += unit.load();
+            }
+        }
+        return BASE_BYTES + units * UNIT_BYTES + patients * PATIENT_BYTES + history.reservedBytes();
+    }
+
+    public SessionInfo info() {
+        SimulationSnapshot snapshot = simulation.getSnapshot();
+        return new SessionInfo(id, simulation.getMasterSeed(), snapshot.tick(), snapshot.hour(),
+                snapshot.hospitals().size(), estimatedBytes(), idleNanos(System.nanoTime()) / 1_000_000_000L);
+    }
+
+    @Override
+    public void close() {
+        broadcaster.close();
+        history.close();
+    }
+}
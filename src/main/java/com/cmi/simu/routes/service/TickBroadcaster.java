@@ -0,0 +1,263 @@
+package com.cmi.simu.routes.service;
+
+import com.cmi.simu.flow.HospitalSnapshot;
+import com.cmi.simu.flow.SimulationSnapshot;
+import com.cmi.simu.routes.config.SimulationProperties;
+import com.cmi.simu.routes.records.HospitalDTO;
+import com.cmi.simu.routes.records.TickUpdate;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Pousse l'état de la simulation aux clients abonnés (Server-Sent Events), au lieu de les laisser
+ * interroger /api/hospitals/hospitals chacun de son côté.
+ * <p>
+ * Chaque snapshot publié est sérialisé une seule fois en une trame SSE complète ; les mêmes octets
+ * partent ensuite vers tous les abonnés. Chaque abonné a sa propre case "dernière trame" et
+ * s'écrit sur un thread virtuel à lui : un client lent ne retarde ni le tick ni les autres.
+ * Politique pour les clients lents : on ne garde que l'état le plus récent. Une trame pas encore
+ * envoyée est remplacée par la suivante (chaque trame est un état complet, rien ne se perd).
+ * <p>
+ * Sans abonné, rien n'est sérialisé.
+ */
+@Component
+public class TickBroadcaster implements AutoCloseable {
+
+    private static final byte[] EVENT_PREFIX = "event: tick\ndata: ".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] EVENT_SUFFIX = "\n\n".getBytes(StandardCharsets.UTF_8);
+
+    private final ObjectMapper objectMapper;
+    private final SimulationProperties properties;
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    // Places prises sous le plafond d'abonnés : réservée avant l'ajout, rendue au retrait
+    // (deux abonnements simultanés ne peuvent pas prendre la dernière place tous les deux)
+    private final AtomicInteger reserved = new AtomicInteger();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    // Dernier snapshot publié, et celui qui attend d'être sérialisé (null : rien en attente).
+    // Les publications sont numérotées : une trame porte le numéro de son snapshot.
+    private final AtomicLong versions = new AtomicLong();
+    private volatile Published lastPublished = new Published(0, SimulationSnapshot.EMPTY);
+    private final AtomicReference<Published> toEncode = new AtomicReference<>();
+    private final AtomicBoolean encoding = new AtomicBoolean();
+    private volatile Frame latestFrame;
+
+    // Statistiques cumulées
+    private final AtomicLong encodedFrames = new AtomicLong();
+    private final AtomicLong coalescedFrames = new AtomicLong();
+
+    public TickBroadcaster(ObjectMapper objectMapper, SimulationProperties properties) {
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+    }
+
+    /**
+     * Trame SSE prête à envoyer ; la version croît à chaque publication
+     * (un même tick peut être republié après une modification de la carte).
+     */
+    private record Frame(long version, byte[] bytes) {}
+
+    private record Published(long version, SimulationSnapshot snapshot) {}
+
+    /**
+     * Appelé à chaque nouveau snapshot (tick ou modification de la carte). Ne fait que noter
+     * le snapshot : la sérialisation se fait sur un autre thread.
+     */
+    public void publish(SimulationSnapshot snapshot) {
+        Published published = new Published(versions.incrementAndGet(), snapshot);
+        lastPublished = published;
+        if (!subscribers.isEmpty()) {
+            requestEncode(published);
+        }
+    }
+
+    /**
+     * Nouvel abonné : il reçoit tout de suite l'état courant, puis chaque tick.
+     */
+    public ResponseBodyEmitter subscribe() {
+        int max = properties.getStreamMaxSubscribers();
+        int taken;
+        do {
+            taken = reserved.get();
+            if (taken >= max) {
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Trop d'abonnés au flux");
+            }
+        } while (!reserved.compareAndSet(taken, taken + 1));
+
+        // Pas d'expiration : un client parti est détecté à la première écriture qui échoue
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(0L);
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        emitter.onError(e -> unsubscribe(subscriber));
+        subscribers.add(subscriber);
+
+        // La dernière trame si elle existe ; si elle n'est plus à jour (pas de sérialisation
+        // sans abonné), on sérialise le dernier snapshot, qui partira vers tous les abonnés
+        Frame frame = latestFrame;
+        Published published = lastPublished;
+        if (frame != null) {
+            subscriber.offer(frame);
+        }
+        if (frame == null || frame.version() < published.version()) {
+            requestEncode(published);
+        }
+        return emitter;
+    }
+
+    /**
+     * Retire un abonné et rend sa place ; sans effet s'il est déjà parti
+     * (plusieurs rappels de l'emitter peuvent arriver pour le même client).
+     */
+    private void unsubscribe(Subscriber subscriber) {
+        if (subscribers.remove(subscriber)) {
+            reserved.decrementAndGet();
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    public long getEncodedFrames() {
+        return encodedFrames.get();
+    }
+
+    /**
+     * Trames remplacées par une plus récente avant d'avoir pu partir vers un client lent.
+     */
+    public long getCoalescedFrames() {
+        return coalescedFrames.get();
+    }
+
+    @Override
+    public void close() {
+        for (Subscriber subscriber : subscribers) {
+            unsubscribe(subscriber);
+            subscriber.emitter.complete();
+        }
+        executor.shutdownNow();
+    }
+
+    private void requestEncode(Published published) {
+        toEncode.set(published);
+        if (encoding.compareAndSet(false, true)) {
+            executor.execute(this::encodeLoop);
+        }
+    }
+
+    /**
+     * Sérialise le dernier snapshot en attente et le distribue ; si d'autres snapshots arrivent
+     * pendant ce temps, seul le plus récent est sérialisé au tour suivant.
+     */
+    private void encodeLoop() {
+        try {
+            Published published;
+            while ((published = toEncode.getAndSet(null)) != null) {
+                Frame frame = encode(published);
+                if (latestFrame == null || frame.version() > latestFrame.version()) {
+                    latestFrame = frame;
+                }
+                encodedFrames.incrementAndGet();
+                for (Subscriber subscriber : subscribers) {
+                    subscriber.offer(frame);
+                }
+            }
+        } finally {
+            encoding.set(false);
+        }
+        if (toEncode.get() != null && encoding.compareAndSet(false, true)) {
+            executor.execute(this::encodeLoop);
+        }
+    }
+
+    private Frame encode(Published published) {
+        SimulationSnapshot snapshot = published.snapshot();
+        List<HospitalDTO> hospitals = new ArrayList<>(snapshot.hospitals().size());
+        for (HospitalSnapshot h : snapshot.hospitals()) {
+            hospitals.add(HospitalDTO.of(h));
+        }
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(new TickUpdate(snapshot.tick(), snapshot.hour(), hospitals));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+        long version = published.version();
+        byte[] id = ("id: " + version + "\n").getBytes(StandardCharsets.UTF_8);
+
+        byte[] bytes = new byte[id.length + EVENT_PREFIX.length + json.length + EVENT_SUFFIX.length];
+        int p = 0;
+        System.arraycopy(id, 0, bytes, p, id.length);
+        p += id.length;
+        System.arraycopy(EVENT_PREFIX, 0, bytes, p, EVENT_PREFIX.length);
+        p += EVENT_PREFIX.length;
+        System.arraycopy(json, 0, bytes, p, json.length);
+        p += json.length;
+        System.arraycopy(EVENT_SUFFIX, 0, bytes, p, EVENT_SUFFIX.length);
+        return new Frame(version, bytes);
+    }
+
+    /**
+     * Un client abonné. Une seule écriture à la fois (drain), sur un thread virtuel ;
+     * pendant qu'elle dure, les trames suivantes se remplacent dans "pending".
+     */
+    private final class Subscriber {
+        private final ResponseBodyEmitter emitter;
+        private final AtomicReference<Frame> pending = new AtomicReference<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private long lastSent;   // version de la dernière trame envoyée (lue et écrite par drain seulement)
+
+        Subscriber(ResponseBodyEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        void offer(Frame frame) {
+            if (pending.getAndSet(frame) != null) {
+                coalescedFrames.incrementAndGet();
+            }
+            if (draining.compareAndSet(false, true)) {
+                executor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                Frame frame;
+                while ((frame = pending.getAndSet(null)) != null) {
+                    if (frame.version() <= lastSent) continue;
+                    emitter.send(frame.bytes(), MediaType.TEXT_EVENT_STREAM);
+                    lastSent = frame.version();
+                }
+            } catch (IOException | IllegalStateException e) {
+                // Client parti (ou réponse déjà terminée) : on l'oublie
+                unsubscribe(this);
+                emitter.completeWithError(e);
+                return;
+            } finally {
+                draining.set(false);
+            }
+            if (pending.get() != null && draining.compareAndSet(false, true)) {
+                executor.execute(this::drain);
+            }
+        }
+    }
+}
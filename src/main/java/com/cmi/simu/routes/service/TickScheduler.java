@@ -0,0 +1,128 @@
+package com.cmi.simu.routes.service;
+
+import com.cmi.simu.routes.config.TickProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Fait avancer la simulation sur un thread dédié, indépendamment des requêtes HTTP.
+ * <p>
+ * La cadence est donnée par {@link TickProperties} (temps réel accéléré, ticks/seconde fixes
+ * ou au plus vite). Si un tick prend du retard (GC, machine chargée...), les ticks manqués
+ * sont rejoués d'affilée, dans la limite de maxCatchUpTicks.
+ * <p>
+ * C'est aussi ce thread qui applique les modifications demandées par les routes (voir
+ * {@link HospitalService#applyCommands()}) : il est réveillé à chaque commande et l'applique
+ * entre deux ticks, sans attendre l'échéance suivante.
+ */
+@Component
+public class TickScheduler implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(TickScheduler.class);
+
+    private final HospitalService hospitalService;
+    private final CheckpointService checkpointService;
+    private final TickProperties properties;
+
+    private volatile boolean running;
+    private Thread thread;
+
+    public TickScheduler(HospitalService hospitalService, CheckpointService checkpointService,
+                         TickProperties properties) {
+        this.hospitalService = hospitalService;
+        this.checkpointService = checkpointService;
+        this.properties = properties;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running || !properties.isEnabled()) return;
+        running = true;
+        thread = new Thread(this::loop, "simu-tick");
+        thread.setDaemon(true);
+        Thread tickThread = thread;
+        hospitalService.setCommandWakeup(() -> LockSupport.unpark(tickThread));
+        thread.start();
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            thread = null;
+        }
+        // Plus de thread de simulation : les commandes suivantes sont appliquées par l'appelant,
+        // celles arrivées entre-temps le sont ici
+        hospitalService.setCommandWakeup(null);
+        hospitalService.applyCommands();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void loop() {
+        long nextDeadline = System.nanoTime();
+
+        while (running) {
+            safeApplyCommands();
+            long period = properties.periodNanos();
+            long now = System.nanoTime();
+
+            if (period <= 0) {
+                // Au plus vite : pas de cadence à tenir
+                safeTick();
+                nextDeadline = now;
+                continue;
+            }
+
+            if (now < nextDeadline) {
+                LockSupport.parkNanos(nextDeadline - now);
+                continue;
+            }
+
+            // Nombre de ticks dus depuis la dernière échéance (rattrapage)
+            long due = (now - nextDeadline) / period + 1;
+            long toRun = Math.min(due, Math.max(1, properties.getMaxCatchUpTicks()));
+            for (long i = 0; i < toRun && running; i++) {
+                safeTick();
+            }
+
+            if (due > toRun) {
+                // Trop de retard : on abandonne le reste et on repart de maintenant
+                nextDeadline = System.nanoTime() + period;
+            } else {
+                nextDeadline += due * period;
+            }
+        }
+    }
+
+    private void safeApplyCommands() {
+        try {
+            hospitalService.applyCommands();
+        } catch (RuntimeException e) {
+            log.error("Erreur pendant l'application des commandes", e);
+        }
+    }
+
+    private void safeTick() {
+        try {
+            hospitalService.tick();
+            checkpointService.afterTick();
+        } catch (RuntimeException e) {
+            // Un tick raté ne doit pas arrêter le moteur
+            log.error("Erreur pendant le tick", e);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.cmi.simu;
+
+import com.cmi.simu.flow.FlowManager;
+import com.cmi.simu.flow.Hospital;
+import com.cmi.simu.flow.PatientModel;
+import com.cmi.simu.routes.service.HospitalService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Charge : des milliers de clients en attente longue (GET /api/hospitals/hospitals/next) en même
+ * temps, sur un petit tas, puis un seul tick qui les réveille tous.
+ * <p>
+ * Banc d'essai manuel, hors de ./gradlew test et de la CI : ./gradlew loadTest (tas limité,
+ * voir build.gradle). Il ne vaut que sur la machine où on le lance (limite de descripteurs,
+ * pile réseau) : relever le tas affiché et la durée du réveil, et ne rien en conclure sans
+ * l'avoir lancé. Nombre de clients : -Dsimu.load.clients=N (2000 par défaut).
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "simu.tick.enabled=false",
+        "simu.seed=1",
+        "spring.threads.virtual.enabled=true",
+        "server.tomcat.accept-count=1000",
+        "server.compression.enabled=false"
+})
+class LongPollLoadTest {
+
+    private static final int CLIENTS = Integer.getInteger("simu.load.clients", 2000);
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private HospitalService hospitalService;
+
+    @Test
+    void thousandsOfWaitingClients() throws Exception {
+        Hospital hospital = new Hospital(0, "Charge", new FlowManager(0.1, 0.1, 0.8), PatientModel.INDIVIDUAL);
+        hospitalService.createHospital(hospital).get(10, TimeUnit.SECONDS);
+        long version = hospitalService.getSnapshot().version();
+
+        // Un thread virtuel par client : chacun ouvre sa connexion et attend sa réponse
+        List<Future<String>> responses = new ArrayList<>(CLIENTS);
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < CLIENTS; i++) {
+                responses.add(clients.submit(() -> longPoll(version)));
+            }
+
+            // Tous les clients attendent en même temps côté serveur
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+            while (hospitalService.getSnapshotWaiters() < CLIENTS && System.nanoTime() < deadline) {
+                Thread.sleep(50);
+            }
+            assertEquals(CLIENTS, hospitalService.getSnapshotWaiters(), "clients en attente côté serveur");
+            Runtime runtime = Runtime.getRuntime();
+            System.out.println(CLIENTS + " clients en attente, tas utilisé : "
+                    + (runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024) + " Mo sur "
+                    + runtime.maxMemory() / (1024 * 1024) + " Mo");
+
+            // Un tick les réveille tous
+            long start = System.nanoTime();
+            hospitalService.tick();
+            for (Future<String> response : responses) {
+                assertTrue(response.get(60, TimeUnit.SECONDS).startsWith("HTTP/1.1 200"));
+            }
+            System.out.println("Réponses reçues en " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        }
+    }
+
+    // Requête HTTP minimale : seule la ligne de statut nous intéresse
+    private String longPoll(long after) throws Exception {
+        try (Socket socket = new Socket("localhost", port)) {
+            OutputStream out = socket.getOutputStream();
+            out.write(("GET /api/hospitals/hospitals/next?after=" + after + "&timeout=60 HTTP/1.1\r\n"
+                    + "Host: localhost\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            return in.readLine();
+        }
+    }
+}
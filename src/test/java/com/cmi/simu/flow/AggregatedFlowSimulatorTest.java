@@ -0,0 +1,41 @@
+package com.cmi.simu.flow;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Modèle agrégé (histogrammes) contre modèle individuel : mêmes charges, sorties, décès et refus
+ * moyens par unité sur un ensemble de réplications, graines indépendantes.
+ */
+class AggregatedFlowSimulatorTest {
+
+    private static final int REPLICATIONS = 200;
+    private static final int TICKS = 7 * 24;
+
+    @Test
+    void aggregatedModelMatchesIndividualModelOnAverage() {
+        EnsembleResult individual = ensemble(PatientModel.INDIVIDUAL, 1L, 1.0);
+        EnsembleResult aggregated = ensemble(PatientModel.AGGREGATED, 2L, 1.0);
+        EnsembleAssertions.assertSameMeans(individual, aggregated, "AGGREGATED contre INDIVIDUAL");
+
+        // La comparaison voit bien un réseau qui n'est pas le même (10 % de lits en moins)
+        EnsembleResult smaller = ensemble(PatientModel.INDIVIDUAL, 3L, 0.9);
+        assertThrows(AssertionError.class,
+                () -> EnsembleAssertions.assertSameMeans(individual, smaller, "capacités réduites"));
+    }
+
+    private static EnsembleResult ensemble(PatientModel model, long seed, double capacity) {
+        return new EnsembleRunner(REPLICATIONS, TICKS, seed, 0).run(() -> {
+            List<Hospital> network = MainFlow.buildHospitalNetwork(model);
+            for (Hospital h : network) {
+                for (HospitalUnit unit : h.getUnits()) {
+                    unit.setMaxCapacity((int) Math.round(unit.getMaxCapacity() * capacity));
+                }
+            }
+            return network;
+        });
+    }
+}
@@ -0,0 +1,62 @@
+package com.cmi.simu.flow;
+
+import java.util.function.ToDoubleFunction;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compare deux ensembles Monte Carlo d'un même réseau : pour chaque grandeur et chaque unité,
+ * un résumé des réplications (moyenne, percentile) moyenné sur les ticks qui suivent la mise en route.
+ */
+final class EnsembleAssertions {
+
+    // Première journée ignorée : le réseau part vide
+    static final int WARM_UP_TICKS = 24;
+    // Écart toléré : relatif, plus un plancher absolu pour les grandeurs proches de zéro (décès)
+    static final double RELATIVE = 0.05;
+    static final double ABSOLUTE = 0.01;
+
+    private EnsembleAssertions() {
+    }
+
+    static void assertSameMeans(EnsembleResult expected, EnsembleResult actual, String what) {
+        assertTrue(expected.getUnits().equals(actual.getUnits()) && expected.getTicks() == actual.getTicks(), what);
+        for (EnsembleMetric metric : EnsembleMetric.values()) {
+            for (int u = 0; u < expected.getUnits().size(); u++) {
+                assertClose(expected, actual, metric, u, EnsembleResult.Band::mean, what + ", moyenne");
+            }
+        }
+    }
+
+    /**
+     * Moyennes, et bandes 5 %–95 % de la charge et des sorties (les percentiles des décès et des
+     * refus, presque toujours 0 ou 1, sont trop bruités pour être comparés).
+     */
+    static void assertSameBands(EnsembleResult expected, EnsembleResult actual, String what) {
+        assertSameMeans(expected, actual, what);
+        for (EnsembleMetric metric : new EnsembleMetric[]{EnsembleMetric.LOAD, EnsembleMetric.EXITS}) {
+            for (int u = 0; u < expected.getUnits().size(); u++) {
+                assertClose(expected, actual, metric, u, EnsembleResult.Band::p05, what + ", p05");
+                assertClose(expected, actual, metric, u, EnsembleResult.Band::p95, what + ", p95");
+            }
+        }
+    }
+
+    private static void assertClose(EnsembleResult expected, EnsembleResult actual, EnsembleMetric metric, int unit,
+                                    ToDoubleFunction<EnsembleResult.Band> value, String what) {
+        double a = average(expected, metric, unit, value);
+        double b = average(actual, metric, unit, value);
+        double tolerance = RELATIVE * Math.max(Math.abs(a), Math.abs(b)) + ABSOLUTE;
+        assertTrue(Math.abs(a - b) <= tolerance, String.format("%s, %s, %s : %.4f contre %.4f (± %.4f)",
+                what, expected.getUnits().get(unit), metric, a, b, tolerance));
+    }
+
+    private static double average(EnsembleResult result, EnsembleMetric metric, int unit,
+                                  ToDoubleFunction<EnsembleResult.Band> value) {
+        double sum = 0;
+        for (int t = WARM_UP_TICKS; t < result.getTicks(); t++) {
+            sum += value.applyAsDouble(result.band(metric, t, unit));
+        }
+        return sum / (result.getTicks() - WARM_UP_TICKS);
+    }
+}
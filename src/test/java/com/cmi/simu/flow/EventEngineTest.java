@@ -0,0 +1,147 @@
+package com.cmi.simu.flow;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Échéancier (clés long dans un tas) et planification du moteur à événements, graines fixes ;
+ * en moyenne sur un ensemble, mêmes résultats que le moteur par ticks.
+ */
+class EventEngineTest {
+
+    @Test
+    void keysRoundTripAndSortByHourKindTarget() {
+        long key = EventQueue.key(123_456L, EventEngine.STEP, EventQueue.MAX_TARGET);
+        assertEquals(123_456L, EventQueue.hour(key));
+        assertEquals(EventEngine.STEP, EventQueue.kind(key));
+        assertEquals(EventQueue.MAX_TARGET, EventQueue.target(key));
+
+        // Même heure : le type passe avant la cible, quelle qu'elle soit
+        assertTrue(EventQueue.key(5, EventEngine.SCENARIO, EventQueue.MAX_TARGET) < EventQueue.key(5, EventEngine.DAYLIGHT, 0));
+        assertTrue(EventQueue.key(5, EventEngine.STEP, EventQueue.MAX_TARGET) < EventQueue.key(6, EventEngine.SCENARIO, 0));
+        assertTrue(EventQueue.key(Integer.MAX_VALUE - 1L, EventEngine.STEP, 0) < EventQueue.key(Integer.MAX_VALUE, 0, 0));
+    }
+
+    @Test
+    void heapPollsKeysInOrder() {
+        SplittableRandom random = new SplittableRandom(3);
+        EventQueue queue = new EventQueue();
+        List<Long> expected = new ArrayList<>();
+        // Ajouts et retraits entremêlés, avec doublons, au-delà de la capacité initiale (64)
+        for (int round = 0; round < 50; round++) {
+            for (int i = 0; i < 200; i++) {
+                long key = EventQueue.key(random.nextInt(100), random.nextInt(4), random.nextInt(20));
+                queue.add(key);
+                expected.add(key);
+            }
+            expected.sort(null);
+            for (int i = 0; i < 150; i++) {
+                assertEquals((long) expected.removeFirst(), queue.peek());
+                assertEquals(expected.size() + 1, queue.size());
+                queue.poll();
+            }
+        }
+        while (!queue.isEmpty()) {
+            assertEquals((long) expected.removeFirst(), queue.poll());
+        }
+        assertTrue(expected.isEmpty());
+    }
+
+    @Test
+    void scenarioStartsAtCountdownMinusOneAndEndsAfterItsDuration() {
+        long seed = 20240611L;
+        EventEngine engine = new EventEngine(List.of(), new SplitMixRandom(seed), new Clock());
+
+        // Mêmes tirages, dans le même ordre : compte à rebours, durée, compte à rebours, ...
+        SplitMixRandom draws = new SplitMixRandom(seed);
+        long start = draw(draws, 2, 5) - 1;
+        for (int event = 0; event < 200; event++) {
+            long end = start + draw(draws, 1, 3);
+            long next = end + draw(draws, 2, 5);
+            engine.advanceTo(start);
+            assertFalse(engine.isInEvent(), "avant l'événement " + event);
+            engine.advanceTo(start + 1);
+            assertTrue(engine.isInEvent(), "début de l'événement " + event + " à " + start);
+            engine.advanceTo(end);
+            assertTrue(engine.isInEvent(), "pendant l'événement " + event);
+            engine.advanceTo(end + 1);
+            assertFalse(engine.isInEvent(), "fin de l'événement " + event + " à " + end);
+            start = next;
+        }
+    }
+
+    @Test
+    void scenarioMatchesArrivalScenarioHourByHour() {
+        long seed = 99L;
+        EventEngine engine = new EventEngine(List.of(), new SplitMixRandom(seed), new Clock());
+        ArrivalScenario scenario = new ArrivalScenario(List.of(), new SplitMixRandom(seed), new Clock());
+        for (int hour = 0; hour < 5000; hour++) {
+            scenario.updateArrivals();
+            engine.advanceTo(hour + 1);
+            assertEquals(scenario.isInEvent(), engine.isInEvent(), "heure " + hour);
+        }
+    }
+
+    @Test
+    void hoursWithoutArrivalsFollowTheGeometricGaps() {
+        Clock clock = new Clock();
+        Hospital hospital = new Hospital(1, "H", new FlowManager(1.0, 0.3, 2.0));
+        hospital.seedRandom(7L);
+        hospital.setClock(clock);
+        EventEngine engine = new EventEngine(List.of(hospital), new SplitMixRandom(11L), clock);
+        int startTime = clock.getTime();
+
+        // Une unité a au moins une arrivée dans l'heure avec probabilité 1 - q, q dépendant
+        // de ses lois à cette heure-là (jour, nuit, événement)
+        int units = hospital.getUnits().size();
+        long[] before = new long[units];
+        double expectedEmpty = 0;
+        long empty = 0;
+        int hours = 60_000;
+        for (int hour = 0; hour < hours; hour++) {
+            engine.advanceTo(hour + 1);
+            boolean night = ArrivalScenario.isNight((startTime + hour) % 24);
+            for (int u = 0; u < units; u++) {
+                HospitalUnit unit = hospital.getUnits().get(u);
+                int[] r = ArrivalScenario.arrivalRanges(engine.isInEvent(), night, unit.getKind() == UnitKind.URGENCES);
+                double q = zero(r[0], r[1]) * zero(r[2], r[3]) * zero(r[4], r[5]);
+                expectedEmpty += q;
+                long seen = unit.getAcceptedArrivals() + unit.getRejectedArrivals();
+                if (seen == before[u]) {
+                    empty++;
+                    assertTrue(q > 0, "heure " + hour + " sans arrivée alors que q = 0");
+                }
+                before[u] = seen;
+            }
+        }
+        // Environ 3 900 heures vides attendues : écart toléré de 5 écarts-types
+        double sigma = Math.sqrt(expectedEmpty);
+        assertTrue(Math.abs(empty - expectedEmpty) < 5 * sigma,
+                "heures vides : " + empty + ", attendu " + Math.round(expectedEmpty) + " ± " + Math.round(5 * sigma));
+    }
+
+    @Test
+    void eventEngineMatchesTickEngineOnAverage() {
+        // Graines indépendantes : seules les distributions doivent coïncider
+        EnsembleResult tick = new EnsembleRunner(200, 7 * 24, 5L, 0, EngineType.TICK)
+                .run(() -> MainFlow.buildHospitalNetwork(PatientModel.INDIVIDUAL));
+        EnsembleResult event = new EnsembleRunner(200, 7 * 24, 6L, 0, EngineType.EVENT)
+                .run(() -> MainFlow.buildHospitalNetwork(PatientModel.INDIVIDUAL));
+        EnsembleAssertions.assertSameBands(tick, event, "EVENT contre TICK");
+    }
+
+    private static int draw(SplitMixRandom random, int min, int max) {
+        return random.nextInt(max - min + 1) + min;
+    }
+
+    private static double zero(int min, int max) {
+        return min > 0 || max < 0 ? 0.0 : 1.0 / (max - min + 1);
+    }
+}
@@ -0,0 +1,107 @@
+package com.cmi.simu.flow;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Filtrage par niveau et débordement du buffer circulaire ; la sortie est relue ligne par ligne.
+ */
+class EventSinkTest {
+
+    @Test
+    void onlyEventsAtOrBelowTheLevelAreWritten() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        EventSink sink = new EventSink(16, new PrintStream(bytes, true, StandardCharsets.UTF_8));
+
+        // Coupé par défaut : rien ne passe, pas même INFO
+        assertFalse(sink.isEnabled(SimulationEvent.EVENT_START));
+        sink.emit(SimulationEvent.EVENT_START, null, 1);
+
+        sink.setLevel(EventLevel.INFO);
+        sink.emit(SimulationEvent.HOUR, null, 7);
+        sink.emit(SimulationEvent.EVENT_START, null, 3);
+
+        sink.setLevel(EventLevel.DEBUG);
+        sink.emit(SimulationEvent.HOUR, null, 8);
+        sink.emit(SimulationEvent.DAY_URGENCES);
+
+        sink.setLevel(EventLevel.OFF);
+        sink.emit(SimulationEvent.EVENT_END);
+        sink.flush();
+
+        assertEquals(List.of("** Un événement grave démarre pour 3 iteration(s) ! **", "8"), lines(bytes));
+        assertEquals(0, sink.getDropped());
+    }
+
+    @Test
+    void theSilentSinkCannotBeEnabled() {
+        assertThrows(IllegalStateException.class, () -> EventSink.none().setLevel(EventLevel.INFO));
+        assertEquals(EventLevel.OFF, EventSink.none().getLevel());
+    }
+
+    @Test
+    void aFullBufferDropsAndReportsInsteadOfBlocking() throws InterruptedException {
+        // La sortie reste bloquée sur la première ligne : le consommateur n'avance plus
+        CountDownLatch release = new CountDownLatch(1);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        OutputStream blocked = new OutputStream() {
+            @Override
+            public void write(int b) {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                synchronized (bytes) {
+                    bytes.write(b, off, len);
+                }
+            }
+        };
+        EventSink sink = new EventSink(16, new PrintStream(blocked, true, StandardCharsets.UTF_8));
+        sink.setLevel(EventLevel.DEBUG);
+
+        // 16 cases : les 16 premiers événements sont gardés, les 4 suivants perdus sans attendre
+        for (int i = 0; i < 20; i++) {
+            sink.emit(SimulationEvent.HOUR, null, i);
+        }
+        assertEquals(4, sink.getDropped());
+
+        release.countDown();
+        sink.flush();
+        // Le bilan des pertes suit la dernière ligne du lot ; un événement de plus garantit qu'il est écrit
+        sink.emit(SimulationEvent.HOUR, null, 99);
+        sink.flush();
+
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 16; i++) expected.add(Integer.toString(i));
+        expected.add("[simu-events] 4 événement(s) perdu(s), buffer plein");
+        expected.add("99");
+        List<String> written;
+        synchronized (bytes) {
+            written = lines(bytes);
+        }
+        assertEquals(expected, written);
+        assertEquals(4, sink.getDropped());
+    }
+
+    private static List<String> lines(ByteArrayOutputStream bytes) {
+        String text = bytes.toString(StandardCharsets.UTF_8);
+        return text.isEmpty() ? List.of() : List.of(text.split("\\R"));
+    }
+}
@@ -0,0 +1,184 @@
+package com.cmi.simu.flow;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Transferts internes (étapes 3 et 4) comparés à l'ordre d'origine : pour chaque couple du plan,
+ * les patients sont retirés de la source avant d'être ajoutés à la cible.
+ */
+class FlowSimulatorTest {
+
+    private static final PriorityLevel[] PRIORITIES = PriorityLevel.values();
+    private static final String[] NAMES = {"Urgences", "Chirurgie", "Medecine", "Bloque"};
+
+    @Test
+    void targetCountsPatientsItAlreadySentOut() {
+        // U0 (pleine) envoie tout vers U2 ; U1, planifiée après, envoie vers U0
+        HospitalUnit u0 = unit(0, 5, 10);
+        HospitalUnit u1 = unit(1, 20, 20);
+        HospitalUnit u2 = unit(2, 0, 100);
+        u0.addNeighbor(u2);
+        u1.addNeighbor(u0);
+        fill(u0, 10, PriorityLevel.NORMAL);
+        fill(u1, 10, PriorityLevel.LOW);
+        FlowSimulator sim = new FlowSimulator(List.of(u0, u1, u2), new FlowManager(1.0, 0.3, 2.0));
+
+        sim.applyInternalTransfers();
+
+        // Les 10 places libérées dans U0 par U0 → U2 sont reprises par U1 → U0
+        assertEquals(10, u0.getCurrentLoad());
+        assertEquals(10, u0.countPriority(PriorityLevel.LOW));
+        assertEquals(0, u1.getCurrentLoad());
+        assertEquals(10, u2.getCurrentLoad());
+        assertEquals(20, sim.getTransfers());
+    }
+
+    @Test
+    void sameResultAsRemovingPairByPair() {
+        SplittableRandom random = new SplittableRandom(42);
+        for (int round = 0; round < 2000; round++) {
+            List<HospitalUnit> units = randomUnits(random);
+            List<List<List<Patient>>> expected = reference(units);
+
+            FlowSimulator sim = new FlowSimulator(units, new FlowManager(1.0, 0.3, 2.0));
+            sim.applyInternalTransfers();
+
+            for (int u = 0; u < units.size(); u++) {
+                HospitalUnit unit = units.get(u);
+                int load = 0;
+                for (PriorityLevel prio : PRIORITIES) {
+                    List<Patient> want = expected.get(u).get(prio.ordinal());
+                    PatientQueue q = unit.getQueue(prio);
+                    assertEquals(want.size(), q.size(), "tour " + round + ", unité " + u + ", " + prio);
+                    for (int i = 0; i < q.size(); i++) {
+                        Patient p = want.get(i);
+                        assertEquals(p.getTimeToTreat(), q.getTimeToTreat(i), "tour " + round + ", patient " + i);
+                        assertEquals(p.getTimeSpentInService(), q.getTimeSpentInService(i), "tour " + round + ", patient " + i);
+                    }
+                    load += q.size();
+                }
+                assertEquals(load, unit.getCurrentLoad());
+            }
+        }
+    }
+
+    // ----- Outils -----
+
+    private static HospitalUnit unit(int kind, int altitude, int maxCapacity) {
+        return new HospitalUnit(NAMES[kind], altitude, false, 5, maxCapacity, 0.0);
+    }
+
+    private static void fill(HospitalUnit unit, int count, PriorityLevel prio) {
+        for (int i = 0; i < count; i++) {
+            unit.addPatient(new Patient(prio, 100, i, 0, 0));
+        }
+    }
+
+    /**
+     * 2 à 4 unités, voisinages, charges et capacités au hasard (certaines au-delà de leur capacité,
+     * certains patients pas encore transférables).
+     */
+    private static List<HospitalUnit> randomUnits(SplittableRandom random) {
+        int n = 2 + random.nextInt(3);
+        List<HospitalUnit> units = new ArrayList<>();
+        for (int k = 0; k < n; k++) {
+            HospitalUnit u = unit(k, random.nextInt(10), 40);
+            int load = random.nextInt(30);
+            for (int i = 0; i < load; i++) {
+                u.addPatient(new Patient(PRIORITIES[random.nextInt(PRIORITIES.length)], 1 + random.nextInt(50),
+                        i, random.nextInt(4) == 0 ? 2 : 0, 0));
+            }
+            u.setMaxCapacity(Math.max(0, load - 5 + random.nextInt(15)));
+            units.add(u);
+        }
+        for (HospitalUnit a : units) {
+            for (HospitalUnit b : units) {
+                if (a != b && random.nextInt(3) > 0) a.addNeighbor(b);
+            }
+        }
+        return units;
+    }
+
+    /**
+     * Transferts internes dans l'ordre d'origine, sur des listes de patients : le plan est calculé
+     * sur l'état de départ (flux, LOW d'abord, en queue de file, patients non éligibles sautés),
+     * puis chaque couple retire ses patients de la source avant de les ajouter à la cible.
+     *
+     * @return les files de chaque unité après les transferts, par priorité
+     */
+    private static List<List<List<Patient>>> reference(List<HospitalUnit> units) {
+        int n = units.size();
+        FlowManager flowManager = new FlowManager(1.0, 0.3, 2.0);
+        List<List<List<Patient>>> queues = new ArrayList<>();
+        int[] max = new int[n];
+        for (int u = 0; u < n; u++) {
+            HospitalUnit unit = units.get(u);
+            max[u] = unit.getMaxCapacity();
+            List<List<Patient>> byPrio = new ArrayList<>();
+            for (PriorityLevel prio : PRIORITIES) {
+                PatientQueue q = unit.getQueue(prio);
+                List<Patient> list = new ArrayList<>();
+                for (int i = 0; i < q.size(); i++) {
+                    list.add(q.toPatient(i));
+                }
+                byPrio.add(list);
+            }
+            queues.add(byPrio);
+        }
+
+        // 3) Plan : couples (source, cible) dans l'ordre des unités puis des voisins
+        List<int[]> pairs = new ArrayList<>();
+        List<List<Patient>> planned = new ArrayList<>();
+        for (int s = 0; s < n; s++) {
+            HospitalUnit i = units.get(s);
+            int total = i.getCurrentLoad();
+            if (i.isObstacle() || total == 0) continue;
+            List<HospitalUnit> neighbors = i.getNeighbors();
+            double[] flux = new double[neighbors.size()];
+            double sum = 0;
+            for (int m = 0; m < neighbors.size(); m++) {
+                flux[m] = Math.max(0.0, flowManager.computeFlux(i, neighbors.get(m)));
+                sum += flux[m];
+            }
+            if (sum <= 0) continue;
+            List<Patient> sorted = new ArrayList<>();
+            for (PriorityLevel prio : PRIORITIES) {
+                sorted.addAll(queues.get(s).get(prio.ordinal()));
+            }
+            for (int m = 0; m < neighbors.size(); m++) {
+                if (flux[m] <= 0) continue;
+                int nbTransfer = (int) Math.floor(flux[m] / sum * total);
+                List<Patient> chosen = new ArrayList<>();
+                while (chosen.size() < nbTransfer && !sorted.isEmpty()) {
+                    Patient p = sorted.removeLast();
+                    if (p.getTimeBeforeEligibleTransfer() <= 0) chosen.add(p);
+                }
+                pairs.add(new int[]{s, units.indexOf(neighbors.get(m))});
+                planned.add(chosen);
+            }
+        }
+
+        // 4) Retrait puis ajout, couple par couple
+        for (int p = 0; p < pairs.size(); p++) {
+            int s = pairs.get(p)[0];
+            int t = pairs.get(p)[1];
+            int load = 0;
+            for (List<Patient> q : queues.get(t)) load += q.size();
+            int canAccept = max[t] - load;
+            List<Patient> moved = planned.get(p).subList(0, Math.max(0, Math.min(canAccept, planned.get(p).size())));
+            for (Patient patient : moved) {
+                queues.get(s).get(patient.getPriority().ordinal()).remove(patient);
+            }
+            for (Patient patient : moved) {
+                queues.get(t).get(patient.getPriority().ordinal()).add(patient);
+            }
+        }
+        return queues;
+    }
+}
@@ -0,0 +1,151 @@
+package com.cmi.simu.flow;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * File circulaire en colonnes : chaque opération est comparée à une simple liste de patients.
+ * Un patient est repéré par son timeToTreat (unique dans chaque test).
+ */
+class PatientQueueTest {
+
+    @Test
+    void removeAllAcrossTheWrapPoint() {
+        PatientQueue q = new PatientQueue(PriorityLevel.NORMAL);   // capacité 16
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 12; i++) add(q, expected, i);
+        // La tête avance de 10 : les 10 ajouts suivants reviennent au début du tableau
+        q.removeAll(new int[]{0, 1, 2, 3, 4, 5, 6, 7, 8, 9}, 10);
+        expected.subList(0, 10).clear();
+        for (int i = 12; i < 22; i++) add(q, expected, i);
+        assertSame(expected, q);
+
+        // Indices de part et d'autre de la jointure, compactage côté tête puis côté queue
+        removeAll(q, expected, 0, 3, 5);
+        removeAll(q, expected, 4, 6, 8);
+        assertSame(expected, q);
+    }
+
+    @Test
+    void emptyAndFullBuffers() {
+        PatientQueue q = new PatientQueue(PriorityLevel.LOW);
+        List<Integer> expected = new ArrayList<>();
+        q.removeAll(new int[0], 0);
+        assertEquals(0, q.size());
+        assertTrue(q.isEmpty());
+
+        // Pleine (16 sur 16), avec une tête décalée, puis un ajout de plus (agrandissement)
+        for (int i = 0; i < 16; i++) add(q, expected, i);
+        removeAll(q, expected, 0, 1, 2);
+        for (int i = 16; i < 19; i++) add(q, expected, i);
+        assertEquals(16, q.size());
+        add(q, expected, 19);
+        assertSame(expected, q);
+
+        // Tout retirer d'un coup
+        int[] all = new int[q.size()];
+        for (int i = 0; i < all.length; i++) all[i] = i;
+        q.removeAll(all, all.length);
+        assertEquals(0, q.size());
+        add(q, new ArrayList<>(), 99);
+        assertEquals(99, q.getTimeToTreat(0));
+    }
+
+    @Test
+    void unsortedAndDuplicateIndices() {
+        PatientQueue q = new PatientQueue(PriorityLevel.URGENT);
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 10; i++) add(q, expected, i);
+
+        int[] indices = {7, 2, 7, 0, 2, 9};
+        q.removeAll(indices, indices.length);
+        expected.removeAll(List.of(0, 2, 7, 9));
+        assertSame(expected, q);
+
+        // Seuls les "count" premiers indices comptent
+        q.removeAll(new int[]{1, 0, 3}, 1);
+        expected.remove(1);
+        assertSame(expected, q);
+    }
+
+    @Test
+    void copyToKeepsColumnsAndSource() {
+        PatientQueue source = new PatientQueue(PriorityLevel.NORMAL);
+        for (int i = 0; i < 14; i++) source.addLast(i, 100 + i, 200 + i, 300 + i);
+        source.removeAll(new int[]{0, 1, 2, 3, 4, 5, 6, 7, 8, 9}, 10);
+        for (int i = 14; i < 20; i++) source.addLast(i, 100 + i, 200 + i, 300 + i);   // jointure dépassée
+
+        PatientQueue target = new PatientQueue(PriorityLevel.NORMAL);
+        for (int i = 0; i < source.size(); i++) {
+            assertEquals(i, source.copyTo(i, target));
+        }
+        assertEquals(10, source.size());
+        for (int i = 0; i < target.size(); i++) {
+            int id = 10 + i;
+            assertEquals(id, target.getTimeToTreat(i));
+            assertEquals(100 + id, target.getTimeSpentInService(i));
+            assertEquals(200 + id, target.getTimeBeforeEligibleTransfer(i));
+            assertEquals(300 + id, target.getMinStayInUnit(i));
+            assertEquals(id, source.getTimeToTreat(i));
+        }
+    }
+
+    @Test
+    void randomOperationsMatchAList() {
+        SplittableRandom random = new SplittableRandom(7);
+        PatientQueue q = new PatientQueue(PriorityLevel.NORMAL);
+        List<Integer> expected = new ArrayList<>();
+        int next = 0;
+        for (int step = 0; step < 20_000; step++) {
+            int op = random.nextInt(10);
+            if (op < 5 || expected.isEmpty()) {
+                add(q, expected, next++);
+            } else if (op < 7) {
+                int i = random.nextInt(expected.size());
+                q.removeAt(i);
+                expected.remove(i);
+            } else {
+                // Quelques indices au hasard, parfois répétés, près de la tête ou de la queue
+                int count = 1 + random.nextInt(Math.min(6, expected.size()) + 2);
+                int[] indices = new int[count];
+                for (int k = 0; k < count; k++) {
+                    int offset = random.nextInt(Math.min(8, expected.size()));
+                    indices[k] = random.nextBoolean() ? offset : expected.size() - 1 - offset;
+                }
+                removeAll(q, expected, indices);
+            }
+            if (step % 1000 == 0) assertSame(expected, q);
+        }
+        assertSame(expected, q);
+    }
+
+    // ----- Outils -----
+
+    private static void add(PatientQueue q, List<Integer> expected, int id) {
+        assertEquals(expected.size(), q.addLast(id, id, 0, 0));
+        expected.add(id);
+    }
+
+    private static void removeAll(PatientQueue q, List<Integer> expected, int... indices) {
+        List<Integer> removed = new ArrayList<>();
+        for (int i : indices) removed.add(expected.get(i));
+        q.removeAll(indices.clone(), indices.length);
+        expected.removeAll(removed);
+    }
+
+    private static void assertSame(List<Integer> expected, PatientQueue q) {
+        int[] actual = new int[q.size()];
+        for (int i = 0; i < actual.length; i++) {
+            actual[i] = q.getTimeToTreat(i);
+            assertEquals(actual[i], q.getTimeSpentInService(i), "colonnes désalignées à l'indice " + i);
+        }
+        assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), actual);
+    }
+}
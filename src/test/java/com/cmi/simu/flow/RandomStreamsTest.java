@@ -0,0 +1,59 @@
+package com.cmi.simu.flow;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/**
+ * Tirages dérivés de la graine maître : deux simulations neuves de même graine se rejouent à
+ * l'identique, deux graines différentes divergent.
+ */
+class RandomStreamsTest {
+
+    private static final int TICKS = 1000;
+
+    @Test
+    void sameMasterSeedReplaysIdentically() {
+        for (PatientModel model : PatientModel.values()) {
+            assertEquals(history(model, 31L), history(model, 31L), model.name());
+        }
+    }
+
+    @Test
+    void differentMasterSeedsDiverge() {
+        for (PatientModel model : PatientModel.values()) {
+            List<String> a = history(model, 31L);
+            List<String> b = history(model, 32L);
+            assertNotEquals(a, b, model.name());
+            assertNotEquals(a.getLast(), b.getLast(), model + " : état final");
+        }
+    }
+
+    /**
+     * État de chaque unité après chaque tick d'une simulation neuve.
+     */
+    private static List<String> history(PatientModel model, long seed) {
+        SeededSimulation sim = new SeededSimulation(model, seed);
+        List<String> states = new ArrayList<>(TICKS);
+        for (int t = 0; t < TICKS; t++) {
+            sim.tick();
+            StringBuilder sb = new StringBuilder();
+            for (Hospital h : sim.hospitals) {
+                for (HospitalUnit unit : h.getUnits()) {
+                    sb.append(unit.getCurrentLoad());
+                    for (PriorityLevel prio : PriorityLevel.values()) {
+                        sb.append('/').append(unit.countPriority(prio));
+                    }
+                    sb.append('/').append(unit.getAcceptedArrivals()).append('/').append(unit.getRejectedArrivals())
+                            .append('/').append(unit.getDeaths()).append('/').append(unit.getAbsorptions()).append(';');
+                }
+            }
+            states.add(sb.toString());
+        }
+        return states;
+    }
+}
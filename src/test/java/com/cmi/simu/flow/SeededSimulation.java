@@ -0,0 +1,95 @@
+package com.cmi.simu.flow;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Réseau (par défaut celui de démonstration, voir MainFlow#buildHospitalNetwork) avancé tick par
+ * tick comme celui du serveur, tous les tirages dérivés d'une graine maître. Sans journal ni
+ * événements.
+ */
+final class SeededSimulation {
+
+    final PatientModel model;
+    final long seed;
+    final Clock clock;
+    final List<Hospital> hospitals;
+    final ArrivalScenario scenario;
+    long tick;
+
+    SeededSimulation(PatientModel model, long seed) {
+        this(model, seed, MainFlow.buildHospitalNetwork(model));
+    }
+
+    /**
+     * Un autre réseau, construit pour "model" et encore jamais avancé.
+     */
+    SeededSimulation(PatientModel model, long seed, List<Hospital> network) {
+        this.model = model;
+        this.seed = seed;
+        this.clock = new Clock(EventSink.none());
+        this.hospitals = new ArrayList<>(network);
+        for (Hospital h : hospitals) {
+            h.seedRandom(seed);
+            h.setClock(clock);
+        }
+        this.scenario = new ArrivalScenario(hospitals, RandomStreams.stream(seed, RandomStreams.SCENARIO_STREAM), clock);
+    }
+
+    // Les hôpitaux relus sont déjà rattachés à l'horloge passée à SimulationCheckpoint#read
+    private SeededSimulation(SimulationCheckpoint.Restored restored, Clock clock) {
+        this.model = restored.patientModel();
+        this.seed = restored.masterSeed();
+        this.clock = clock;
+        this.hospitals = new ArrayList<>(restored.hospitals());
+        restored.resetClock(clock);
+        this.scenario = restored.scenario(hospitals, clock);
+        this.tick = restored.tick();
+    }
+
+    static SeededSimulation read(Path file) throws IOException {
+        Clock clock = new Clock(EventSink.none());
+        return new SeededSimulation(SimulationCheckpoint.read(file, clock), clock);
+    }
+
+    /**
+     * Un tick séquentiel ; renvoie les sorties par hôpital.
+     */
+    Map<Integer, Map<String, Integer>> tick() {
+        return advance(TickEngine.tickSequential(hospitals, scenario));
+    }
+
+    /**
+     * Un tick sur le pool du moteur donné ; renvoie les sorties par hôpital.
+     */
+    Map<Integer, Map<String, Integer>> tick(TickEngine engine) {
+        return advance(engine.tick(hospitals, scenario));
+    }
+
+    void run(int ticks) {
+        for (int t = 0; t < ticks; t++) {
+            tick();
+        }
+    }
+
+    SimulationCheckpoint.Capture capture() {
+        return SimulationCheckpoint.capture(model, seed, tick, clock, 0, scenario, hospitals);
+    }
+
+    byte[] captureBytes() {
+        ByteBuffer data = capture().data();
+        byte[] bytes = new byte[data.remaining()];
+        data.get(bytes);
+        return bytes;
+    }
+
+    private Map<Integer, Map<String, Integer>> advance(Map<Integer, Map<String, Integer>> exits) {
+        clock.addOneHour();
+        tick++;
+        return exits;
+    }
+}
@@ -0,0 +1,91 @@
+package com.cmi.simu.flow;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checkpoint écrit puis relu : la simulation reprise refait exactement ce qu'aurait fait
+ * la simulation jamais arrêtée ; un fichier abîmé donne une IOException.
+ */
+class SimulationCheckpointTest {
+
+    private static final long SEED = 1234L;
+
+    @Test
+    void restoredRunMatchesUninterruptedRun() throws IOException {
+        for (PatientModel model : PatientModel.values()) {
+            Path dir = Files.createTempDirectory("ckpt");
+            SeededSimulation uninterrupted = new SeededSimulation(model, SEED);
+            uninterrupted.run(100);
+            byte[] before = uninterrupted.captureBytes();
+            Path file = dir.resolve("sim.ckpt");
+            SimulationCheckpoint.write(uninterrupted.capture(), file);
+
+            SeededSimulation restored = SeededSimulation.read(file);
+            assertEquals(100, restored.tick);
+            assertArrayEquals(before, restored.captureBytes(), model + " : relecture");
+
+            uninterrupted.run(200);
+            restored.run(200);
+            assertArrayEquals(uninterrupted.captureBytes(), restored.captureBytes(), model + " : 200 ticks après reprise");
+        }
+    }
+
+    @Test
+    void truncatedOrCorruptedFilesAreRejected() throws IOException {
+        Path dir = Files.createTempDirectory("ckpt");
+        SeededSimulation sim = new SeededSimulation(PatientModel.INDIVIDUAL, SEED);
+        sim.run(50);
+        byte[] valid = sim.captureBytes();
+        Path file = dir.resolve("bad.ckpt");
+
+        // Coupé n'importe où
+        SplittableRandom random = new SplittableRandom(5);
+        for (int i = 0; i < 50; i++) {
+            int length = random.nextInt(valid.length);
+            Files.write(file, Arrays.copyOf(valid, length));
+            assertThrows(IOException.class, () -> SeededSimulation.read(file), "coupé à " + length);
+        }
+
+        // Modèle de patients (octet 12), nombre d'hôpitaux (65), longueur du nom du premier (69)
+        assertCorrupt(file, valid, 12, 7, "modèle de patients");
+        assertCorrupt(file, valid, 65, Integer.MAX_VALUE, "nombre d'hôpitaux");
+        assertCorrupt(file, valid, 65, -1, "nombre d'hôpitaux");
+        assertCorrupt(file, valid, 69, 1 << 30, "longueur de nom");
+
+        // Octets au hasard : relu ou refusé proprement, jamais une autre exception
+        for (int i = 0; i < 2000; i++) {
+            byte[] bytes = valid.clone();
+            for (int k = 1 + random.nextInt(4); k > 0; k--) {
+                bytes[12 + random.nextInt(bytes.length - 12)] = (byte) random.nextInt(256);
+            }
+            Files.write(file, bytes);
+            try {
+                SeededSimulation.read(file);
+            } catch (IOException expected) {
+                assertNotNull(expected.getMessage());
+            }
+        }
+    }
+
+    private static void assertCorrupt(Path file, byte[] valid, int offset, int value, String what) throws IOException {
+        byte[] bytes = valid.clone();
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).putInt(offset, value);
+        Files.write(file, bytes);
+        IOException e = assertThrows(IOException.class, () -> SeededSimulation.read(file));
+        assertTrue(e.getMessage().contains(what), e.getMessage());
+    }
+}
@@ -0,0 +1,130 @@
+package com.cmi.simu.flow;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Recherche des k plus proches voisins comparée à un tri de tous les hôpitaux
+ * (distance, puis id à distance égale).
+ */
+class SpatialIndexTest {
+
+    @Test
+    void matchesBruteForceOnRandomMaps() {
+        SplittableRandom random = new SplittableRandom(13);
+        for (int round = 0; round < 300; round++) {
+            // Coordonnées entières sur une petite carte : beaucoup d'égalités de distance
+            boolean grid = round % 2 == 0;
+            double cellSize = 0.5 + random.nextInt(8);
+            List<Hospital> hospitals = new ArrayList<>();
+            SpatialIndex index = new SpatialIndex(cellSize);
+            int n = random.nextInt(60);
+            for (int id = 1; id <= n; id++) {
+                Hospital h = hospital(id, coordinate(random, grid), coordinate(random, grid));
+                hospitals.add(h);
+                index.insert(h);
+            }
+            // Quelques suppressions : l'étendue de la grille n'est pas réduite
+            for (int i = 0; i < n / 5; i++) {
+                Hospital removed = hospitals.remove(random.nextInt(hospitals.size()));
+                index.remove(removed);
+            }
+            for (int q = 0; q < 20; q++) {
+                double row = coordinate(random, grid);
+                double col = coordinate(random, grid);
+                int k = random.nextInt(12);
+                double maxDistance = random.nextInt(3) == 0 ? random.nextInt(10) : 0;
+                Hospital exclude = hospitals.isEmpty() || random.nextBoolean()
+                        ? null : hospitals.get(random.nextInt(hospitals.size()));
+                assertEquals(bruteForce(hospitals, row, col, k, maxDistance, exclude),
+                        index.nearest(row, col, k, maxDistance, exclude),
+                        "tour " + round + ", point (" + row + ", " + col + "), k=" + k);
+            }
+        }
+    }
+
+    @Test
+    void ringStopKeepsCandidatesBeyondTheFirstRingFound() {
+        // Premier trouvé dans l'anneau 1 (case en diagonale), mais un hôpital de l'anneau 2 est
+        // plus proche : la recherche ne s'arrête qu'une fois (r - 1) * cellSize au-delà du pire
+        SpatialIndex index = new SpatialIndex(1.0);
+        Hospital diagonal = hospital(1, 1.9, 1.9);   // anneau 1, à 2,69
+        Hospital straight = hospital(2, 2.1, 0.0);   // anneau 2, à 2,1
+        Hospital farther = hospital(3, 0.0, -3.5);   // anneau 4, à 3,5
+        List.of(diagonal, straight, farther).forEach(index::insert);
+
+        assertEquals(List.of(straight), index.nearest(0.0, 0.0, 1, 0, null));
+        assertEquals(List.of(straight, diagonal), index.nearest(0.0, 0.0, 2, 0, null));
+        assertEquals(List.of(straight, diagonal, farther), index.nearest(0.0, 0.0, 3, 0, null));
+        assertEquals(List.of(diagonal), index.nearest(0.0, 0.0, 1, 0, straight));
+        assertEquals(List.of(straight), index.nearest(0.0, 0.0, 3, 2.5, null));
+    }
+
+    @Test
+    void tiesAreBrokenByIdAndSameCellPointsAreAllSeen() {
+        SpatialIndex index = new SpatialIndex(10.0);
+        List<Hospital> sameCell = new ArrayList<>();
+        // Ids insérés dans le désordre, tous à la même distance du centre de la case
+        for (int id : new int[]{7, 3, 9, 1, 5}) {
+            double angle = id;
+            Hospital h = hospital(id, 5 + 2 * Math.cos(angle), 5 + 2 * Math.sin(angle));
+            sameCell.add(h);
+            index.insert(h);
+        }
+        Hospital same = hospital(4, 5.0, 7.0);
+        index.insert(same);
+        sameCell.add(same);
+
+        List<Hospital> expected = bruteForce(sameCell, 5.0, 5.0, 3, 0, null);
+        assertEquals(expected, index.nearest(5.0, 5.0, 3, 0, null));
+
+        // Deux hôpitaux au même point : le plus petit id d'abord
+        Hospital twinA = hospital(20, 1.0, 1.0);
+        Hospital twinB = hospital(11, 1.0, 1.0);
+        index.insert(twinA);
+        index.insert(twinB);
+        assertEquals(List.of(twinB, twinA), index.nearest(1.0, 1.0, 2, 0, null));
+    }
+
+    @Test
+    void kLargerThanThePopulation() {
+        SpatialIndex index = new SpatialIndex(2.0);
+        List<Hospital> all = List.of(hospital(1, 0, 0), hospital(2, 30, 4), hospital(3, -12, 8));
+        all.forEach(index::insert);
+
+        assertEquals(bruteForce(all, 1, 1, 3, 0, null), index.nearest(1, 1, 10, 0, null));
+        assertEquals(2, index.nearest(1, 1, 10, 0, all.get(0)).size());
+        assertEquals(List.of(), new SpatialIndex(1.0).nearest(0, 0, 5, 0, null));
+        assertEquals(List.of(), index.nearest(0, 0, 0, 0, null));
+    }
+
+    // ----- Outils -----
+
+    private static Hospital hospital(int id, double row, double col) {
+        Hospital h = new Hospital(id, "H" + id, new FlowManager(1.0, 0.3, 2.0));
+        h.setRow(row);
+        h.setCol(col);
+        return h;
+    }
+
+    private static double coordinate(SplittableRandom random, boolean grid) {
+        return grid ? random.nextInt(-10, 11) : random.nextDouble(-20, 20);
+    }
+
+    private static List<Hospital> bruteForce(List<Hospital> hospitals, double row, double col, int k,
+                                             double maxDistance, Hospital exclude) {
+        return hospitals.stream()
+                .filter(h -> h != exclude)
+                .filter(h -> maxDistance <= 0 || SpatialIndex.distance(h, row, col) <= maxDistance)
+                .sorted(Comparator.comparingDouble((Hospital h) -> SpatialIndex.distance(h, row, col))
+                        .thenComparingInt(Hospital::getId))
+                .limit(Math.max(0, k))
+                .toList();
+    }
+}
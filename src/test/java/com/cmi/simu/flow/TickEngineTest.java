@@ -0,0 +1,102 @@
+package com.cmi.simu.flow;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tick en deux phases (calcul en parallèle, commit dans l'ordre) : même résultat que le tick
+ * séquentiel, quel que soit le nombre de threads.
+ */
+class TickEngineTest {
+
+    private static final long SEED = 4242L;
+    private static final int[] THREADS = {1, 2, 4};
+
+    @Test
+    void parallelTickMatchesSequentialTickEveryTick() {
+        for (PatientModel model : PatientModel.values()) {
+            SeededSimulation sequential = new SeededSimulation(model, SEED, ring(12, model));
+            List<SeededSimulation> parallel = new ArrayList<>();
+            List<TickEngine> engines = new ArrayList<>();
+            for (int threads : THREADS) {
+                parallel.add(new SeededSimulation(model, SEED, ring(12, model)));
+                engines.add(new TickEngine(threads));
+            }
+            try {
+                for (int t = 1; t <= 500; t++) {
+                    squeeze(sequential.hospitals, t);
+                    for (SeededSimulation sim : parallel) {
+                        squeeze(sim.hospitals, t);
+                    }
+                    Map<Integer, Map<String, Integer>> exits = sequential.tick();
+                    String state = state(sequential.hospitals);
+                    for (int k = 0; k < THREADS.length; k++) {
+                        String where = model + ", " + THREADS[k] + " thread(s), tick " + t;
+                        assertEquals(exits, parallel.get(k).tick(engines.get(k)), where + " : sorties");
+                        assertEquals(state, state(parallel.get(k).hospitals), where + " : charges et décès");
+                    }
+                }
+                for (SeededSimulation sim : parallel) {
+                    assertArrayEquals(sequential.captureBytes(), sim.captureBytes(), model + " : état complet");
+                }
+            } finally {
+                engines.forEach(TickEngine::close);
+            }
+            // La phase de commit a bien servi
+            assertTrue(sequential.hospitals.stream().mapToLong(Hospital::getInterHospitalTransfers).sum() > 0, model.name());
+        }
+    }
+
+    /**
+     * Réduit de moitié, pour 25 ticks, la capacité des unités d'un hôpital à tour de rôle : le
+     * surplus part chez les voisins à la phase de commit.
+     */
+    private static void squeeze(List<Hospital> hospitals, int tick) {
+        Hospital h = hospitals.get(tick / 50 % hospitals.size());
+        for (HospitalUnit unit : h.getUnits()) {
+            if (tick % 50 == 0) {
+                unit.setMaxCapacity(unit.getMaxCapacity() / 2);
+            } else if (tick % 50 == 25) {
+                unit.setMaxCapacity(unit.getMaxCapacity() * 2);
+            }
+        }
+    }
+
+    /**
+     * Anneau de "n" hôpitaux, alternativement chargés et calmes (voir MainFlow#buildHospitalNetwork).
+     */
+    private static List<Hospital> ring(int n, PatientModel model) {
+        List<Hospital> hospitals = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            FlowManager fm = i % 2 == 0 ? new FlowManager(22.0, 4.4, 3.0) : new FlowManager(1.0, 0.3, 2.0);
+            hospitals.add(new Hospital(i + 1, "H" + (i + 1), fm, model));
+        }
+        for (int i = 0; i < n; i++) {
+            hospitals.get(i).addNeighbor(hospitals.get((i + 1) % n));
+            hospitals.get((i + 1) % n).addNeighbor(hospitals.get(i));
+        }
+        return hospitals;
+    }
+
+    /**
+     * Par unité : charge, arrivées acceptées et refusées, décès ; par hôpital : transferts.
+     */
+    private static String state(List<Hospital> hospitals) {
+        StringBuilder sb = new StringBuilder();
+        for (Hospital h : hospitals) {
+            sb.append(h.getId()).append('/').append(h.getInterHospitalTransfers()).append(':');
+            for (HospitalUnit unit : h.getUnits()) {
+                sb.append(unit.getCurrentLoad()).append('/').append(unit.getAcceptedArrivals())
+                        .append('/').append(unit.getRejectedArrivals()).append('/').append(unit.getDeaths()).append(';');
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,263 @@
+package com.cmi.simu.flow;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Journal des ticks : réouverture d'un journal abîmé ou incompatible, rejeu des créations et
+ * suppressions sans checkpoint de base supplémentaire, rétention des checkpoints de base.
+ * Chaque tick rejoué est comparé à l'état de la simulation à ce tick.
+ */
+class TickJournalTest {
+
+    private static final long SEED = 77L;
+
+    @Test
+    void corruptOrMismatchedJournalIsSetAsideThenReplayable() throws IOException {
+        String unknownKind = "Journal-test-inconnu";
+        List<byte[]> bad = List.of(
+                // Octets quelconques
+                "pas un journal du tout".getBytes(StandardCharsets.UTF_8),
+                // En-tête dont les types n'ont pas les ids de ce processus
+                record(1, 1, 2, "Chirurgie", "Urgences"),
+                // Types compatibles (dont un inconnu), mais suivis d'un type d'enregistrement inconnu
+                concat(record(1, 1, 5, "Urgences", "Chirurgie", "Medecine", "Bloque", unknownKind), record(42)),
+                // Pas d'en-tête au début
+                record(3, 0));
+
+        for (byte[] content : bad) {
+            Path dir = Files.createTempDirectory("journal");
+            Files.write(dir.resolve("journal.bin"), content);
+            Files.write(dir.resolve("base-3.ckpt"), new byte[]{1, 2, 3});   // checkpoint d'un autre journal
+
+            Simulation sim = new Simulation(new TickJournal(dir, 10, 100));
+            sim.run(25);
+            sim.journal.close();
+            assertEquals(-1, UnitKind.idOf(unknownKind), "type d'un journal refusé enregistré");
+            try (Stream<Path> files = Files.list(dir)) {
+                assertEquals(1, files.filter(f -> f.getFileName().toString().startsWith("journal-")).count());
+            }
+
+            try (TickJournal reopened = new TickJournal(dir, 10, 100)) {
+                for (long t = 1; t <= 25; t++) {
+                    assertReplayed(sim, reopened, t);
+                }
+                assertFalse(Files.exists(dir.resolve("base-3.ckpt")));
+            }
+        }
+    }
+
+    @Test
+    void createAndDeleteAreReplayedWithoutNewBase() throws IOException {
+        Path dir = Files.createTempDirectory("journal");
+        Simulation sim = new Simulation(new TickJournal(dir, 1000, 100));
+        sim.run(10);
+
+        // Nouvel hôpital relié aux deux existants (qui l'adoptent)
+        Hospital created = new Hospital(3, "C", new FlowManager(5.0, 1.0, 2.0));
+        created.seedRandom(SEED);
+        created.setClock(sim.clock);
+        for (Hospital h : sim.hospitals) {
+            created.addNeighbor(h);
+            h.addNeighbor(created);
+        }
+        sim.hospitals.add(created);
+        sim.journal.recordCreate(sim.seeded.tick, created, List.copyOf(sim.hospitals.subList(0, 2)));
+        sim.run(15);
+
+        // Suppression du premier : les deux autres le perdent
+        Hospital deleted = sim.hospitals.removeFirst();
+        for (Hospital h : sim.hospitals) {
+            h.removeNeighbor(deleted);
+        }
+        sim.journal.recordDelete(sim.seeded.tick, deleted.getId(), List.copyOf(sim.hospitals));
+        sim.run(15);
+
+        for (long t = 1; t <= 40; t++) {
+            assertReplayed(sim, sim.journal, t);
+        }
+        sim.journal.flush();
+        assertEquals(List.of("base-0.ckpt"), baseFiles(dir));
+        sim.journal.close();
+    }
+
+    @Test
+    void onlyTheLastBasesAreKept() throws IOException {
+        Path dir = Files.createTempDirectory("journal");
+        Simulation sim = new Simulation(new TickJournal(dir, 5, 3));
+        sim.run(40);
+        sim.journal.flush();
+        assertEquals(List.of("base-25.ckpt", "base-30.ckpt", "base-35.ckpt"), baseFiles(dir));
+        assertReplayed(sim, sim.journal, 40);
+        assertReplayed(sim, sim.journal, 26);
+        assertThrows(NoSuchElementException.class, () -> sim.journal.replay(25));
+        assertEquals(25, sim.journal.readTick(25).tick());   // toujours lisible
+
+        // Reprise à 30 : les bases postérieures disparaissent, une nouvelle est prise à 30
+        sim.journal.recordRestore(30);
+        sim.journal.beforeTick(30, sim.seeded::capture);
+        sim.journal.flush();
+        assertEquals(List.of("base-25.ckpt", "base-30.ckpt"), baseFiles(dir));
+        sim.journal.close();
+
+        new TickJournal(dir, 5, 1).close();
+        assertEquals(List.of("base-30.ckpt"), baseFiles(dir));
+    }
+
+    @Test
+    void failedWriteOnlyLosesItsOwnTicks() throws IOException {
+        Path dir = Files.createTempDirectory("journal");
+        // Le deuxième lot (ticks 25 à 48, avec les repères des checkpoints 30 et 40) n'est pas écrit
+        TickJournal journal = new TickJournal(dir, 10, 100) {
+            int batches;
+
+            @Override
+            void writeBatch(ByteBuffer batch, long position) throws IOException {
+                if (++batches == 2) throw new IOException("disque plein");
+                super.writeBatch(batch, position);
+            }
+        };
+        Simulation sim = new Simulation(journal);
+        sim.run(48);
+        IOException error = assertThrows(IOException.class, journal::flush);
+        assertTrue(error.getMessage().contains("disque plein"), error.getMessage());
+        journal.flush();   // signalée une fois
+
+        sim.run(52);
+        for (long t = 1; t <= 24; t++) {
+            assertReplayed(sim, journal, t);
+        }
+        for (long t = 25; t <= 48; t++) {
+            long tick = t;
+            assertThrows(NoSuchElementException.class, () -> journal.readTick(tick));
+            assertThrows(NoSuchElementException.class, () -> journal.replay(tick));
+        }
+        // Nouveau checkpoint de base après l'échec : la suite est rejouable
+        for (long t = 49; t <= 100; t++) {
+            assertReplayed(sim, journal, t);
+        }
+        assertEquals(100, journal.readTick(100).tick());
+        journal.close();
+    }
+
+    // ----- Outils -----
+
+    private static void assertReplayed(Simulation sim, TickJournal journal, long tick) throws IOException {
+        TickJournal.Replayed replayed = journal.replay(tick);
+        assertTrue(replayed.verified(), "tick " + tick);
+        assertEquals(sim.states.get(tick), state(replayed.hospitals()), "tick " + tick);
+    }
+
+    private static List<String> baseFiles(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(f -> f.getFileName().toString())
+                    .filter(n -> n.startsWith("base-"))
+                    .sorted((a, b) -> Long.compare(tickOf(a), tickOf(b)))
+                    .toList();
+        }
+    }
+
+    private static long tickOf(String baseFile) {
+        return Long.parseLong(baseFile.substring("base-".length(), baseFile.indexOf('.')));
+    }
+
+    /**
+     * Hôpitaux, voisins, et patients de chaque unité (priorité, temps restant, temps passé).
+     */
+    private static String state(List<Hospital> hospitals) {
+        StringBuilder sb = new StringBuilder();
+        for (Hospital h : hospitals) {
+            sb.append(h.getId()).append(h.getNeighbors().stream().map(Hospital::getId).toList()).append(':');
+            for (HospitalUnit unit : h.getUnits()) {
+                for (PriorityLevel prio : PriorityLevel.values()) {
+                    PatientQueue q = unit.getQueue(prio);
+                    for (int i = 0; i < q.size(); i++) {
+                        sb.append(prio.ordinal()).append('/').append(q.getTimeToTreat(i))
+                                .append('/').append(q.getTimeSpentInService(i)).append(',');
+                    }
+                }
+                sb.append(unit.getMaxCapacity()).append(';');
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Enregistrement brut du journal : type, taille, puis des varints et des chaînes
+     * (en-tête : format, nombre de types, noms des types).
+     */
+    private static byte[] record(int type, Object... fields) {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        for (Object field : fields) {
+            if (field instanceof Integer i) {
+                varint(payload, i);
+            } else {
+                byte[] bytes = ((String) field).getBytes(StandardCharsets.UTF_8);
+                varint(payload, bytes.length);
+                payload.writeBytes(bytes);
+            }
+        }
+        byte[] body = payload.toByteArray();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(type);
+        varint(out, body.length);
+        out.writeBytes(body);
+        return out.toByteArray();
+    }
+
+    private static void varint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static byte[] concat(byte[] a, byte[] b) {
+        byte[] c = new byte[a.length + b.length];
+        System.arraycopy(a, 0, c, 0, a.length);
+        System.arraycopy(b, 0, c, a.length, b.length);
+        return c;
+    }
+
+    /**
+     * Simulation journalisée comme celle du serveur (voir HospitalService#tick), avec l'état
+     * de chaque tick pour comparer aux rejeux.
+     */
+    private static final class Simulation {
+        final SeededSimulation seeded = new SeededSimulation(PatientModel.INDIVIDUAL, SEED);
+        final Clock clock = seeded.clock;
+        final List<Hospital> hospitals = seeded.hospitals;
+        final TickJournal journal;
+        final Map<Long, String> states = new HashMap<>();
+
+        Simulation(TickJournal journal) {
+            this.journal = journal;
+        }
+
+        void run(int ticks) {
+            for (int t = 0; t < ticks; t++) {
+                journal.beforeTick(seeded.tick, seeded::capture);
+                Map<Integer, Map<String, Integer>> exits = seeded.tick();
+                journal.recordTick(seeded.tick, clock.getTime(), seeded.scenario.isInEvent(), hospitals, exits);
+                states.put(seeded.tick, state(hospitals));
+            }
+        }
+    }
+}
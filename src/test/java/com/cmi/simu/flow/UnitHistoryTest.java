@@ -0,0 +1,113 @@
+package com.cmi.simu.flow;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Anneau d'historique par unité : après plusieurs tours, une requête relit exactement les derniers
+ * ticks enregistrés (comparés à un relevé fait à côté), et plus rien une fois l'historique fermé.
+ */
+class UnitHistoryTest {
+
+    private static final long SEED = 17L;
+    private static final int CAPACITY = 24;
+    private static final int TICKS = 100;
+    private static final String UNIT = "Urgences";
+
+    @Test
+    void queriesReadTheLastTicksAcrossTheWrapPoint() {
+        SeededSimulation sim = new SeededSimulation(PatientModel.INDIVIDUAL, SEED);
+        Hospital hospital = sim.hospitals.getFirst();
+        List<Integer> loads = new ArrayList<>();
+        List<Integer> exits = new ArrayList<>();
+
+        try (UnitHistory history = new UnitHistory(CAPACITY, 100)) {
+            sim.hospitals.forEach(history::add);
+            for (int t = 0; t < TICKS; t++) {
+                Map<Integer, Map<String, Integer>> tickExits = sim.tick();
+                history.record(sim.tick, sim.hospitals, tickExits);
+                loads.add(hospital.findUnitByName(UNIT).getCurrentLoad());
+                exits.add(tickExits.get(hospital.getId()).getOrDefault(UNIT, 0));
+            }
+            assertTrue(loads.stream().distinct().count() > 1, "charge constante : le test ne vérifie rien");
+
+            // Seuls les CAPACITY derniers ticks restent ; le tick 96 est revenu en tête de l'anneau
+            UnitHistory.Range all = history.query(hospital.getId(), UNIT, 0, Long.MAX_VALUE, 1000);
+            assertEquals(TICKS - CAPACITY + 1, all.from());
+            assertEquals(TICKS, all.to());
+            assertEquals(CAPACITY, all.bucketStart().length);
+            assertSeries(all, "load", loads);
+            assertSeries(all, "exits", exits);
+
+            // Regroupé en intervalles de tailles inégales, dont un à cheval sur la jointure
+            UnitHistory.Range coarse = history.query(hospital.getId(), UNIT, 80, 99, 3);
+            assertEquals(80, coarse.from());
+            assertEquals(99, coarse.to());
+            assertArrayEquals(new long[]{80, 86, 93}, coarse.bucketStart());
+            assertSeries(coarse, "load", loads);
+            assertSeries(coarse, "exits", exits);
+
+            // Hors de la fenêtre gardée : plage vide
+            UnitHistory.Range gone = history.query(hospital.getId(), UNIT, 1, 50, 10);
+            assertEquals(0, gone.bucketStart().length);
+        }
+    }
+
+    @Test
+    void closeReleasesTheRingAndForgetsEveryUnit() {
+        SeededSimulation sim = new SeededSimulation(PatientModel.INDIVIDUAL, SEED);
+        int id = sim.hospitals.getFirst().getId();
+        UnitHistory history = new UnitHistory(CAPACITY, 100);
+        sim.hospitals.forEach(history::add);
+        history.record(1, sim.hospitals, sim.tick());
+        assertTrue(history.reservedBytes() > 0);
+        assertEquals(1, history.query(id, UNIT, 0, 10, 10).bucketStart().length);
+
+        history.close();
+        assertEquals(0, history.reservedBytes());
+        assertThrows(NoSuchElementException.class, () -> history.query(id, UNIT, 0, 10, 10));
+        // Le thread de la simulation peut encore écrire : c'est ignoré
+        assertDoesNotThrow(() -> {
+            history.add(sim.hospitals.getFirst());
+            history.record(2, sim.hospitals, sim.tick());
+            history.reset(sim.hospitals);
+            history.remove(id);
+            history.close();
+        });
+        assertThrows(NoSuchElementException.class, () -> history.query(id, UNIT, 0, 10, 10));
+    }
+
+    /**
+     * Min, max et moyenne de chaque intervalle, recalculés sur le relevé (indice = tick - 1).
+     */
+    private static void assertSeries(UnitHistory.Range range, String column, List<Integer> values) {
+        UnitHistory.Series series = range.series().get(UnitHistory.COLUMNS.indexOf(column));
+        long[] starts = range.bucketStart();
+        for (int b = 0; b < starts.length; b++) {
+            long end = b + 1 < starts.length ? starts[b + 1] : range.to() + 1;
+            int min = Integer.MAX_VALUE;
+            int max = Integer.MIN_VALUE;
+            long sum = 0;
+            for (long t = starts[b]; t < end; t++) {
+                int v = values.get((int) t - 1);
+                min = Math.min(min, v);
+                max = Math.max(max, v);
+                sum += v;
+            }
+            String where = column + " intervalle " + b;
+            assertEquals(min, series.min()[b], where);
+            assertEquals(max, series.max()[b], where);
+            assertEquals((double) sum / (end - starts[b]), series.avg()[b], 1e-9, where);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.cmi.simu.routes.controller;
+
+import com.cmi.simu.flow.FlowManager;
+import com.cmi.simu.flow.Hospital;
+import com.cmi.simu.flow.TickEngine;
+import com.cmi.simu.flow.UnitHistory;
+import com.cmi.simu.routes.config.SimulationProperties;
+import com.cmi.simu.routes.records.HospitalDTO;
+import com.cmi.simu.routes.service.HospitalService;
+import com.cmi.simu.routes.service.TickBroadcaster;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Lectures conditionnelles (ETag = version du snapshot, 304) et attente longue, appelées
+ * directement sur le contrôleur de la simulation du serveur (sans thread de ticks).
+ */
+class HospitalControllerTest {
+
+    private SimulationProperties properties;
+    private TickEngine engine;
+    private TickBroadcaster broadcaster;
+    private UnitHistory history;
+    private HospitalService simulation;
+    private HospitalController controller;
+
+    @BeforeEach
+    void setUp() {
+        properties = new SimulationProperties();
+        properties.setSeed(3L);
+        engine = new TickEngine(1);
+        broadcaster = new TickBroadcaster(new ObjectMapper(), properties);
+        history = new UnitHistory(24, 64);
+        simulation = new HospitalService(properties, engine, null, broadcaster, null, history);
+        simulation.createHospital(new Hospital(0, "A", new FlowManager(1.0, 0.3, 2.0))).join();
+        controller = new HospitalController(simulation, broadcaster, null, properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        broadcaster.close();
+        history.close();
+        engine.close();
+    }
+
+    @Test
+    void aKnownVersionIsNotSentAgain() {
+        ResponseEntity<List<HospitalDTO>> first = controller.getAllHospitals(null, null);
+        assertEquals(HttpStatus.OK, first.getStatusCode());
+        assertEquals(1, first.getBody().size());
+        String etag = first.getHeaders().getETag();
+        assertEquals("\"" + simulation.getSnapshot().version() + "\"", etag);
+
+        // Même version, sous toutes les formes d'If-None-Match : 304 sans corps, même ETag
+        for (String ifNoneMatch : List.of(etag, "W/" + etag, "\"0\", " + etag, "\"autre\", " + etag)) {
+            ResponseEntity<List<HospitalDTO>> again = controller.getAllHospitals(null, ifNoneMatch);
+            assertEquals(HttpStatus.NOT_MODIFIED, again.getStatusCode(), ifNoneMatch);
+            assertNull(again.getBody());
+            assertEquals(etag, again.getHeaders().getETag());
+        }
+        assertEquals(HttpStatus.NOT_MODIFIED, controller.getChanges(null, null, etag).getStatusCode());
+
+        // Un tick publie une nouvelle version : l'ancien ETag ne suffit plus
+        simulation.tick();
+        ResponseEntity<List<HospitalDTO>> next = controller.getAllHospitals(null, etag);
+        assertEquals(HttpStatus.OK, next.getStatusCode());
+        assertEquals("\"" + simulation.getSnapshot().version() + "\"", next.getHeaders().getETag());
+        assertEquals(HttpStatus.OK, controller.getChanges(null, null, etag).getStatusCode());
+    }
+
+    @Test
+    void aLongPollWithoutNewSnapshotEndsIn304AtTheCappedTimeout() {
+        properties.setLongPollMaxSeconds(1);
+        long version = simulation.getSnapshot().version();
+        long start = System.nanoTime();
+        // 30 s demandées, ramenées au plafond d'une seconde
+        ResponseEntity<List<HospitalDTO>> response = controller.awaitHospitals(null, version, 30, null);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertEquals("\"" + version + "\"", response.getHeaders().getETag());
+        assertTrue(elapsedMillis >= 900 && elapsedMillis < 5_000, elapsedMillis + " ms");
+    }
+
+    @Test
+    void aLongPollAnswersAsSoonAsATickIsPublished() throws InterruptedException {
+        long version = simulation.getSnapshot().version();
+        Thread ticker = Thread.ofPlatform().start(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                return;
+            }
+            simulation.tick();
+        });
+        long start = System.nanoTime();
+        ResponseEntity<List<HospitalDTO>> response = controller.awaitHospitals(null, null, 10, "\"" + version + "\"");
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        ticker.join();
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNotNull(response.getBody());
+        assertEquals("\"" + (version + 1) + "\"", response.getHeaders().getETag());
+        assertTrue(elapsedMillis < 5_000, elapsedMillis + " ms");
+    }
+}
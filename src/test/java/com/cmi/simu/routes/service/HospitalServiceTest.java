@@ -0,0 +1,126 @@
+package com.cmi.simu.routes.service;
+
+import com.cmi.simu.flow.FlowManager;
+import com.cmi.simu.flow.Hospital;
+import com.cmi.simu.flow.SimulationSnapshot;
+import com.cmi.simu.flow.TickEngine;
+import com.cmi.simu.flow.UnitHistory;
+import com.cmi.simu.routes.config.SimulationProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * File de commandes : plusieurs routes soumettent en même temps, le thread de la simulation
+ * applique tout entre deux ticks, dans l'ordre de soumission de chaque producteur.
+ */
+class HospitalServiceTest {
+
+    private static final int PRODUCERS = 4;
+    private static final int COMMANDS = 50;
+
+    @Test
+    void commandsWaitForTheSimulationThreadAndKeepEachProducersOrder() throws Exception {
+        SimulationProperties properties = new SimulationProperties();
+        try (TickEngine engine = new TickEngine(2);
+             TickBroadcaster broadcaster = new TickBroadcaster(new ObjectMapper(), properties);
+             UnitHistory history = new UnitHistory(24, 4096)) {
+            HospitalService service = new HospitalService(properties, engine, broadcaster, history, 7L);
+            // Un thread de simulation existe : les commandes attendent qu'il les applique
+            AtomicInteger wakeups = new AtomicInteger();
+            service.setCommandWakeup(wakeups::incrementAndGet);
+
+            CyclicBarrier start = new CyclicBarrier(PRODUCERS);
+            List<List<CompletableFuture<Hospital>>> results = new ArrayList<>();
+            List<Thread> producers = new ArrayList<>();
+            for (int p = 0; p < PRODUCERS; p++) {
+                List<CompletableFuture<Hospital>> own = new ArrayList<>();
+                results.add(own);
+                int producer = p;
+                producers.add(Thread.ofPlatform().start(() -> {
+                    try {
+                        start.await();
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                    for (int i = 0; i < COMMANDS; i++) {
+                        own.add(service.createHospital(hospital(producer, i)));
+                    }
+                }));
+            }
+            for (Thread producer : producers) {
+                producer.join();
+            }
+
+            // Rien n'est appliqué ni publié par les threads des routes
+            assertEquals(PRODUCERS * COMMANDS, wakeups.get());
+            assertEquals(0, service.getSnapshot().version());
+            assertTrue(service.getHospitals().isEmpty());
+            for (List<CompletableFuture<Hospital>> own : results) {
+                own.forEach(f -> assertFalse(f.isDone()));
+            }
+
+            // Le tick applique d'abord tout le lot (un seul snapshot, au tick 0), puis avance
+            CompletableFuture<SimulationSnapshot> afterCommands = service.awaitSnapshotAfter(0);
+            service.tick();
+            SimulationSnapshot applied = afterCommands.getNow(null);
+            assertNotNull(applied);
+            assertEquals(1, applied.version());
+            assertEquals(0, applied.tick());
+            assertEquals(PRODUCERS * COMMANDS, applied.hospitals().size());
+            assertEquals(2, service.getSnapshot().version());
+            assertEquals(1, service.getSnapshot().tick());
+
+            // Ids attribués dans l'ordre d'application : croissants pour chaque producteur
+            for (int p = 0; p < PRODUCERS; p++) {
+                int previous = 0;
+                for (int i = 0; i < COMMANDS; i++) {
+                    Hospital created = results.get(p).get(i).getNow(null);
+                    assertNotNull(created);
+                    assertEquals("p" + p + "-" + i, created.getName());
+                    assertTrue(created.getId() > previous, "producteur " + p + ", commande " + i);
+                    previous = created.getId();
+                }
+            }
+
+            // Rien en attente : le tick suivant ne publie que lui-même
+            assertEquals(0, service.applyCommands());
+            service.tick();
+            assertEquals(3, service.getSnapshot().version());
+        }
+    }
+
+    @Test
+    void withoutSimulationThreadTheCallerAppliesItsCommand() throws Exception {
+        SimulationProperties properties = new SimulationProperties();
+        try (TickEngine engine = new TickEngine(1);
+             TickBroadcaster broadcaster = new TickBroadcaster(new ObjectMapper(), properties);
+             UnitHistory history = new UnitHistory(24, 64)) {
+            HospitalService service = new HospitalService(properties, engine, broadcaster, history, 7L);
+            CompletableFuture<Hospital> created = service.createHospital(hospital(0, 0));
+            assertTrue(created.isDone());
+            int id = created.get().getId();
+            // Le résultat n'est rendu qu'une fois le changement publié
+            assertNotNull(service.getSnapshot().hospital(id));
+            assertEquals(1, service.getSnapshot().version());
+        }
+    }
+
+    // Comme un hôpital reçu en JSON par POST /api/hospitals
+    private static Hospital hospital(int producer, int i) {
+        Hospital hospital = new Hospital(0, "p" + producer + "-" + i, new FlowManager(1.0, 0.3, 2.0));
+        hospital.setRow(producer * 10);
+        hospital.setCol(i);
+        return hospital;
+    }
+}
@@ -0,0 +1,122 @@
+package com.cmi.simu.routes.service;
+
+import com.cmi.simu.flow.MainFlow;
+import com.cmi.simu.flow.TickEngine;
+import com.cmi.simu.flow.UnitHistory;
+import com.cmi.simu.routes.config.SimulationProperties;
+import com.cmi.simu.routes.records.SessionInfo;
+import com.cmi.simu.routes.records.SessionRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Éviction des sessions (inactives, en nombre, en mémoire) et refus d'une session qui dépasse
+ * à elle seule le budget. Une session copiée de la carte de démonstration pèse environ 350 Ko
+ * (surtout son historique hors tas) : deux tiennent dans 1 Mo, pas trois.
+ */
+class SessionServiceTest {
+
+    private static final SessionRequest EMPTY = new SessionRequest(1L, false);
+    private static final SessionRequest COPY = new SessionRequest(1L, true);
+
+    private SimulationProperties properties;
+    private TickEngine engine;
+    private SessionService sessions;
+
+    @BeforeEach
+    void setUp() {
+        properties = new SimulationProperties();
+        engine = new TickEngine(1);
+        HospitalService server = new HospitalService(properties, engine,
+                new TickBroadcaster(new ObjectMapper(), properties), new UnitHistory(24, 64), 1L);
+        server.adoptNetwork(MainFlow.buildHospitalNetwork());
+        sessions = new SessionService(properties, engine, new ObjectMapper(), server);
+    }
+
+    @AfterEach
+    void tearDown() {
+        sessions.close();
+        engine.close();
+    }
+
+    @Test
+    void idleSessionsAreEvicted() throws InterruptedException {
+        properties.setSessionIdleMinutes(0);
+        String idle = sessions.create(EMPTY).id();
+        Thread.sleep(5);
+        String fresh = sessions.create(EMPTY).id();
+
+        assertEquals(List.of(fresh), ids());
+        assertStatus(HttpStatus.NOT_FOUND, () -> sessions.get(idle));
+    }
+
+    @Test
+    void theLeastRecentlyUsedSessionMakesRoomForANewOne() {
+        properties.setSessionMaxCount(2);
+        String a = sessions.create(EMPTY).id();
+        String b = sessions.create(EMPTY).id();
+        sessions.get(a);
+        String c = sessions.create(EMPTY).id();
+
+        assertEquals(List.of(a, c), ids());
+        assertStatus(HttpStatus.NOT_FOUND, () -> sessions.get(b));
+    }
+
+    @Test
+    void theMemoryBudgetEvictsTheLeastRecentlyUsedSessions() {
+        properties.setSessionMemoryBudgetMb(1);
+        SessionInfo first = sessions.create(COPY);
+        long budget = 1024 * 1024;
+        assertTrue(2 * first.estimatedBytes() <= budget && 3 * first.estimatedBytes() > budget,
+                "taille de session inattendue : " + first.estimatedBytes());
+
+        String a = first.id();
+        String b = sessions.create(COPY).id();
+        sessions.get(a);
+        String c = sessions.create(COPY).id();
+
+        assertEquals(List.of(a, c), ids());
+        assertStatus(HttpStatus.NOT_FOUND, () -> sessions.get(b));
+    }
+
+    @Test
+    void aSessionOverTheBudgetOnItsOwnIsRefused() {
+        properties.setSessionMemoryBudgetMb(0);
+        assertStatus(HttpStatus.INSUFFICIENT_STORAGE, () -> sessions.create(EMPTY));
+        assertEquals(List.of(), ids());
+    }
+
+    @Test
+    void aSessionThatOutgrowsTheBudgetStopsAdvancing() {
+        properties.setSessionMemoryBudgetMb(1);
+        String a = sessions.create(COPY).id();
+        String b = sessions.create(COPY).id();
+        assertEquals(3, sessions.advance(a, 3).tick());
+
+        // Le budget baisse sous la taille de "a" : elle reste, mais n'avance plus, et "b" laisse la place
+        properties.setSessionMemoryBudgetMb(0);
+        assertStatus(HttpStatus.INSUFFICIENT_STORAGE, () -> sessions.advance(a, 5));
+        assertEquals(List.of(a), ids());
+        assertEquals(3, sessions.get(a).info().tick());
+        assertStatus(HttpStatus.NOT_FOUND, () -> sessions.get(b));
+    }
+
+    private List<String> ids() {
+        return sessions.list().stream().map(SessionInfo::id).toList();
+    }
+
+    private static void assertStatus(HttpStatus status, Runnable call) {
+        ResponseStatusException e = assertThrows(ResponseStatusException.class, call::run);
+        assertEquals(status, e.getStatusCode());
+    }
+}
@@ -0,0 +1,67 @@
+package com.cmi.simu.routes.service;
+
+import com.cmi.simu.flow.SimulationSnapshot;
+import com.cmi.simu.routes.config.SimulationProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Plafond d'abonnés au flux : des abonnements simultanés ne le dépassent jamais.
+ */
+class TickBroadcasterTest {
+
+    private static final int MAX_SUBSCRIBERS = 5;
+    private static final int CLIENTS = 32;
+    private static final int ROUNDS = 50;
+
+    @Test
+    void concurrentSubscribersNeverExceedTheCap() throws Exception {
+        SimulationProperties properties = new SimulationProperties();
+        properties.setStreamMaxSubscribers(MAX_SUBSCRIBERS);
+
+        for (int round = 0; round < ROUNDS; round++) {
+            try (TickBroadcaster broadcaster = new TickBroadcaster(new ObjectMapper(), properties)) {
+                broadcaster.publish(SimulationSnapshot.EMPTY);
+                CyclicBarrier start = new CyclicBarrier(CLIENTS);
+                AtomicInteger accepted = new AtomicInteger();
+                List<Throwable> unexpected = new ArrayList<>();
+                List<Thread> clients = new ArrayList<>();
+                for (int c = 0; c < CLIENTS; c++) {
+                    clients.add(Thread.ofPlatform().start(() -> {
+                        try {
+                            start.await();
+                            broadcaster.subscribe();
+                            accepted.incrementAndGet();
+                        } catch (ResponseStatusException e) {
+                            if (e.getStatusCode() != HttpStatus.SERVICE_UNAVAILABLE) {
+                                synchronized (unexpected) {
+                                    unexpected.add(e);
+                                }
+                            }
+                        } catch (Exception e) {
+                            synchronized (unexpected) {
+                                unexpected.add(e);
+                            }
+                        }
+                    }));
+                }
+                for (Thread client : clients) {
+                    client.join();
+                }
+
+                assertEquals(List.of(), unexpected);
+                assertEquals(MAX_SUBSCRIBERS, accepted.get(), "tour " + round);
+                assertEquals(MAX_SUBSCRIBERS, broadcaster.getSubscriberCount(), "tour " + round);
+            }
+        }
+    }
+}